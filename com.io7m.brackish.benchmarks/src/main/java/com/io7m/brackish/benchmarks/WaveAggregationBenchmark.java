@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.benchmarks;
+
+import com.io7m.brackish.core.internal.WaveColumnAggregation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the column aggregation performed by collapsed rendering.
+ * Each invocation aggregates the entire model into {@code width} columns
+ * for every channel.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaveAggregationBenchmark
+{
+  /**
+   * The number of frames sampled per column by coarse aggregation; this
+   * matches the renderer.
+   */
+
+  private static final double COARSE_FRAMES_PER_COLUMN = 8.0;
+
+  @Param({"65536", "1048576", "4194304"})
+  private int frames;
+
+  @Param({"640", "1920", "3840"})
+  private int width;
+
+  @Param({"1", "2", "8"})
+  private int channels;
+
+  private WaveBenchmarkModel model;
+  private double[] columnMax;
+  private double[] columnMin;
+  private double framesPerColumn;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public WaveAggregationBenchmark()
+  {
+
+  }
+
+  /**
+   * Create the model and column buffers.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.model = new WaveBenchmarkModel(this.channels, this.frames);
+    this.columnMax = new double[this.width];
+    this.columnMin = new double[this.width];
+    this.framesPerColumn = (double) this.frames / (double) this.width;
+  }
+
+  /**
+   * Aggregate every column exactly.
+   *
+   * @return The number of frames read
+   */
+
+  @Benchmark
+  public long aggregateExact()
+  {
+    return this.aggregate(1.0);
+  }
+
+  /**
+   * Aggregate every column with the coarse stride used ahead of
+   * progressive refinement.
+   *
+   * @return The number of frames read
+   */
+
+  @Benchmark
+  public long aggregateCoarse()
+  {
+    return this.aggregate(
+      Math.max(1.0, Math.floor(this.framesPerColumn / COARSE_FRAMES_PER_COLUMN))
+    );
+  }
+
+  private long aggregate(
+    final double stride)
+  {
+    var reads = 0L;
+    for (int channel = 0; channel < this.channels; ++channel) {
+      for (int x = 0; x < this.width; ++x) {
+        reads += WaveColumnAggregation.aggregateColumn(
+          this.model,
+          channel,
+          0.0,
+          this.framesPerColumn,
+          stride,
+          x,
+          this.columnMax,
+          this.columnMin
+        );
+      }
+    }
+    return reads;
+  }
+}
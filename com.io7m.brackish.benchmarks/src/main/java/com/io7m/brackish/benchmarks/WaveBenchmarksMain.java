@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the GC profiler enabled, so that allocation rates
+ * are reported alongside timings. Arguments are interpreted as standard JMH
+ * command-line options; if no benchmarks are selected, all of the benchmarks
+ * in this package are run.
+ */
+
+public final class WaveBenchmarksMain
+{
+  private WaveBenchmarksMain()
+  {
+
+  }
+
+  /**
+   * The main entry point.
+   *
+   * @param args The command-line arguments
+   *
+   * @throws RunnerException            On errors
+   * @throws CommandLineOptionException On invalid arguments
+   */
+
+  public static void main(
+    final String[] args)
+    throws RunnerException, CommandLineOptionException
+  {
+    final var commandLine =
+      new CommandLineOptions(args);
+
+    final var options =
+      new OptionsBuilder()
+        .parent(commandLine)
+        .addProfiler(GCProfiler.class);
+
+    if (commandLine.getIncludes().isEmpty()) {
+      options.include(WaveBenchmarksMain.class.getPackageName() + ".*");
+    }
+
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the sample read paths of the model interface. Each
+ * invocation reads every frame of every channel once.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaveModelReadBenchmark
+{
+  @Param({"65536", "1048576", "4194304"})
+  private int frames;
+
+  @Param({"1", "2", "8"})
+  private int channels;
+
+  private WaveBenchmarkModel model;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public WaveModelReadBenchmark()
+  {
+
+  }
+
+  /**
+   * Create the model.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.model = new WaveBenchmarkModel(this.channels, this.frames);
+  }
+
+  /**
+   * Read every frame with the range-checked accessor.
+   *
+   * @return The sum of the samples
+   */
+
+  @Benchmark
+  public double readSample()
+  {
+    var sum = 0.0;
+    for (int channel = 0; channel < this.channels; ++channel) {
+      for (long frame = 0L; frame < this.frames; ++frame) {
+        sum += this.model.sample(channel, frame);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Read every frame with the defaulting accessor.
+   *
+   * @return The sum of the samples
+   */
+
+  @Benchmark
+  public double readSampleOrDefault()
+  {
+    var sum = 0.0;
+    for (int channel = 0; channel < this.channels; ++channel) {
+      for (long frame = 0L; frame < this.frames; ++frame) {
+        sum += this.model.sampleOrDefault(channel, frame, 0.0);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Read every frame with the interpolating accessor at fractional
+   * positions, as the collapsed renderer does.
+   *
+   * @return The sum of the samples
+   */
+
+  @Benchmark
+  public double readSampleLerp()
+  {
+    var sum = 0.0;
+    for (int channel = 0; channel < this.channels; ++channel) {
+      for (long frame = 0L; frame < this.frames; ++frame) {
+        sum += this.model.sampleLerp(channel, (double) frame + 0.5);
+      }
+    }
+    return sum;
+  }
+}
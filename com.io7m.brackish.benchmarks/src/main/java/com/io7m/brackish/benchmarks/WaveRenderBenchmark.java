@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.benchmarks;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WaveRenderStyle;
+import com.io7m.jranges.RangeInclusiveL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for complete renderings into a headless image target. Each
+ * invocation renders every channel, stacked, into an image {@code width}
+ * pixels wide.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaveRenderBenchmark
+{
+  /**
+   * The number of pixels covered by each frame in expanded renderings.
+   */
+
+  private static final int PIXELS_PER_FRAME = 4;
+
+  /**
+   * The height of each channel band.
+   */
+
+  private static final int CHANNEL_HEIGHT = 128;
+
+  /**
+   * The rendering path to exercise.
+   */
+
+  public enum Path
+  {
+    /**
+     * Collapsed rendering of the entire model.
+     */
+
+    COLLAPSED,
+
+    /**
+     * Expanded rendering with linear interpolation.
+     */
+
+    EXPANDED_LINEAR,
+
+    /**
+     * Expanded rendering with boxes.
+     */
+
+    EXPANDED_BOXES
+  }
+
+  @Param({"65536", "1048576"})
+  private int frames;
+
+  @Param({"640", "1920"})
+  private int width;
+
+  @Param({"1", "2", "8"})
+  private int channels;
+
+  @Param
+  private Path path;
+
+  private WaveHeadlessRenderer renderer;
+  private WaveImageRenderTarget target;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public WaveRenderBenchmark()
+  {
+
+  }
+
+  /**
+   * Create the model, renderer, and target.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.renderer = new WaveHeadlessRenderer();
+    this.renderer.setWaveModel(
+      new WaveBenchmarkModel(this.channels, this.frames)
+    );
+
+    switch (this.path) {
+      case COLLAPSED -> {
+        this.renderer.setRenderStyle(WaveRenderStyle.WAVE_INTERPOLATE_LINEAR);
+      }
+      case EXPANDED_LINEAR -> {
+        this.renderer.setRenderStyle(WaveRenderStyle.WAVE_INTERPOLATE_LINEAR);
+        this.renderer.setViewRange(
+          RangeInclusiveL.of(0L, (this.width / PIXELS_PER_FRAME) - 1L)
+        );
+      }
+      case EXPANDED_BOXES -> {
+        this.renderer.setRenderStyle(WaveRenderStyle.WAVE_BOXES);
+        this.renderer.setViewRange(
+          RangeInclusiveL.of(0L, (this.width / PIXELS_PER_FRAME) - 1L)
+        );
+      }
+    }
+
+    this.target = new WaveImageRenderTarget(
+      this.width,
+      CHANNEL_HEIGHT * this.channels
+    );
+  }
+
+  /**
+   * Render all channels.
+   *
+   * @return The target
+   */
+
+  @Benchmark
+  public WaveImageRenderTarget render()
+  {
+    this.renderer.render(this.target);
+    return this.target;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.benchmarks;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WaveRenderStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for continuous panning. Each invocation moves the view range
+ * by a small offset and renders every channel, as happens for each frame of
+ * a scroll or zoom gesture. Run with the GC profiler, the
+ * {@code gc.alloc.rate.norm} figure should be zero.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaveSteadyStateBenchmark
+{
+  /**
+   * The number of frames in the model.
+   */
+
+  private static final int FRAMES = 1_048_576;
+
+  /**
+   * The number of frames by which the view moves on each invocation.
+   */
+
+  private static final long STEP = 37L;
+
+  /**
+   * The height of each channel band.
+   */
+
+  private static final int CHANNEL_HEIGHT = 128;
+
+  @Param({"640", "1920"})
+  private int width;
+
+  @Param({"2"})
+  private int channels;
+
+  @Param({"200", "20000"})
+  private long span;
+
+  @Param({"WAVE_INTERPOLATE_LINEAR", "WAVE_BOXES"})
+  private WaveRenderStyle style;
+
+  private WaveHeadlessRenderer renderer;
+  private WaveImageRenderTarget target;
+  private long lower;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public WaveSteadyStateBenchmark()
+  {
+
+  }
+
+  /**
+   * Create the model, renderer, and target.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.renderer = new WaveHeadlessRenderer();
+    this.renderer.setWaveModel(
+      new WaveBenchmarkModel(this.channels, FRAMES)
+    );
+    this.renderer.setRenderStyle(this.style);
+    this.target = new WaveImageRenderTarget(
+      this.width,
+      CHANNEL_HEIGHT * this.channels
+    );
+    this.lower = 0L;
+  }
+
+  /**
+   * Pan the view and render all channels.
+   *
+   * @return The target
+   */
+
+  @Benchmark
+  public WaveImageRenderTarget pan()
+  {
+    this.lower = (this.lower + STEP) % (FRAMES - this.span);
+    this.renderer.setViewRange(this.lower, this.lower + this.span);
+    this.renderer.render(this.target);
+    return this.target;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.cmdline;
+
+import com.io7m.brackish.core.WavePeakSummaryBuilder;
+import com.io7m.brackish.core.WaveStatisticsIndex;
+import com.io7m.brackish.core.WaveStatisticsIndexBuilder;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * <p>Functions to decode audio files into wave models.</p>
+ *
+ * <p>
+ * Any format readable by {@link AudioSystem} is accepted. Audio is
+ * converted to 16-bit signed PCM, which is ample precision for display,
+ * and a peak summary and statistics index are built while the samples are
+ * decoded.
+ * </p>
+ */
+
+public final class BrackishAudioDecoder
+{
+  private static final int BUFFER_FRAMES = 4096;
+  private static final int INITIAL_FRAMES = 65536;
+  private static final double SHORT_SCALE = 32768.0;
+
+  private BrackishAudioDecoder()
+  {
+
+  }
+
+  /**
+   * Decode the given audio file.
+   *
+   * @param file      The file
+   * @param blockSize The block size of the peak summary and statistics
+   *                  index
+   *
+   * @return A model
+   *
+   * @throws IOException                   On I/O errors
+   * @throws UnsupportedAudioFileException If the file format is not supported
+   */
+
+  public static BrackishAudioModel decode(
+    final Path file,
+    final int blockSize)
+    throws IOException, UnsupportedAudioFileException
+  {
+    try (var source = AudioSystem.getAudioInputStream(file.toFile())) {
+      final var sourceFormat =
+        source.getFormat();
+      final var channels =
+        sourceFormat.getChannels();
+      final var pcmFormat =
+        new AudioFormat(
+          AudioFormat.Encoding.PCM_SIGNED,
+          sourceFormat.getSampleRate(),
+          16,
+          channels,
+          channels * 2,
+          sourceFormat.getSampleRate(),
+          false
+        );
+
+      if (sourceFormat.matches(pcmFormat)) {
+        return decodePCM16(source, channels, blockSize);
+      }
+      try (var pcm = AudioSystem.getAudioInputStream(pcmFormat, source)) {
+        return decodePCM16(pcm, channels, blockSize);
+      }
+    }
+  }
+
+  private static BrackishAudioModel decodePCM16(
+    final AudioInputStream stream,
+    final int channels,
+    final int blockSize)
+    throws IOException
+  {
+    final var frameLength = stream.getFrameLength();
+    final var capacity =
+      frameLength > 0L && frameLength <= Integer.MAX_VALUE
+        ? (int) frameLength
+        : INITIAL_FRAMES;
+
+    var data = new float[channels][capacity];
+    final var summary = new WavePeakSummaryBuilder(channels, blockSize);
+    final var statistics = new WaveStatisticsIndexBuilder(
+      channels,
+      blockSize,
+      WaveStatisticsIndex.DEFAULT_CLIP_LEVEL
+    );
+    final var frameBytes = channels * 2;
+    final var buffer = new byte[frameBytes * BUFFER_FRAMES];
+
+    var frames = 0;
+    while (true) {
+      final var read = stream.readNBytes(buffer, 0, buffer.length);
+      final var readFrames = read / frameBytes;
+      if (readFrames == 0) {
+        break;
+      }
+
+      if (frames + readFrames > data[0].length) {
+        data = grow(data, frames + readFrames);
+      }
+
+      for (int frame = 0; frame < readFrames; ++frame) {
+        final var offset = frame * frameBytes;
+        for (int channel = 0; channel < channels; ++channel) {
+          final var index = offset + (channel * 2);
+          final var value =
+            (short) ((buffer[index] & 0xff) | (buffer[index + 1] << 8));
+          final var sample = value / SHORT_SCALE;
+          data[channel][frames + frame] = (float) sample;
+          summary.add(channel, sample);
+          statistics.add(channel, sample);
+        }
+      }
+      frames += readFrames;
+    }
+
+    return new BrackishAudioModel(
+      data,
+      frames,
+      summary.build(),
+      statistics.build()
+    );
+  }
+
+  private static float[][] grow(
+    final float[][] data,
+    final int required)
+  {
+    final var size =
+      (int) Math.min(Integer.MAX_VALUE, Math.max(required, data[0].length * 2L));
+    final var result = new float[data.length][];
+    for (int channel = 0; channel < data.length; ++channel) {
+      result[channel] = Arrays.copyOf(data[channel], size);
+    }
+    return result;
+  }
+}
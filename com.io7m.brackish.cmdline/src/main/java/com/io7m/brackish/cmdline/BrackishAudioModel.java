@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.cmdline;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WavePeakSummary;
+import com.io7m.brackish.core.WaveStatisticsIndex;
+import com.io7m.jranges.RangeCheck;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A wave model backed by decoded audio samples, along with the peak summary
+ * and statistics index computed while decoding.
+ */
+
+public final class BrackishAudioModel implements WaveModelType
+{
+  private final float[][] data;
+  private final long frames;
+  private final Optional<WavePeakSummary> summary;
+  private final Optional<WaveStatisticsIndex> statistics;
+
+  /**
+   * A wave model backed by decoded audio samples.
+   *
+   * @param inData       The samples for each channel
+   * @param inFrames     The number of valid frames in each channel
+   * @param inSummary    The peak summary
+   * @param inStatistics The statistics index
+   */
+
+  public BrackishAudioModel(
+    final float[][] inData,
+    final long inFrames,
+    final WavePeakSummary inSummary,
+    final WaveStatisticsIndex inStatistics)
+  {
+    this.data =
+      Objects.requireNonNull(inData, "data");
+    this.frames =
+      inFrames;
+    this.summary =
+      Optional.of(inSummary);
+    this.statistics =
+      Optional.of(inStatistics);
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.frames;
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.data.length;
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.data.length,
+      "Channel count"
+    );
+    RangeCheck.checkLessLong(
+      frameIndex,
+      "Frame",
+      this.frames,
+      "Frame count"
+    );
+    return this.data[channel][(int) frameIndex];
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    if (channel < 0 || channel >= this.data.length) {
+      return orElse;
+    }
+    if (frameIndex < 0L || frameIndex >= this.frames) {
+      return orElse;
+    }
+    return this.data[channel][(int) frameIndex];
+  }
+
+  @Override
+  public Optional<WavePeakSummary> peakSummary()
+  {
+    return this.summary;
+  }
+
+  @Override
+  public Optional<WaveStatisticsIndex> statisticsIndex()
+  {
+    return this.statistics;
+  }
+}
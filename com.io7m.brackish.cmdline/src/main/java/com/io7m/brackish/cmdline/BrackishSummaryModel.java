@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.cmdline;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WavePeakSummary;
+import com.io7m.jranges.RangeCheck;
+
+import java.util.Optional;
+
+/**
+ * <p>A wave model backed only by a peak summary.</p>
+ *
+ * <p>
+ * No individual samples are available, and all samples read as silence.
+ * The model is therefore only suitable for collapsed renderings at least
+ * as coarse as the summary's block size, which are computed entirely from
+ * the summary.
+ * </p>
+ */
+
+public final class BrackishSummaryModel implements WaveModelType
+{
+  private final WavePeakSummary summary;
+  private final Optional<WavePeakSummary> summaryOpt;
+
+  /**
+   * A wave model backed only by a peak summary.
+   *
+   * @param inSummary The peak summary
+   */
+
+  public BrackishSummaryModel(
+    final WavePeakSummary inSummary)
+  {
+    this.summaryOpt = Optional.of(inSummary);
+    this.summary = inSummary;
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.summary.frameCount();
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.summary.channelCount();
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.summary.channelCount(),
+      "Channel count"
+    );
+    RangeCheck.checkLessLong(
+      frameIndex,
+      "Frame",
+      this.summary.frameCount(),
+      "Frame count"
+    );
+    return 0.0;
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    if (channel < 0 || channel >= this.summary.channelCount()) {
+      return orElse;
+    }
+    if (frameIndex < 0L || frameIndex >= this.summary.frameCount()) {
+      return orElse;
+    }
+    return 0.0;
+  }
+
+  @Override
+  public Optional<WavePeakSummary> peakSummary()
+  {
+    return this.summaryOpt;
+  }
+}
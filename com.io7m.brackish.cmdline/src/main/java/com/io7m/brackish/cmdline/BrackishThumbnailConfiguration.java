@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.cmdline;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The configuration for a thumbnail generation run.
+ *
+ * @param outputDirectory The directory into which thumbnails are written
+ * @param width           The width of thumbnails
+ * @param height          The height of thumbnails
+ * @param workers         The number of rendering threads
+ * @param blockSize       The block size of peak summaries
+ * @param writePeaks      {@code true} if peak summaries should be written
+ *                        alongside input files for reuse by later runs
+ * @param inputs          The input audio files
+ */
+
+public record BrackishThumbnailConfiguration(
+  Path outputDirectory,
+  int width,
+  int height,
+  int workers,
+  int blockSize,
+  boolean writePeaks,
+  List<Path> inputs)
+{
+  /**
+   * The configuration for a thumbnail generation run.
+   *
+   * @param outputDirectory The directory into which thumbnails are written
+   * @param width           The width of thumbnails
+   * @param height          The height of thumbnails
+   * @param workers         The number of rendering threads
+   * @param blockSize       The block size of peak summaries
+   * @param writePeaks      {@code true} if peak summaries should be written
+   *                        alongside input files for reuse by later runs
+   * @param inputs          The input audio files
+   */
+
+  public BrackishThumbnailConfiguration
+  {
+    Objects.requireNonNull(outputDirectory, "outputDirectory");
+    inputs = List.copyOf(inputs);
+
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException(
+        "Thumbnail size %dx%d must be at least 1x1".formatted(width, height)
+      );
+    }
+    if (workers < 1) {
+      throw new IllegalArgumentException(
+        "Worker count %d must be at least 1".formatted(workers)
+      );
+    }
+    if (blockSize < 1) {
+      throw new IllegalArgumentException(
+        "Block size %d must be at least 1".formatted(blockSize)
+      );
+    }
+  }
+}
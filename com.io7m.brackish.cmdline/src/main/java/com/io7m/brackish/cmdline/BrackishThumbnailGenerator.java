@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.cmdline;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WavePeakSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * <p>A generator of waveform thumbnails.</p>
+ *
+ * <p>
+ * Each input file is handled by its own virtual thread, which performs all
+ * of the file I/O (decoding audio, reading and writing peak summaries, and
+ * writing images). Rendering is CPU-bound and is submitted to a bounded pool
+ * of platform threads. The number of files held in memory at any one time
+ * is bounded to twice the number of rendering threads.
+ * </p>
+ *
+ * <p>
+ * If a peak summary exists alongside an input file, is newer than the file,
+ * and is fine enough for the requested thumbnail width, then the thumbnail
+ * is rendered from the summary alone and the audio is never decoded.
+ * </p>
+ */
+
+public final class BrackishThumbnailGenerator
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(BrackishThumbnailGenerator.class);
+
+  /**
+   * The suffix appended to input file names to produce the names of peak
+   * summary files.
+   */
+
+  public static final String PEAKS_SUFFIX = ".peaks";
+
+  private final BrackishThumbnailConfiguration configuration;
+  private final AtomicLong succeeded;
+  private final AtomicLong failed;
+  private final AtomicLong summariesReused;
+  private final AtomicLong framesRendered;
+  private final Semaphore inFlight;
+
+  /**
+   * A generator of waveform thumbnails.
+   *
+   * @param inConfiguration The configuration
+   */
+
+  public BrackishThumbnailGenerator(
+    final BrackishThumbnailConfiguration inConfiguration)
+  {
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.succeeded =
+      new AtomicLong();
+    this.failed =
+      new AtomicLong();
+    this.summariesReused =
+      new AtomicLong();
+    this.framesRendered =
+      new AtomicLong();
+    this.inFlight =
+      new Semaphore(inConfiguration.workers() * 2);
+  }
+
+  /**
+   * @param file The input file
+   *
+   * @return The peak summary file for the given input file
+   */
+
+  public static Path peaksFileFor(
+    final Path file)
+  {
+    return file.resolveSibling(file.getFileName() + PEAKS_SUFFIX);
+  }
+
+  /**
+   * Generate thumbnails for all input files.
+   *
+   * @return A report of the run
+   *
+   * @throws IOException          If the output directory cannot be created
+   * @throws InterruptedException If interrupted whilst waiting
+   */
+
+  public BrackishThumbnailReport execute()
+    throws IOException, InterruptedException
+  {
+    Files.createDirectories(this.configuration.outputDirectory());
+
+    final var timeThen = System.nanoTime();
+    final var renderThreads =
+      Thread.ofPlatform()
+        .name("com.io7m.brackish.render-", 0L)
+        .daemon(true)
+        .factory();
+
+    try (var renderPool =
+           Executors.newFixedThreadPool(this.configuration.workers(), renderThreads);
+         var ioPool =
+           Executors.newVirtualThreadPerTaskExecutor()) {
+
+      final var tasks = new ArrayList<Future<?>>();
+      for (final var file : this.configuration.inputs()) {
+        this.inFlight.acquire();
+        tasks.add(ioPool.submit(() -> this.processFile(renderPool, file)));
+      }
+      for (final var task : tasks) {
+        awaitQuietly(task);
+      }
+    }
+
+    return new BrackishThumbnailReport(
+      this.succeeded.get(),
+      this.failed.get(),
+      this.summariesReused.get(),
+      this.framesRendered.get(),
+      Duration.ofNanos(System.nanoTime() - timeThen)
+    );
+  }
+
+  private static void awaitQuietly(
+    final Future<?> task)
+    throws InterruptedException
+  {
+    try {
+      task.get();
+    } catch (final ExecutionException e) {
+      LOG.error("Task failed: ", e.getCause());
+    }
+  }
+
+  private void processFile(
+    final ExecutorService renderPool,
+    final Path file)
+  {
+    try {
+      final var model = this.load(file);
+      final var image = renderPool.submit(() -> this.render(model)).get();
+      final var output =
+        this.configuration.outputDirectory()
+          .resolve(file.getFileName() + ".png");
+
+      if (!ImageIO.write(image, "PNG", output.toFile())) {
+        throw new IOException("No PNG image writer is available");
+      }
+
+      this.succeeded.incrementAndGet();
+      this.framesRendered.addAndGet(model.frameCount());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.failed.incrementAndGet();
+    } catch (final ExecutionException e) {
+      LOG.error("{}: {}", file, e.getCause().getMessage());
+      this.failed.incrementAndGet();
+    } catch (final Exception e) {
+      LOG.error("{}: {}", file, e.getMessage());
+      this.failed.incrementAndGet();
+    } finally {
+      this.inFlight.release();
+    }
+  }
+
+  private BufferedImage render(
+    final WaveModelType model)
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(model);
+
+    final var target =
+      new WaveImageRenderTarget(
+        this.configuration.width(),
+        this.configuration.height()
+      );
+    renderer.render(target);
+    return target.image();
+  }
+
+  private WaveModelType load(
+    final Path file)
+    throws IOException, UnsupportedAudioFileException
+  {
+    final var peaksFile = peaksFileFor(file);
+    if (this.isPeaksFileUsable(file, peaksFile)) {
+      try (var stream = Files.newInputStream(peaksFile)) {
+        final var summary = WavePeakSummary.readFrom(stream);
+        final var framesPerPixel =
+          (double) summary.frameCount() / this.configuration.width();
+
+        if (framesPerPixel >= summary.blockSize()) {
+          this.summariesReused.incrementAndGet();
+          return new BrackishSummaryModel(summary);
+        }
+      } catch (final IOException e) {
+        LOG.warn("{}: Ignoring unreadable peak summary: {}", peaksFile, e.getMessage());
+      }
+    }
+
+    final var model =
+      BrackishAudioDecoder.decode(file, this.configuration.blockSize());
+
+    if (this.configuration.writePeaks()) {
+      writePeaks(peaksFile, model);
+    }
+    return model;
+  }
+
+  private boolean isPeaksFileUsable(
+    final Path file,
+    final Path peaksFile)
+    throws IOException
+  {
+    if (!Files.isRegularFile(peaksFile)) {
+      return false;
+    }
+    final var peaksTime = Files.getLastModifiedTime(peaksFile);
+    final var fileTime = Files.getLastModifiedTime(file);
+    return peaksTime.compareTo(fileTime) >= 0;
+  }
+
+  private static void writePeaks(
+    final Path peaksFile,
+    final BrackishAudioModel model)
+    throws IOException
+  {
+    final var summary = model.peakSummary().orElseThrow();
+    final var temporary =
+      peaksFile.resolveSibling(peaksFile.getFileName() + ".tmp");
+
+    try (var stream = Files.newOutputStream(temporary)) {
+      summary.writeTo(stream);
+    }
+    Files.move(temporary, peaksFile, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.cmdline;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The results of a thumbnail generation run.
+ *
+ * @param succeeded       The number of thumbnails written
+ * @param failed          The number of files that could not be processed
+ * @param summariesReused The number of files rendered from existing peak
+ *                        summaries without being decoded
+ * @param framesRendered  The total number of frames in rendered files
+ * @param elapsed         The wall-clock time taken by the run
+ */
+
+public record BrackishThumbnailReport(
+  long succeeded,
+  long failed,
+  long summariesReused,
+  long framesRendered,
+  Duration elapsed)
+{
+  /**
+   * The results of a thumbnail generation run.
+   *
+   * @param succeeded       The number of thumbnails written
+   * @param failed          The number of files that could not be processed
+   * @param summariesReused The number of files rendered from existing peak
+   *                        summaries without being decoded
+   * @param framesRendered  The total number of frames in rendered files
+   * @param elapsed         The wall-clock time taken by the run
+   */
+
+  public BrackishThumbnailReport
+  {
+    Objects.requireNonNull(elapsed, "elapsed");
+  }
+
+  private double seconds()
+  {
+    return Math.max(1.0e-9, this.elapsed.toNanos() / 1.0e9);
+  }
+
+  /**
+   * @return The number of thumbnails written per second
+   */
+
+  public double filesPerSecond()
+  {
+    return this.succeeded / this.seconds();
+  }
+
+  /**
+   * @return The number of frames rendered per second
+   */
+
+  public double framesPerSecond()
+  {
+    return this.framesRendered / this.seconds();
+  }
+}
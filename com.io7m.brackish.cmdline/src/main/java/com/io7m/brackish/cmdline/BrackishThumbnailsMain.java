@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.cmdline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>A command-line tool that renders PNG waveform thumbnails.</p>
+ *
+ * <pre>
+ * brackish-thumbnails
+ *   --output DIRECTORY
+ *   [--width N]
+ *   [--height N]
+ *   [--workers N]
+ *   [--block-size N]
+ *   [--write-peaks]
+ *   [--input-list FILE]
+ *   FILE ...
+ * </pre>
+ *
+ * <p>
+ * Input files may be named directly, or listed one per line in the file
+ * given to {@code --input-list}. The thumbnail for {@code x.wav} is written
+ * to {@code DIRECTORY/x.wav.png}.
+ * </p>
+ */
+
+public final class BrackishThumbnailsMain
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(BrackishThumbnailsMain.class);
+
+  private static final int DEFAULT_WIDTH = 512;
+  private static final int DEFAULT_HEIGHT = 128;
+  private static final int DEFAULT_BLOCK_SIZE = 256;
+
+  private BrackishThumbnailsMain()
+  {
+
+  }
+
+  /**
+   * The main entry point.
+   *
+   * @param args The command-line arguments
+   */
+
+  public static void main(
+    final String[] args)
+  {
+    System.setProperty("java.awt.headless", "true");
+    System.exit(mainExitless(args));
+  }
+
+  /**
+   * The main entry point, without calling {@link System#exit(int)}.
+   *
+   * @param args The command-line arguments
+   *
+   * @return The exit code
+   */
+
+  public static int mainExitless(
+    final String[] args)
+  {
+    final BrackishThumbnailConfiguration configuration;
+    try {
+      configuration = parse(List.of(args));
+    } catch (final IllegalArgumentException | IOException e) {
+      LOG.error("{}", e.getMessage());
+      LOG.info(
+        "Usage: brackish-thumbnails --output DIRECTORY [--width N] [--height N] "
+        + "[--workers N] [--block-size N] [--write-peaks] "
+        + "[--input-list FILE] FILE ...");
+      return 1;
+    }
+
+    try {
+      final var report =
+        new BrackishThumbnailGenerator(configuration).execute();
+
+      LOG.info(
+        "Rendered {} thumbnails ({} from existing peak summaries), {} failed, in {} ms",
+        report.succeeded(),
+        report.summariesReused(),
+        report.failed(),
+        report.elapsed().toMillis()
+      );
+      LOG.info(
+        "Throughput: {} files/s, {} frames/s",
+        String.format("%.2f", report.filesPerSecond()),
+        String.format("%.0f", report.framesPerSecond())
+      );
+      return report.failed() == 0L ? 0 : 1;
+    } catch (final IOException e) {
+      LOG.error("{}", e.getMessage());
+      return 1;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 1;
+    }
+  }
+
+  private static BrackishThumbnailConfiguration parse(
+    final List<String> args)
+    throws IOException
+  {
+    Path output = null;
+    var width = DEFAULT_WIDTH;
+    var height = DEFAULT_HEIGHT;
+    var workers = Runtime.getRuntime().availableProcessors();
+    var blockSize = DEFAULT_BLOCK_SIZE;
+    var writePeaks = false;
+    final var inputs = new ArrayList<Path>();
+
+    final var iterator = args.iterator();
+    while (iterator.hasNext()) {
+      final var arg = iterator.next();
+      switch (arg) {
+        case "--output" -> output = Path.of(value(iterator, arg));
+        case "--width" -> width = integer(iterator, arg);
+        case "--height" -> height = integer(iterator, arg);
+        case "--workers" -> workers = integer(iterator, arg);
+        case "--block-size" -> blockSize = integer(iterator, arg);
+        case "--write-peaks" -> writePeaks = true;
+        case "--input-list" -> readInputList(inputs, value(iterator, arg));
+        default -> {
+          if (arg.startsWith("--")) {
+            throw new IllegalArgumentException("Unrecognized option: " + arg);
+          }
+          inputs.add(Path.of(arg));
+        }
+      }
+    }
+
+    if (output == null) {
+      throw new IllegalArgumentException("An --output directory is required.");
+    }
+
+    return new BrackishThumbnailConfiguration(
+      output,
+      width,
+      height,
+      workers,
+      blockSize,
+      writePeaks,
+      inputs
+    );
+  }
+
+  private static void readInputList(
+    final List<Path> inputs,
+    final String file)
+    throws IOException
+  {
+    try (var lines = Files.lines(Path.of(file))) {
+      lines.map(String::trim)
+        .filter(line -> !line.isEmpty())
+        .map(Path::of)
+        .forEach(inputs::add);
+    }
+  }
+
+  private static String value(
+    final Iterator<String> iterator,
+    final String option)
+  {
+    if (!iterator.hasNext()) {
+      throw new IllegalArgumentException("Option " + option + " requires a value.");
+    }
+    return iterator.next();
+  }
+
+  private static int integer(
+    final Iterator<String> iterator,
+    final String option)
+  {
+    final var text = value(iterator, option);
+    try {
+      return Integer.parseInt(text);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        "Option %s requires an integer, but received '%s'".formatted(option, text)
+      );
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeInclusiveL;
+
+import java.util.Objects;
+
+/**
+ * An annotation attached to a range of frames. An annotation covering
+ * exactly one frame is drawn as a marker; any other annotation is drawn as
+ * a region.
+ *
+ * @param frames The range of frames
+ * @param text   The annotation text
+ */
+
+public record WaveAnnotation(
+  RangeInclusiveL frames,
+  String text)
+{
+  /**
+   * An annotation attached to a range of frames.
+   *
+   * @param frames The range of frames
+   * @param text   The annotation text
+   */
+
+  public WaveAnnotation
+  {
+    Objects.requireNonNull(frames, "frames");
+    Objects.requireNonNull(text, "text");
+  }
+
+  /**
+   * Create a marker annotation.
+   *
+   * @param frame The frame
+   * @param text  The annotation text
+   *
+   * @return A marker
+   */
+
+  public static WaveAnnotation marker(
+    final long frame,
+    final String text)
+  {
+    return new WaveAnnotation(RangeInclusiveL.of(frame, frame), text);
+  }
+
+  /**
+   * @return {@code true} if this annotation covers exactly one frame
+   */
+
+  public boolean isMarker()
+  {
+    return this.frames.lower() == this.frames.upper();
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeInclusiveL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>An immutable index of annotations, supporting fast queries for the
+ * annotations intersecting a range of frames.</p>
+ *
+ * <p>
+ * Annotations are sorted by their lower bound and arranged as an implicit
+ * balanced binary tree over the sorted array, where each node records the
+ * greatest upper bound within its subtree. A query descends only into
+ * subtrees that can contain intersecting annotations, and so costs
+ * {@code O(log n + k)} for {@code k} results regardless of the total number
+ * of annotations. Results are delivered in order of lower bound.
+ * </p>
+ */
+
+public final class WaveAnnotationIndex
+{
+  private static final WaveAnnotationIndex EMPTY =
+    new WaveAnnotationIndex(new WaveAnnotation[0]);
+
+  private static final Comparator<WaveAnnotation> ORDER =
+    Comparator.<WaveAnnotation>comparingLong(a -> a.frames().lower())
+      .thenComparingLong(a -> a.frames().upper());
+
+  private final WaveAnnotation[] annotations;
+  private final long[] lowers;
+  private final long[] uppers;
+  private final long[] subtreeUppers;
+
+  private WaveAnnotationIndex(
+    final WaveAnnotation[] inAnnotations)
+  {
+    this.annotations =
+      inAnnotations;
+
+    final var count = inAnnotations.length;
+    this.lowers = new long[count];
+    this.uppers = new long[count];
+    this.subtreeUppers = new long[count];
+
+    for (int index = 0; index < count; ++index) {
+      final var frames = inAnnotations[index].frames();
+      this.lowers[index] = frames.lower();
+      this.uppers[index] = frames.upper();
+    }
+
+    this.buildSubtree(0, count);
+  }
+
+  /**
+   * @return The empty index
+   */
+
+  public static WaveAnnotationIndex empty()
+  {
+    return EMPTY;
+  }
+
+  /**
+   * Create an index of the given annotations.
+   *
+   * @param annotations The annotations
+   *
+   * @return An index
+   */
+
+  public static WaveAnnotationIndex of(
+    final Collection<WaveAnnotation> annotations)
+  {
+    Objects.requireNonNull(annotations, "annotations");
+
+    if (annotations.isEmpty()) {
+      return EMPTY;
+    }
+
+    final var sorted = annotations.toArray(new WaveAnnotation[0]);
+    for (final var annotation : sorted) {
+      Objects.requireNonNull(annotation, "annotation");
+    }
+    Arrays.sort(sorted, ORDER);
+    return new WaveAnnotationIndex(sorted);
+  }
+
+  private long buildSubtree(
+    final int lower,
+    final int upper)
+  {
+    if (lower >= upper) {
+      return Long.MIN_VALUE;
+    }
+
+    final var middle = (lower + upper) >>> 1;
+    final var left = this.buildSubtree(lower, middle);
+    final var right = this.buildSubtree(middle + 1, upper);
+    final var max = Math.max(this.uppers[middle], Math.max(left, right));
+    this.subtreeUppers[middle] = max;
+    return max;
+  }
+
+  /**
+   * @return The number of annotations in the index
+   */
+
+  public int size()
+  {
+    return this.annotations.length;
+  }
+
+  /**
+   * Retrieve an annotation. Annotations are numbered in order of their
+   * lower bound.
+   *
+   * @param index The annotation index
+   *
+   * @return The annotation
+   */
+
+  public WaveAnnotation annotation(
+    final int index)
+  {
+    return this.annotations[index];
+  }
+
+  /**
+   * Query the annotations that intersect the inclusive range
+   * {@code [lower, upper]}. The index of each matching annotation is passed
+   * to {@code receiver} in order of lower bound.
+   *
+   * @param lower    The lower frame
+   * @param upper    The upper frame
+   * @param receiver The receiver of matching annotation indices
+   *
+   * @return The number of matching annotations
+   */
+
+  public int query(
+    final long lower,
+    final long upper,
+    final IntConsumer receiver)
+  {
+    Objects.requireNonNull(receiver, "receiver");
+
+    if (lower > upper) {
+      return 0;
+    }
+    return this.querySubtree(0, this.annotations.length, lower, upper, receiver);
+  }
+
+  private int querySubtree(
+    final int nodeLower,
+    final int nodeUpper,
+    final long lower,
+    final long upper,
+    final IntConsumer receiver)
+  {
+    if (nodeLower >= nodeUpper) {
+      return 0;
+    }
+
+    final var middle = (nodeLower + nodeUpper) >>> 1;
+
+    /*
+     * Nothing in this subtree ends at or after the start of the query.
+     */
+
+    if (this.subtreeUppers[middle] < lower) {
+      return 0;
+    }
+
+    var found =
+      this.querySubtree(nodeLower, middle, lower, upper, receiver);
+
+    /*
+     * Everything at or after the middle starts after the end of the query.
+     */
+
+    if (this.lowers[middle] > upper) {
+      return found;
+    }
+
+    if (this.uppers[middle] >= lower) {
+      receiver.accept(middle);
+      ++found;
+    }
+
+    found += this.querySubtree(middle + 1, nodeUpper, lower, upper, receiver);
+    return found;
+  }
+
+  /**
+   * Query the annotations that intersect the given range.
+   *
+   * @param range The range of frames
+   *
+   * @return The matching annotations in order of lower bound
+   */
+
+  public List<WaveAnnotation> intersecting(
+    final RangeInclusiveL range)
+  {
+    Objects.requireNonNull(range, "range");
+
+    final var results = new ArrayList<WaveAnnotation>();
+    this.query(
+      range.lower(),
+      range.upper(),
+      index -> results.add(this.annotations[index])
+    );
+    return results;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * A listener notified when frames of a model that were previously
+ * unavailable become available.
+ *
+ * @see WaveModelType#isAvailable(int, long, long)
+ */
+
+public interface WaveAvailabilityListenerType
+{
+  /**
+   * The frames {@code [firstFrame, lastFrame]} of {@code channel} have
+   * become available, or an attempt to load them failed and they should be
+   * read again. This method may be called from any thread.
+   *
+   * @param channel    The channel
+   * @param firstFrame The first frame
+   * @param lastFrame  The last frame
+   */
+
+  void onFramesAvailable(
+    int channel,
+    long firstFrame,
+    long lastFrame);
+}
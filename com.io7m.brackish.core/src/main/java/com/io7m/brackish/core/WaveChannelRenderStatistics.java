@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Statistics for the most recent rendering of a single channel. Values
+ * accumulate across the initial render and any subsequent progressive
+ * refinement of that render.
+ *
+ * @param channel      The channel index
+ * @param path         The rendering path taken
+ * @param exact        {@code true} if the rendering is exact (refinement has
+ *                     completed)
+ * @param renderTime   The time spent rendering
+ * @param framesRead   The number of samples read from the model
+ * @param drawCommands The number of draw commands issued
+ */
+
+public record WaveChannelRenderStatistics(
+  int channel,
+  WaveRenderPath path,
+  boolean exact,
+  Duration renderTime,
+  long framesRead,
+  long drawCommands)
+{
+  /**
+   * Statistics for the most recent rendering of a single channel.
+   *
+   * @param channel      The channel index
+   * @param path         The rendering path taken
+   * @param exact        {@code true} if the rendering is exact (refinement
+   *                     has completed)
+   * @param renderTime   The time spent rendering
+   * @param framesRead   The number of samples read from the model
+   * @param drawCommands The number of draw commands issued
+   */
+
+  public WaveChannelRenderStatistics
+  {
+    Objects.requireNonNull(path, "path");
+    Objects.requireNonNull(renderTime, "renderTime");
+  }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveChannelRenderer;
+import com.io7m.brackish.core.internal.WaveModelEmpty;
+import com.io7m.brackish.core.internal.WaveRenderSourceType;
+import com.io7m.brackish.core.internal.WaveRenderStatisticsCollector;
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jranges.RangeInclusiveL;
+import javafx.scene.paint.Paint;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * <p>A renderer that draws waveforms into arbitrary render targets.</p>
+ *
+ * <p>
+ * The headless renderer uses the same rendering code as {@link WaveView},
+ * but requires neither a running JavaFX toolkit nor a scene graph, and so
+ * can be used to produce images on servers, or in tests. Renderings are
+ * always exact; no progressive refinement is performed.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread-safe, but distinct instances may be used
+ * concurrently from different threads.
+ * </p>
+ *
+ * @see WaveImageRenderTarget
+ */
+
+public final class WaveHeadlessRenderer
+{
+  private final WaveRenderStatisticsCollector statistics;
+  private final ArrayList<WaveChannelRenderer> renderers;
+  private final Source source;
+
+  /**
+   * A renderer that draws waveforms into arbitrary render targets.
+   */
+
+  public WaveHeadlessRenderer()
+  {
+    this.statistics =
+      new WaveRenderStatisticsCollector();
+    this.renderers =
+      new ArrayList<>();
+    this.source =
+      new Source();
+
+    this.setWaveModel(new WaveModelEmpty());
+  }
+
+  /**
+   * Set the wave model. The view range is reset to cover the entire model.
+   *
+   * @param newModel The new wave model
+   */
+
+  public void setWaveModel(
+    final WaveModelType newModel)
+  {
+    this.source.model =
+      Objects.requireNonNull(newModel, "newModel");
+    this.source.viewLower = 0L;
+    this.source.viewUpper = Math.max(0L, newModel.frameCount() - 1L);
+
+    final var channels = newModel.channelCount();
+    while (this.renderers.size() > channels) {
+      this.renderers.removeLast();
+    }
+    while (this.renderers.size() < channels) {
+      this.renderers.add(
+        new WaveChannelRenderer(
+          this.source,
+          this.statistics,
+          this.renderers.size()
+        )
+      );
+    }
+    this.statistics.setChannelCount(channels);
+  }
+
+  /**
+   * @return The wave model
+   */
+
+  public WaveModelType model()
+  {
+    return this.source.model;
+  }
+
+  /**
+   * Set the view range. This represents the range of frames within the wave
+   * model that will be rendered.
+   *
+   * @param newRange The view range
+   */
+
+  public void setViewRange(
+    final RangeInclusiveL newRange)
+  {
+    Objects.requireNonNull(newRange, "newRange");
+    this.setViewRange(newRange.lower(), newRange.upper());
+  }
+
+  /**
+   * Set the view range. This represents the range of frames within the wave
+   * model that will be rendered. This method allocates nothing, and is
+   * suitable for continuous panning and zooming.
+   *
+   * @param lower The lower frame index
+   * @param upper The upper frame index
+   */
+
+  public void setViewRange(
+    final long lower,
+    final long upper)
+  {
+    Preconditions.checkPreconditionL(
+      upper,
+      upper >= lower,
+      x -> "Upper bound %d must be >= the lower bound".formatted(x)
+    );
+    this.source.viewLower = lower;
+    this.source.viewUpper = upper;
+  }
+
+  /**
+   * @return The view range
+   */
+
+  public RangeInclusiveL viewRange()
+  {
+    return RangeInclusiveL.of(this.source.viewLower, this.source.viewUpper);
+  }
+
+  /**
+   * Set the style used for expanded renderings.
+   *
+   * @param style The style
+   */
+
+  public void setRenderStyle(
+    final WaveRenderStyle style)
+  {
+    this.source.renderStyle =
+      Objects.requireNonNull(style, "style");
+  }
+
+  /**
+   * @return The style used for expanded renderings
+   */
+
+  public WaveRenderStyle renderStyle()
+  {
+    return this.source.renderStyle;
+  }
+
+  /**
+   * Set the paints used for rendering.
+   *
+   * @param paints The paints
+   */
+
+  public void setPaints(
+    final WaveRenderPaints paints)
+  {
+    this.source.paints =
+      Objects.requireNonNull(paints, "paints");
+  }
+
+  /**
+   * @return The paints used for rendering
+   */
+
+  public WaveRenderPaints paints()
+  {
+    return this.source.paints;
+  }
+
+  /**
+   * @return The statistics gathered over all renderings so far
+   */
+
+  public WaveRenderStatistics renderStatistics()
+  {
+    return this.statistics.statistics().getValue();
+  }
+
+  /**
+   * Fill the target with the background paint, and render all channels
+   * stacked vertically, with each channel receiving an equal share of the
+   * height of the target. The model is always read again, and so this
+   * method reflects any samples modified in place since the previous
+   * rendering.
+   *
+   * @param target The render target
+   *
+   * @see #repaint(WaveRenderTargetType)
+   */
+
+  public void render(
+    final WaveRenderTargetType target)
+  {
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      this.renderers.get(index).invalidateCache();
+    }
+    this.repaint(target);
+  }
+
+  /**
+   * Render as with {@link #render(WaveRenderTargetType)}, but reuse the
+   * column extrema of the previous rendering where the model, the view
+   * range, and the width of the target are unchanged. This is intended
+   * for renderings that differ only in the height of the target or the
+   * paints, and does not reflect samples modified in place.
+   *
+   * @param target The render target
+   */
+
+  public void repaint(
+    final WaveRenderTargetType target)
+  {
+    Objects.requireNonNull(target, "target");
+
+    final var w = target.width();
+    final var h = target.height();
+
+    target.setFill(this.source.paints.background());
+    target.fillRect(0.0, 0.0, w, h);
+
+    final var count = this.renderers.size();
+    final var bandHeight = h / Math.max(1, count);
+    for (int index = 0; index < count; ++index) {
+      final var y = index * bandHeight;
+      try {
+        target.setClip(0.0, y, w, bandHeight);
+        this.renderers.get(index).render(target, y, w, bandHeight, Long.MAX_VALUE);
+      } finally {
+        target.clearClip();
+      }
+    }
+  }
+
+  /**
+   * Update a target previously filled by {@link #render(WaveRenderTargetType)}
+   * after the samples of the frames {@code [firstFrame, lastFrame]} have been
+   * modified in place. Only the columns that depend on those frames are
+   * re-aggregated and repainted; channels that cannot be partially updated
+   * are rendered in full.
+   *
+   * @param target     The render target
+   * @param firstFrame The first modified frame
+   * @param lastFrame  The last modified frame
+   */
+
+  public void renderFrames(
+    final WaveRenderTargetType target,
+    final long firstFrame,
+    final long lastFrame)
+  {
+    Objects.requireNonNull(target, "target");
+
+    final var w = target.width();
+    final var h = target.height();
+    final var count = this.renderers.size();
+    final var bandHeight = h / Math.max(1, count);
+    for (int index = 0; index < count; ++index) {
+      final var y = index * bandHeight;
+      final var renderer = this.renderers.get(index);
+      try {
+        target.setClip(0.0, y, w, bandHeight);
+        if (renderer.invalidateFrames(firstFrame, lastFrame)) {
+          renderer.renderDirtyColumns(target);
+        } else {
+          target.setFill(this.source.paints.background());
+          target.fillRect(0.0, y, w, bandHeight);
+          renderer.render(target, y, w, bandHeight, Long.MAX_VALUE);
+        }
+      } finally {
+        target.clearClip();
+      }
+    }
+  }
+
+  /**
+   * Render a single channel into the band {@code [y, y + h)} of the given
+   * target. The band is not filled with the background paint.
+   *
+   * @param target  The render target
+   * @param channel The channel
+   * @param y       The top of the band
+   * @param h       The height of the band
+   */
+
+  public void renderChannel(
+    final WaveRenderTargetType target,
+    final int channel,
+    final double y,
+    final double h)
+  {
+    Objects.requireNonNull(target, "target");
+    Objects.checkIndex(channel, this.renderers.size());
+
+    this.renderers.get(channel)
+      .render(target, y, target.width(), h, Long.MAX_VALUE);
+  }
+
+  private static final class Source implements WaveRenderSourceType
+  {
+    private WaveModelType model;
+    private long viewLower;
+    private long viewUpper;
+    private WaveRenderStyle renderStyle;
+    private WaveRenderPaints paints;
+
+    Source()
+    {
+      this.renderStyle = WaveRenderStyle.WAVE_INTERPOLATE_LINEAR;
+      this.paints = WaveRenderPaints.defaults();
+    }
+
+    @Override
+    public WaveModelType model()
+    {
+      return this.model;
+    }
+
+    @Override
+    public long viewLower()
+    {
+      return this.viewLower;
+    }
+
+    @Override
+    public long viewUpper()
+    {
+      return this.viewUpper;
+    }
+
+    @Override
+    public WaveRenderStyle renderStyle()
+    {
+      return this.renderStyle;
+    }
+
+    @Override
+    public Paint background()
+    {
+      return this.paints.background();
+    }
+
+    @Override
+    public Paint centerLine()
+    {
+      return this.paints.centerLine();
+    }
+
+    @Override
+    public Paint expandedSampleStroke()
+    {
+      return this.paints.expandedSampleStroke();
+    }
+
+    @Override
+    public Paint expandedSampleFill()
+    {
+      return this.paints.expandedSampleFill();
+    }
+
+    @Override
+    public Paint collapsedSampleFill()
+    {
+      return this.paints.collapsedSampleFill();
+    }
+
+    @Override
+    public Paint placeholderFill()
+    {
+      return this.paints.placeholderFill();
+    }
+
+    @Override
+    public Paint clipFill()
+    {
+      return this.paints.clipFill();
+    }
+  }
+}
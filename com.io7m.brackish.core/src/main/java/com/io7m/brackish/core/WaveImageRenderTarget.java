@@ -0,0 +1,500 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.RadialGradient;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A render target that draws into a {@link BufferedImage}.</p>
+ *
+ * <p>
+ * Rectangles and lines, which account for almost all drawing performed by
+ * the renderers, are written directly into the image's backing
+ * {@code int[]} array of ARGB pixels without antialiasing. Polygons are
+ * drawn using Java2D. No JavaFX toolkit is required, and so this target
+ * can be used on headless systems.
+ * </p>
+ *
+ * <p>
+ * Only solid colors are supported; gradients are drawn using the color of
+ * their first stop, and any other paint is drawn as opaque gray.
+ * </p>
+ */
+
+public final class WaveImageRenderTarget implements WaveRenderTargetType
+{
+  private static final int OPAQUE_GRAY = 0xff808080;
+
+  private final BufferedImage image;
+  private final int[] pixels;
+  private final int width;
+  private final int height;
+  private final Graphics2D graphics;
+  private final Path2D.Double path;
+  private int fillColor;
+  private int strokeColor;
+  private int fillEffective;
+  private int strokeEffective;
+  private java.awt.Color fillAWT;
+  private java.awt.Color strokeAWT;
+  private double alpha;
+  private int clipX0;
+  private int clipY0;
+  private int clipX1;
+  private int clipY1;
+
+  /**
+   * A render target that draws into a new image of the given size.
+   *
+   * @param inWidth  The image width
+   * @param inHeight The image height
+   */
+
+  public WaveImageRenderTarget(
+    final int inWidth,
+    final int inHeight)
+  {
+    this(new BufferedImage(inWidth, inHeight, BufferedImage.TYPE_INT_ARGB));
+  }
+
+  /**
+   * A render target that draws into an existing image.
+   *
+   * @param inImage The image, which must be of type
+   *                {@link BufferedImage#TYPE_INT_ARGB}
+   */
+
+  public WaveImageRenderTarget(
+    final BufferedImage inImage)
+  {
+    this.image =
+      Objects.requireNonNull(inImage, "image");
+
+    if (inImage.getType() != BufferedImage.TYPE_INT_ARGB) {
+      throw new IllegalArgumentException(
+        "Image type must be TYPE_INT_ARGB (%d) but was %d"
+          .formatted(BufferedImage.TYPE_INT_ARGB, inImage.getType())
+      );
+    }
+
+    this.pixels =
+      ((DataBufferInt) inImage.getRaster().getDataBuffer()).getData();
+    this.width =
+      inImage.getWidth();
+    this.height =
+      inImage.getHeight();
+    this.graphics =
+      inImage.createGraphics();
+    this.graphics.setRenderingHint(
+      RenderingHints.KEY_ANTIALIASING,
+      RenderingHints.VALUE_ANTIALIAS_OFF
+    );
+    this.graphics.setComposite(AlphaComposite.SrcOver);
+    this.path =
+      new Path2D.Double();
+
+    this.fillColor = 0xff000000;
+    this.strokeColor = 0xff000000;
+    this.setGlobalAlpha(1.0);
+    this.clearClip();
+  }
+
+  /**
+   * Convert a paint to a non-premultiplied ARGB color.
+   *
+   * @param paint The paint
+   *
+   * @return The color
+   */
+
+  public static int argbOf(
+    final Paint paint)
+  {
+    return switch (paint) {
+      case final Color c -> argbOfColor(c);
+      case final LinearGradient g -> argbOfColor(g.getStops().get(0).getColor());
+      case final RadialGradient g -> argbOfColor(g.getStops().get(0).getColor());
+      default -> OPAQUE_GRAY;
+    };
+  }
+
+  private static int argbOfColor(
+    final Color c)
+  {
+    final var a = (int) Math.round(c.getOpacity() * 255.0);
+    final var r = (int) Math.round(c.getRed() * 255.0);
+    final var g = (int) Math.round(c.getGreen() * 255.0);
+    final var b = (int) Math.round(c.getBlue() * 255.0);
+    return (a << 24) | (r << 16) | (g << 8) | b;
+  }
+
+  private static int withAlpha(
+    final int argb,
+    final double alpha)
+  {
+    final var a = (int) Math.round((argb >>> 24) * alpha);
+    return (a << 24) | (argb & 0xffffff);
+  }
+
+  private static int blend(
+    final int dst,
+    final int src)
+  {
+    final int sa = src >>> 24;
+    if (sa == 255) {
+      return src;
+    }
+    if (sa == 0) {
+      return dst;
+    }
+
+    final int da = (dst >>> 24) * (255 - sa) / 255;
+    final int oa = sa + da;
+    final int r = blendChannel(src >>> 16, dst >>> 16, sa, da, oa);
+    final int g = blendChannel(src >>> 8, dst >>> 8, sa, da, oa);
+    final int b = blendChannel(src, dst, sa, da, oa);
+    return (oa << 24) | (r << 16) | (g << 8) | b;
+  }
+
+  private static int blendChannel(
+    final int src,
+    final int dst,
+    final int sa,
+    final int da,
+    final int oa)
+  {
+    return (((src & 0xff) * sa) + ((dst & 0xff) * da)) / oa;
+  }
+
+  private static int pixelStart(
+    final double coordinate)
+  {
+    return (int) Math.ceil(coordinate - 0.5);
+  }
+
+  /**
+   * @return The image into which this target draws
+   */
+
+  public BufferedImage image()
+  {
+    return this.image;
+  }
+
+  /**
+   * @return The live array of ARGB pixels backing the image, in row-major
+   * order
+   */
+
+  public int[] pixels()
+  {
+    return this.pixels;
+  }
+
+  @Override
+  public double width()
+  {
+    return this.width;
+  }
+
+  @Override
+  public double height()
+  {
+    return this.height;
+  }
+
+  @Override
+  public void setFill(
+    final Paint paint)
+  {
+    this.fillColor = argbOf(Objects.requireNonNull(paint, "paint"));
+    this.fillEffective = withAlpha(this.fillColor, this.alpha);
+    this.fillAWT = null;
+  }
+
+  @Override
+  public void setStroke(
+    final Paint paint)
+  {
+    this.strokeColor = argbOf(Objects.requireNonNull(paint, "paint"));
+    this.strokeEffective = withAlpha(this.strokeColor, this.alpha);
+    this.strokeAWT = null;
+  }
+
+  @Override
+  public void setGlobalAlpha(
+    final double newAlpha)
+  {
+    this.alpha = Math.clamp(newAlpha, 0.0, 1.0);
+    this.fillEffective = withAlpha(this.fillColor, this.alpha);
+    this.strokeEffective = withAlpha(this.strokeColor, this.alpha);
+    this.fillAWT = null;
+    this.strokeAWT = null;
+  }
+
+  @Override
+  public void setClip(
+    final double x,
+    final double y,
+    final double w,
+    final double h)
+  {
+    this.clipX0 = Math.clamp(pixelStart(x), 0, this.width);
+    this.clipY0 = Math.clamp(pixelStart(y), 0, this.height);
+    this.clipX1 = Math.clamp(pixelStart(x + w), this.clipX0, this.width);
+    this.clipY1 = Math.clamp(pixelStart(y + h), this.clipY0, this.height);
+    this.graphics.setClip(
+      this.clipX0,
+      this.clipY0,
+      this.clipX1 - this.clipX0,
+      this.clipY1 - this.clipY0
+    );
+  }
+
+  @Override
+  public void clearClip()
+  {
+    this.clipX0 = 0;
+    this.clipY0 = 0;
+    this.clipX1 = this.width;
+    this.clipY1 = this.height;
+    this.graphics.setClip(null);
+  }
+
+  @Override
+  public void fillRect(
+    final double x,
+    final double y,
+    final double w,
+    final double h)
+  {
+    final var x0 = Math.max(this.clipX0, pixelStart(x));
+    final var x1 = Math.min(this.clipX1, pixelStart(x + w));
+    final var y0 = Math.max(this.clipY0, pixelStart(y));
+    final var y1 = Math.min(this.clipY1, pixelStart(y + h));
+
+    for (int py = y0; py < y1; ++py) {
+      this.span(py, x0, x1, this.fillEffective);
+    }
+  }
+
+  @Override
+  public void strokeRect(
+    final double x,
+    final double y,
+    final double w,
+    final double h)
+  {
+    final var x0 = (int) Math.floor(x);
+    final var y0 = (int) Math.floor(y);
+    final var x1 = (int) Math.floor(x + w);
+    final var y1 = (int) Math.floor(y + h);
+    final var color = this.strokeEffective;
+
+    this.horizontal(y0, x0, x1, color);
+    if (y1 != y0) {
+      this.horizontal(y1, x0, x1, color);
+    }
+    this.vertical(x0, y0 + 1, y1 - 1, color);
+    if (x1 != x0) {
+      this.vertical(x1, y0 + 1, y1 - 1, color);
+    }
+  }
+
+  @Override
+  public void strokeLine(
+    final double x0,
+    final double y0,
+    final double x1,
+    final double y1)
+  {
+    final var ix0 = (int) Math.floor(x0);
+    final var iy0 = (int) Math.floor(y0);
+    final var ix1 = (int) Math.floor(x1);
+    final var iy1 = (int) Math.floor(y1);
+    final var color = this.strokeEffective;
+
+    if (iy0 == iy1) {
+      this.horizontal(iy0, Math.min(ix0, ix1), Math.max(ix0, ix1), color);
+      return;
+    }
+    if (ix0 == ix1) {
+      this.vertical(ix0, Math.min(iy0, iy1), Math.max(iy0, iy1), color);
+      return;
+    }
+    this.bresenham(ix0, iy0, ix1, iy1, color);
+  }
+
+  @Override
+  public void fillPolygon(
+    final double[] xs,
+    final double[] ys,
+    final int points)
+  {
+    if (this.preparePath(xs, ys, points)) {
+      if (this.fillAWT == null) {
+        this.fillAWT = new java.awt.Color(this.fillEffective, true);
+      }
+      this.graphics.setColor(this.fillAWT);
+      this.graphics.fill(this.path);
+    }
+  }
+
+  @Override
+  public void strokePolygon(
+    final double[] xs,
+    final double[] ys,
+    final int points)
+  {
+    if (this.preparePath(xs, ys, points)) {
+      if (this.strokeAWT == null) {
+        this.strokeAWT = new java.awt.Color(this.strokeEffective, true);
+      }
+      this.graphics.setColor(this.strokeAWT);
+      this.graphics.draw(this.path);
+    }
+  }
+
+  private boolean preparePath(
+    final double[] xs,
+    final double[] ys,
+    final int points)
+  {
+    final var p = this.path;
+    p.reset();
+    if (points < 2) {
+      return false;
+    }
+    p.moveTo(xs[0], ys[0]);
+    for (int index = 1; index < points; ++index) {
+      p.lineTo(xs[index], ys[index]);
+    }
+    p.closePath();
+    return true;
+  }
+
+  private void bresenham(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final int color)
+  {
+    final var dx = Math.abs(x1 - x0);
+    final var dy = -Math.abs(y1 - y0);
+    final var sx = x0 < x1 ? 1 : -1;
+    final var sy = y0 < y1 ? 1 : -1;
+
+    var x = x0;
+    var y = y0;
+    var error = dx + dy;
+    while (true) {
+      this.plot(x, y, color);
+      if (x == x1 && y == y1) {
+        return;
+      }
+      final var e2 = 2 * error;
+      if (e2 >= dy) {
+        error += dy;
+        x += sx;
+      }
+      if (e2 <= dx) {
+        error += dx;
+        y += sy;
+      }
+    }
+  }
+
+  private void plot(
+    final int x,
+    final int y,
+    final int color)
+  {
+    if (x >= this.clipX0 && x < this.clipX1
+        && y >= this.clipY0 && y < this.clipY1) {
+      final var index = (y * this.width) + x;
+      this.pixels[index] = blend(this.pixels[index], color);
+    }
+  }
+
+  private void horizontal(
+    final int y,
+    final int x0,
+    final int x1,
+    final int color)
+  {
+    if (y >= this.clipY0 && y < this.clipY1) {
+      this.span(
+        y,
+        Math.max(this.clipX0, x0),
+        Math.min(this.clipX1, x1 + 1),
+        color
+      );
+    }
+  }
+
+  private void vertical(
+    final int x,
+    final int y0,
+    final int y1,
+    final int color)
+  {
+    if (x < this.clipX0 || x >= this.clipX1) {
+      return;
+    }
+
+    final var ys = Math.max(this.clipY0, y0);
+    final var ye = Math.min(this.clipY1, y1 + 1);
+    for (int y = ys; y < ye; ++y) {
+      final var index = (y * this.width) + x;
+      this.pixels[index] = blend(this.pixels[index], color);
+    }
+  }
+
+  private void span(
+    final int y,
+    final int x0,
+    final int x1,
+    final int color)
+  {
+    if (x0 >= x1) {
+      return;
+    }
+
+    final var row = y * this.width;
+    if ((color >>> 24) == 255) {
+      Arrays.fill(this.pixels, row + x0, row + x1, color);
+      return;
+    }
+    for (int index = row + x0; index < row + x1; ++index) {
+      this.pixels[index] = blend(this.pixels[index], color);
+    }
+  }
+}
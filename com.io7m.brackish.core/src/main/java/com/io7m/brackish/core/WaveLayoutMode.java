@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * The way in which a view lays out its channels.
+ */
+
+public enum WaveLayoutMode
+{
+  /**
+   * Each channel is given its own canvas, and all channels share the
+   * available height of the view.
+   */
+
+  WAVE_LAYOUT_FILL,
+
+  /**
+   * Each channel is given a fixed height, and the view displays a vertically
+   * scrollable window onto the channels. Canvases are created only for the
+   * channels that intersect the window, and are recycled as the window
+   * scrolls.
+   *
+   * @see WaveView#setChannelHeight(double)
+   * @see WaveView#setChannelScrollOffset(double)
+   */
+
+  WAVE_LAYOUT_VIRTUALIZED,
+
+  /**
+   * All channels are rendered into a single canvas, stacked vertically, with
+   * each channel receiving an equal share of the available height.
+   */
+
+  WAVE_LAYOUT_SINGLE_CANVAS_STACKED,
+
+  /**
+   * All channels are rendered into a single canvas, overlaid translucently
+   * on top of each other, with each channel receiving the full available
+   * height.
+   */
+
+  WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * <p>A cache whose memory is managed by a {@link WaveMemoryManager}.</p>
+ *
+ * <p>
+ * The manager may call any of these methods from any thread, while
+ * holding its own lock. Caches must therefore never call the manager
+ * while holding a lock of their own.
+ * </p>
+ */
+
+public interface WaveMemoryCacheType
+{
+  /**
+   * @return A human-readable name for the cache
+   */
+
+  String memoryCacheName();
+
+  /**
+   * @return The number of bytes currently retained by the cache
+   */
+
+  long memoryUsed();
+
+  /**
+   * @return The time of the most recent access to the least recently used
+   * entry, in the units of {@link System#nanoTime()}, or
+   * {@link Long#MAX_VALUE} if the cache is empty
+   */
+
+  long memoryOldestAccess();
+
+  /**
+   * The relative cost of reloading a byte evicted from this cache. Of two
+   * entries that were last accessed at the same time, the entry in the
+   * cache with the lower cost is evicted first.
+   *
+   * @return The reload cost, greater than zero
+   */
+
+  double memoryReloadCost();
+
+  /**
+   * Evict the least recently used entry.
+   *
+   * @return The number of bytes freed, or {@code 0} if the cache is empty
+   */
+
+  long memoryEvictOldest();
+}
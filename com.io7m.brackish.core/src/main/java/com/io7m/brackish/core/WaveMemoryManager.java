@@ -0,0 +1,296 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeCheck;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * <p>A memory manager.</p>
+ *
+ * <p>
+ * A memory manager bounds the total number of bytes retained by every
+ * registered {@link WaveMemoryCacheType}. Whenever a cache grows, it asks
+ * the manager to {@linkplain #enforce() enforce} the ceiling, and the
+ * manager evicts entries across all caches until the total is within the
+ * ceiling. Each eviction removes the least recently used entry of the
+ * cache that maximizes the age of that entry divided by the cache's
+ * {@linkplain WaveMemoryCacheType#memoryReloadCost() reload cost}, so old
+ * entries are evicted first, and entries that are expensive to reload
+ * are kept for longer.
+ * </p>
+ *
+ * <p>
+ * Caches are held weakly, so a cache that is no longer used elsewhere
+ * stops counting against the ceiling once it has been garbage collected.
+ * The caches provided by this package register with
+ * {@link #shared()} unless they are given another manager.
+ * </p>
+ *
+ * <p>
+ * Managers are safe for use from multiple threads.
+ * </p>
+ */
+
+public final class WaveMemoryManager
+{
+  private final Object lock;
+  private final ArrayList<WeakReference<WaveMemoryCacheType>> caches;
+  private final CopyOnWriteArrayList<Consumer<WaveMemoryUsage>> listeners;
+  private volatile long ceiling;
+  private long evictions;
+  private long evictedBytes;
+
+  private WaveMemoryManager(
+    final long inCeiling)
+  {
+    this.lock = new Object();
+    this.caches = new ArrayList<>();
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.ceiling = checkCeiling(inCeiling);
+  }
+
+  private static long checkCeiling(
+    final long ceiling)
+  {
+    return RangeCheck.checkGreaterEqualLong(
+      ceiling,
+      "Ceiling",
+      0L,
+      "Minimum ceiling"
+    );
+  }
+
+  /**
+   * @return The manager shared by all caches that have not been given a
+   * specific manager; its ceiling is initially a quarter of the maximum
+   * heap size
+   */
+
+  public static WaveMemoryManager shared()
+  {
+    return SharedHolder.SHARED;
+  }
+
+  /**
+   * Create a new manager.
+   *
+   * @param ceiling The maximum number of bytes that may be retained
+   *
+   * @return A new manager
+   */
+
+  public static WaveMemoryManager create(
+    final long ceiling)
+  {
+    return new WaveMemoryManager(ceiling);
+  }
+
+  /**
+   * Set the ceiling, evicting entries immediately if the caches exceed it.
+   *
+   * @param newCeiling The maximum number of bytes that may be retained
+   */
+
+  public void setCeiling(
+    final long newCeiling)
+  {
+    this.ceiling = checkCeiling(newCeiling);
+    this.enforce();
+  }
+
+  /**
+   * @return The maximum number of bytes that may be retained
+   */
+
+  public long ceiling()
+  {
+    return this.ceiling;
+  }
+
+  /**
+   * Register a cache.
+   *
+   * @param cache The cache
+   */
+
+  public void register(
+    final WaveMemoryCacheType cache)
+  {
+    Objects.requireNonNull(cache, "cache");
+    synchronized (this.lock) {
+      this.caches.add(new WeakReference<>(cache));
+    }
+  }
+
+  /**
+   * Unregister a cache. The cache's entries no longer count against the
+   * ceiling.
+   *
+   * @param cache The cache
+   */
+
+  public void unregister(
+    final WaveMemoryCacheType cache)
+  {
+    synchronized (this.lock) {
+      this.caches.removeIf(r -> {
+        final var existing = r.get();
+        return existing == null || existing == cache;
+      });
+    }
+  }
+
+  /**
+   * Add a listener that receives a snapshot of the usage each time the
+   * ceiling is enforced. Listeners are called on the thread that enforced
+   * the ceiling, which is typically a background thread.
+   *
+   * @param listener The listener
+   */
+
+  public void addUsageListener(
+    final Consumer<WaveMemoryUsage> listener)
+  {
+    this.listeners.add(Objects.requireNonNull(listener, "listener"));
+  }
+
+  /**
+   * Remove a listener.
+   *
+   * @param listener The listener
+   */
+
+  public void removeUsageListener(
+    final Consumer<WaveMemoryUsage> listener)
+  {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * @return A snapshot of the current usage
+   */
+
+  public WaveMemoryUsage usage()
+  {
+    synchronized (this.lock) {
+      return this.usageLocked(this.usedLocked());
+    }
+  }
+
+  /**
+   * Evict entries until the registered caches retain no more than the
+   * ceiling. Caches call this method after they grow, and must not hold
+   * any lock of their own while doing so.
+   */
+
+  public void enforce()
+  {
+    final WaveMemoryUsage usage;
+    synchronized (this.lock) {
+      var used = this.usedLocked();
+      final var limit = this.ceiling;
+      while (used > limit) {
+        final var victim = this.victimLocked();
+        if (victim == null) {
+          break;
+        }
+        final var freed = victim.memoryEvictOldest();
+        if (freed <= 0L) {
+          break;
+        }
+        used -= freed;
+        ++this.evictions;
+        this.evictedBytes += freed;
+      }
+      usage = this.usageLocked(used);
+    }
+
+    for (final var listener : this.listeners) {
+      listener.accept(usage);
+    }
+  }
+
+  private WaveMemoryUsage usageLocked(
+    final long used)
+  {
+    return new WaveMemoryUsage(
+      this.ceiling,
+      used,
+      this.caches.size(),
+      this.evictions,
+      this.evictedBytes
+    );
+  }
+
+  private long usedLocked()
+  {
+    var used = 0L;
+    final var iterator = this.caches.iterator();
+    while (iterator.hasNext()) {
+      final var cache = iterator.next().get();
+      if (cache == null) {
+        iterator.remove();
+        continue;
+      }
+      used += cache.memoryUsed();
+    }
+    return used;
+  }
+
+  private WaveMemoryCacheType victimLocked()
+  {
+    final var now = System.nanoTime();
+    WaveMemoryCacheType victim = null;
+    var victimScore = Double.NEGATIVE_INFINITY;
+
+    for (final var reference : this.caches) {
+      final var cache = reference.get();
+      if (cache == null || cache.memoryUsed() == 0L) {
+        continue;
+      }
+      final var oldest = cache.memoryOldestAccess();
+      if (oldest == Long.MAX_VALUE) {
+        continue;
+      }
+      final var age = (double) Math.max(1L, now - oldest);
+      final var score = age / cache.memoryReloadCost();
+      if (score > victimScore) {
+        victimScore = score;
+        victim = cache;
+      }
+    }
+    return victim;
+  }
+
+  private static final class SharedHolder
+  {
+    private static final WaveMemoryManager SHARED =
+      new WaveMemoryManager(Runtime.getRuntime().maxMemory() / 4L);
+
+    private SharedHolder()
+    {
+
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * A snapshot of the memory managed by a {@link WaveMemoryManager}.
+ *
+ * @param ceiling      The maximum number of bytes that may be retained
+ * @param used         The number of bytes retained by all caches
+ * @param caches       The number of registered caches
+ * @param evictions    The total number of entries evicted by the manager
+ * @param evictedBytes The total number of bytes evicted by the manager
+ */
+
+public record WaveMemoryUsage(
+  long ceiling,
+  long used,
+  int caches,
+  long evictions,
+  long evictedBytes)
+{
+
+}
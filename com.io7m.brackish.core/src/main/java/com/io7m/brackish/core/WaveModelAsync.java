@@ -0,0 +1,556 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeCheck;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A wave model backed by an asynchronous source.</p>
+ *
+ * <p>
+ * The model retains the most recently used blocks delivered by a
+ * {@link WaveModelAsyncType} up to a budget in bytes. Reading frames
+ * through {@link #sampleOrDefault(int, long, double)} or
+ * {@link #isAvailable(int, long, long)} never blocks: frames in blocks
+ * that are not retained are requested from the source, and availability
+ * listeners are notified when the blocks arrive. {@link WaveView} renders
+ * a placeholder in place of unavailable frames, and redraws the affected
+ * columns as blocks arrive.
+ * </p>
+ *
+ * <p>
+ * {@link #sample(int, long)} is the exception: to honour the synchronous
+ * contract of {@link WaveModelType}, it waits for a missing block to
+ * arrive, and so must not be called on the JavaFX application thread. If
+ * the block fails to arrive, the failure is counted as with any other
+ * request, and the sample is read as silence.
+ * </p>
+ *
+ * <p>
+ * Availability listeners are also notified when a block fails to arrive,
+ * so that views request it again. A block that fails more than
+ * {@link #MAXIMUM_RETRIES} times in succession is no longer announced,
+ * and is only requested again when it is next read. Failures are only
+ * remembered for as many blocks as the model can retain, so that sources
+ * with many unreadable blocks do not grow the model without bound.
+ * </p>
+ *
+ * <p>
+ * The budget should be large enough to retain every block visible at
+ * once; otherwise, visible blocks will be evicted and requested again
+ * on each rendering.
+ * </p>
+ *
+ * <p>
+ * Models register with a {@link WaveMemoryManager}, and retained blocks
+ * count against its ceiling in addition to the model's own budget.
+ * Blocks are assumed to be more expensive to fetch again than those of a
+ * {@link WaveModelBlockCache}, and so are evicted later.
+ * </p>
+ */
+
+public final class WaveModelAsync
+  implements WaveModelType, WaveMemoryCacheType
+{
+  /**
+   * The number of successive failures of a block for which listeners are
+   * notified.
+   */
+
+  public static final int MAXIMUM_RETRIES = 3;
+
+  private static final double RELOAD_COST = 4.0;
+
+  private final WaveModelAsyncType source;
+  private final int blockFrames;
+  private final int blockCapacity;
+  private final long blocksPerChannel;
+  private final long frameCount;
+  private final int channelCount;
+  private final LinkedHashMap<Long, Block> blocks;
+  private final HashSet<Long> pending;
+  private final LinkedHashMap<Long, Integer> retries;
+  private final CopyOnWriteArrayList<WaveAvailabilityListenerType> listeners;
+  private final LongAdder requests;
+  private final LongAdder failures;
+  private final WaveMemoryManager memory;
+  private volatile long bytesUsed;
+
+  /**
+   * A wave model backed by an asynchronous source, registered with
+   * {@link WaveMemoryManager#shared()}.
+   *
+   * @param inSource   The source
+   * @param byteBudget The maximum number of bytes of samples to retain
+   */
+
+  public WaveModelAsync(
+    final WaveModelAsyncType inSource,
+    final long byteBudget)
+  {
+    this(inSource, byteBudget, WaveMemoryManager.shared());
+  }
+
+  /**
+   * A wave model backed by an asynchronous source.
+   *
+   * @param inSource   The source
+   * @param byteBudget The maximum number of bytes of samples to retain
+   * @param inMemory   The memory manager with which to register
+   */
+
+  public WaveModelAsync(
+    final WaveModelAsyncType inSource,
+    final long byteBudget,
+    final WaveMemoryManager inMemory)
+  {
+    this.source =
+      Objects.requireNonNull(inSource, "source");
+
+    RangeCheck.checkGreaterEqualInteger(
+      inSource.blockFrames(),
+      "Block frames",
+      1,
+      "Minimum block frames"
+    );
+    RangeCheck.checkGreaterEqualLong(
+      byteBudget,
+      "Byte budget",
+      0L,
+      "Minimum byte budget"
+    );
+
+    this.blockFrames = inSource.blockFrames();
+    this.frameCount = inSource.frameCount();
+    this.channelCount = inSource.channelCount();
+    this.blockCapacity = (int) Math.clamp(
+      byteBudget / ((long) this.blockFrames * Double.BYTES),
+      1L,
+      Integer.MAX_VALUE
+    );
+    this.blocksPerChannel =
+      Math.ceilDiv(this.frameCount, this.blockFrames);
+    this.blocks =
+      new LinkedHashMap<>(16, 0.75f, true);
+    this.pending =
+      new HashSet<>();
+    this.retries =
+      new LinkedHashMap<>();
+    this.listeners =
+      new CopyOnWriteArrayList<>();
+    this.requests =
+      new LongAdder();
+    this.failures =
+      new LongAdder();
+    this.memory =
+      Objects.requireNonNull(inMemory, "memory");
+    this.memory.register(this);
+  }
+
+  /**
+   * @return The underlying source
+   */
+
+  public WaveModelAsyncType source()
+  {
+    return this.source;
+  }
+
+  /**
+   * @return The maximum number of blocks retained
+   */
+
+  public int blockCapacity()
+  {
+    return this.blockCapacity;
+  }
+
+  /**
+   * @return The number of blocks currently retained
+   */
+
+  public int blockCount()
+  {
+    synchronized (this.blocks) {
+      return this.blocks.size();
+    }
+  }
+
+  /**
+   * @return The number of blocks requested from the source
+   */
+
+  public long requests()
+  {
+    return this.requests.sum();
+  }
+
+  /**
+   * @return The number of block requests that failed
+   */
+
+  public long failures()
+  {
+    return this.failures.sum();
+  }
+
+  @Override
+  public String memoryCacheName()
+  {
+    return "Asynchronous model";
+  }
+
+  @Override
+  public long memoryUsed()
+  {
+    return this.bytesUsed;
+  }
+
+  @Override
+  public long memoryOldestAccess()
+  {
+    synchronized (this.blocks) {
+      if (this.blocks.isEmpty()) {
+        return Long.MAX_VALUE;
+      }
+      return this.blocks.values().iterator().next().accessed;
+    }
+  }
+
+  @Override
+  public double memoryReloadCost()
+  {
+    return RELOAD_COST;
+  }
+
+  @Override
+  public long memoryEvictOldest()
+  {
+    synchronized (this.blocks) {
+      if (this.blocks.isEmpty()) {
+        return 0L;
+      }
+      final var iterator = this.blocks.values().iterator();
+      final var freed = iterator.next().byteSize();
+      iterator.remove();
+      this.bytesUsed -= freed;
+      return freed;
+    }
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.frameCount;
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.channelCount;
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel index",
+      this.channelCount,
+      "Channel count"
+    );
+    RangeCheck.checkGreaterEqualInteger(
+      channel,
+      "Channel index",
+      0,
+      "Minimum channel index"
+    );
+    RangeCheck.checkLessLong(
+      frameIndex,
+      "Frame index",
+      this.frameCount,
+      "Frame count"
+    );
+    RangeCheck.checkGreaterEqualLong(
+      frameIndex,
+      "Frame index",
+      0L,
+      "Minimum frame index"
+    );
+
+    final var block = frameIndex / this.blockFrames;
+    final var offset = (int) (frameIndex % this.blockFrames);
+    final var resident = this.resident(channel, block);
+    if (resident != null) {
+      return resident[offset];
+    }
+
+    final double[] data;
+    try {
+      data = this.source.readBlock(channel, block).join();
+    } catch (final CompletionException | CancellationException e) {
+      this.receive(channel, block, null, e);
+      return 0.0;
+    }
+
+    this.receive(channel, block, data, null);
+    if (data == null || offset >= data.length) {
+      return 0.0;
+    }
+    return data[offset];
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    if (channel < 0 || channel >= this.channelCount) {
+      return orElse;
+    }
+    if (frameIndex < 0L || frameIndex >= this.frameCount) {
+      return orElse;
+    }
+
+    final var block = frameIndex / this.blockFrames;
+    final var resident = this.resident(channel, block);
+    if (resident != null) {
+      return resident[(int) (frameIndex % this.blockFrames)];
+    }
+    this.request(channel, block);
+    return orElse;
+  }
+
+  @Override
+  public boolean isAvailable(
+    final int channel,
+    final long firstFrame,
+    final long lastFrame)
+  {
+    if (channel < 0 || channel >= this.channelCount) {
+      return true;
+    }
+
+    final var first =
+      Math.max(0L, firstFrame) / this.blockFrames;
+    final var last =
+      Math.min(lastFrame, this.frameCount - 1L) / this.blockFrames;
+
+    var available = true;
+    for (long block = first; block <= last; ++block) {
+      if (this.resident(channel, block) == null) {
+        this.request(channel, block);
+        available = false;
+      }
+    }
+    return available;
+  }
+
+  @Override
+  public void prefetch(
+    final int channel,
+    final long firstFrame,
+    final long lastFrame,
+    final WavePrefetchDirection direction)
+  {
+    Objects.requireNonNull(direction, "direction");
+
+    if (channel < 0 || channel >= this.channelCount) {
+      return;
+    }
+
+    /*
+     * As with WaveModelBlockCache, at most half of the capacity is
+     * requested, beginning at the end of the region nearest the view.
+     */
+
+    final var first =
+      Math.max(0L, firstFrame) / this.blockFrames;
+    final var last =
+      Math.min(lastFrame, this.frameCount - 1L) / this.blockFrames;
+    final var count =
+      Math.min((last - first) + 1L, Math.max(1, this.blockCapacity / 2));
+
+    for (long index = 0L; index < count; ++index) {
+      final var block =
+        direction == WavePrefetchDirection.PREFETCH_BACKWARD
+          ? last - index
+          : first + index;
+      if (this.resident(channel, block) == null) {
+        this.request(channel, block);
+      }
+    }
+  }
+
+  @Override
+  public void addAvailabilityListener(
+    final WaveAvailabilityListenerType listener)
+  {
+    this.listeners.addIfAbsent(
+      Objects.requireNonNull(listener, "listener"));
+  }
+
+  @Override
+  public void removeAvailabilityListener(
+    final WaveAvailabilityListenerType listener)
+  {
+    this.listeners.remove(listener);
+  }
+
+  @Override
+  public Optional<WavePeakSummary> peakSummary()
+  {
+    return this.source.peakSummary();
+  }
+
+  @Override
+  public Optional<WaveStatisticsIndex> statisticsIndex()
+  {
+    return this.source.statisticsIndex();
+  }
+
+  private double[] resident(
+    final int channel,
+    final long block)
+  {
+    final var key = (channel * this.blocksPerChannel) + block;
+    synchronized (this.blocks) {
+      final var existing = this.blocks.get(Long.valueOf(key));
+      if (existing == null) {
+        return null;
+      }
+      existing.accessed = System.nanoTime();
+      return existing.data;
+    }
+  }
+
+  private void request(
+    final int channel,
+    final long block)
+  {
+    final var key = Long.valueOf((channel * this.blocksPerChannel) + block);
+    synchronized (this.blocks) {
+      if (!this.pending.add(key)) {
+        return;
+      }
+    }
+
+    this.requests.increment();
+    this.source.readBlock(channel, block)
+      .whenComplete((data, error) -> this.receive(channel, block, data, error));
+  }
+
+  private void receive(
+    final int channel,
+    final long block,
+    final double[] data,
+    final Throwable error)
+  {
+    final var key = Long.valueOf((channel * this.blocksPerChannel) + block);
+    final var first = block * this.blockFrames;
+    final var expected = (int) Math.min(this.blockFrames, this.frameCount - first);
+    final var last = (first + expected) - 1L;
+
+    /*
+     * Failed blocks are forgotten, and listeners are notified so that
+     * views redraw the affected frames and thereby request the block
+     * again. Listeners are only notified for a bounded number of
+     * successive failures, so that a block that can never be read does
+     * not cause views to request it continuously.
+     */
+
+    if (error != null || data == null || data.length < expected) {
+      this.failures.increment();
+      final int attempts;
+      synchronized (this.blocks) {
+        this.pending.remove(key);
+        attempts = this.retries.merge(key, Integer.valueOf(1), Integer::sum)
+          .intValue();
+        final var iterator = this.retries.keySet().iterator();
+        while (this.retries.size() > this.blockCapacity) {
+          iterator.next();
+          iterator.remove();
+        }
+      }
+      if (attempts <= MAXIMUM_RETRIES) {
+        this.notifyAvailable(channel, first, last);
+      }
+      return;
+    }
+
+    final var received = new Block(data);
+    synchronized (this.blocks) {
+      this.pending.remove(key);
+      this.retries.remove(key);
+      var used = this.bytesUsed + received.byteSize();
+      final var previous = this.blocks.put(key, received);
+      if (previous != null) {
+        used -= previous.byteSize();
+      }
+      final var iterator = this.blocks.values().iterator();
+      while (this.blocks.size() > this.blockCapacity) {
+        used -= iterator.next().byteSize();
+        iterator.remove();
+      }
+      this.bytesUsed = used;
+    }
+
+    this.memory.enforce();
+    this.notifyAvailable(channel, first, last);
+  }
+
+  private void notifyAvailable(
+    final int channel,
+    final long first,
+    final long last)
+  {
+    for (final var listener : this.listeners) {
+      listener.onFramesAvailable(channel, first, last);
+    }
+  }
+
+  private static final class Block
+  {
+    private final double[] data;
+    private long accessed;
+
+    Block(
+      final double[] inData)
+    {
+      this.data = inData;
+      this.accessed = System.nanoTime();
+    }
+
+    long byteSize()
+    {
+      return (long) this.data.length * Double.BYTES;
+    }
+  }
+}
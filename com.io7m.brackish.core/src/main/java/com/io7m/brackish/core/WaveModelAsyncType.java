@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>An asynchronous source of waveform data.</p>
+ *
+ * <p>
+ * Asynchronous sources deliver samples in fixed-size blocks of frames per
+ * channel, and never block the caller. They are intended for waveforms
+ * that are remote, or that are decoded lazily. Sources are adapted to
+ * {@link WaveModelType} with {@link WaveModelAsync}.
+ * </p>
+ */
+
+public interface WaveModelAsyncType
+{
+  /**
+   * @return The number of sample frames in the underlying waveform
+   */
+
+  long frameCount();
+
+  /**
+   * @return The number of channels in the underlying waveform
+   */
+
+  int channelCount();
+
+  /**
+   * @return The number of frames in each block
+   */
+
+  int blockFrames();
+
+  /**
+   * Begin reading a block of samples. The returned future completes with
+   * an array holding the samples of the frames
+   * {@code [block * blockFrames(), (block + 1) * blockFrames())}, truncated
+   * at the end of the waveform. This method must not block; the future may
+   * be completed on any thread.
+   *
+   * @param channel The channel
+   * @param block   The block index
+   *
+   * @return The block samples
+   */
+
+  CompletableFuture<double[]> readBlock(
+    int channel,
+    long block);
+
+  /**
+   * @return The peak summary of the waveform, if any
+   *
+   * @see WaveModelType#peakSummary()
+   */
+
+  default Optional<WavePeakSummary> peakSummary()
+  {
+    return Optional.empty();
+  }
+
+  /**
+   * @return The statistics index of the waveform, if any
+   *
+   * @see WaveModelType#statisticsIndex()
+   */
+
+  default Optional<WaveStatisticsIndex> statisticsIndex()
+  {
+    return Optional.empty();
+  }
+}
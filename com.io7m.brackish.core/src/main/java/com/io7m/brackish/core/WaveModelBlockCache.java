@@ -0,0 +1,553 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeCheck;
+
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A caching wave model.</p>
+ *
+ * <p>
+ * A block cache wraps a model that is expensive to sample, such as one
+ * that decodes a compressed container or reads from a network-mounted
+ * file. Samples are fetched from the underlying model in fixed-size blocks
+ * of frames per channel using
+ * {@link WaveModelType#samples(int, long, double[], int, int)}, and the
+ * most recently used blocks are retained up to a budget in bytes.
+ * </p>
+ *
+ * <p>
+ * Caches are safe for use from multiple threads, so that the rendering
+ * thread and background threads such as summary builders can share one
+ * cache. Blocks are fetched from the underlying model without holding the
+ * cache lock; two threads missing on the same block at the same time may
+ * therefore both fetch it.
+ * </p>
+ *
+ * <p>
+ * The cache assumes that the underlying model is immutable. Call
+ * {@link #invalidate()} if it is not.
+ * </p>
+ *
+ * <p>
+ * Caches register with a {@link WaveMemoryManager}, and retained blocks
+ * count against its ceiling in addition to the cache's own budget.
+ * </p>
+ */
+
+public final class WaveModelBlockCache
+  implements WaveModelType, WaveMemoryCacheType
+{
+  private static final double RELOAD_COST = 1.0;
+  private static final int TOUCH_INTERVAL = 256;
+
+  private final WaveModelType source;
+  private final int blockFrames;
+  private final int blockCapacity;
+  private final long blocksPerChannel;
+  private final LinkedHashMap<Long, Block> blocks;
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final WaveMemoryManager memory;
+  private volatile Block lastBlock;
+  private volatile long bytesUsed;
+
+  /**
+   * A caching wave model registered with {@link WaveMemoryManager#shared()}.
+   *
+   * @param inSource      The underlying model
+   * @param inBlockFrames The number of frames in each block
+   * @param byteBudget    The maximum number of bytes of samples to retain
+   */
+
+  public WaveModelBlockCache(
+    final WaveModelType inSource,
+    final int inBlockFrames,
+    final long byteBudget)
+  {
+    this(inSource, inBlockFrames, byteBudget, WaveMemoryManager.shared());
+  }
+
+  /**
+   * A caching wave model.
+   *
+   * @param inSource      The underlying model
+   * @param inBlockFrames The number of frames in each block
+   * @param byteBudget    The maximum number of bytes of samples to retain
+   * @param inMemory      The memory manager with which to register
+   */
+
+  public WaveModelBlockCache(
+    final WaveModelType inSource,
+    final int inBlockFrames,
+    final long byteBudget,
+    final WaveMemoryManager inMemory)
+  {
+    this.source =
+      Objects.requireNonNull(inSource, "source");
+
+    RangeCheck.checkGreaterEqualInteger(
+      inBlockFrames,
+      "Block frames",
+      1,
+      "Minimum block frames"
+    );
+    RangeCheck.checkGreaterEqualLong(
+      byteBudget,
+      "Byte budget",
+      0L,
+      "Minimum byte budget"
+    );
+
+    this.blockFrames = inBlockFrames;
+    this.blockCapacity = (int) Math.clamp(
+      byteBudget / ((long) inBlockFrames * Double.BYTES),
+      1L,
+      Integer.MAX_VALUE
+    );
+    this.blocksPerChannel =
+      Math.ceilDiv(inSource.frameCount(), inBlockFrames);
+    this.blocks =
+      new LinkedHashMap<>(16, 0.75f, true);
+    this.hits =
+      new LongAdder();
+    this.misses =
+      new LongAdder();
+    this.lastBlock =
+      new Block(-1L, new double[0]);
+    this.memory =
+      Objects.requireNonNull(inMemory, "memory");
+    this.memory.register(this);
+  }
+
+  /**
+   * @return The underlying model
+   */
+
+  public WaveModelType source()
+  {
+    return this.source;
+  }
+
+  /**
+   * @return The number of frames in each block
+   */
+
+  public int blockFrames()
+  {
+    return this.blockFrames;
+  }
+
+  /**
+   * @return The maximum number of blocks retained
+   */
+
+  public int blockCapacity()
+  {
+    return this.blockCapacity;
+  }
+
+  /**
+   * @return The number of blocks currently retained
+   */
+
+  public int blockCount()
+  {
+    synchronized (this.blocks) {
+      return this.blocks.size();
+    }
+  }
+
+  /**
+   * @return The number of frames read from a block that was already
+   * retained; a bulk read counts each frame it reads
+   */
+
+  public long hits()
+  {
+    return this.hits.sum();
+  }
+
+  /**
+   * @return The number of frames read from a block that had to be fetched;
+   * a bulk read counts each frame it reads from the fetched block
+   */
+
+  public long misses()
+  {
+    return this.misses.sum();
+  }
+
+  /**
+   * Reset the hit and miss counters.
+   */
+
+  public void resetStatistics()
+  {
+    this.hits.reset();
+    this.misses.reset();
+  }
+
+  /**
+   * Discard all retained blocks.
+   */
+
+  public void invalidate()
+  {
+    synchronized (this.blocks) {
+      this.blocks.clear();
+      this.lastBlock = new Block(-1L, new double[0]);
+      this.bytesUsed = 0L;
+    }
+  }
+
+  @Override
+  public String memoryCacheName()
+  {
+    return "Block cache";
+  }
+
+  @Override
+  public long memoryUsed()
+  {
+    return this.bytesUsed;
+  }
+
+  @Override
+  public long memoryOldestAccess()
+  {
+    synchronized (this.blocks) {
+      if (this.blocks.isEmpty()) {
+        return Long.MAX_VALUE;
+      }
+      return this.blocks.values().iterator().next().accessed;
+    }
+  }
+
+  @Override
+  public double memoryReloadCost()
+  {
+    return RELOAD_COST;
+  }
+
+  @Override
+  public long memoryEvictOldest()
+  {
+    synchronized (this.blocks) {
+      if (this.blocks.isEmpty()) {
+        return 0L;
+      }
+      final var iterator = this.blocks.values().iterator();
+      final var oldest = iterator.next();
+      iterator.remove();
+      if (this.lastBlock == oldest) {
+        this.lastBlock = new Block(-1L, new double[0]);
+      }
+      final var freed = oldest.byteSize();
+      this.bytesUsed -= freed;
+      return freed;
+    }
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.source.frameCount();
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.source.channelCount();
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel index",
+      this.channelCount(),
+      "Channel count"
+    );
+    RangeCheck.checkGreaterEqualInteger(
+      channel,
+      "Channel index",
+      0,
+      "Minimum channel index"
+    );
+    RangeCheck.checkLessLong(
+      frameIndex,
+      "Frame index",
+      this.frameCount(),
+      "Frame count"
+    );
+    RangeCheck.checkGreaterEqualLong(
+      frameIndex,
+      "Frame index",
+      0L,
+      "Minimum frame index"
+    );
+    return this.cached(channel, frameIndex);
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    if (channel < 0 || channel >= this.channelCount()) {
+      return orElse;
+    }
+    if (frameIndex < 0L || frameIndex >= this.frameCount()) {
+      return orElse;
+    }
+    return this.cached(channel, frameIndex);
+  }
+
+  @Override
+  public void samples(
+    final int channel,
+    final long firstFrame,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    final var frames = this.frameCount();
+    final var channelValid =
+      channel >= 0 && channel < this.channelCount();
+
+    var index = 0;
+    while (index < count) {
+      final var frame = firstFrame + index;
+      if (!channelValid || frame < 0L || frame >= frames) {
+        output[offset + index] = 0.0;
+        ++index;
+        continue;
+      }
+
+      /*
+       * Copy the run of frames that lies within the block containing
+       * the current frame.
+       */
+
+      final var start = (int) (frame % this.blockFrames);
+      final var length = (int) Math.min(
+        count - index,
+        Math.min(this.blockFrames - start, frames - frame)
+      );
+      final var block = this.block(channel, frame / this.blockFrames, length);
+      System.arraycopy(block.samples, start, output, offset + index, length);
+      index += length;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * Blocks that are not already retained are fetched from the underlying
+   * model. At most half of {@link #blockCapacity()} blocks are fetched, so
+   * that prefetching never evicts the blocks currently being rendered;
+   * blocks are fetched from the end of the region nearest the view, so
+   * that those are the blocks fetched if the region is larger than that.
+   * Prefetching does not affect the hit and miss counters.
+   * </p>
+   */
+
+  @Override
+  public void prefetch(
+    final int channel,
+    final long firstFrame,
+    final long lastFrame,
+    final WavePrefetchDirection direction)
+  {
+    Objects.requireNonNull(direction, "direction");
+
+    if (channel < 0 || channel >= this.channelCount()) {
+      return;
+    }
+
+    final var first =
+      Math.max(0L, firstFrame) / this.blockFrames;
+    final var last =
+      Math.min(lastFrame, this.frameCount() - 1L) / this.blockFrames;
+    final var count =
+      Math.min((last - first) + 1L, Math.max(1, this.blockCapacity / 2));
+
+    for (long index = 0L; index < count; ++index) {
+      final var block =
+        direction == WavePrefetchDirection.PREFETCH_BACKWARD
+          ? last - index
+          : first + index;
+      final var key = channel * this.blocksPerChannel + block;
+      final boolean present;
+      synchronized (this.blocks) {
+        present = this.blocks.containsKey(Long.valueOf(key));
+      }
+      if (!present) {
+        this.load(channel, block, key, false);
+      }
+    }
+  }
+
+  @Override
+  public Optional<WavePeakSummary> peakSummary()
+  {
+    return this.source.peakSummary();
+  }
+
+  @Override
+  public Optional<WaveStatisticsIndex> statisticsIndex()
+  {
+    return this.source.statisticsIndex();
+  }
+
+  private double cached(
+    final int channel,
+    final long frameIndex)
+  {
+    final var block =
+      this.block(channel, frameIndex / this.blockFrames, 1);
+    return block.samples[(int) (frameIndex % this.blockFrames)];
+  }
+
+  private Block block(
+    final int channel,
+    final long blockIndex,
+    final int frames)
+  {
+    final var key = channel * this.blocksPerChannel + blockIndex;
+
+    /*
+     * Rendering reads frames in order, so consecutive reads almost always
+     * land in the same block. Checking the most recent block first avoids
+     * taking the lock and boxing the key for each sample.
+     */
+
+    final var last = this.lastBlock;
+    if (last.key == key) {
+      this.hits.add(frames);
+      if (++last.untouched >= TOUCH_INTERVAL) {
+        this.touch(last);
+      }
+      return last;
+    }
+
+    synchronized (this.blocks) {
+      final var existing = this.blocks.get(Long.valueOf(key));
+      if (existing != null) {
+        this.hits.add(frames);
+        existing.accessed = System.nanoTime();
+        this.lastBlock = existing;
+        return existing;
+      }
+    }
+
+    this.misses.add(frames);
+    return this.load(channel, blockIndex, key, true);
+  }
+
+  /*
+   * Reads served by the most recent block bypass the map, and so would
+   * otherwise leave the block looking as though it had not been used since
+   * it was first read. The block's access time and its position in the
+   * map's access order are refreshed periodically rather than on every
+   * read, as reading the clock per sample is measurably expensive.
+   */
+
+  private void touch(
+    final Block block)
+  {
+    block.untouched = 0;
+    synchronized (this.blocks) {
+      if (this.blocks.get(Long.valueOf(block.key)) == block) {
+        block.accessed = System.nanoTime();
+      }
+    }
+  }
+
+  /*
+   * Only demand reads become the most recent block: prefetches run on
+   * other threads, and would otherwise displace the block being rendered.
+   */
+
+  private Block load(
+    final int channel,
+    final long blockIndex,
+    final long key,
+    final boolean demand)
+  {
+    final var first = blockIndex * this.blockFrames;
+    final var length =
+      (int) Math.min(this.blockFrames, this.frameCount() - first);
+    final var samples = new double[length];
+    this.source.samples(channel, first, samples, 0, length);
+    final var loaded = new Block(key, samples);
+
+    synchronized (this.blocks) {
+      var used = this.bytesUsed + loaded.byteSize();
+      final var previous = this.blocks.put(Long.valueOf(key), loaded);
+      if (previous != null) {
+        used -= previous.byteSize();
+      }
+      final var iterator = this.blocks.values().iterator();
+      while (this.blocks.size() > this.blockCapacity) {
+        used -= iterator.next().byteSize();
+        iterator.remove();
+      }
+      this.bytesUsed = used;
+      if (demand) {
+        this.lastBlock = loaded;
+      }
+    }
+
+    this.memory.enforce();
+    return loaded;
+  }
+
+  private static final class Block
+  {
+    private final long key;
+    private final double[] samples;
+    private long accessed;
+    private int untouched;
+
+    Block(
+      final long inKey,
+      final double[] inSamples)
+    {
+      this.key = inKey;
+      this.samples = inSamples;
+      this.accessed = System.nanoTime();
+    }
+
+    long byteSize()
+    {
+      return (long) this.samples.length * Double.BYTES;
+    }
+  }
+}
@@ -19,6 +19,8 @@ package com.io7m.brackish.core;
 
 import com.io7m.jranges.RangeCheckException;
 
+import java.util.Optional;
+
 /**
  * <p>The wave model.</p>
  *
@@ -75,6 +77,116 @@ public interface WaveModelType
     double orElse
   );
 
+  /**
+   * Read {@code count} consecutive samples of {@code channel}, starting at
+   * frame {@code firstFrame}, into {@code output} starting at
+   * {@code offset}. Frames outside the waveform are read as {@code 0.0}.
+   * The default implementation calls
+   * {@link #sampleOrDefault(int, long, double)} for each frame; models
+   * with an expensive per-sample cost should override this to fetch the
+   * samples in one operation.
+   *
+   * @param channel    The channel
+   * @param firstFrame The first frame
+   * @param output     The output array
+   * @param offset     The index of the first element of {@code output}
+   * @param count      The number of samples
+   */
+
+  default void samples(
+    final int channel,
+    final long firstFrame,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    for (int index = 0; index < count; ++index) {
+      output[offset + index] =
+        this.sampleOrDefault(channel, firstFrame + index, 0.0);
+    }
+  }
+
+  /**
+   * Hint that the frames in {@code [firstFrame, lastFrame]} of
+   * {@code channel} are likely to be read soon. Models backed by slow
+   * storage may use this to load the frames ahead of time. This method is
+   * called from background threads, and may block; models that implement
+   * it must be safe for concurrent use. Models that limit the number of
+   * frames prefetched at once must begin at the end of the region given by
+   * {@code direction}, as that is the end nearest the view. The default
+   * implementation does nothing.
+   *
+   * @param channel    The channel
+   * @param firstFrame The first frame
+   * @param lastFrame  The last frame
+   * @param direction  The direction in which the view is moving
+   *
+   * @see WavePrefetcher
+   */
+
+  default void prefetch(
+    final int channel,
+    final long firstFrame,
+    final long lastFrame,
+    final WavePrefetchDirection direction)
+  {
+
+  }
+
+  /**
+   * Determine whether the frames in {@code [firstFrame, lastFrame]} of
+   * {@code channel} can be read without blocking. Models that load their
+   * data asynchronously return {@code false} for frames that have not yet
+   * been loaded, begin loading them, and notify their
+   * {@linkplain #addAvailabilityListener(WaveAvailabilityListenerType)
+   * listeners} once they are available. Views render a placeholder in
+   * place of unavailable frames. The default implementation returns
+   * {@code true}.
+   *
+   * @param channel    The channel
+   * @param firstFrame The first frame
+   * @param lastFrame  The last frame
+   *
+   * @return {@code true} if the frames are available
+   *
+   * @see WaveModelAsync
+   */
+
+  default boolean isAvailable(
+    final int channel,
+    final long firstFrame,
+    final long lastFrame)
+  {
+    return true;
+  }
+
+  /**
+   * Add a listener that will be notified when unavailable frames become
+   * available. The default implementation does nothing, as the frames of
+   * synchronous models are always available.
+   *
+   * @param listener The listener
+   */
+
+  default void addAvailabilityListener(
+    final WaveAvailabilityListenerType listener)
+  {
+
+  }
+
+  /**
+   * Remove a listener added with
+   * {@link #addAvailabilityListener(WaveAvailabilityListenerType)}.
+   *
+   * @param listener The listener
+   */
+
+  default void removeAvailabilityListener(
+    final WaveAvailabilityListenerType listener)
+  {
+
+  }
+
   /**
    * Call {@link #sampleOrDefault(int, long, double)} for the given
    * frame index, and the frame index that follows it, and linearly
@@ -102,4 +214,30 @@ public interface WaveModelType
 
     return (x0 * (1 - factor)) + (x1 * factor);
   }
+
+  /**
+   * Retrieve a precomputed peak summary of the waveform, if one is
+   * available. Collapsed renderings coarser than the summary's block size
+   * are computed from the summary instead of from individual frames.
+   *
+   * @return The peak summary, if any
+   */
+
+  default Optional<WavePeakSummary> peakSummary()
+  {
+    return Optional.empty();
+  }
+
+  /**
+   * Retrieve a precomputed statistics index of the waveform, if one is
+   * available. Views use the index to highlight columns that contain
+   * clipped samples.
+   *
+   * @return The statistics index, if any
+   */
+
+  default Optional<WaveStatisticsIndex> statisticsIndex()
+  {
+    return Optional.empty();
+  }
 }
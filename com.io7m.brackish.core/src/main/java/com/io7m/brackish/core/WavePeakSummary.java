@@ -0,0 +1,367 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeCheck;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * <p>A peak summary of a waveform.</p>
+ *
+ * <p>
+ * A peak summary holds the minimum and maximum sample values of each
+ * consecutive block of {@link #blockSize()} frames, for each channel, along
+ * with a pyramid of coarser levels in which each block covers twice as many
+ * frames as the blocks of the level below. The extrema of any range of
+ * frames can therefore be computed by reading a small, bounded number of
+ * blocks, regardless of the length of the range.
+ * </p>
+ *
+ * <p>
+ * Summaries are immutable, and can be written to and read from a compact
+ * binary form so that they can be stored alongside audio files and reused.
+ * </p>
+ *
+ * @see WavePeakSummaryBuilder
+ */
+
+public final class WavePeakSummary
+{
+  private static final long MAGIC = 0x42524B5045414B53L;
+  private static final int VERSION = 1;
+
+  private final int blockSize;
+  private final int channelCount;
+  private final long frameCount;
+  private final float[][][] minimums;
+  private final float[][][] maximums;
+
+  WavePeakSummary(
+    final int inBlockSize,
+    final long inFrameCount,
+    final float[][] inMinimums,
+    final float[][] inMaximums)
+  {
+    this.blockSize = inBlockSize;
+    this.channelCount = inMinimums.length;
+    this.frameCount = inFrameCount;
+
+    var blocks = inMinimums.length == 0 ? 0 : inMinimums[0].length;
+    var levels = 1;
+    while (blocks > 1) {
+      blocks = (blocks + 1) / 2;
+      ++levels;
+    }
+
+    this.minimums = new float[levels][][];
+    this.maximums = new float[levels][][];
+    this.minimums[0] = inMinimums;
+    this.maximums[0] = inMaximums;
+
+    for (int level = 1; level < levels; ++level) {
+      this.minimums[level] = new float[this.channelCount][];
+      this.maximums[level] = new float[this.channelCount][];
+      for (int channel = 0; channel < this.channelCount; ++channel) {
+        final var belowMin = this.minimums[level - 1][channel];
+        final var belowMax = this.maximums[level - 1][channel];
+        final var count = (belowMin.length + 1) / 2;
+        final var min = new float[count];
+        final var max = new float[count];
+        for (int block = 0; block < count; ++block) {
+          final var b0 = block * 2;
+          final var b1 = Math.min(b0 + 1, belowMin.length - 1);
+          min[block] = Math.min(belowMin[b0], belowMin[b1]);
+          max[block] = Math.max(belowMax[b0], belowMax[b1]);
+        }
+        this.minimums[level][channel] = min;
+        this.maximums[level][channel] = max;
+      }
+    }
+  }
+
+  /**
+   * Build a summary by reading every frame of the given model.
+   *
+   * @param model     The model
+   * @param blockSize The number of frames in each block of the finest level
+   *
+   * @return A summary
+   */
+
+  public static WavePeakSummary build(
+    final WaveModelType model,
+    final int blockSize)
+  {
+    Objects.requireNonNull(model, "model");
+
+    final var builder =
+      new WavePeakSummaryBuilder(model.channelCount(), blockSize);
+    final var frames = model.frameCount();
+    for (int channel = 0; channel < model.channelCount(); ++channel) {
+      for (long frame = 0L; frame < frames; ++frame) {
+        builder.add(channel, model.sampleOrDefault(channel, frame, 0.0));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Read a summary previously written with {@link #writeTo(OutputStream)}.
+   *
+   * @param stream The input stream
+   *
+   * @return A summary
+   *
+   * @throws IOException On I/O errors, or if the data is not a summary
+   */
+
+  public static WavePeakSummary readFrom(
+    final InputStream stream)
+    throws IOException
+  {
+    final var data =
+      new DataInputStream(new BufferedInputStream(stream));
+
+    final var magic = data.readLong();
+    if (magic != MAGIC) {
+      throw new IOException(
+        "Unrecognized peak summary magic number 0x%x".formatted(magic)
+      );
+    }
+    final var version = data.readInt();
+    if (version != VERSION) {
+      throw new IOException(
+        "Unsupported peak summary version %d".formatted(version)
+      );
+    }
+
+    final var blockSize = data.readInt();
+    final var channels = data.readInt();
+    final var frames = data.readLong();
+    final var blocks = data.readInt();
+    if (blockSize < 1 || channels < 0 || frames < 0L || blocks < 0) {
+      throw new IOException("Malformed peak summary header");
+    }
+
+    final var min = new float[channels][blocks];
+    final var max = new float[channels][blocks];
+    for (int channel = 0; channel < channels; ++channel) {
+      for (int block = 0; block < blocks; ++block) {
+        min[channel][block] = data.readFloat();
+        max[channel][block] = data.readFloat();
+      }
+    }
+    return new WavePeakSummary(blockSize, frames, min, max);
+  }
+
+  /**
+   * Write this summary to the given stream. Only the finest level is
+   * written; coarser levels are rebuilt on reading.
+   *
+   * @param stream The output stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public void writeTo(
+    final OutputStream stream)
+    throws IOException
+  {
+    final var data =
+      new DataOutputStream(new BufferedOutputStream(stream));
+
+    final var blocks = this.blockCount(0);
+    data.writeLong(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(this.blockSize);
+    data.writeInt(this.channelCount);
+    data.writeLong(this.frameCount);
+    data.writeInt(blocks);
+
+    for (int channel = 0; channel < this.channelCount; ++channel) {
+      final var min = this.minimums[0][channel];
+      final var max = this.maximums[0][channel];
+      for (int block = 0; block < blocks; ++block) {
+        data.writeFloat(min[block]);
+        data.writeFloat(max[block]);
+      }
+    }
+    data.flush();
+  }
+
+  /**
+   * @return The number of frames in each block of the finest level
+   */
+
+  public int blockSize()
+  {
+    return this.blockSize;
+  }
+
+  /**
+   * @return The number of channels
+   */
+
+  public int channelCount()
+  {
+    return this.channelCount;
+  }
+
+  /**
+   * @return The number of frames summarized
+   */
+
+  public long frameCount()
+  {
+    return this.frameCount;
+  }
+
+  /**
+   * @return The number of levels in the pyramid
+   */
+
+  public int levelCount()
+  {
+    return this.minimums.length;
+  }
+
+  /**
+   * @param level The level
+   *
+   * @return The number of blocks in the given level
+   */
+
+  public int blockCount(
+    final int level)
+  {
+    if (this.channelCount == 0) {
+      return 0;
+    }
+    return this.minimums[level][0].length;
+  }
+
+  float minimum(
+    final int level,
+    final int channel,
+    final int block)
+  {
+    return this.minimums[level][channel][block];
+  }
+
+  float maximum(
+    final int level,
+    final int channel,
+    final int block)
+  {
+    return this.maximums[level][channel][block];
+  }
+
+  /**
+   * @return The approximate number of bytes occupied by the summary
+   */
+
+  public long byteSize()
+  {
+    var blocks = 0L;
+    for (int level = 0; level < this.levelCount(); ++level) {
+      blocks += this.blockCount(level);
+    }
+    return blocks * this.channelCount * 2L * Float.BYTES;
+  }
+
+  /**
+   * Compute the extrema of the frames in {@code [lower, upper)} for the
+   * given channel. The extrema are computed from whole blocks, and so may
+   * include frames that share a finest-level block with either end of the
+   * range. At most two blocks are read per pyramid level. The minimum
+   * is written to {@code output[0]} and the maximum to {@code output[1]};
+   * if no blocks overlap the range, both are {@code 0.0}.
+   *
+   * @param channel The channel
+   * @param lower   The first frame
+   * @param upper   The frame after the last frame
+   * @param output  The output array
+   *
+   * @return The number of blocks read
+   */
+
+  public int extrema(
+    final int channel,
+    final long lower,
+    final long upper,
+    final double[] output)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.channelCount,
+      "Channel count"
+    );
+
+    /*
+     * Decompose the range of finest-level blocks into the smallest set of
+     * aligned blocks from the pyramid, working upwards from the finest
+     * level in the manner of a bottom-up segment tree query.
+     */
+
+    final var blocks = this.blockCount(0);
+    var b0 = (int) Math.clamp(Math.floorDiv(lower, this.blockSize), 0L, blocks);
+    var b1 = (int) Math.clamp(Math.ceilDiv(upper, this.blockSize), 0L, blocks);
+
+    var resultMin = Float.POSITIVE_INFINITY;
+    var resultMax = Float.NEGATIVE_INFINITY;
+    var reads = 0;
+    var level = 0;
+    while (b0 < b1) {
+      final var min = this.minimums[level][channel];
+      final var max = this.maximums[level][channel];
+      if ((b0 & 1) == 1) {
+        resultMin = Math.min(resultMin, min[b0]);
+        resultMax = Math.max(resultMax, max[b0]);
+        ++b0;
+        ++reads;
+      }
+      if ((b1 & 1) == 1) {
+        --b1;
+        resultMin = Math.min(resultMin, min[b1]);
+        resultMax = Math.max(resultMax, max[b1]);
+        ++reads;
+      }
+      b0 >>= 1;
+      b1 >>= 1;
+      ++level;
+    }
+
+    if (reads == 0) {
+      output[0] = 0.0;
+      output[1] = 0.0;
+      return 0;
+    }
+    output[0] = resultMin;
+    output[1] = resultMax;
+    return reads;
+  }
+}
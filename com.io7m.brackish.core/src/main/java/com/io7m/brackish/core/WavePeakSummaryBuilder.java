@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveBuildEvent;
+import com.io7m.jranges.RangeCheck;
+
+import java.util.Arrays;
+
+/**
+ * <p>A mutable builder of {@link WavePeakSummary} values.</p>
+ *
+ * <p>
+ * Samples are added to each channel in frame order, typically while a
+ * waveform is being decoded, and so a summary can be produced without a
+ * second pass over the data.
+ * </p>
+ */
+
+public final class WavePeakSummaryBuilder
+{
+  private static final int INITIAL_BLOCKS = 64;
+
+  private final int blockSize;
+  private WaveBuildEvent event;
+  private final float[][] minimums;
+  private final float[][] maximums;
+  private final long[] frames;
+  private final float[] blockMin;
+  private final float[] blockMax;
+
+  /**
+   * A mutable builder of summaries.
+   *
+   * @param channels    The number of channels
+   * @param inBlockSize The number of frames in each block of the finest
+   *                    level
+   */
+
+  public WavePeakSummaryBuilder(
+    final int channels,
+    final int inBlockSize)
+  {
+    RangeCheck.checkGreaterEqualInteger(
+      channels,
+      "Channels",
+      0,
+      "Minimum channels"
+    );
+    RangeCheck.checkGreaterEqualInteger(
+      inBlockSize,
+      "Block size",
+      1,
+      "Minimum block size"
+    );
+
+    this.event = WaveBuildEvent.start();
+    this.blockSize = inBlockSize;
+    this.minimums = new float[channels][INITIAL_BLOCKS];
+    this.maximums = new float[channels][INITIAL_BLOCKS];
+    this.frames = new long[channels];
+    this.blockMin = new float[channels];
+    this.blockMax = new float[channels];
+    Arrays.fill(this.blockMin, Float.POSITIVE_INFINITY);
+    Arrays.fill(this.blockMax, Float.NEGATIVE_INFINITY);
+  }
+
+  /**
+   * Add the next sample of the given channel.
+   *
+   * @param channel The channel
+   * @param sample  The sample
+   */
+
+  public void add(
+    final int channel,
+    final double sample)
+  {
+    final var value = (float) sample;
+    this.blockMin[channel] = Math.min(this.blockMin[channel], value);
+    this.blockMax[channel] = Math.max(this.blockMax[channel], value);
+
+    final var frame = this.frames[channel];
+    this.frames[channel] = frame + 1L;
+    if ((frame + 1L) % this.blockSize == 0L) {
+      this.completeBlock(channel, (int) (frame / this.blockSize));
+    }
+  }
+
+  private void completeBlock(
+    final int channel,
+    final int block)
+  {
+    if (block >= this.minimums[channel].length) {
+      final var size = this.minimums[channel].length * 2;
+      this.minimums[channel] = Arrays.copyOf(this.minimums[channel], size);
+      this.maximums[channel] = Arrays.copyOf(this.maximums[channel], size);
+    }
+
+    this.minimums[channel][block] = this.blockMin[channel];
+    this.maximums[channel][block] = this.blockMax[channel];
+    this.blockMin[channel] = Float.POSITIVE_INFINITY;
+    this.blockMax[channel] = Float.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Build a summary of the samples added so far. The frame count of the
+   * summary is that of the longest channel; shorter channels are padded
+   * with silence.
+   *
+   * @return A summary
+   */
+
+  public WavePeakSummary build()
+  {
+    final var channels = this.frames.length;
+
+    var frameCount = 0L;
+    for (final var count : this.frames) {
+      frameCount = Math.max(frameCount, count);
+    }
+
+    final var blocks =
+      Math.toIntExact((frameCount + this.blockSize - 1L) / this.blockSize);
+
+    final var min = new float[channels][];
+    final var max = new float[channels][];
+    for (int channel = 0; channel < channels; ++channel) {
+      min[channel] = Arrays.copyOf(this.minimums[channel], blocks);
+      max[channel] = Arrays.copyOf(this.maximums[channel], blocks);
+
+      final var complete = (int) (this.frames[channel] / this.blockSize);
+      if (complete < blocks && this.frames[channel] % this.blockSize != 0L) {
+        min[channel][complete] = this.blockMin[channel];
+        max[channel][complete] = this.blockMax[channel];
+      }
+    }
+
+    final var summary =
+      new WavePeakSummary(this.blockSize, frameCount, min, max);
+
+    WaveBuildEvent.finish(
+      this.event, "Peak summary", channels, frameCount, this.blockSize);
+    this.event = null;
+    return summary;
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * The direction in which a region is prefetched. Models that limit the
+ * number of frames prefetched at once begin at the end of the region
+ * nearest the view, so that the frames about to come into view are loaded
+ * first.
+ *
+ * @see WaveModelType#prefetch(int, long, long, WavePrefetchDirection)
+ */
+
+public enum WavePrefetchDirection
+{
+  /**
+   * The view is moving towards the end of the waveform; the region lies
+   * after the view, and is prefetched from its first frame onwards.
+   */
+
+  PREFETCH_FORWARD,
+
+  /**
+   * The view is moving towards the start of the waveform; the region lies
+   * before the view, and is prefetched from its last frame backwards.
+   */
+
+  PREFETCH_BACKWARD
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>A read-ahead prefetcher.</p>
+ *
+ * <p>
+ * A prefetcher observes successive view ranges, tracks the direction and
+ * speed at which the view is moving, and asks the model to
+ * {@linkplain WaveModelType#prefetch(int, long, long, WavePrefetchDirection)
+ * prefetch} the frames
+ * that are about to come into view. Prefetching is executed on a
+ * background executor; requests made while a prefetch is in progress are
+ * coalesced so that only the most recent request is executed next.
+ * </p>
+ *
+ * <p>
+ * The region prefetched extends at least one view width ahead of the
+ * view, and further when the view is moving quickly, up to
+ * {@link #MAXIMUM_VIEWS_AHEAD} view widths. Views that are zoomed out far
+ * enough to be rendered from the model's
+ * {@linkplain WaveModelType#peakSummary() peak summary} do not read frames,
+ * and so nothing is prefetched for them.
+ * </p>
+ *
+ * <p>
+ * Prefetchers must only be updated from a single thread, typically the
+ * JavaFX application thread.
+ * </p>
+ */
+
+public final class WavePrefetcher
+{
+  /**
+   * The maximum number of view widths prefetched ahead of the view.
+   */
+
+  public static final int MAXIMUM_VIEWS_AHEAD = 4;
+
+  /**
+   * Changes to the view separated by more than this are considered to be
+   * separate gestures, and the tracked velocity is reset.
+   */
+
+  private static final long GESTURE_GAP_NANOS = 250_000_000L;
+
+  private final Executor executor;
+  private final Runnable task;
+  private final Object pendingLock;
+  private Duration lookahead;
+  private double lookaheadSeconds;
+  private boolean tracking;
+  private long lastTime;
+  private double lastCenter;
+  private double velocity;
+  private WaveModelType requestedModel;
+  private long requestedLower;
+  private long requestedUpper;
+  private WaveModelType pendingModel;
+  private long pendingLower;
+  private long pendingUpper;
+  private WavePrefetchDirection pendingDirection;
+  private boolean scheduled;
+
+  private WavePrefetcher(
+    final Executor inExecutor)
+  {
+    this.executor =
+      Objects.requireNonNull(inExecutor, "executor");
+    this.task =
+      this::run;
+    this.pendingLock =
+      new Object();
+    this.requestedLower =
+      -1L;
+    this.requestedUpper =
+      -1L;
+    this.setLookahead(Duration.ofMillis(500L));
+  }
+
+  /**
+   * Create a prefetcher that executes on the given executor.
+   *
+   * @param executor The executor
+   *
+   * @return A new prefetcher
+   */
+
+  public static WavePrefetcher create(
+    final Executor executor)
+  {
+    return new WavePrefetcher(executor);
+  }
+
+  /**
+   * Create a prefetcher that executes on an executor shared by all
+   * prefetchers created with this method. The shared executor uses a
+   * single daemon thread.
+   *
+   * @return A new prefetcher
+   */
+
+  public static WavePrefetcher create()
+  {
+    return new WavePrefetcher(SharedHolder.EXECUTOR);
+  }
+
+  /**
+   * Set the lookahead. At the current speed of the view, the region
+   * prefetched is large enough to cover this much time. A lookahead of
+   * zero disables prefetching.
+   *
+   * @param newLookahead The lookahead
+   */
+
+  public void setLookahead(
+    final Duration newLookahead)
+  {
+    Objects.requireNonNull(newLookahead, "lookahead");
+    if (newLookahead.isNegative()) {
+      throw new IllegalArgumentException(
+        "Lookahead %s must be non-negative".formatted(newLookahead)
+      );
+    }
+    this.lookahead = newLookahead;
+    this.lookaheadSeconds = newLookahead.toNanos() / 1.0e9;
+  }
+
+  /**
+   * @return The lookahead
+   */
+
+  public Duration lookahead()
+  {
+    return this.lookahead;
+  }
+
+  /**
+   * @return The current speed of the view in frames per second; negative
+   * values indicate movement towards the start of the waveform
+   */
+
+  public double velocity()
+  {
+    return this.velocity;
+  }
+
+  /**
+   * @return The first frame of the most recently requested prefetch, or
+   * {@code -1} if nothing has been requested
+   */
+
+  public long requestedLower()
+  {
+    return this.requestedLower;
+  }
+
+  /**
+   * @return The last frame of the most recently requested prefetch, or
+   * {@code -1} if nothing has been requested
+   */
+
+  public long requestedUpper()
+  {
+    return this.requestedUpper;
+  }
+
+  /**
+   * Notify the prefetcher that the view has changed.
+   *
+   * @param model     The model being viewed
+   * @param lower     The first frame of the view
+   * @param upper     The last frame of the view
+   * @param width     The width of the view in pixels
+   * @param timeNanos The time of the change, in the units of
+   *                  {@link System#nanoTime()}
+   *
+   * @return {@code true} if a prefetch was requested
+   */
+
+  public boolean viewChanged(
+    final WaveModelType model,
+    final long lower,
+    final long upper,
+    final double width,
+    final long timeNanos)
+  {
+    Objects.requireNonNull(model, "model");
+
+    final var interval = (upper - lower) + 1L;
+    final var center = lower + (interval * 0.5);
+    this.track(center, timeNanos);
+
+    if (this.lookaheadSeconds == 0.0 || this.velocity == 0.0 || width < 1.0) {
+      return false;
+    }
+
+    final var summary = model.peakSummary();
+    if (summary.isPresent()) {
+      if (interval / width >= summary.get().blockSize()) {
+        return false;
+      }
+    }
+
+    final var ahead = (long) Math.clamp(
+      Math.abs(this.velocity) * this.lookaheadSeconds,
+      (double) interval,
+      (double) interval * MAXIMUM_VIEWS_AHEAD
+    );
+
+    final var frameLast = model.frameCount() - 1L;
+    final long regionLower;
+    final long regionUpper;
+    final WavePrefetchDirection direction;
+    if (this.velocity > 0.0) {
+      regionLower = Math.min(upper + 1L, frameLast);
+      regionUpper = Math.min(upper + ahead, frameLast);
+      direction = WavePrefetchDirection.PREFETCH_FORWARD;
+    } else {
+      regionLower = Math.max(lower - ahead, 0L);
+      regionUpper = Math.max(lower - 1L, 0L);
+      direction = WavePrefetchDirection.PREFETCH_BACKWARD;
+    }
+
+    if (regionLower >= regionUpper) {
+      return false;
+    }
+
+    /*
+     * Successive small movements produce heavily overlapping regions;
+     * only request a prefetch once the view has moved far enough that the
+     * new region is not mostly covered by the previous request.
+     */
+
+    if (model == this.requestedModel) {
+      final var overlapLower = Math.max(regionLower, this.requestedLower);
+      final var overlapUpper = Math.min(regionUpper, this.requestedUpper);
+      final var overlap = Math.max(0L, (overlapUpper - overlapLower) + 1L);
+      final var size = (regionUpper - regionLower) + 1L;
+      if (overlap * 2L > size) {
+        return false;
+      }
+    }
+
+    this.requestedModel = model;
+    this.requestedLower = regionLower;
+    this.requestedUpper = regionUpper;
+    this.submit(model, regionLower, regionUpper, direction);
+    return true;
+  }
+
+  private void track(
+    final double center,
+    final long timeNanos)
+  {
+    final var elapsed = timeNanos - this.lastTime;
+    if (!this.tracking || elapsed > GESTURE_GAP_NANOS) {
+      this.velocity = 0.0;
+    } else if (elapsed > 0L) {
+      final var instant = (center - this.lastCenter) / (elapsed / 1.0e9);
+      if (this.velocity == 0.0 || Math.signum(instant) != Math.signum(this.velocity)) {
+        this.velocity = instant;
+      } else {
+        this.velocity = (this.velocity + instant) * 0.5;
+      }
+    }
+    this.tracking = true;
+    this.lastTime = timeNanos;
+    this.lastCenter = center;
+  }
+
+  private void submit(
+    final WaveModelType model,
+    final long lower,
+    final long upper,
+    final WavePrefetchDirection direction)
+  {
+    final boolean execute;
+    synchronized (this.pendingLock) {
+      this.pendingModel = model;
+      this.pendingLower = lower;
+      this.pendingUpper = upper;
+      this.pendingDirection = direction;
+      execute = !this.scheduled;
+      this.scheduled = true;
+    }
+    if (execute) {
+      this.executor.execute(this.task);
+    }
+  }
+
+  private void run()
+  {
+    while (true) {
+      final WaveModelType model;
+      final long lower;
+      final long upper;
+      final WavePrefetchDirection direction;
+      synchronized (this.pendingLock) {
+        model = this.pendingModel;
+        lower = this.pendingLower;
+        upper = this.pendingUpper;
+        direction = this.pendingDirection;
+        this.pendingModel = null;
+        if (model == null) {
+          this.scheduled = false;
+          return;
+        }
+      }
+
+      try {
+        final var channels = model.channelCount();
+        for (int channel = 0; channel < channels; ++channel) {
+          model.prefetch(channel, lower, upper, direction);
+        }
+      } catch (final RuntimeException e) {
+        synchronized (this.pendingLock) {
+          this.scheduled = false;
+        }
+        throw e;
+      }
+    }
+  }
+
+  private static final class SharedHolder
+  {
+    private static final ExecutorService EXECUTOR =
+      Executors.newSingleThreadExecutor(r -> {
+        final var thread = new Thread(r);
+        thread.setName("com.io7m.brackish.prefetch");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+    private SharedHolder()
+    {
+
+    }
+  }
+}
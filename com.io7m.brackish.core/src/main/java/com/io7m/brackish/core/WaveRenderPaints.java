@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+import java.util.Objects;
+
+/**
+ * The paints used to render a waveform.
+ *
+ * @param background           The background
+ * @param centerLine           The horizontal center line
+ * @param expandedSampleStroke The outline of samples in expanded renderings
+ * @param expandedSampleFill   The fill of samples in expanded renderings
+ * @param collapsedSampleFill  The fill of columns in collapsed renderings
+ * @param placeholderFill      The fill drawn in place of unavailable frames
+ * @param clipFill             The fill drawn over collapsed columns that
+ *                             contain clipped samples
+ */
+
+public record WaveRenderPaints(
+  Paint background,
+  Paint centerLine,
+  Paint expandedSampleStroke,
+  Paint expandedSampleFill,
+  Paint collapsedSampleFill,
+  Paint placeholderFill,
+  Paint clipFill)
+{
+  private static final WaveRenderPaints DEFAULTS =
+    new WaveRenderPaints(
+      Color.gray(0.3),
+      Color.color(0.0, 0.0, 1.0),
+      Color.gray(1.0),
+      Color.gray(0.9),
+      Color.gray(1.0),
+      Color.gray(0.5, 0.3),
+      Color.TRANSPARENT
+    );
+
+  /**
+   * The paints used to render a waveform.
+   *
+   * @param background           The background
+   * @param centerLine           The horizontal center line
+   * @param expandedSampleStroke The outline of samples in expanded renderings
+   * @param expandedSampleFill   The fill of samples in expanded renderings
+   * @param collapsedSampleFill  The fill of columns in collapsed renderings
+   * @param placeholderFill      The fill drawn in place of unavailable frames
+   * @param clipFill             The fill drawn over collapsed columns that
+   *                             contain clipped samples
+   */
+
+  public WaveRenderPaints
+  {
+    Objects.requireNonNull(background, "background");
+    Objects.requireNonNull(centerLine, "centerLine");
+    Objects.requireNonNull(expandedSampleStroke, "expandedSampleStroke");
+    Objects.requireNonNull(expandedSampleFill, "expandedSampleFill");
+    Objects.requireNonNull(collapsedSampleFill, "collapsedSampleFill");
+    Objects.requireNonNull(placeholderFill, "placeholderFill");
+    Objects.requireNonNull(clipFill, "clipFill");
+  }
+
+  /**
+   * @return The default paints, as used by {@link WaveView}
+   */
+
+  public static WaveRenderPaints defaults()
+  {
+    return DEFAULTS;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * The rendering path taken by a channel.
+ */
+
+public enum WaveRenderPath
+{
+  /**
+   * The channel has not been rendered, or the view range was too small to
+   * render anything.
+   */
+
+  RENDER_PATH_NONE,
+
+  /**
+   * The channel was rendered in collapsed form; multiple frames were
+   * combined into each column.
+   */
+
+  RENDER_PATH_COLLAPSED,
+
+  /**
+   * The channel was rendered in collapsed form from the model's
+   * {@link WavePeakSummary} rather than from individual frames.
+   */
+
+  RENDER_PATH_COLLAPSED_SUMMARY,
+
+  /**
+   * The channel was rendered in expanded form using
+   * {@link WaveRenderStyle#WAVE_INTERPOLATE_LINEAR}.
+   */
+
+  RENDER_PATH_EXPANDED_LINEAR,
+
+  /**
+   * The channel was rendered in expanded form using
+   * {@link WaveRenderStyle#WAVE_BOXES}.
+   */
+
+  RENDER_PATH_EXPANDED_BOXES
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * <p>A render scheduler.</p>
+ *
+ * <p>
+ * Views submit render tasks to a scheduler rather than rendering directly.
+ * On each JavaFX pulse, the scheduler executes pending tasks in priority
+ * order until the pulse budget is exhausted. Any tasks that could not be
+ * executed within the budget are deferred to a later pulse. At least one
+ * task is executed per pulse so that progress is always made.
+ * </p>
+ *
+ * <p>
+ * Schedulers must only be accessed from the JavaFX application thread.
+ * </p>
+ */
+
+public final class WaveRenderScheduler
+{
+  private static final Comparator<WaveRenderTaskType> BY_PRIORITY =
+    Comparator.comparingInt(t -> t.renderPriority().ordinal());
+
+  private final ArrayList<WaveRenderTaskType> pending;
+  private final ArrayList<WaveRenderTaskType> pulseTasks;
+  private final SimpleObjectProperty<Duration> pulseBudget;
+  private AnimationTimer timer;
+  private boolean running;
+
+  private WaveRenderScheduler()
+  {
+    this.pending =
+      new ArrayList<>();
+    this.pulseTasks =
+      new ArrayList<>();
+    this.pulseBudget =
+      new SimpleObjectProperty<>(Duration.ofMillis(8L));
+  }
+
+  /**
+   * @return The scheduler shared by all views that have not been assigned
+   * a specific scheduler
+   */
+
+  public static WaveRenderScheduler shared()
+  {
+    return SharedHolder.SHARED;
+  }
+
+  /**
+   * @return A new scheduler
+   */
+
+  public static WaveRenderScheduler create()
+  {
+    return new WaveRenderScheduler();
+  }
+
+  /**
+   * Set the maximum amount of time the scheduler will spend executing
+   * tasks per pulse.
+   *
+   * @param budget The budget
+   */
+
+  public void setPulseBudget(
+    final Duration budget)
+  {
+    Objects.requireNonNull(budget, "budget");
+    if (budget.isNegative()) {
+      throw new IllegalArgumentException(
+        "Pulse budget %s must be non-negative".formatted(budget)
+      );
+    }
+    this.pulseBudget.set(budget);
+  }
+
+  /**
+   * @return The maximum amount of time the scheduler will spend executing
+   * tasks per pulse
+   */
+
+  public Duration pulseBudget()
+  {
+    return this.pulseBudget.get();
+  }
+
+  /**
+   * @return The maximum amount of time the scheduler will spend executing
+   * tasks per pulse
+   */
+
+  public ReadOnlyObjectProperty<Duration> pulseBudgetProperty()
+  {
+    return this.pulseBudget;
+  }
+
+  /**
+   * Schedule a task for execution. Scheduling a task that is already
+   * scheduled has no effect.
+   *
+   * @param task The task
+   */
+
+  public void schedule(
+    final WaveRenderTaskType task)
+  {
+    Objects.requireNonNull(task, "task");
+
+    /*
+     * The set of pending tasks is a plain list rather than a hash set, as
+     * the number of tasks is small and adding to a hash set allocates an
+     * entry for every scheduled task.
+     */
+
+    if (!this.pending.contains(task)) {
+      this.pending.add(task);
+    }
+    if (!this.running) {
+      if (this.timer == null) {
+        this.timer = new SchedulerTimer(this);
+      }
+      this.running = true;
+      this.timer.start();
+    }
+  }
+
+  /**
+   * Cancel a task if it is scheduled.
+   *
+   * @param task The task
+   */
+
+  public void cancel(
+    final WaveRenderTaskType task)
+  {
+    this.pending.remove(Objects.requireNonNull(task, "task"));
+  }
+
+  /**
+   * @param task The task
+   *
+   * @return {@code true} if the given task is scheduled
+   */
+
+  public boolean isScheduled(
+    final WaveRenderTaskType task)
+  {
+    return this.pending.contains(Objects.requireNonNull(task, "task"));
+  }
+
+  /**
+   * @return The number of tasks awaiting execution
+   */
+
+  public int pendingCount()
+  {
+    return this.pending.size();
+  }
+
+  private void pulse()
+  {
+    final var deadline =
+      System.nanoTime() + this.pulseBudget.get().toNanos();
+
+    this.pulseTasks.clear();
+    this.pulseTasks.addAll(this.pending);
+    this.pulseTasks.sort(BY_PRIORITY);
+
+    final var count = this.pulseTasks.size();
+    var executed = 0;
+    while (executed < count) {
+      if (executed > 0 && System.nanoTime() >= deadline) {
+        break;
+      }
+
+      /*
+       * Tasks with remaining work are moved to the back of the queue so
+       * that tasks of equal priority are executed fairly.
+       */
+
+      final var task = this.pulseTasks.get(executed);
+      this.pending.remove(task);
+      if (task.renderExecute(deadline)) {
+        this.pending.add(task);
+      }
+      ++executed;
+    }
+
+    for (int index = executed; index < count; ++index) {
+      this.pulseTasks.get(index).renderDeferred();
+    }
+
+    this.pulseTasks.clear();
+    if (this.pending.isEmpty()) {
+      this.running = false;
+      this.timer.stop();
+    }
+  }
+
+  private static final class SharedHolder
+  {
+    private static final WaveRenderScheduler SHARED =
+      new WaveRenderScheduler();
+
+    private SharedHolder()
+    {
+
+    }
+  }
+
+  private static final class SchedulerTimer extends AnimationTimer
+  {
+    private final WaveRenderScheduler scheduler;
+
+    SchedulerTimer(
+      final WaveRenderScheduler inScheduler)
+    {
+      this.scheduler = inScheduler;
+    }
+
+    @Override
+    public void handle(
+      final long now)
+    {
+      this.scheduler.pulse();
+    }
+  }
+}
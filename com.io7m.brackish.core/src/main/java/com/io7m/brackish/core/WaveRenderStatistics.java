@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Render statistics for a view. All counts are cumulative over the lifetime
+ * of the view.
+ *
+ * @param renders     The number of render passes executed
+ * @param refinements The number of progressive refinement steps executed
+ * @param deferred    The number of times a pending render was deferred to a
+ *                    later pulse because the scheduler's pulse budget was
+ *                    exhausted
+ * @param dropped     The number of redraw requests that were dropped
+ *                    because an identical request was already pending
+ * @param cacheHits   The number of collapsed renders that were plotted from
+ *                    cached column extrema without reading the model
+ * @param cacheMisses The number of collapsed renders that had to aggregate
+ *                    column extrema from the model
+ * @param channels    The statistics for the most recent rendering of each
+ *                    channel
+ */
+
+public record WaveRenderStatistics(
+  long renders,
+  long refinements,
+  long deferred,
+  long dropped,
+  long cacheHits,
+  long cacheMisses,
+  List<WaveChannelRenderStatistics> channels)
+{
+  /**
+   * Render statistics for a view.
+   *
+   * @param renders     The number of render passes executed
+   * @param refinements The number of progressive refinement steps executed
+   * @param deferred    The number of times a pending render was deferred to
+   *                    a later pulse because the scheduler's pulse budget
+   *                    was exhausted
+   * @param dropped     The number of redraw requests that were dropped
+   *                    because an identical request was already pending
+   * @param cacheHits   The number of collapsed renders that were plotted
+   *                    from cached column extrema without reading the model
+   * @param cacheMisses The number of collapsed renders that had to aggregate
+   *                    column extrema from the model
+   * @param channels    The statistics for the most recent rendering of each
+   *                    channel
+   */
+
+  public WaveRenderStatistics
+  {
+    channels = List.copyOf(Objects.requireNonNull(channels, "channels"));
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import javafx.scene.paint.Paint;
+
+/**
+ * <p>A target into which waveforms are rendered.</p>
+ *
+ * <p>
+ * A render target exposes the small set of drawing operations required by
+ * the waveform renderers. Coordinates are always absolute, in pixels, with
+ * the origin at the top-left corner of the target. Targets are not required
+ * to be thread-safe.
+ * </p>
+ */
+
+public interface WaveRenderTargetType
+{
+  /**
+   * @return The width of the target
+   */
+
+  double width();
+
+  /**
+   * @return The height of the target
+   */
+
+  double height();
+
+  /**
+   * Set the paint used for subsequent fill operations.
+   *
+   * @param paint The paint
+   */
+
+  void setFill(Paint paint);
+
+  /**
+   * Set the paint used for subsequent stroke operations.
+   *
+   * @param paint The paint
+   */
+
+  void setStroke(Paint paint);
+
+  /**
+   * Set the opacity applied to subsequent operations.
+   *
+   * @param alpha The opacity in the range {@code [0, 1]}
+   */
+
+  void setGlobalAlpha(double alpha);
+
+  /**
+   * Restrict subsequent operations to the given rectangle, replacing any
+   * existing clip rectangle.
+   *
+   * @param x The left edge of the rectangle
+   * @param y The top edge of the rectangle
+   * @param w The width of the rectangle
+   * @param h The height of the rectangle
+   */
+
+  void setClip(
+    double x,
+    double y,
+    double w,
+    double h);
+
+  /**
+   * Remove any clip rectangle.
+   */
+
+  void clearClip();
+
+  /**
+   * Fill a rectangle with the current fill paint.
+   *
+   * @param x The left edge of the rectangle
+   * @param y The top edge of the rectangle
+   * @param w The width of the rectangle
+   * @param h The height of the rectangle
+   */
+
+  void fillRect(
+    double x,
+    double y,
+    double w,
+    double h);
+
+  /**
+   * Outline a rectangle with the current stroke paint.
+   *
+   * @param x The left edge of the rectangle
+   * @param y The top edge of the rectangle
+   * @param w The width of the rectangle
+   * @param h The height of the rectangle
+   */
+
+  void strokeRect(
+    double x,
+    double y,
+    double w,
+    double h);
+
+  /**
+   * Draw a line with the current stroke paint.
+   *
+   * @param x0 The x coordinate of the start of the line
+   * @param y0 The y coordinate of the start of the line
+   * @param x1 The x coordinate of the end of the line
+   * @param y1 The y coordinate of the end of the line
+   */
+
+  void strokeLine(
+    double x0,
+    double y0,
+    double x1,
+    double y1);
+
+  /**
+   * Fill a polygon with the current fill paint.
+   *
+   * @param xs     The x coordinates of the points
+   * @param ys     The y coordinates of the points
+   * @param points The number of points
+   */
+
+  void fillPolygon(
+    double[] xs,
+    double[] ys,
+    int points);
+
+  /**
+   * Outline a closed polygon with the current stroke paint.
+   *
+   * @param xs     The x coordinates of the points
+   * @param ys     The y coordinates of the points
+   * @param points The number of points
+   */
+
+  void strokePolygon(
+    double[] xs,
+    double[] ys,
+    int points);
+}
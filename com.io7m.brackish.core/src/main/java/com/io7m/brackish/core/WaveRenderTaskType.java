@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * A render task that can be submitted to a {@link WaveRenderScheduler}.
+ */
+
+public interface WaveRenderTaskType
+{
+  /**
+   * @return The current priority of the task
+   */
+
+  WaveRenderPriority renderPriority();
+
+  /**
+   * Execute the task. The task should attempt to complete before the given
+   * deadline, and return {@code true} if it has remaining work that should
+   * be executed on a later pulse.
+   *
+   * @param deadline The deadline, in terms of {@link System#nanoTime()}
+   *
+   * @return {@code true} if the task has remaining work
+   */
+
+  boolean renderExecute(long deadline);
+
+  /**
+   * Indicate that the task was pending, but was deferred to a later pulse
+   * because the scheduler's pulse budget was exhausted.
+   */
+
+  default void renderDeferred()
+  {
+    // Nothing by default.
+  }
+}
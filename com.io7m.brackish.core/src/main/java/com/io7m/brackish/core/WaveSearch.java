@@ -0,0 +1,519 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeCheck;
+import com.io7m.jranges.RangeInclusiveL;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * <p>A threshold and silence search over a waveform.</p>
+ *
+ * <p>
+ * Searches walk the pyramid of a {@link WavePeakSummary} from the top
+ * down, skipping every block whose extrema show that it cannot contain a
+ * matching frame, and read frames from the model only within the
+ * finest-level blocks at the edges of a match. Finding the next frame
+ * above a threshold therefore reads {@code O(log n)} blocks and at most a
+ * few blocks of frames, regardless of the length of the waveform.
+ * </p>
+ *
+ * <p>
+ * A silence of at least {@code m} frames must contain a whole aligned
+ * block from a pyramid level whose blocks are roughly {@code m / 2}
+ * frames long, so silence searches examine only the blocks of that
+ * level, and extend each block that may be quiet into a complete silence,
+ * reading its frames where the summary alone cannot settle it. Long
+ * minimum silences are therefore found in a small fraction of the time
+ * of a linear scan. Silences shorter than two finest-level blocks cannot
+ * be located this way, and are found by reading the frames of every
+ * finest-level block that is not entirely quiet.
+ * </p>
+ *
+ * <p>
+ * A frame is <i>loud</i> if the absolute value of its sample is greater
+ * than or equal to the threshold, and <i>quiet</i> otherwise. The search
+ * assumes that the summary was built from the model.
+ * </p>
+ */
+
+public final class WaveSearch
+{
+  private final WaveModelType model;
+  private final WavePeakSummary summary;
+  private final int blockSize;
+  private final int blocks;
+  private final long frameCount;
+  private final double[] buffer;
+
+  private WaveSearch(
+    final WaveModelType inModel,
+    final WavePeakSummary inSummary)
+  {
+    this.model =
+      Objects.requireNonNull(inModel, "model");
+    this.summary =
+      Objects.requireNonNull(inSummary, "summary");
+    this.blockSize =
+      inSummary.blockSize();
+    this.blocks =
+      inSummary.blockCount(0);
+    this.frameCount =
+      Math.min(inModel.frameCount(), inSummary.frameCount());
+    this.buffer =
+      new double[this.blockSize];
+  }
+
+  /**
+   * Create a search over the given model, using the given summary of the
+   * model. Searches are not safe for use from multiple threads.
+   *
+   * @param model   The model
+   * @param summary The summary of the model
+   *
+   * @return A search
+   */
+
+  public static WaveSearch create(
+    final WaveModelType model,
+    final WavePeakSummary summary)
+  {
+    return new WaveSearch(model, summary);
+  }
+
+  /**
+   * Create a search over the given model, using the model's own
+   * {@linkplain WaveModelType#peakSummary() peak summary}.
+   *
+   * @param model The model
+   *
+   * @return A search, or nothing if the model has no summary
+   */
+
+  public static Optional<WaveSearch> of(
+    final WaveModelType model)
+  {
+    return model.peakSummary().map(s -> new WaveSearch(model, s));
+  }
+
+  /**
+   * Convert a level in decibels relative to full scale to an amplitude,
+   * so that a search for frames above {@code -1 dBFS} uses a threshold of
+   * {@code amplitudeOfDecibels(-1.0)}.
+   *
+   * @param decibels The level in dBFS
+   *
+   * @return The amplitude
+   */
+
+  public static double amplitudeOfDecibels(
+    final double decibels)
+  {
+    return Math.pow(10.0, decibels / 20.0);
+  }
+
+  /**
+   * Find the first loud frame at or after {@code from}.
+   *
+   * @param channel   The channel
+   * @param from      The first frame to consider
+   * @param threshold The threshold
+   *
+   * @return The frame, if any
+   */
+
+  public OptionalLong nextAbove(
+    final int channel,
+    final long from,
+    final double threshold)
+  {
+    this.checkChannel(channel);
+
+    var position = Math.max(0L, from);
+    while (position < this.frameCount) {
+      final var block = this.firstLoud(
+        channel, threshold, (int) (position / this.blockSize), this.blocks);
+      if (block < 0) {
+        break;
+      }
+
+      final var blockStart = (long) block * this.blockSize;
+      final var start = Math.max(position, blockStart);
+      final var end = this.blockEnd(block);
+      final var count = this.read(channel, start, end);
+      for (int index = 0; index < count; ++index) {
+        if (Math.abs(this.buffer[index]) >= threshold) {
+          return OptionalLong.of(start + index);
+        }
+      }
+      position = end;
+    }
+    return OptionalLong.empty();
+  }
+
+  /**
+   * Find the last loud frame at or before {@code from}.
+   *
+   * @param channel   The channel
+   * @param from      The last frame to consider
+   * @param threshold The threshold
+   *
+   * @return The frame, if any
+   */
+
+  public OptionalLong previousAbove(
+    final int channel,
+    final long from,
+    final double threshold)
+  {
+    this.checkChannel(channel);
+
+    var position = Math.min(from, this.frameCount - 1L);
+    while (position >= 0L) {
+      final var block = this.lastLoud(
+        channel, threshold, 0, (int) (position / this.blockSize) + 1);
+      if (block < 0) {
+        break;
+      }
+
+      final var blockStart = (long) block * this.blockSize;
+      final var end = Math.min(position + 1L, this.blockEnd(block));
+      final var count = this.read(channel, blockStart, end);
+      for (int index = count - 1; index >= 0; --index) {
+        if (Math.abs(this.buffer[index]) >= threshold) {
+          return OptionalLong.of(blockStart + index);
+        }
+      }
+      position = blockStart - 1L;
+    }
+    return OptionalLong.empty();
+  }
+
+  /**
+   * Find every run of at least {@code minimumFrames} consecutive quiet
+   * frames within {@code frames}. Runs that extend beyond {@code frames}
+   * are truncated to it.
+   *
+   * @param channel       The channel
+   * @param frames        The range of frames to search
+   * @param threshold     The threshold
+   * @param minimumFrames The minimum length of a silence
+   *
+   * @return The silences, in order
+   */
+
+  public List<RangeInclusiveL> silences(
+    final int channel,
+    final RangeInclusiveL frames,
+    final double threshold,
+    final long minimumFrames)
+  {
+    this.checkChannel(channel);
+    RangeCheck.checkGreaterEqualLong(
+      minimumFrames,
+      "Minimum frames",
+      1L,
+      "Minimum silence length"
+    );
+
+    final var lower = Math.max(0L, frames.lower());
+    final var upper = Math.min(frames.upper(), this.frameCount - 1L) + 1L;
+    final var results = new ArrayList<RangeInclusiveL>();
+    if (lower >= upper) {
+      return results;
+    }
+
+    /*
+     * Any run of 2^(j+1) - 1 whole finest-level blocks contains a whole
+     * aligned block of level j, and a silence of m frames contains at
+     * least (m / blockSize) - 1 whole finest-level blocks.
+     */
+
+    final var wholeBlocks = minimumFrames / this.blockSize - 1L;
+    if (wholeBlocks < 1L) {
+      this.silencesLinear(channel, lower, upper, threshold, minimumFrames, results);
+    } else {
+      this.silencesPruned(channel, lower, upper, threshold, minimumFrames, results);
+    }
+    return results;
+  }
+
+  private void silencesPruned(
+    final int channel,
+    final long lower,
+    final long upper,
+    final double threshold,
+    final long minimumFrames,
+    final List<RangeInclusiveL> results)
+  {
+    final var wholeBlocks = minimumFrames / this.blockSize - 1L;
+    final var level = Math.min(
+      this.summary.levelCount() - 1,
+      62 - Long.numberOfLeadingZeros(wholeBlocks + 1L)
+    );
+
+    final var b0 = (int) (lower / this.blockSize);
+    final var b1 = (int) Math.ceilDiv(upper, this.blockSize);
+    var node = b0 >> level;
+    final var lastNode = (b1 - 1) >> level;
+
+    while (node <= lastNode) {
+      if (!this.isPossiblyQuiet(level, channel, node, threshold)) {
+        ++node;
+        continue;
+      }
+
+      /*
+       * The extrema of a block only bound its samples to within the float
+       * rounding error, so each candidate block is confirmed by the exact
+       * frame search from its start: a loud frame inside the block rules
+       * it out, and otherwise the first loud frame found is the end of
+       * the silence. The start of the silence is likewise found with the
+       * exact frame search rather than from the last block that is not
+       * quiet.
+       */
+
+      final var nodeStart = (long) (node << level) * this.blockSize;
+      final var nodeEnd = this.blockEnd(Math.min((node + 1) << level, this.blocks) - 1);
+      final var after = this.nextAbove(channel, nodeStart, threshold);
+      if (after.isPresent() && after.getAsLong() < nodeEnd) {
+        ++node;
+        continue;
+      }
+      final var before = this.previousAbove(channel, nodeStart - 1L, threshold);
+
+      final var start =
+        Math.max(lower, before.isPresent() ? before.getAsLong() + 1L : lower);
+      final var end =
+        Math.min(upper, after.isPresent() ? after.getAsLong() : upper);
+      if (end - start >= minimumFrames) {
+        results.add(RangeInclusiveL.of(start, end - 1L));
+      }
+      if (end >= upper) {
+        break;
+      }
+      node = ((int) (end / this.blockSize) >> level) + 1;
+    }
+  }
+
+  private void silencesLinear(
+    final int channel,
+    final long lower,
+    final long upper,
+    final double threshold,
+    final long minimumFrames,
+    final List<RangeInclusiveL> results)
+  {
+    final var b1 = (int) Math.ceilDiv(upper, this.blockSize);
+    var runStart = -1L;
+    var position = lower;
+
+    while (position < upper) {
+      final var block = (int) (position / this.blockSize);
+      if (this.isQuiet(0, channel, block, threshold)) {
+        if (runStart < 0L) {
+          runStart = position;
+        }
+        final var next = this.firstLoud(channel, threshold, block, b1);
+        position = next < 0 ? upper : (long) next * this.blockSize;
+        continue;
+      }
+
+      final var end = Math.min(upper, this.blockEnd(block));
+      final var count = this.read(channel, position, end);
+      for (int index = 0; index < count; ++index) {
+        final var frame = position + index;
+        if (Math.abs(this.buffer[index]) >= threshold) {
+          if (runStart >= 0L && frame - runStart >= minimumFrames) {
+            results.add(RangeInclusiveL.of(runStart, frame - 1L));
+          }
+          runStart = -1L;
+        } else if (runStart < 0L) {
+          runStart = frame;
+        }
+      }
+      position = end;
+    }
+
+    if (runStart >= 0L && upper - runStart >= minimumFrames) {
+      results.add(RangeInclusiveL.of(runStart, upper - 1L));
+    }
+  }
+
+  /**
+   * Find the first finest-level block in {@code [from, to)} that is not
+   * entirely quiet, descending from the top of the pyramid. A block that
+   * is not entirely quiet always contains a finest-level block that is not
+   * entirely quiet, so only the blocks along the edges of the range are
+   * visited. The finest-level block found is not guaranteed to contain a
+   * loud frame; see isQuiet().
+   */
+
+  private int firstLoud(
+    final int channel,
+    final double threshold,
+    final int from,
+    final int to)
+  {
+    if (from >= to || this.blocks == 0) {
+      return -1;
+    }
+    return this.firstLoudIn(
+      channel, threshold, this.summary.levelCount() - 1, 0, from, to);
+  }
+
+  private int firstLoudIn(
+    final int channel,
+    final double threshold,
+    final int level,
+    final int node,
+    final int from,
+    final int to)
+  {
+    final var start = node << level;
+    final var end = Math.min((node + 1) << level, this.blocks);
+    if (end <= from || start >= to) {
+      return -1;
+    }
+    if (this.isQuiet(level, channel, node, threshold)) {
+      return -1;
+    }
+    if (level == 0) {
+      return node;
+    }
+
+    final var left = node * 2;
+    final var result =
+      this.firstLoudIn(channel, threshold, level - 1, left, from, to);
+    if (result >= 0 || left + 1 >= this.summary.blockCount(level - 1)) {
+      return result;
+    }
+    return this.firstLoudIn(channel, threshold, level - 1, left + 1, from, to);
+  }
+
+  private int lastLoud(
+    final int channel,
+    final double threshold,
+    final int from,
+    final int to)
+  {
+    if (from >= to || this.blocks == 0) {
+      return -1;
+    }
+    return this.lastLoudIn(
+      channel, threshold, this.summary.levelCount() - 1, 0, from, to);
+  }
+
+  private int lastLoudIn(
+    final int channel,
+    final double threshold,
+    final int level,
+    final int node,
+    final int from,
+    final int to)
+  {
+    final var start = node << level;
+    final var end = Math.min((node + 1) << level, this.blocks);
+    if (end <= from || start >= to) {
+      return -1;
+    }
+    if (this.isQuiet(level, channel, node, threshold)) {
+      return -1;
+    }
+    if (level == 0) {
+      return node;
+    }
+
+    final var left = node * 2;
+    if (left + 1 < this.summary.blockCount(level - 1)) {
+      final var result =
+        this.lastLoudIn(channel, threshold, level - 1, left + 1, from, to);
+      if (result >= 0) {
+        return result;
+      }
+    }
+    return this.lastLoudIn(channel, threshold, level - 1, left, from, to);
+  }
+
+  /*
+   * The summary extrema are the samples rounded to the nearest float, and
+   * so a loud sample may be recorded as slightly below the threshold. A
+   * block is only considered quiet if the extrema are clear of the
+   * threshold by more than that rounding error. Blocks that are within
+   * the rounding error are read, and may turn out to contain no loud
+   * frames.
+   */
+
+  private boolean isQuiet(
+    final int level,
+    final int channel,
+    final int node,
+    final double threshold)
+  {
+    return Math.nextUp(this.summary.maximum(level, channel, node)) < threshold
+      && Math.nextDown(this.summary.minimum(level, channel, node)) > -threshold;
+  }
+
+  /*
+   * The complement of isQuiet(): a block is possibly quiet unless its
+   * extrema show that it holds a loud frame even after allowing for the
+   * rounding error.
+   */
+
+  private boolean isPossiblyQuiet(
+    final int level,
+    final int channel,
+    final int node,
+    final double threshold)
+  {
+    return Math.nextDown(this.summary.maximum(level, channel, node)) < threshold
+      && Math.nextUp(this.summary.minimum(level, channel, node)) > -threshold;
+  }
+
+  private long blockEnd(
+    final int block)
+  {
+    return Math.min((long) (block + 1) * this.blockSize, this.frameCount);
+  }
+
+  private int read(
+    final int channel,
+    final long start,
+    final long end)
+  {
+    final var count = (int) (end - start);
+    this.model.samples(channel, start, this.buffer, 0, count);
+    return count;
+  }
+
+  private void checkChannel(
+    final int channel)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.summary.channelCount(),
+      "Channel count"
+    );
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * Statistics of a range of frames of one channel.
+ *
+ * @param frames         The number of frames
+ * @param peak           The largest absolute sample value
+ * @param rms            The root mean square of the samples
+ * @param dcOffset       The mean of the samples
+ * @param clippedSamples The number of clipped samples
+ *
+ * @see WaveStatisticsIndex
+ */
+
+public record WaveStatistics(
+  long frames,
+  double peak,
+  double rms,
+  double dcOffset,
+  long clippedSamples)
+{
+  /**
+   * @return The peak in decibels relative to full scale
+   */
+
+  public double peakDecibels()
+  {
+    return 20.0 * Math.log10(this.peak);
+  }
+
+  /**
+   * @return The RMS level in decibels relative to full scale
+   */
+
+  public double rmsDecibels()
+  {
+    return 20.0 * Math.log10(this.rms);
+  }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeCheck;
+import com.io7m.jranges.RangeInclusiveL;
+
+import java.util.Objects;
+
+/**
+ * <p>A statistics index of a waveform.</p>
+ *
+ * <p>
+ * A statistics index holds, for each consecutive block of
+ * {@link #blockSize()} frames of each channel, the sum and sum of squares
+ * of the samples, the number of clipped samples, and the peak absolute
+ * sample value. Sums and clip counts are stored as running totals, and
+ * peaks as a pyramid in the manner of {@link WavePeakSummary}, so the
+ * statistics of any range of blocks are computed by reading a small,
+ * bounded number of values rather than by rescanning the samples.
+ * </p>
+ *
+ * <p>
+ * Indices are immutable.
+ * </p>
+ *
+ * @see WaveStatisticsIndexBuilder
+ */
+
+public final class WaveStatisticsIndex
+{
+  /**
+   * The default clip level: the magnitude of the largest positive 16-bit
+   * sample. Samples at or beyond either full-scale value of a 16-bit
+   * source are counted as clipped.
+   */
+
+  public static final double DEFAULT_CLIP_LEVEL = 32767.0 / 32768.0;
+
+  private final int blockSize;
+  private final int channelCount;
+  private final long frameCount;
+  private final double clipLevel;
+  private final double[][] sums;
+  private final double[][] squares;
+  private final long[][] clips;
+  private final float[][][] peaks;
+
+  WaveStatisticsIndex(
+    final int inBlockSize,
+    final long inFrameCount,
+    final double inClipLevel,
+    final double[][] blockSums,
+    final double[][] blockSquares,
+    final int[][] blockClips,
+    final float[][] blockPeaks)
+  {
+    this.blockSize = inBlockSize;
+    this.channelCount = blockSums.length;
+    this.frameCount = inFrameCount;
+    this.clipLevel = inClipLevel;
+    this.sums = new double[this.channelCount][];
+    this.squares = new double[this.channelCount][];
+    this.clips = new long[this.channelCount][];
+
+    for (int channel = 0; channel < this.channelCount; ++channel) {
+      final var blocks = blockSums[channel].length;
+      final var sum = new double[blocks + 1];
+      final var square = new double[blocks + 1];
+      final var clip = new long[blocks + 1];
+      for (int block = 0; block < blocks; ++block) {
+        sum[block + 1] = sum[block] + blockSums[channel][block];
+        square[block + 1] = square[block] + blockSquares[channel][block];
+        clip[block + 1] = clip[block] + blockClips[channel][block];
+      }
+      this.sums[channel] = sum;
+      this.squares[channel] = square;
+      this.clips[channel] = clip;
+    }
+
+    var blocks = blockPeaks.length == 0 ? 0 : blockPeaks[0].length;
+    var levels = 1;
+    while (blocks > 1) {
+      blocks = (blocks + 1) / 2;
+      ++levels;
+    }
+
+    this.peaks = new float[levels][][];
+    this.peaks[0] = blockPeaks;
+    for (int level = 1; level < levels; ++level) {
+      this.peaks[level] = new float[this.channelCount][];
+      for (int channel = 0; channel < this.channelCount; ++channel) {
+        final var below = this.peaks[level - 1][channel];
+        final var peak = new float[(below.length + 1) / 2];
+        for (int block = 0; block < peak.length; ++block) {
+          final var b0 = block * 2;
+          final var b1 = Math.min(b0 + 1, below.length - 1);
+          peak[block] = Math.max(below[b0], below[b1]);
+        }
+        this.peaks[level][channel] = peak;
+      }
+    }
+  }
+
+  /**
+   * Build an index by reading every frame of the given model.
+   *
+   * @param model     The model
+   * @param blockSize The number of frames in each block
+   * @param clipLevel The absolute sample value at or above which a sample
+   *                  is counted as clipped
+   *
+   * @return An index
+   */
+
+  public static WaveStatisticsIndex build(
+    final WaveModelType model,
+    final int blockSize,
+    final double clipLevel)
+  {
+    Objects.requireNonNull(model, "model");
+
+    final var builder = new WaveStatisticsIndexBuilder(
+      model.channelCount(),
+      blockSize,
+      clipLevel
+    );
+    final var frames = model.frameCount();
+    for (int channel = 0; channel < model.channelCount(); ++channel) {
+      for (long frame = 0L; frame < frames; ++frame) {
+        builder.add(channel, model.sampleOrDefault(channel, frame, 0.0));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return The number of frames in each block
+   */
+
+  public int blockSize()
+  {
+    return this.blockSize;
+  }
+
+  /**
+   * @return The number of channels
+   */
+
+  public int channelCount()
+  {
+    return this.channelCount;
+  }
+
+  /**
+   * @return The number of frames indexed
+   */
+
+  public long frameCount()
+  {
+    return this.frameCount;
+  }
+
+  /**
+   * @return The absolute sample value at or above which a sample is
+   * counted as clipped
+   */
+
+  public double clipLevel()
+  {
+    return this.clipLevel;
+  }
+
+  /**
+   * Count the clipped samples in the blocks that overlap the frames
+   * {@code [lower, upper)} of the given channel. The count is computed
+   * from whole blocks, and so may include samples that share a block with
+   * either end of the range. This method does not allocate.
+   *
+   * @param channel The channel
+   * @param lower   The first frame
+   * @param upper   The frame after the last frame
+   *
+   * @return The number of clipped samples
+   */
+
+  public long clippedSamples(
+    final int channel,
+    final long lower,
+    final long upper)
+  {
+    this.checkChannel(channel);
+
+    final var clip = this.clips[channel];
+    final var blocks = clip.length - 1;
+    final var b0 = (int) Math.clamp(Math.floorDiv(lower, this.blockSize), 0L, blocks);
+    final var b1 = (int) Math.clamp(Math.ceilDiv(upper, this.blockSize), 0L, blocks);
+    return b0 < b1 ? clip[b1] - clip[b0] : 0L;
+  }
+
+  /**
+   * Compute the statistics of the blocks that overlap the given frames.
+   * The statistics are computed from whole blocks, and so may include
+   * frames that share a block with either end of the range.
+   *
+   * @param channel The channel
+   * @param frames  The frames
+   *
+   * @return The statistics
+   *
+   * @see #statistics(int, RangeInclusiveL, WaveModelType)
+   */
+
+  public WaveStatistics statistics(
+    final int channel,
+    final RangeInclusiveL frames)
+  {
+    this.checkChannel(channel);
+
+    final var lower = Math.max(0L, frames.lower());
+    final var upper = Math.min(frames.upper() + 1L, this.frameCount);
+    final var totals = new Totals();
+    if (lower < upper) {
+      totals.addBlocks(
+        this,
+        channel,
+        (int) (lower / this.blockSize),
+        (int) Math.ceilDiv(upper, this.blockSize)
+      );
+    }
+    return totals.toStatistics();
+  }
+
+  /**
+   * Compute the exact statistics of the given frames. Whole blocks are
+   * read from the index, and the frames of the partial blocks at either
+   * end of the range, of which there are fewer than
+   * {@code 2 * blockSize()}, are read from the given model.
+   *
+   * @param channel The channel
+   * @param frames  The frames
+   * @param model   The model from which the index was built
+   *
+   * @return The statistics
+   */
+
+  public WaveStatistics statistics(
+    final int channel,
+    final RangeInclusiveL frames,
+    final WaveModelType model)
+  {
+    this.checkChannel(channel);
+    Objects.requireNonNull(model, "model");
+
+    final var lower = Math.max(0L, frames.lower());
+    final var upper = Math.min(frames.upper() + 1L, this.frameCount);
+    final var totals = new Totals();
+    if (lower >= upper) {
+      return totals.toStatistics();
+    }
+
+    final var w0 = (int) Math.ceilDiv(lower, this.blockSize);
+    final var w1 = upper == this.frameCount
+      ? this.clips[channel].length - 1
+      : (int) (upper / this.blockSize);
+
+    if (w0 >= w1) {
+      totals.addFrames(model, channel, lower, upper, this.clipLevel);
+      return totals.toStatistics();
+    }
+
+    final var wholeLower = (long) w0 * this.blockSize;
+    final var wholeUpper = Math.min((long) w1 * this.blockSize, this.frameCount);
+    totals.addFrames(model, channel, lower, wholeLower, this.clipLevel);
+    totals.addBlocks(this, channel, w0, w1);
+    totals.addFrames(model, channel, wholeUpper, upper, this.clipLevel);
+    return totals.toStatistics();
+  }
+
+  private float peak(
+    final int channel,
+    final int lower,
+    final int upper)
+  {
+    /*
+     * Decompose the range of blocks into the smallest set of aligned
+     * blocks from the pyramid, as in WavePeakSummary.extrema().
+     */
+
+    var b0 = lower;
+    var b1 = upper;
+    var result = 0.0f;
+    var level = 0;
+    while (b0 < b1) {
+      final var peak = this.peaks[level][channel];
+      if ((b0 & 1) == 1) {
+        result = Math.max(result, peak[b0]);
+        ++b0;
+      }
+      if ((b1 & 1) == 1) {
+        --b1;
+        result = Math.max(result, peak[b1]);
+      }
+      b0 >>= 1;
+      b1 >>= 1;
+      ++level;
+    }
+    return result;
+  }
+
+  private void checkChannel(
+    final int channel)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.channelCount,
+      "Channel count"
+    );
+  }
+
+  private static final class Totals
+  {
+    private long frames;
+    private double sum;
+    private double squares;
+    private long clipped;
+    private double peak;
+
+    Totals()
+    {
+
+    }
+
+    void addBlocks(
+      final WaveStatisticsIndex index,
+      final int channel,
+      final int b0,
+      final int b1)
+    {
+      final var first = (long) b0 * index.blockSize;
+      final var last = Math.min((long) b1 * index.blockSize, index.frameCount);
+      this.frames += last - first;
+      this.sum += index.sums[channel][b1] - index.sums[channel][b0];
+      this.squares += index.squares[channel][b1] - index.squares[channel][b0];
+      this.clipped += index.clips[channel][b1] - index.clips[channel][b0];
+      this.peak = Math.max(this.peak, index.peak(channel, b0, b1));
+    }
+
+    void addFrames(
+      final WaveModelType model,
+      final int channel,
+      final long lower,
+      final long upper,
+      final double clipLevel)
+    {
+      final var count = (int) (upper - lower);
+      if (count <= 0) {
+        return;
+      }
+
+      final var samples = new double[count];
+      model.samples(channel, lower, samples, 0, count);
+      for (final var sample : samples) {
+        final var magnitude = Math.abs(sample);
+        this.sum += sample;
+        this.squares += sample * sample;
+        this.peak = Math.max(this.peak, magnitude);
+        if (magnitude >= clipLevel) {
+          ++this.clipped;
+        }
+      }
+      this.frames += count;
+    }
+
+    WaveStatistics toStatistics()
+    {
+      if (this.frames == 0L) {
+        return new WaveStatistics(0L, 0.0, 0.0, 0.0, 0L);
+      }
+      return new WaveStatistics(
+        this.frames,
+        this.peak,
+        Math.sqrt(Math.max(0.0, this.squares) / this.frames),
+        this.sum / this.frames,
+        this.clipped
+      );
+    }
+  }
+}
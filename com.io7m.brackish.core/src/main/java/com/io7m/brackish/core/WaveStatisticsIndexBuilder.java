@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveBuildEvent;
+import com.io7m.jranges.RangeCheck;
+
+import java.util.Arrays;
+
+/**
+ * <p>A mutable builder of {@link WaveStatisticsIndex} values.</p>
+ *
+ * <p>
+ * Samples are added to each channel in frame order, typically in the same
+ * loop that feeds a {@link WavePeakSummaryBuilder}, so that the index and
+ * the summary are built in a single pass over the data.
+ * </p>
+ */
+
+public final class WaveStatisticsIndexBuilder
+{
+  private static final int INITIAL_BLOCKS = 64;
+
+  private final int blockSize;
+  private WaveBuildEvent event;
+  private final double clipLevel;
+  private final double[][] sums;
+  private final double[][] squares;
+  private final int[][] clips;
+  private final float[][] peaks;
+  private final long[] frames;
+  private final double[] blockSum;
+  private final double[] blockSquares;
+  private final int[] blockClips;
+  private final float[] blockPeak;
+
+  /**
+   * A mutable builder of statistics indices.
+   *
+   * @param channels    The number of channels
+   * @param inBlockSize The number of frames in each block
+   * @param inClipLevel The absolute sample value at or above which a sample
+   *                    is counted as clipped
+   *
+   * @see WaveStatisticsIndex#DEFAULT_CLIP_LEVEL
+   */
+
+  public WaveStatisticsIndexBuilder(
+    final int channels,
+    final int inBlockSize,
+    final double inClipLevel)
+  {
+    RangeCheck.checkGreaterEqualInteger(
+      channels,
+      "Channels",
+      0,
+      "Minimum channels"
+    );
+    RangeCheck.checkGreaterEqualInteger(
+      inBlockSize,
+      "Block size",
+      1,
+      "Minimum block size"
+    );
+
+    this.event = WaveBuildEvent.start();
+    this.blockSize = inBlockSize;
+    this.clipLevel = inClipLevel;
+    this.sums = new double[channels][INITIAL_BLOCKS];
+    this.squares = new double[channels][INITIAL_BLOCKS];
+    this.clips = new int[channels][INITIAL_BLOCKS];
+    this.peaks = new float[channels][INITIAL_BLOCKS];
+    this.frames = new long[channels];
+    this.blockSum = new double[channels];
+    this.blockSquares = new double[channels];
+    this.blockClips = new int[channels];
+    this.blockPeak = new float[channels];
+  }
+
+  /**
+   * Add the next sample of the given channel.
+   *
+   * @param channel The channel
+   * @param sample  The sample
+   */
+
+  public void add(
+    final int channel,
+    final double sample)
+  {
+    final var magnitude = Math.abs(sample);
+    this.blockSum[channel] += sample;
+    this.blockSquares[channel] += sample * sample;
+    this.blockPeak[channel] = Math.max(this.blockPeak[channel], (float) magnitude);
+    if (magnitude >= this.clipLevel) {
+      ++this.blockClips[channel];
+    }
+
+    final var frame = this.frames[channel];
+    this.frames[channel] = frame + 1L;
+    if ((frame + 1L) % this.blockSize == 0L) {
+      this.completeBlock(channel, (int) (frame / this.blockSize));
+    }
+  }
+
+  private void completeBlock(
+    final int channel,
+    final int block)
+  {
+    if (block >= this.sums[channel].length) {
+      final var size = this.sums[channel].length * 2;
+      this.sums[channel] = Arrays.copyOf(this.sums[channel], size);
+      this.squares[channel] = Arrays.copyOf(this.squares[channel], size);
+      this.clips[channel] = Arrays.copyOf(this.clips[channel], size);
+      this.peaks[channel] = Arrays.copyOf(this.peaks[channel], size);
+    }
+
+    this.sums[channel][block] = this.blockSum[channel];
+    this.squares[channel][block] = this.blockSquares[channel];
+    this.clips[channel][block] = this.blockClips[channel];
+    this.peaks[channel][block] = this.blockPeak[channel];
+    this.blockSum[channel] = 0.0;
+    this.blockSquares[channel] = 0.0;
+    this.blockClips[channel] = 0;
+    this.blockPeak[channel] = 0.0f;
+  }
+
+  /**
+   * Build an index of the samples added so far. The frame count of the
+   * index is that of the longest channel; shorter channels are padded
+   * with silence.
+   *
+   * @return An index
+   */
+
+  public WaveStatisticsIndex build()
+  {
+    final var channels = this.frames.length;
+
+    var frameCount = 0L;
+    for (final var count : this.frames) {
+      frameCount = Math.max(frameCount, count);
+    }
+
+    final var blocks =
+      Math.toIntExact(Math.ceilDiv(frameCount, this.blockSize));
+
+    final var sumOut = new double[channels][];
+    final var squareOut = new double[channels][];
+    final var clipOut = new int[channels][];
+    final var peakOut = new float[channels][];
+    for (int channel = 0; channel < channels; ++channel) {
+      sumOut[channel] = Arrays.copyOf(this.sums[channel], blocks);
+      squareOut[channel] = Arrays.copyOf(this.squares[channel], blocks);
+      clipOut[channel] = Arrays.copyOf(this.clips[channel], blocks);
+      peakOut[channel] = Arrays.copyOf(this.peaks[channel], blocks);
+
+      final var complete = (int) (this.frames[channel] / this.blockSize);
+      if (complete < blocks && this.frames[channel] % this.blockSize != 0L) {
+        sumOut[channel][complete] = this.blockSum[channel];
+        squareOut[channel][complete] = this.blockSquares[channel];
+        clipOut[channel][complete] = this.blockClips[channel];
+        peakOut[channel][complete] = this.blockPeak[channel];
+      }
+    }
+
+    WaveBuildEvent.finish(
+      this.event, "Statistics index", channels, frameCount, this.blockSize);
+    this.event = null;
+
+    return new WaveStatisticsIndex(
+      this.blockSize,
+      frameCount,
+      this.clipLevel,
+      sumOut,
+      squareOut,
+      clipOut,
+      peakOut
+    );
+  }
+}
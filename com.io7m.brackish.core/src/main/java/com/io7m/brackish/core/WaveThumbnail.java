@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveCanvasRenderTarget;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.layout.Region;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>A compact waveform thumbnail.</p>
+ *
+ * <p>
+ * A thumbnail is a single canvas that displays every channel of a
+ * {@link WavePeakSummary}, and is intended for use in the cells of
+ * virtualized controls such as {@link javafx.scene.control.ListView} and
+ * {@link javafx.scene.control.TableView}, where a full {@link WaveView} per
+ * row would be far too heavy. Thumbnails are rendered synchronously, as
+ * rendering a summary reads only a small, bounded number of blocks per
+ * column. A placeholder is displayed while no summary is set, and a
+ * distinct failure image is displayed if the summary could not be loaded.
+ * </p>
+ *
+ * @see WaveThumbnailListCell
+ * @see WaveThumbnailTableCell
+ */
+
+public final class WaveThumbnail extends Region
+{
+  private static final WaveThumbnailRenderer RENDERER =
+    new WaveThumbnailRenderer();
+
+  private final Canvas canvas;
+  private final WaveCanvasRenderTarget target;
+  private final SimpleObjectProperty<Optional<WavePeakSummary>> summary;
+  private final SimpleObjectProperty<Optional<Throwable>> failure;
+  private final SimpleObjectProperty<WaveRenderPaints> paints;
+
+  /**
+   * A compact waveform thumbnail.
+   */
+
+  public WaveThumbnail()
+  {
+    this.canvas =
+      new Canvas();
+    this.target =
+      new WaveCanvasRenderTarget(this.canvas);
+    this.summary =
+      new SimpleObjectProperty<>(Optional.empty());
+    this.failure =
+      new SimpleObjectProperty<>(Optional.empty());
+    this.paints =
+      new SimpleObjectProperty<>(WaveRenderPaints.defaults());
+
+    this.getChildren().add(this.canvas);
+    this.setPrefSize(128.0, 32.0);
+    this.setMinSize(0.0, 0.0);
+
+    this.summary.addListener(o -> this.redraw());
+    this.failure.addListener(o -> this.redraw());
+    this.paints.addListener(o -> this.redraw());
+  }
+
+  /**
+   * Set the summary displayed by the thumbnail.
+   *
+   * @param newSummary The summary
+   */
+
+  public void setSummary(
+    final WavePeakSummary newSummary)
+  {
+    this.failure.set(Optional.empty());
+    this.summary.set(
+      Optional.of(Objects.requireNonNull(newSummary, "summary")));
+  }
+
+  /**
+   * Clear the summary, displaying a placeholder.
+   */
+
+  public void clearSummary()
+  {
+    this.failure.set(Optional.empty());
+    this.summary.set(Optional.empty());
+  }
+
+  /**
+   * Indicate that the summary could not be loaded, clearing any summary
+   * and displaying a failure image.
+   *
+   * @param newFailure The reason the summary could not be loaded
+   */
+
+  public void setFailure(
+    final Throwable newFailure)
+  {
+    this.summary.set(Optional.empty());
+    this.failure.set(
+      Optional.of(Objects.requireNonNull(newFailure, "failure")));
+  }
+
+  /**
+   * @return The reason the summary could not be loaded, if it could not
+   */
+
+  public Optional<Throwable> failure()
+  {
+    return this.failure.get();
+  }
+
+  /**
+   * @return The reason the summary could not be loaded, if it could not
+   */
+
+  public ReadOnlyObjectProperty<Optional<Throwable>> failureProperty()
+  {
+    return this.failure;
+  }
+
+  /**
+   * @return The summary displayed by the thumbnail, if any
+   */
+
+  public Optional<WavePeakSummary> summary()
+  {
+    return this.summary.get();
+  }
+
+  /**
+   * @return The summary displayed by the thumbnail, if any
+   */
+
+  public ReadOnlyObjectProperty<Optional<WavePeakSummary>> summaryProperty()
+  {
+    return this.summary;
+  }
+
+  /**
+   * Set the paints used to render the thumbnail.
+   *
+   * @param newPaints The paints
+   */
+
+  public void setPaints(
+    final WaveRenderPaints newPaints)
+  {
+    this.paints.set(Objects.requireNonNull(newPaints, "paints"));
+  }
+
+  /**
+   * @return The paints used to render the thumbnail
+   */
+
+  public WaveRenderPaints paints()
+  {
+    return this.paints.get();
+  }
+
+  /**
+   * @return The paints used to render the thumbnail
+   */
+
+  public ReadOnlyObjectProperty<WaveRenderPaints> paintsProperty()
+  {
+    return this.paints;
+  }
+
+  @Override
+  protected void layoutChildren()
+  {
+    final var insets = this.getInsets();
+    final var w =
+      Math.max(0.0, this.getWidth() - insets.getLeft() - insets.getRight());
+    final var h =
+      Math.max(0.0, this.getHeight() - insets.getTop() - insets.getBottom());
+
+    this.canvas.relocate(insets.getLeft(), insets.getTop());
+    if (this.canvas.getWidth() != w || this.canvas.getHeight() != h) {
+      this.canvas.setWidth(w);
+      this.canvas.setHeight(h);
+      this.redraw();
+    }
+  }
+
+  private void redraw()
+  {
+    if (this.canvas.getWidth() < 1.0 || this.canvas.getHeight() < 1.0) {
+      return;
+    }
+
+    final var summaryOpt = this.summary.get();
+    if (summaryOpt.isPresent()) {
+      RENDERER.render(this.target, summaryOpt.get(), this.paints.get());
+    } else if (this.failure.get().isPresent()) {
+      RENDERER.renderFailure(this.target, this.paints.get());
+    } else {
+      RENDERER.renderPlaceholder(this.target, this.paints.get());
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveThumbnailCellSupport;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.util.Callback;
+
+/**
+ * <p>A list cell that displays a waveform thumbnail.</p>
+ *
+ * <p>
+ * The cell's thumbnail is reused as the cell is recycled, and the load of
+ * the summary of the previous item is cancelled whenever the cell is
+ * given a new item.
+ * </p>
+ *
+ * @param <T> The type of items
+ */
+
+public final class WaveThumbnailListCell<T> extends ListCell<T>
+{
+  private final WaveThumbnailCellSupport<T> support;
+
+  /**
+   * A list cell that displays a waveform thumbnail.
+   *
+   * @param loader The summary loader
+   */
+
+  public WaveThumbnailListCell(
+    final WaveThumbnailLoader<T> loader)
+  {
+    this.support = new WaveThumbnailCellSupport<>(loader);
+  }
+
+  /**
+   * Create a cell factory for list views.
+   *
+   * @param loader The summary loader, which may be shared between views
+   * @param <T>    The type of items
+   *
+   * @return A cell factory
+   */
+
+  public static <T> Callback<ListView<T>, ListCell<T>> forListView(
+    final WaveThumbnailLoader<T> loader)
+  {
+    return view -> new WaveThumbnailListCell<>(loader);
+  }
+
+  /**
+   * @return The thumbnail displayed by the cell
+   */
+
+  public WaveThumbnail thumbnail()
+  {
+    return this.support.thumbnail();
+  }
+
+  @Override
+  protected void updateItem(
+    final T item,
+    final boolean empty)
+  {
+    super.updateItem(item, empty);
+    this.setText(null);
+    this.setGraphic(this.support.update(item, empty));
+  }
+}
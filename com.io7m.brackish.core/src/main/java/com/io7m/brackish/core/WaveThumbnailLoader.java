@@ -0,0 +1,530 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveBuildEvent;
+import com.io7m.jranges.RangeCheck;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * <p>An asynchronous loader of thumbnail summaries.</p>
+ *
+ * <p>
+ * Summaries are loaded from a {@link WaveThumbnailSourceType} on
+ * background threads, and delivered on a delivery executor, which is the
+ * JavaFX application thread by default. The most recently used summaries
+ * are retained, up to a fixed number, so that items scrolling back into
+ * view are displayed immediately. Requests for an item that is already
+ * being loaded share the load in progress rather than starting another.
+ * Loads are cancelled when every cell that requested them has been reused
+ * for another item.
+ * </p>
+ *
+ * <p>
+ * Loaders register with a {@link WaveMemoryManager}, and retained
+ * summaries count against its ceiling in addition to the loader's own
+ * capacity.
+ * </p>
+ *
+ * @param <T> The type of items
+ */
+
+public final class WaveThumbnailLoader<T> implements WaveMemoryCacheType
+{
+  private static final double RELOAD_COST = 2.0;
+
+  private final WaveThumbnailSourceType<T> source;
+  private final int capacity;
+  private final Executor workExecutor;
+  private final Executor deliveryExecutor;
+  private final LinkedHashMap<T, Entry> cache;
+  private final HashMap<T, Load> loading;
+  private final LongAdder loads;
+  private final LongAdder cancellations;
+  private final LongAdder failures;
+  private final WaveMemoryManager memory;
+  private volatile long bytesUsed;
+
+  private WaveThumbnailLoader(
+    final WaveThumbnailSourceType<T> inSource,
+    final int inCapacity,
+    final Executor inWorkExecutor,
+    final Executor inDeliveryExecutor,
+    final WaveMemoryManager inMemory)
+  {
+    this.source =
+      Objects.requireNonNull(inSource, "source");
+    this.workExecutor =
+      Objects.requireNonNull(inWorkExecutor, "workExecutor");
+    this.deliveryExecutor =
+      Objects.requireNonNull(inDeliveryExecutor, "deliveryExecutor");
+    this.capacity =
+      RangeCheck.checkGreaterEqualInteger(
+        inCapacity,
+        "Capacity",
+        0,
+        "Minimum capacity"
+      );
+    this.cache =
+      new LinkedHashMap<>(16, 0.75f, true);
+    this.loading =
+      new HashMap<>();
+    this.loads =
+      new LongAdder();
+    this.cancellations =
+      new LongAdder();
+    this.failures =
+      new LongAdder();
+    this.memory =
+      Objects.requireNonNull(inMemory, "memory");
+  }
+
+  /**
+   * Create a loader that loads each summary on its own virtual thread, and
+   * delivers summaries on the JavaFX application thread.
+   *
+   * @param source   The summary source
+   * @param capacity The maximum number of summaries retained
+   * @param <T>      The type of items
+   *
+   * @return A new loader
+   */
+
+  public static <T> WaveThumbnailLoader<T> create(
+    final WaveThumbnailSourceType<T> source,
+    final int capacity)
+  {
+    return create(
+      source,
+      capacity,
+      SharedHolder.EXECUTOR,
+      Platform::runLater
+    );
+  }
+
+  /**
+   * Create a loader that uses the given executors, registered with
+   * {@link WaveMemoryManager#shared()}.
+   *
+   * @param source           The summary source
+   * @param capacity         The maximum number of summaries retained
+   * @param workExecutor     The executor on which summaries are loaded
+   * @param deliveryExecutor The executor on which summaries are delivered
+   * @param <T>              The type of items
+   *
+   * @return A new loader
+   */
+
+  public static <T> WaveThumbnailLoader<T> create(
+    final WaveThumbnailSourceType<T> source,
+    final int capacity,
+    final Executor workExecutor,
+    final Executor deliveryExecutor)
+  {
+    return create(
+      source,
+      capacity,
+      workExecutor,
+      deliveryExecutor,
+      WaveMemoryManager.shared()
+    );
+  }
+
+  /**
+   * Create a loader that uses the given executors and memory manager.
+   *
+   * @param source           The summary source
+   * @param capacity         The maximum number of summaries retained
+   * @param workExecutor     The executor on which summaries are loaded
+   * @param deliveryExecutor The executor on which summaries are delivered
+   * @param memory           The memory manager with which to register
+   * @param <T>              The type of items
+   *
+   * @return A new loader
+   */
+
+  public static <T> WaveThumbnailLoader<T> create(
+    final WaveThumbnailSourceType<T> source,
+    final int capacity,
+    final Executor workExecutor,
+    final Executor deliveryExecutor,
+    final WaveMemoryManager memory)
+  {
+    final var loader = new WaveThumbnailLoader<>(
+      source,
+      capacity,
+      workExecutor,
+      deliveryExecutor,
+      memory
+    );
+    memory.register(loader);
+    return loader;
+  }
+
+  /**
+   * @param item The item
+   *
+   * @return The retained summary of the item, if any
+   */
+
+  public Optional<WavePeakSummary> cached(
+    final T item)
+  {
+    synchronized (this.cache) {
+      final var existing = this.cache.get(item);
+      if (existing == null) {
+        return Optional.empty();
+      }
+      existing.accessed = System.nanoTime();
+      return Optional.of(existing.summary);
+    }
+  }
+
+  @Override
+  public String memoryCacheName()
+  {
+    return "Thumbnail loader";
+  }
+
+  @Override
+  public long memoryUsed()
+  {
+    return this.bytesUsed;
+  }
+
+  @Override
+  public long memoryOldestAccess()
+  {
+    synchronized (this.cache) {
+      if (this.cache.isEmpty()) {
+        return Long.MAX_VALUE;
+      }
+      return this.cache.values().iterator().next().accessed;
+    }
+  }
+
+  @Override
+  public double memoryReloadCost()
+  {
+    return RELOAD_COST;
+  }
+
+  @Override
+  public long memoryEvictOldest()
+  {
+    synchronized (this.cache) {
+      if (this.cache.isEmpty()) {
+        return 0L;
+      }
+      final var iterator = this.cache.values().iterator();
+      final var freed = iterator.next().byteSize;
+      iterator.remove();
+      this.bytesUsed -= freed;
+      return freed;
+    }
+  }
+
+  /**
+   * Load the summary of the given item, and pass it to {@code receiver}
+   * on the delivery executor unless the request is cancelled first. If the
+   * summary is retained, it is passed to {@code receiver} immediately, on
+   * the calling thread. Failures are counted, and not delivered.
+   *
+   * @param item     The item
+   * @param receiver The receiver
+   *
+   * @return The request
+   *
+   * @see #request(Object, Consumer, Consumer)
+   */
+
+  public WaveThumbnailRequest request(
+    final T item,
+    final Consumer<WavePeakSummary> receiver)
+  {
+    return this.request(item, receiver, failure -> {
+
+    });
+  }
+
+  /**
+   * Load the summary of the given item, and pass it to {@code receiver}
+   * on the delivery executor unless the request is cancelled first. If the
+   * summary is retained, it is passed to {@code receiver} immediately, on
+   * the calling thread. If the summary cannot be loaded, the exception
+   * raised by the source is passed to {@code onFailure} on the delivery
+   * executor instead. If the item is already being loaded, the request
+   * shares the load in progress.
+   *
+   * @param item      The item
+   * @param receiver  The receiver
+   * @param onFailure The receiver of failures
+   *
+   * @return The request
+   */
+
+  public WaveThumbnailRequest request(
+    final T item,
+    final Consumer<WavePeakSummary> receiver,
+    final Consumer<Throwable> onFailure)
+  {
+    Objects.requireNonNull(item, "item");
+    Objects.requireNonNull(receiver, "receiver");
+    Objects.requireNonNull(onFailure, "onFailure");
+
+    final var existing = this.cached(item);
+    if (existing.isPresent()) {
+      receiver.accept(existing.get());
+      return WaveThumbnailRequest.completed();
+    }
+
+    final var request = new WaveThumbnailRequest();
+    final var waiter = new Waiter(request, receiver, onFailure);
+    final Load load;
+    synchronized (this.cache) {
+      final var current = this.loading.get(item);
+      if (current != null) {
+        current.waiters.add(waiter);
+        request.setCanceller(() -> this.cancel(item, current, waiter));
+        return request;
+      }
+      load = new Load(new FutureTask<>(() -> this.load(item)));
+      load.waiters.add(waiter);
+      request.setCanceller(() -> this.cancel(item, load, waiter));
+      this.loading.put(item, load);
+    }
+
+    this.loads.increment();
+    this.workExecutor.execute(() -> {
+      load.task.run();
+      this.finish(item, load);
+    });
+    return request;
+  }
+
+  private void cancel(
+    final T item,
+    final Load load,
+    final Waiter waiter)
+  {
+    /*
+     * The load itself is only cancelled once nobody is waiting for it. A
+     * load that has already finished has no waiters left to remove.
+     */
+
+    synchronized (this.cache) {
+      if (!load.waiters.remove(waiter) || !load.waiters.isEmpty()) {
+        return;
+      }
+      this.loading.remove(item, load);
+    }
+    load.task.cancel(true);
+  }
+
+  private WavePeakSummary load(
+    final T item)
+    throws Exception
+  {
+    final var event = WaveBuildEvent.start();
+    final var summary = this.source.summaryOf(item);
+    WaveBuildEvent.finish(
+      event,
+      "Thumbnail load",
+      summary.channelCount(),
+      summary.frameCount(),
+      summary.blockSize()
+    );
+    return summary;
+  }
+
+  private void finish(
+    final T item,
+    final Load load)
+  {
+    final WavePeakSummary summary;
+    try {
+      summary = load.task.get();
+    } catch (final CancellationException e) {
+      this.cancellations.increment();
+      return;
+    } catch (final ExecutionException e) {
+      this.failures.increment();
+      this.deliverFailure(item, load, e.getCause());
+      return;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    /*
+     * The summary is retained and the load is forgotten atomically, so
+     * that a concurrent request for the item either joins the load and is
+     * delivered below, or finds the retained summary.
+     */
+
+    final var entry = new Entry(summary);
+    final ArrayList<Waiter> waiters;
+    synchronized (this.cache) {
+      var used = this.bytesUsed + entry.byteSize;
+      final var previous = this.cache.put(item, entry);
+      if (previous != null) {
+        used -= previous.byteSize;
+      }
+      final var iterator = this.cache.values().iterator();
+      while (this.cache.size() > this.capacity) {
+        used -= iterator.next().byteSize;
+        iterator.remove();
+      }
+      this.bytesUsed = used;
+      waiters = this.takeWaiters(item, load);
+    }
+
+    this.memory.enforce();
+
+    this.deliveryExecutor.execute(() -> {
+      for (final var waiter : waiters) {
+        if (waiter.request.isCancelled()) {
+          this.cancellations.increment();
+        } else {
+          waiter.receiver.accept(summary);
+        }
+      }
+    });
+  }
+
+  private void deliverFailure(
+    final T item,
+    final Load load,
+    final Throwable failure)
+  {
+    final ArrayList<Waiter> waiters;
+    synchronized (this.cache) {
+      waiters = this.takeWaiters(item, load);
+    }
+
+    this.deliveryExecutor.execute(() -> {
+      for (final var waiter : waiters) {
+        if (!waiter.request.isCancelled()) {
+          waiter.onFailure.accept(failure);
+        }
+      }
+    });
+  }
+
+  private ArrayList<Waiter> takeWaiters(
+    final T item,
+    final Load load)
+  {
+    this.loading.remove(item, load);
+    final var waiters = new ArrayList<>(load.waiters);
+    load.waiters.clear();
+    return waiters;
+  }
+
+  /**
+   * @return The number of loads started
+   */
+
+  public long loads()
+  {
+    return this.loads.sum();
+  }
+
+  /**
+   * @return The number of loads cancelled
+   */
+
+  public long cancellations()
+  {
+    return this.cancellations.sum();
+  }
+
+  /**
+   * @return The number of loads that failed
+   */
+
+  public long failures()
+  {
+    return this.failures.sum();
+  }
+
+  private record Waiter(
+    WaveThumbnailRequest request,
+    Consumer<WavePeakSummary> receiver,
+    Consumer<Throwable> onFailure)
+  {
+
+  }
+
+  private static final class Load
+  {
+    private final FutureTask<WavePeakSummary> task;
+    private final ArrayList<Waiter> waiters;
+
+    Load(
+      final FutureTask<WavePeakSummary> inTask)
+    {
+      this.task = inTask;
+      this.waiters = new ArrayList<>(1);
+    }
+  }
+
+  private static final class Entry
+  {
+    private final WavePeakSummary summary;
+    private final long byteSize;
+    private long accessed;
+
+    Entry(
+      final WavePeakSummary inSummary)
+    {
+      this.summary = inSummary;
+      this.byteSize = inSummary.byteSize();
+      this.accessed = System.nanoTime();
+    }
+  }
+
+  private static final class SharedHolder
+  {
+    private static final ExecutorService EXECUTOR =
+      Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual()
+          .name("com.io7m.brackish.thumbnail-", 0L)
+          .factory()
+      );
+
+    private SharedHolder()
+    {
+
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveColumnAggregation;
+
+import java.util.Objects;
+
+/**
+ * <p>A renderer of waveform thumbnails.</p>
+ *
+ * <p>
+ * Thumbnails are rendered entirely from a {@link WavePeakSummary}, with
+ * each channel stacked in its own band, and never read individual frames.
+ * The renderer holds only its column buffers, and so one renderer can
+ * be shared by every thumbnail rendered on a thread.
+ * </p>
+ *
+ * @see WaveThumbnail
+ */
+
+public final class WaveThumbnailRenderer
+{
+  private final double[] scratch;
+  private double[] columnMax;
+  private double[] columnMin;
+
+  /**
+   * A renderer of waveform thumbnails.
+   */
+
+  public WaveThumbnailRenderer()
+  {
+    this.scratch = new double[2];
+    this.columnMax = new double[0];
+    this.columnMin = new double[0];
+  }
+
+  /**
+   * Render a placeholder for a thumbnail whose summary is not yet
+   * available.
+   *
+   * @param target The render target
+   * @param paints The paints
+   */
+
+  public void renderPlaceholder(
+    final WaveRenderTargetType target,
+    final WaveRenderPaints paints)
+  {
+    Objects.requireNonNull(target, "target");
+    Objects.requireNonNull(paints, "paints");
+
+    target.clearClip();
+    target.setGlobalAlpha(1.0);
+    target.setFill(paints.background());
+    target.fillRect(0.0, 0.0, target.width(), target.height());
+    target.setFill(paints.placeholderFill());
+    target.fillRect(0.0, 0.0, target.width(), target.height());
+  }
+
+  /**
+   * Render a thumbnail whose summary could not be loaded: the background,
+   * crossed by a line in the clip paint, so that failed items are
+   * distinguishable from items that are still loading.
+   *
+   * @param target The render target
+   * @param paints The paints
+   */
+
+  public void renderFailure(
+    final WaveRenderTargetType target,
+    final WaveRenderPaints paints)
+  {
+    Objects.requireNonNull(target, "target");
+    Objects.requireNonNull(paints, "paints");
+
+    final var w = target.width();
+    final var h = target.height();
+
+    target.clearClip();
+    target.setGlobalAlpha(1.0);
+    target.setFill(paints.background());
+    target.fillRect(0.0, 0.0, w, h);
+    target.setStroke(paints.clipFill());
+    target.strokeLine(0.0, h, w, 0.0);
+  }
+
+  /**
+   * Render a thumbnail of the given summary, filling the entire target.
+   *
+   * @param target  The render target
+   * @param summary The summary
+   * @param paints  The paints
+   */
+
+  public void render(
+    final WaveRenderTargetType target,
+    final WavePeakSummary summary,
+    final WaveRenderPaints paints)
+  {
+    Objects.requireNonNull(target, "target");
+    Objects.requireNonNull(summary, "summary");
+    Objects.requireNonNull(paints, "paints");
+
+    final var w = target.width();
+    final var h = target.height();
+
+    target.clearClip();
+    target.setGlobalAlpha(1.0);
+    target.setFill(paints.background());
+    target.fillRect(0.0, 0.0, w, h);
+
+    final var channels = summary.channelCount();
+    final var columns = (int) Math.ceil(w);
+    if (channels == 0 || columns == 0 || summary.frameCount() == 0L) {
+      return;
+    }
+
+    if (this.columnMax.length < columns) {
+      this.columnMax = new double[columns];
+      this.columnMin = new double[columns];
+    }
+
+    final var framesPerColumn = summary.frameCount() / w;
+    final var bandHeight = h / channels;
+    final var halfHeight = bandHeight / 2.0;
+
+    for (int channel = 0; channel < channels; ++channel) {
+      for (int x = 0; x < columns; ++x) {
+        WaveColumnAggregation.aggregateColumnSummary(
+          summary,
+          channel,
+          0.0,
+          framesPerColumn,
+          x,
+          this.columnMax,
+          this.columnMin,
+          this.scratch
+        );
+      }
+
+      final var centerY = (channel * bandHeight) + halfHeight;
+      target.setStroke(paints.centerLine());
+      target.strokeLine(0.0, centerY, w, centerY);
+      target.setFill(paints.collapsedSampleFill());
+
+      for (int x = 0; x < columns; ++x) {
+        final var yTop = this.columnMax[x] * -halfHeight;
+        final var yBottom = this.columnMin[x] * halfHeight;
+        target.fillRect(x, centerY + yTop, 1.0, yBottom - yTop);
+      }
+    }
+  }
+}
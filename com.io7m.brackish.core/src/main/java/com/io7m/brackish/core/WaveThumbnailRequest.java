@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * A request to load a thumbnail summary.
+ *
+ * @see WaveThumbnailLoader#request(Object, java.util.function.Consumer)
+ * @see WaveThumbnailLoader#request(Object, java.util.function.Consumer, java.util.function.Consumer)
+ */
+
+public final class WaveThumbnailRequest
+{
+  private static final WaveThumbnailRequest COMPLETED =
+    new WaveThumbnailRequest();
+
+  private volatile boolean cancelled;
+  private volatile Runnable canceller;
+
+  WaveThumbnailRequest()
+  {
+
+  }
+
+  static WaveThumbnailRequest completed()
+  {
+    return COMPLETED;
+  }
+
+  void setCanceller(
+    final Runnable inCanceller)
+  {
+    this.canceller = inCanceller;
+  }
+
+  /**
+   * Cancel the request. If the summary is still being loaded and no other
+   * request is waiting for it, the loading thread is interrupted; if it
+   * has been loaded but not yet delivered, it will not be delivered to
+   * this request. Cancelling a completed request has no effect.
+   * This method must be called on the delivery thread, as used by the
+   * loader, in order to be guaranteed to prevent delivery.
+   */
+
+  public void cancel()
+  {
+    if (this == COMPLETED) {
+      return;
+    }
+    this.cancelled = true;
+    final var current = this.canceller;
+    if (current != null) {
+      current.run();
+    }
+  }
+
+  /**
+   * @return {@code true} if the request has been cancelled
+   */
+
+  public boolean isCancelled()
+  {
+    return this.cancelled;
+  }
+}
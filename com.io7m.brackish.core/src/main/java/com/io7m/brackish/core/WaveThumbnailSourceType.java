@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+/**
+ * A source of the peak summaries displayed by thumbnails.
+ *
+ * @param <T> The type of items
+ *
+ * @see WaveThumbnailLoader
+ */
+
+@FunctionalInterface
+public interface WaveThumbnailSourceType<T>
+{
+  /**
+   * Load the summary of the given item. This method is called on a
+   * background thread, and may block. Implementations should respond to
+   * interruption, as loads for items that scroll out of view are
+   * cancelled by interrupting the loading thread.
+   *
+   * @param item The item
+   *
+   * @return The summary
+   *
+   * @throws Exception On errors
+   */
+
+  WavePeakSummary summaryOf(T item)
+    throws Exception;
+}
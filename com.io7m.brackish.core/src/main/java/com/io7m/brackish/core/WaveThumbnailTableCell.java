@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.brackish.core.internal.WaveThumbnailCellSupport;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+
+/**
+ * <p>A table cell that displays a waveform thumbnail.</p>
+ *
+ * <p>
+ * The cell's thumbnail is reused as the cell is recycled, and the load of
+ * the summary of the previous item is cancelled whenever the cell is
+ * given a new item.
+ * </p>
+ *
+ * @param <S> The type of table rows
+ * @param <T> The type of cell items
+ */
+
+public final class WaveThumbnailTableCell<S, T> extends TableCell<S, T>
+{
+  private final WaveThumbnailCellSupport<T> support;
+
+  /**
+   * A table cell that displays a waveform thumbnail.
+   *
+   * @param loader The summary loader
+   */
+
+  public WaveThumbnailTableCell(
+    final WaveThumbnailLoader<T> loader)
+  {
+    this.support = new WaveThumbnailCellSupport<>(loader);
+  }
+
+  /**
+   * Create a cell factory for table columns.
+   *
+   * @param loader The summary loader, which may be shared between columns
+   * @param <S>    The type of table rows
+   * @param <T>    The type of cell items
+   *
+   * @return A cell factory
+   */
+
+  public static <S, T> Callback<TableColumn<S, T>, TableCell<S, T>> forTableColumn(
+    final WaveThumbnailLoader<T> loader)
+  {
+    return column -> new WaveThumbnailTableCell<>(loader);
+  }
+
+  /**
+   * @return The thumbnail displayed by the cell
+   */
+
+  public WaveThumbnail thumbnail()
+  {
+    return this.support.thumbnail();
+  }
+
+  @Override
+  protected void updateItem(
+    final T item,
+    final boolean empty)
+  {
+    super.updateItem(item, empty);
+    this.setText(null);
+    this.setGraphic(this.support.update(item, empty));
+  }
+}
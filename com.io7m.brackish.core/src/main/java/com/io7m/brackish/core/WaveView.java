@@ -18,22 +18,40 @@
 package com.io7m.brackish.core;
 
 import com.io7m.brackish.core.internal.WaveChannelView;
+import com.io7m.brackish.core.internal.WaveChannelViewManager;
 import com.io7m.brackish.core.internal.WaveModelEmpty;
+import com.io7m.brackish.core.internal.WaveMultiChannelView;
+import com.io7m.brackish.core.internal.WaveOverlayPane;
+import com.io7m.brackish.core.internal.WaveViewRangeProperty;
+import com.io7m.brackish.core.internal.WaveVisibilityTracker;
+import com.io7m.brackish.core.internal.WaveRenderStatisticsCollector;
+import com.io7m.brackish.core.internal.WaveRenderStatisticsOverlay;
 import com.io7m.jranges.RangeInclusiveL;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.css.CssMetaData;
 import javafx.css.SimpleStyleableObjectProperty;
 import javafx.css.StyleablePropertyFactory;
 import javafx.scene.control.Control;
-import javafx.scene.layout.Priority;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * A waveform view.
@@ -48,7 +66,7 @@ public final class WaveView extends VBox
     CSS_FACTORY.createPaintCssMetaData(
       "waveform-background",
       s -> s.waveformBackgroundColor,
-      Color.gray(0.3),
+      WaveRenderPaints.defaults().background(),
       false
     );
 
@@ -56,7 +74,7 @@ public final class WaveView extends VBox
     CSS_FACTORY.createPaintCssMetaData(
       "waveform-center-line",
       s -> s.waveformCenterLineColor,
-      Color.color(0.0, 0.0, 1.0),
+      WaveRenderPaints.defaults().centerLine(),
       false
     );
 
@@ -64,7 +82,7 @@ public final class WaveView extends VBox
     CSS_FACTORY.createPaintCssMetaData(
       "waveform-expanded-sample-stroke",
       s -> s.waveformExpandedSampleStroke,
-      Color.gray(1.0),
+      WaveRenderPaints.defaults().expandedSampleStroke(),
       false
     );
 
@@ -72,7 +90,7 @@ public final class WaveView extends VBox
     CSS_FACTORY.createPaintCssMetaData(
       "waveform-expanded-sample-fill",
       s -> s.waveformExpandedSampleFill,
-      Color.gray(0.9),
+      WaveRenderPaints.defaults().expandedSampleFill(),
       false
     );
 
@@ -80,13 +98,97 @@ public final class WaveView extends VBox
     CSS_FACTORY.createPaintCssMetaData(
       "waveform-collapsed-sample-fill",
       s -> s.waveformCollapsedSampleFill,
-      Color.gray(1.0),
+      WaveRenderPaints.defaults().collapsedSampleFill(),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_PLACEHOLDER_FILL =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-placeholder-fill",
+      s -> s.waveformPlaceholderFill,
+      WaveRenderPaints.defaults().placeholderFill(),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_CLIP_FILL =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-clip-fill",
+      s -> s.waveformClipFill,
+      WaveRenderPaints.defaults().clipFill(),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_PLAYHEAD =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-playhead",
+      s -> s.waveformPlayheadColor,
+      Color.color(1.0, 0.25, 0.25),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_CURSOR =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-cursor",
+      s -> s.waveformCursorColor,
+      Color.gray(1.0, 0.6),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_SELECTION_FILL =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-selection-fill",
+      s -> s.waveformSelectionFill,
+      Color.color(0.25, 0.5, 1.0, 0.3),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_LOOP_FILL =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-loop-fill",
+      s -> s.waveformLoopFill,
+      Color.color(1.0, 0.8, 0.0, 0.2),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_ANNOTATION_MARKER =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-annotation-marker",
+      s -> s.waveformAnnotationMarkerColor,
+      Color.color(0.4, 1.0, 0.4, 0.8),
+      false
+    );
+
+  private static final CssMetaData<WaveView, Paint> CSS_WAVE_ANNOTATION_REGION_FILL =
+    CSS_FACTORY.createPaintCssMetaData(
+      "waveform-annotation-region-fill",
+      s -> s.waveformAnnotationRegionFill,
+      Color.color(0.4, 1.0, 0.4, 0.15),
       false
     );
 
   private final SimpleObjectProperty<WaveModelType> model;
-  private final SimpleObjectProperty<RangeInclusiveL> viewRange;
+  private final WaveViewRangeProperty viewRange;
   private final SimpleObjectProperty<WaveRenderStyle> renderStyle;
+  private final SimpleObjectProperty<Duration> renderFrameBudget;
+  private final SimpleObjectProperty<Duration> resizeSettleDelay;
+  private final SimpleObjectProperty<WaveRenderScheduler> renderScheduler;
+  private final WavePrefetcher prefetcher;
+  private final WaveAvailabilityListenerType availabilityListener;
+  private final SimpleObjectProperty<WaveLayoutMode> layoutMode;
+  private final SimpleDoubleProperty channelHeight;
+  private final SimpleDoubleProperty channelScrollOffset;
+  private final WaveRenderStatisticsCollector statistics;
+  private final WaveChannelViewManager channelViews;
+  private final ReadOnlyObjectWrapper<WaveRenderStatistics> renderStatistics;
+  private final SimpleBooleanProperty renderStatisticsOverlayVisible;
+  private final WaveRenderStatisticsOverlay statisticsOverlay;
+  private final WaveOverlayPane overlayPane;
+  private final ReadOnlyBooleanWrapper effectivelyVisible;
+  private final WaveVisibilityTracker visibilityTracker;
+  private final SimpleDoubleProperty playheadFrame;
+  private final ReadOnlyDoubleWrapper cursorFrame;
+  private final SimpleObjectProperty<Optional<RangeInclusiveL>> selection;
+  private final SimpleObjectProperty<Optional<RangeInclusiveL>> loopRegion;
 
   private final HashSet<ReadOnlyProperty<?>> properties;
   private final SimpleStyleableObjectProperty<Paint> waveformBackgroundColor;
@@ -94,6 +196,16 @@ public final class WaveView extends VBox
   private final SimpleStyleableObjectProperty<Paint> waveformExpandedSampleFill;
   private final SimpleStyleableObjectProperty<Paint> waveformExpandedSampleStroke;
   private final SimpleStyleableObjectProperty<Paint> waveformCollapsedSampleFill;
+  private final SimpleStyleableObjectProperty<Paint> waveformPlaceholderFill;
+  private final SimpleStyleableObjectProperty<Paint> waveformClipFill;
+  private final SimpleStyleableObjectProperty<Paint> waveformPlayheadColor;
+  private final SimpleStyleableObjectProperty<Paint> waveformCursorColor;
+  private final SimpleStyleableObjectProperty<Paint> waveformSelectionFill;
+  private final SimpleStyleableObjectProperty<Paint> waveformLoopFill;
+  private final SimpleStyleableObjectProperty<Paint> waveformAnnotationMarkerColor;
+  private final SimpleStyleableObjectProperty<Paint> waveformAnnotationRegionFill;
+  private final SimpleObjectProperty<WaveAnnotationIndex> annotations;
+  private WaveZeroCrossingIndex zeroCrossings;
 
   /**
    * A waveform view.
@@ -104,9 +216,42 @@ public final class WaveView extends VBox
     this.model =
       new SimpleObjectProperty<>();
     this.viewRange =
-      new SimpleObjectProperty<>(RangeInclusiveL.of(0L, 0L));
+      new WaveViewRangeProperty(this, "viewRange");
     this.renderStyle =
       new SimpleObjectProperty<>(WaveRenderStyle.WAVE_INTERPOLATE_LINEAR);
+    this.renderFrameBudget =
+      new SimpleObjectProperty<>(Duration.ofMillis(8L));
+    this.resizeSettleDelay =
+      new SimpleObjectProperty<>(Duration.ofMillis(150L));
+    this.renderScheduler =
+      new SimpleObjectProperty<>(WaveRenderScheduler.shared());
+    this.prefetcher =
+      WavePrefetcher.create();
+    this.availabilityListener =
+      this::onFramesAvailable;
+    this.layoutMode =
+      new SimpleObjectProperty<>(WaveLayoutMode.WAVE_LAYOUT_FILL);
+    this.channelHeight =
+      new SimpleDoubleProperty(64.0);
+    this.channelScrollOffset =
+      new SimpleDoubleProperty(0.0);
+    this.statistics =
+      new WaveRenderStatisticsCollector();
+    this.channelViews =
+      new WaveChannelViewManager(this, this.statistics);
+    this.renderStatistics =
+      new ReadOnlyObjectWrapper<>();
+    this.renderStatistics.bind(this.statistics.statistics());
+    this.renderStatisticsOverlayVisible =
+      new SimpleBooleanProperty(false);
+    this.statisticsOverlay =
+      new WaveRenderStatisticsOverlay(this.statistics.statistics());
+    this.renderStatisticsOverlayVisible.addListener((o, x, visible) -> {
+      this.statisticsOverlay.setActive(visible.booleanValue());
+    });
+
+    this.channelHeight.addListener(o -> this.requestLayout());
+    this.channelScrollOffset.addListener(o -> this.requestLayout());
 
     this.properties =
       new HashSet<>();
@@ -120,8 +265,47 @@ public final class WaveView extends VBox
       propertyOf(this, CSS_WAVE_EXPANDED_SAMPLE_STROKE);
     this.waveformCollapsedSampleFill =
       propertyOf(this, CSS_WAVE_COLLAPSED_SAMPLE_FILL);
+    this.waveformPlaceholderFill =
+      propertyOf(this, CSS_WAVE_PLACEHOLDER_FILL);
+    this.waveformClipFill =
+      propertyOf(this, CSS_WAVE_CLIP_FILL);
+    this.waveformPlayheadColor =
+      propertyOf(this, CSS_WAVE_PLAYHEAD);
+    this.waveformCursorColor =
+      propertyOf(this, CSS_WAVE_CURSOR);
+    this.waveformSelectionFill =
+      propertyOf(this, CSS_WAVE_SELECTION_FILL);
+    this.waveformLoopFill =
+      propertyOf(this, CSS_WAVE_LOOP_FILL);
+    this.waveformAnnotationMarkerColor =
+      propertyOf(this, CSS_WAVE_ANNOTATION_MARKER);
+    this.waveformAnnotationRegionFill =
+      propertyOf(this, CSS_WAVE_ANNOTATION_REGION_FILL);
+
+    this.overlayPane =
+      new WaveOverlayPane(this);
+    this.playheadFrame =
+      new SimpleDoubleProperty(Double.NaN);
+    this.cursorFrame =
+      new ReadOnlyDoubleWrapper(Double.NaN);
+    this.selection =
+      new SimpleObjectProperty<>(Optional.empty());
+    this.loopRegion =
+      new SimpleObjectProperty<>(Optional.empty());
+    this.annotations =
+      new SimpleObjectProperty<>(WaveAnnotationIndex.empty());
+
+    this.configureOverlays();
+    this.channelViews.attach();
+
+    this.effectivelyVisible =
+      new ReadOnlyBooleanWrapper(false);
+    this.visibilityTracker =
+      new WaveVisibilityTracker(this, this::onVisibilityChanged);
+    this.effectivelyVisible.set(this.visibilityTracker.isVisible());
 
     this.setWaveModel(new WaveModelEmpty());
+    this.rebuildChannelViews();
   }
 
   private static <T> SimpleStyleableObjectProperty<T> propertyOf(
@@ -175,6 +359,46 @@ public final class WaveView extends VBox
     return this.waveformCollapsedSampleFill;
   }
 
+  /**
+   * @return The fill drawn in place of frames that are not yet available
+   */
+
+  public Paint waveformPlaceholderFill()
+  {
+    return this.waveformPlaceholderFill.get();
+  }
+
+  /**
+   * @return The fill drawn in place of frames that are not yet available
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformPlaceholderFillProperty()
+  {
+    return this.waveformPlaceholderFill;
+  }
+
+  /**
+   * @return The fill drawn over collapsed columns that contain clipped
+   * samples, according to the model's
+   * {@linkplain WaveModelType#statisticsIndex() statistics index};
+   * transparent by default, which disables highlighting
+   */
+
+  public Paint waveformClipFill()
+  {
+    return this.waveformClipFill.get();
+  }
+
+  /**
+   * @return The fill drawn over collapsed columns that contain clipped
+   * samples
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformClipFillProperty()
+  {
+    return this.waveformClipFill;
+  }
+
   /**
    * @return The fill used for expanded samples
    */
@@ -248,111 +472,1008 @@ public final class WaveView extends VBox
   }
 
   /**
-   * Set the rendering style.
+   * @return The stroke used for the playhead
+   */
+
+  public Paint waveformPlayheadColor()
+  {
+    return this.waveformPlayheadColor.get();
+  }
+
+  /**
+   * @return The stroke used for the playhead
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformPlayheadColorProperty()
+  {
+    return this.waveformPlayheadColor;
+  }
+
+  /**
+   * @return The stroke used for the mouse cursor
+   */
+
+  public Paint waveformCursorColor()
+  {
+    return this.waveformCursorColor.get();
+  }
+
+  /**
+   * @return The stroke used for the mouse cursor
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformCursorColorProperty()
+  {
+    return this.waveformCursorColor;
+  }
+
+  /**
+   * @return The fill used for the selection
+   */
+
+  public Paint waveformSelectionFill()
+  {
+    return this.waveformSelectionFill.get();
+  }
+
+  /**
+   * @return The fill used for the selection
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformSelectionFillProperty()
+  {
+    return this.waveformSelectionFill;
+  }
+
+  /**
+   * @return The fill used for the loop region
+   */
+
+  public Paint waveformLoopFill()
+  {
+    return this.waveformLoopFill.get();
+  }
+
+  /**
+   * @return The fill used for the loop region
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformLoopFillProperty()
+  {
+    return this.waveformLoopFill;
+  }
+
+  /**
+   * @return The stroke used for annotation markers
+   */
+
+  public Paint waveformAnnotationMarkerColor()
+  {
+    return this.waveformAnnotationMarkerColor.get();
+  }
+
+  /**
+   * @return The stroke used for annotation markers
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformAnnotationMarkerColorProperty()
+  {
+    return this.waveformAnnotationMarkerColor;
+  }
+
+  /**
+   * @return The fill used for annotation regions
+   */
+
+  public Paint waveformAnnotationRegionFill()
+  {
+    return this.waveformAnnotationRegionFill.get();
+  }
+
+  /**
+   * @return The fill used for annotation regions
+   */
+
+  public SimpleStyleableObjectProperty<Paint> waveformAnnotationRegionFillProperty()
+  {
+    return this.waveformAnnotationRegionFill;
+  }
+
+  /**
+   * Set the annotations drawn over the waveform. Only the annotations that
+   * intersect the view range are visited when drawing, and markers that
+   * fall into the same pixel column are drawn once, so the cost of drawing
+   * depends on what is visible rather than on the size of the index.
    *
-   * @param style The type
+   * @param index The annotations
    */
 
-  public void setRenderStyle(
-    final WaveRenderStyle style)
+  public void setAnnotations(
+    final WaveAnnotationIndex index)
   {
-    this.renderStyle.set(Objects.requireNonNull(style, "style"));
+    this.annotations.set(Objects.requireNonNull(index, "index"));
   }
 
   /**
-   * @return The current rendering style
+   * @return The annotations drawn over the waveform
    */
 
-  public WaveRenderStyle renderStyle()
+  public WaveAnnotationIndex annotations()
   {
-    return this.renderStyle.get();
+    return this.annotations.get();
   }
 
   /**
-   * @return The current rendering style
+   * @return The annotations drawn over the waveform
    */
 
-  public ReadOnlyObjectProperty<WaveRenderStyle> renderStyleProperty()
+  public ReadOnlyObjectProperty<WaveAnnotationIndex> annotationsProperty()
   {
-    return this.renderStyle;
+    return this.annotations;
   }
 
   /**
-   * @return The current waveform view range
+   * Set the frame at which the playhead is drawn. The playhead is drawn on
+   * an overlay layer, and so moving the playhead does not cause the
+   * waveform to be re-rendered. A value of {@link Double#NaN} hides the
+   * playhead.
+   *
+   * @param frame The frame
    */
 
-  public RangeInclusiveL viewRange()
+  public void setPlayheadFrame(
+    final double frame)
   {
-    return this.viewRange.get();
+    this.playheadFrame.set(frame);
   }
 
   /**
-   * @return The current waveform view range
+   * @return The frame at which the playhead is drawn, or {@link Double#NaN}
    */
 
-  public ReadOnlyObjectProperty<RangeInclusiveL> viewRangeProperty()
+  public double playheadFrame()
   {
-    return this.viewRange;
+    return this.playheadFrame.get();
+  }
+
+  /**
+   * @return The frame at which the playhead is drawn, or {@link Double#NaN}
+   */
+
+  public ReadOnlyDoubleProperty playheadFrameProperty()
+  {
+    return this.playheadFrame;
+  }
+
+  /**
+   * @return The frame under the mouse cursor, or {@link Double#NaN} if the
+   * mouse is not over the view
+   */
+
+  public double cursorFrame()
+  {
+    return this.cursorFrame.get();
+  }
+
+  /**
+   * @return The frame under the mouse cursor, or {@link Double#NaN} if the
+   * mouse is not over the view
+   */
+
+  public ReadOnlyDoubleProperty cursorFrameProperty()
+  {
+    return this.cursorFrame.getReadOnlyProperty();
   }
 
   /**
-   * Set the wave model for the view.
+   * Set the selected range of frames.
    *
-   * @param newModel The new wave model
+   * @param range The range
    */
 
-  public void setWaveModel(
-    final WaveModelType newModel)
+  public void setSelection(
+    final RangeInclusiveL range)
   {
-    Objects.requireNonNull(newModel, "newModel");
+    this.selection.set(Optional.of(range));
+  }
 
-    this.model.set(newModel);
-    this.viewRange.set(adaptViewRange(this.viewRange.get(), newModel));
+  /**
+   * Clear the selection.
+   */
 
-    final var children = this.getChildren();
-    children.clear();
+  public void clearSelection()
+  {
+    this.selection.set(Optional.empty());
+  }
 
-    for (var channel = 0; channel < newModel.channelCount(); ++channel) {
-      final var view = new WaveChannelView(this, channel);
-      children.add(view);
-      VBox.setVgrow(view, Priority.ALWAYS);
-    }
+  /**
+   * @return The selected range of frames, if any
+   */
+
+  public Optional<RangeInclusiveL> selection()
+  {
+    return this.selection.get();
   }
 
   /**
-   * @return The current underlying wave model
+   * @return The selected range of frames, if any
    */
 
-  public WaveModelType model()
+  public ReadOnlyObjectProperty<Optional<RangeInclusiveL>> selectionProperty()
   {
-    return this.model.get();
+    return this.selection;
   }
 
   /**
-   * Redraw the view now.
+   * Set the loop region.
+   *
+   * @param range The range of frames
    */
 
-  public void redraw()
+  public void setLoopRegion(
+    final RangeInclusiveL range)
   {
-    for (final var child : this.getChildren()) {
-      if (child instanceof final WaveChannelView view) {
-        view.redraw();
-      }
-    }
+    this.loopRegion.set(Optional.of(range));
   }
 
   /**
-   * Set the view range. This represents the range of frames within the wave
-   * model that will appear onscreen.
+   * Clear the loop region.
+   */
+
+  public void clearLoopRegion()
+  {
+    this.loopRegion.set(Optional.empty());
+  }
+
+  /**
+   * @return The loop region, if any
+   */
+
+  public Optional<RangeInclusiveL> loopRegion()
+  {
+    return this.loopRegion.get();
+  }
+
+  /**
+   * @return The loop region, if any
+   */
+
+  public ReadOnlyObjectProperty<Optional<RangeInclusiveL>> loopRegionProperty()
+  {
+    return this.loopRegion;
+  }
+
+  /**
+   * Set the rendering style.
    *
-   * @param lower The lower frame index
-   * @param upper The upper frame index
+   * @param style The type
    */
 
-  public void setViewRange(
-    final long lower,
-    final long upper)
+  public void setRenderStyle(
+    final WaveRenderStyle style)
+  {
+    this.renderStyle.set(Objects.requireNonNull(style, "style"));
+  }
+
+  /**
+   * @return The current rendering style
+   */
+
+  public WaveRenderStyle renderStyle()
+  {
+    return this.renderStyle.get();
+  }
+
+  /**
+   * @return The current rendering style
+   */
+
+  public ReadOnlyObjectProperty<WaveRenderStyle> renderStyleProperty()
+  {
+    return this.renderStyle;
+  }
+
+  /**
+   * Set the per-frame render budget. When rendering a large view range, the
+   * view will spend at most (approximately) this long per frame producing
+   * exact output. An approximate rendering is displayed immediately, and is
+   * then progressively refined over subsequent frames until it is exact.
+   *
+   * @param budget The budget
+   */
+
+  public void setRenderFrameBudget(
+    final Duration budget)
+  {
+    Objects.requireNonNull(budget, "budget");
+    if (budget.isNegative()) {
+      throw new IllegalArgumentException(
+        "Render frame budget %s must be non-negative".formatted(budget)
+      );
+    }
+    this.renderFrameBudget.set(budget);
+  }
+
+  /**
+   * @return The current per-frame render budget
+   */
+
+  public Duration renderFrameBudget()
   {
-    this.viewRange.set(RangeInclusiveL.of(lower, upper));
+    return this.renderFrameBudget.get();
+  }
+
+  /**
+   * @return The current per-frame render budget
+   */
+
+  public ReadOnlyObjectProperty<Duration> renderFrameBudgetProperty()
+  {
+    return this.renderFrameBudget;
+  }
+
+  /**
+   * Redraw the parts of a channel that depend on the frames
+   * {@code [firstFrame, lastFrame]}, after the samples of those frames have
+   * been modified in place. The frames are mapped to pixel columns, and only
+   * those columns are re-aggregated from the model and repainted. If the
+   * channel is not currently rendered in collapsed form, or has not yet been
+   * rendered, the channel is redrawn in full.
+   *
+   * @param channel    The channel
+   * @param firstFrame The first modified frame
+   * @param lastFrame  The last modified frame
+   */
+
+  public void redraw(
+    final int channel,
+    final long firstFrame,
+    final long lastFrame)
+  {
+    final var children = this.getChildren();
+    final var count = children.size();
+    for (int index = 0; index < count; ++index) {
+      final var child = children.get(index);
+      if (child instanceof final WaveChannelView view) {
+        if (view.channelIndex() == channel) {
+          view.redrawFrames(firstFrame, lastFrame);
+        }
+      } else if (child instanceof final WaveMultiChannelView view) {
+        view.redrawFrames(channel, firstFrame, lastFrame);
+      }
+    }
+  }
+
+  /**
+   * Redraw the parts of all channels that depend on the frames
+   * {@code [firstFrame, lastFrame]}.
+   *
+   * @param firstFrame The first modified frame
+   * @param lastFrame  The last modified frame
+   *
+   * @see #redraw(int, long, long)
+   */
+
+  public void redraw(
+    final long firstFrame,
+    final long lastFrame)
+  {
+    final var channels = this.model().channelCount();
+    for (int channel = 0; channel < channels; ++channel) {
+      this.redraw(channel, firstFrame, lastFrame);
+    }
+  }
+
+  /**
+   * Set the resize settle delay. While a view is being interactively
+   * resized, the last rendered image is stretched to fill the view, and the
+   * waveform is only rendered at the new size once the size has remained
+   * unchanged for this long. A delay of zero disables the preview, and
+   * every resize is rendered.
+   *
+   * @param delay The delay
+   */
+
+  public void setResizeSettleDelay(
+    final Duration delay)
+  {
+    Objects.requireNonNull(delay, "delay");
+    if (delay.isNegative()) {
+      throw new IllegalArgumentException(
+        "Resize settle delay %s must be non-negative".formatted(delay)
+      );
+    }
+    this.resizeSettleDelay.set(delay);
+  }
+
+  /**
+   * @return The current resize settle delay
+   */
+
+  public Duration resizeSettleDelay()
+  {
+    return this.resizeSettleDelay.get();
+  }
+
+  /**
+   * @return The current resize settle delay
+   */
+
+  public ReadOnlyObjectProperty<Duration> resizeSettleDelayProperty()
+  {
+    return this.resizeSettleDelay;
+  }
+
+  /**
+   * Set the scheduler that will execute rendering for this view. By
+   * default, all views share {@link WaveRenderScheduler#shared()}.
+   *
+   * @param scheduler The scheduler
+   */
+
+  public void setRenderScheduler(
+    final WaveRenderScheduler scheduler)
+  {
+    Objects.requireNonNull(scheduler, "scheduler");
+
+    this.channelViews.cancelAll();
+
+    this.renderScheduler.set(scheduler);
+    this.channelViews.redrawAll(false);
+    this.overlayPane.redraw();
+  }
+
+  /**
+   * @return The scheduler that executes rendering for this view
+   */
+
+  public WaveRenderScheduler renderScheduler()
+  {
+    return this.renderScheduler.get();
+  }
+
+  /**
+   * @return The scheduler that executes rendering for this view
+   */
+
+  public ReadOnlyObjectProperty<WaveRenderScheduler> renderSchedulerProperty()
+  {
+    return this.renderScheduler;
+  }
+
+  /**
+   * Retrieve the prefetcher for this view. As the view range changes, the
+   * prefetcher asks the model to prefetch the frames ahead of the view in
+   * the direction of movement. The prefetcher can be configured, or
+   * disabled by setting its lookahead to zero.
+   *
+   * @return The prefetcher for this view
+   *
+   * @see WaveModelType#prefetch(int, long, long, WavePrefetchDirection)
+   */
+
+  public WavePrefetcher prefetcher()
+  {
+    return this.prefetcher;
+  }
+
+  /**
+   * @return The current waveform view range
+   */
+
+  public RangeInclusiveL viewRange()
+  {
+    return this.viewRange.get();
+  }
+
+  /**
+   * @return The lower bound of the current waveform view range
+   */
+
+  public long viewRangeLower()
+  {
+    return this.viewRange.lower();
+  }
+
+  /**
+   * @return The upper bound of the current waveform view range
+   */
+
+  public long viewRangeUpper()
+  {
+    return this.viewRange.upper();
+  }
+
+  /**
+   * @return The current waveform view range
+   */
+
+  public ReadOnlyObjectProperty<RangeInclusiveL> viewRangeProperty()
+  {
+    return this.viewRange;
+  }
+
+  /**
+   * Set the wave model for the view. The existing channel views are kept
+   * and redrawn; views are only added or removed to account for any
+   * difference in the number of channels between the old and new models.
+   * Frames that the model reports as unavailable are drawn as placeholders,
+   * and redrawn as the model reports that they have become available.
+   *
+   * @param newModel The new wave model
+   */
+
+  public void setWaveModel(
+    final WaveModelType newModel)
+  {
+    Objects.requireNonNull(newModel, "newModel");
+
+    final var oldModel = this.model.get();
+    if (oldModel != null) {
+      oldModel.removeAvailabilityListener(this.availabilityListener);
+    }
+    newModel.addAvailabilityListener(this.availabilityListener);
+
+    this.model.set(newModel);
+    this.viewRange.set(adaptViewRange(this.viewRange.get(), newModel));
+    this.updateChannelViews();
+  }
+
+  private void updateChannelViews()
+  {
+    this.channelViews.update(this.layoutMode.get());
+    this.overlayPane.redraw();
+    this.requestLayout();
+  }
+
+  private void rebuildChannelViews()
+  {
+    this.channelViews.rebuild(
+      this.layoutMode.get(),
+      this.overlayPane,
+      this.statisticsOverlay
+    );
+  }
+
+  @Override
+  protected void layoutChildren()
+  {
+    switch (this.layoutMode.get()) {
+      case WAVE_LAYOUT_FILL,
+           WAVE_LAYOUT_SINGLE_CANVAS_STACKED,
+           WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID -> super.layoutChildren();
+      case WAVE_LAYOUT_VIRTUALIZED -> this.layoutVirtualized();
+    }
+    this.overlayPane.layoutOver(this.statisticsOverlay);
+  }
+
+  private void configureOverlays()
+  {
+    this.overlayPane.attach();
+    this.viewRange.addListener(o -> this.onViewRangeChanged());
+
+    this.addEventHandler(MouseEvent.MOUSE_MOVED, this::onMouseMoved);
+    this.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onMouseMoved);
+    this.addEventHandler(MouseEvent.MOUSE_EXITED, e -> {
+      this.cursorFrame.set(Double.NaN);
+    });
+  }
+
+  private void onFramesAvailable(
+    final int channel,
+    final long firstFrame,
+    final long lastFrame)
+  {
+    if (Platform.isFxApplicationThread()) {
+      this.redraw(channel, firstFrame, lastFrame);
+    } else {
+      Platform.runLater(() -> this.redraw(channel, firstFrame, lastFrame));
+    }
+  }
+
+  private void onViewRangeChanged()
+  {
+    if (this.effectivelyVisible.get()) {
+      this.prefetcher.viewChanged(
+        this.model(),
+        this.viewRange.lower(),
+        this.viewRange.upper(),
+        this.getWidth(),
+        System.nanoTime()
+      );
+    }
+  }
+
+  private void onVisibilityChanged(
+    final Boolean visible)
+  {
+    this.effectivelyVisible.set(visible.booleanValue());
+
+    if (visible.booleanValue()) {
+      this.channelViews.redrawAll(false);
+      this.overlayPane.redraw();
+      return;
+    }
+
+    this.channelViews.cancelAll();
+    this.overlayPane.cancel();
+  }
+
+  /**
+   * A view is effectively visible if it and all of its ancestors are
+   * visible, it has a non-zero size, and it is in a window that is showing
+   * and is not minimized. Rendering is suspended while a view is not
+   * effectively visible, and a single full redraw is performed when the
+   * view becomes effectively visible again.
+   *
+   * @return {@code true} if the view is effectively visible
+   */
+
+  public boolean isEffectivelyVisible()
+  {
+    return this.effectivelyVisible.get();
+  }
+
+  /**
+   * @return {@code true} if the view is effectively visible
+   *
+   * @see #isEffectivelyVisible()
+   */
+
+  public ReadOnlyBooleanProperty effectivelyVisibleProperty()
+  {
+    return this.effectivelyVisible.getReadOnlyProperty();
+  }
+
+  private void onMouseMoved(
+    final MouseEvent event)
+  {
+    this.cursorFrame.set(this.frameAtX(event.getX()));
+  }
+
+  /**
+   * Determine the frame at the given horizontal position, such as the
+   * position of a mouse event. The result is fractional, and may lie
+   * outside the model if the view range does.
+   *
+   * @param x The x coordinate, relative to the view
+   *
+   * @return The frame, or {@link Double#NaN} if the view has no width
+   */
+
+  public double frameAtX(
+    final double x)
+  {
+    final var insets = this.getInsets();
+    final var w =
+      this.getWidth() - insets.getLeft() - insets.getRight();
+    if (w <= 0.0) {
+      return Double.NaN;
+    }
+
+    final var lower = this.viewRange.lower();
+    final var interval = (this.viewRange.upper() - lower) + 1L;
+    return lower + (((x - insets.getLeft()) / w) * interval);
+  }
+
+  /**
+   * @return The zero-crossing index of the current model, built lazily as
+   * it is queried; call {@link WaveZeroCrossingIndex#invalidate()} if the
+   * model is modified in place
+   */
+
+  public WaveZeroCrossingIndex zeroCrossingIndex()
+  {
+    var index = this.zeroCrossings;
+    if (index == null || index.model() != this.model()) {
+      index = WaveZeroCrossingIndex.create(this.model());
+      this.zeroCrossings = index;
+    }
+    return index;
+  }
+
+  /**
+   * Find the zero crossing of the given channel nearest to the frame at
+   * the given horizontal position, such as to snap the edge of a selection
+   * being dragged with the mouse.
+   *
+   * @param channel The channel
+   * @param x       The x coordinate, relative to the view
+   * @param radius  The maximum distance of the crossing from {@code x}, in
+   *                pixels
+   *
+   * @return The frame of the nearest zero crossing, if any
+   */
+
+  public OptionalLong zeroCrossingAtX(
+    final int channel,
+    final double x,
+    final double radius)
+  {
+    final var frame = this.frameAtX(x);
+    if (Double.isNaN(frame)) {
+      return OptionalLong.empty();
+    }
+    final var framesPerPixel = this.frameAtX(x + 1.0) - frame;
+    return this.zeroCrossingIndex().nearest(
+      channel,
+      Math.round(frame),
+      (long) Math.ceil(radius * framesPerPixel)
+    );
+  }
+
+  /**
+   * @return The render statistics for the view
+   */
+
+  public WaveRenderStatistics renderStatistics()
+  {
+    return this.renderStatistics.get();
+  }
+
+  /**
+   * The render statistics for the view. The statistics value is computed
+   * lazily when observed, and so observing the property has a (small) cost.
+   *
+   * @return The render statistics for the view
+   */
+
+  public ReadOnlyObjectProperty<WaveRenderStatistics> renderStatisticsProperty()
+  {
+    return this.renderStatistics.getReadOnlyProperty();
+  }
+
+  /**
+   * Set whether an overlay displaying the view's render statistics is
+   * shown on top of the view.
+   *
+   * @param visible {@code true} if the overlay should be shown
+   */
+
+  public void setRenderStatisticsOverlayVisible(
+    final boolean visible)
+  {
+    this.renderStatisticsOverlayVisible.set(visible);
+  }
+
+  /**
+   * @return {@code true} if the render statistics overlay is shown
+   */
+
+  public boolean isRenderStatisticsOverlayVisible()
+  {
+    return this.renderStatisticsOverlayVisible.get();
+  }
+
+  /**
+   * @return {@code true} if the render statistics overlay is shown
+   */
+
+  public ReadOnlyBooleanProperty renderStatisticsOverlayVisibleProperty()
+  {
+    return this.renderStatisticsOverlayVisible;
+  }
+
+  @Override
+  protected double computePrefHeight(
+    final double width)
+  {
+    return switch (this.layoutMode.get()) {
+      case WAVE_LAYOUT_FILL,
+           WAVE_LAYOUT_SINGLE_CANVAS_STACKED,
+           WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID -> super.computePrefHeight(width);
+      case WAVE_LAYOUT_VIRTUALIZED -> {
+        final var insets = this.getInsets();
+        yield insets.getTop()
+              + insets.getBottom()
+              + (this.model().channelCount() * this.channelHeight.get());
+      }
+    };
+  }
+
+  @Override
+  protected double computeMinHeight(
+    final double width)
+  {
+    return switch (this.layoutMode.get()) {
+      case WAVE_LAYOUT_FILL,
+           WAVE_LAYOUT_SINGLE_CANVAS_STACKED,
+           WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID -> super.computeMinHeight(width);
+      case WAVE_LAYOUT_VIRTUALIZED -> {
+        final var insets = this.getInsets();
+        yield insets.getTop() + insets.getBottom() + 1.0;
+      }
+    };
+  }
+
+  private void layoutVirtualized()
+  {
+    final var insets = this.getInsets();
+    this.channelViews.layoutVirtualized(
+      insets.getLeft(),
+      insets.getTop(),
+      Math.max(0.0, this.getWidth() - insets.getLeft() - insets.getRight()),
+      Math.max(0.0, this.getHeight() - insets.getTop() - insets.getBottom()),
+      this.channelHeight.get(),
+      this.channelScrollOffset.get()
+    );
+  }
+
+  /**
+   * Set the layout mode for the view.
+   *
+   * @param mode The mode
+   */
+
+  public void setLayoutMode(
+    final WaveLayoutMode mode)
+  {
+    Objects.requireNonNull(mode, "mode");
+
+    if (mode != this.layoutMode.get()) {
+      this.layoutMode.set(mode);
+      this.rebuildChannelViews();
+    }
+  }
+
+  /**
+   * @return The current layout mode
+   */
+
+  public WaveLayoutMode layoutMode()
+  {
+    return this.layoutMode.get();
+  }
+
+  /**
+   * @return The current layout mode
+   */
+
+  public ReadOnlyObjectProperty<WaveLayoutMode> layoutModeProperty()
+  {
+    return this.layoutMode;
+  }
+
+  /**
+   * Set the height of each channel when using the
+   * {@link WaveLayoutMode#WAVE_LAYOUT_VIRTUALIZED} layout.
+   *
+   * @param height The height
+   */
+
+  public void setChannelHeight(
+    final double height)
+  {
+    if (!(height >= 1.0)) {
+      throw new IllegalArgumentException(
+        "Channel height %s must be >= 1.0".formatted(height)
+      );
+    }
+    this.channelHeight.set(height);
+  }
+
+  /**
+   * @return The height of each channel when using the
+   * {@link WaveLayoutMode#WAVE_LAYOUT_VIRTUALIZED} layout
+   */
+
+  public double channelHeight()
+  {
+    return this.channelHeight.get();
+  }
+
+  /**
+   * @return The height of each channel when using the
+   * {@link WaveLayoutMode#WAVE_LAYOUT_VIRTUALIZED} layout
+   */
+
+  public ReadOnlyDoubleProperty channelHeightProperty()
+  {
+    return this.channelHeight;
+  }
+
+  /**
+   * Set the vertical scroll offset, in pixels, of the channels when using
+   * the {@link WaveLayoutMode#WAVE_LAYOUT_VIRTUALIZED} layout. The offset
+   * is clamped to the range {@code [0, channelCount * channelHeight - height]}
+   * during layout. Vertical scroll events over the view set the offset;
+   * hosts may also bind a scroll bar to {@link #channelScrollOffsetProperty()}
+   * and set the offset here.
+   *
+   * @param offset The offset
+   */
+
+  public void setChannelScrollOffset(
+    final double offset)
+  {
+    this.channelScrollOffset.set(offset);
+  }
+
+  /**
+   * @return The vertical scroll offset of the channels
+   */
+
+  public double channelScrollOffset()
+  {
+    return this.channelScrollOffset.get();
+  }
+
+  /**
+   * @return The vertical scroll offset of the channels
+   */
+
+  public ReadOnlyDoubleProperty channelScrollOffsetProperty()
+  {
+    return this.channelScrollOffset;
+  }
+
+  /**
+   * @return The current underlying wave model
+   */
+
+  public WaveModelType model()
+  {
+    return this.model.get();
+  }
+
+  /**
+   * Schedule a redraw of the view. The view is redrawn by the view's render
+   * scheduler on a subsequent pulse. Any cached column extrema are
+   * discarded, and so the model is read again; this is the method to call
+   * after the model's samples have been modified in place.
+   *
+   * @see #renderScheduler()
+   * @see #redraw(long, long)
+   */
+
+  public void redraw()
+  {
+    this.channelViews.redrawAll(true);
+    this.overlayPane.redraw();
+  }
+
+  /**
+   * Set the view range. This represents the range of frames within the wave
+   * model that will appear onscreen. Setting the view range allocates
+   * nothing, and observers are notified only if the range changes; the
+   * {@link RangeInclusiveL} value of {@link #viewRangeProperty()} is only
+   * constructed if it is requested.
+   *
+   * @param lower The lower frame index
+   * @param upper The upper frame index
+   */
+
+  public void setViewRange(
+    final long lower,
+    final long upper)
+  {
+    this.viewRange.set(lower, upper);
+  }
+
+  /**
+   * Move the view range so that the given frames are visible, such as a
+   * match found with {@link WaveSearch}. If the frames fit within the
+   * current view range, the view range is centered on them without
+   * changing its width, and is kept within the model where possible;
+   * otherwise, the view range is set to the frames.
+   *
+   * @param frames The frames
+   */
+
+  public void revealFrames(
+    final RangeInclusiveL frames)
+  {
+    Objects.requireNonNull(frames, "frames");
+
+    final var width = this.viewRange.upper() - this.viewRange.lower();
+    if (frames.upper() - frames.lower() > width) {
+      this.viewRange.set(frames.lower(), frames.upper());
+      return;
+    }
+
+    final var center = frames.lower() + (frames.upper() - frames.lower()) / 2L;
+    final var last = this.model.get().frameCount() - 1L;
+    final var lower = Math.max(0L, Math.min(center - width / 2L, last - width));
+    this.viewRange.set(lower, lower + width);
   }
 }
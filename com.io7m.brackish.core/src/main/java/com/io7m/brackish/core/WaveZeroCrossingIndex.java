@@ -0,0 +1,509 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core;
+
+import com.io7m.jranges.RangeCheck;
+import com.io7m.jranges.RangeInclusiveI;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A zero-crossing index of a waveform.</p>
+ *
+ * <p>
+ * The index records the frames at which each channel crosses zero, so
+ * that editors can snap positions such as selection edges to zero
+ * crossings without scanning samples on each mouse movement. A frame is a
+ * zero crossing if its sample is exactly zero, or if its sample and that
+ * of an adjacent frame have opposite signs and its sample is the closer
+ * of the two to zero (the earlier frame, if both are equally close).
+ * </p>
+ *
+ * <p>
+ * The index is built lazily, in fixed-size blocks of frames per channel,
+ * as queries reach them. Each block is stored as a bitmap with one bit per
+ * frame if crossings are dense, and as a sorted array of block-relative
+ * frame offsets if they are sparse, whichever is smaller. Queries within a
+ * block take constant time for bitmaps, and logarithmic time for offsets.
+ * </p>
+ *
+ * <p>
+ * The most recently used blocks are retained up to a budget in bytes, and
+ * count against the ceiling of a {@link WaveMemoryManager}. Indices are
+ * safe for use from multiple threads. The index assumes that the model is
+ * immutable; call {@link #invalidate()} if it is not.
+ * </p>
+ */
+
+public final class WaveZeroCrossingIndex implements WaveMemoryCacheType
+{
+  /**
+   * The default number of frames in each block.
+   */
+
+  public static final int DEFAULT_BLOCK_FRAMES = 4096;
+
+  /**
+   * The largest permitted number of frames in each block.
+   */
+
+  public static final int MAXIMUM_BLOCK_FRAMES = 65536;
+
+  private static final long DEFAULT_BYTE_BUDGET = 4L * 1024L * 1024L;
+  private static final double RELOAD_COST = 1.0;
+
+  private final WaveModelType model;
+  private final int blockFrames;
+  private final long byteBudget;
+  private final long blocksPerChannel;
+  private final LinkedHashMap<Long, Block> blocks;
+  private final LongAdder builds;
+  private final WaveMemoryManager memory;
+  private volatile long bytesUsed;
+
+  private WaveZeroCrossingIndex(
+    final WaveModelType inModel,
+    final int inBlockFrames,
+    final long inByteBudget,
+    final WaveMemoryManager inMemory)
+  {
+    this.model =
+      Objects.requireNonNull(inModel, "model");
+    this.memory =
+      Objects.requireNonNull(inMemory, "memory");
+    this.blockFrames =
+      RangeCheck.checkIncludedInInteger(
+        inBlockFrames,
+        "Block frames",
+        RangeInclusiveI.of(64, MAXIMUM_BLOCK_FRAMES),
+        "Valid block frames"
+      );
+    this.byteBudget =
+      RangeCheck.checkGreaterEqualLong(
+        inByteBudget,
+        "Byte budget",
+        0L,
+        "Minimum byte budget"
+      );
+    this.blocksPerChannel =
+      Math.ceilDiv(inModel.frameCount(), inBlockFrames);
+    this.blocks =
+      new LinkedHashMap<>(16, 0.75f, true);
+    this.builds =
+      new LongAdder();
+  }
+
+  /**
+   * Create an index of the given model with the default block size and
+   * budget, registered with {@link WaveMemoryManager#shared()}.
+   *
+   * @param model The model
+   *
+   * @return An index
+   */
+
+  public static WaveZeroCrossingIndex create(
+    final WaveModelType model)
+  {
+    return create(
+      model,
+      DEFAULT_BLOCK_FRAMES,
+      DEFAULT_BYTE_BUDGET,
+      WaveMemoryManager.shared()
+    );
+  }
+
+  /**
+   * Create an index of the given model.
+   *
+   * @param model       The model
+   * @param blockFrames The number of frames in each block, in the range
+   *                    {@code [64, MAXIMUM_BLOCK_FRAMES]}
+   * @param byteBudget  The maximum number of bytes of blocks to retain
+   * @param memory      The memory manager with which to register
+   *
+   * @return An index
+   */
+
+  public static WaveZeroCrossingIndex create(
+    final WaveModelType model,
+    final int blockFrames,
+    final long byteBudget,
+    final WaveMemoryManager memory)
+  {
+    final var index =
+      new WaveZeroCrossingIndex(model, blockFrames, byteBudget, memory);
+    memory.register(index);
+    return index;
+  }
+
+  /**
+   * @return The indexed model
+   */
+
+  public WaveModelType model()
+  {
+    return this.model;
+  }
+
+  /**
+   * @return The number of frames in each block
+   */
+
+  public int blockFrames()
+  {
+    return this.blockFrames;
+  }
+
+  /**
+   * @return The number of blocks currently retained
+   */
+
+  public int blockCount()
+  {
+    synchronized (this.blocks) {
+      return this.blocks.size();
+    }
+  }
+
+  /**
+   * @return The number of blocks built from the model
+   */
+
+  public long builds()
+  {
+    return this.builds.sum();
+  }
+
+  /**
+   * Discard all retained blocks.
+   */
+
+  public void invalidate()
+  {
+    synchronized (this.blocks) {
+      this.blocks.clear();
+      this.bytesUsed = 0L;
+    }
+  }
+
+  /**
+   * Find the zero crossing of the given channel nearest to
+   * {@code frame}, no further than {@code maximumDistance} frames away. If
+   * two crossings are equally near, the earlier is returned.
+   *
+   * @param channel         The channel
+   * @param frame           The frame
+   * @param maximumDistance The maximum distance in frames
+   *
+   * @return The frame of the nearest zero crossing, if any
+   */
+
+  public OptionalLong nearest(
+    final int channel,
+    final long frame,
+    final long maximumDistance)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.model.channelCount(),
+      "Channel count"
+    );
+
+    final var before =
+      this.previous(channel, frame, frame - maximumDistance);
+    final var limit = before < 0L
+      ? frame + maximumDistance
+      : Math.min(frame + maximumDistance, frame + (frame - before) - 1L);
+    final var after =
+      this.next(channel, Math.max(frame, before + 1L), limit);
+
+    if (after >= 0L) {
+      return OptionalLong.of(after);
+    }
+    if (before >= 0L) {
+      return OptionalLong.of(before);
+    }
+    return OptionalLong.empty();
+  }
+
+  /**
+   * Find the first zero crossing in {@code [from, to]}, or {@code -1}.
+   */
+
+  private long next(
+    final int channel,
+    final long from,
+    final long to)
+  {
+    final var first = Math.max(0L, from);
+    final var last = Math.min(to, this.model.frameCount() - 1L);
+    var position = first;
+    while (position <= last) {
+      final var blockIndex = position / this.blockFrames;
+      final var blockStart = blockIndex * this.blockFrames;
+      final var offset =
+        this.block(channel, blockIndex).next((int) (position - blockStart));
+      if (offset >= 0) {
+        final var found = blockStart + offset;
+        return found <= last ? found : -1L;
+      }
+      position = blockStart + this.blockFrames;
+    }
+    return -1L;
+  }
+
+  /**
+   * Find the last zero crossing in {@code [to, from]}, or {@code -1}.
+   */
+
+  private long previous(
+    final int channel,
+    final long from,
+    final long to)
+  {
+    final var first = Math.min(from, this.model.frameCount() - 1L);
+    final var last = Math.max(0L, to);
+    var position = first;
+    while (position >= last) {
+      final var blockIndex = position / this.blockFrames;
+      final var blockStart = blockIndex * this.blockFrames;
+      final var offset =
+        this.block(channel, blockIndex).previous((int) (position - blockStart));
+      if (offset >= 0) {
+        final var found = blockStart + offset;
+        return found >= last ? found : -1L;
+      }
+      position = blockStart - 1L;
+    }
+    return -1L;
+  }
+
+  private Block block(
+    final int channel,
+    final long blockIndex)
+  {
+    final var key = Long.valueOf(channel * this.blocksPerChannel + blockIndex);
+    synchronized (this.blocks) {
+      final var existing = this.blocks.get(key);
+      if (existing != null) {
+        existing.accessed = System.nanoTime();
+        return existing;
+      }
+    }
+
+    final var built = this.build(channel, blockIndex);
+    synchronized (this.blocks) {
+      var used = this.bytesUsed + built.byteSize();
+      final var previous = this.blocks.put(key, built);
+      if (previous != null) {
+        used -= previous.byteSize();
+      }
+      final var iterator = this.blocks.values().iterator();
+      while (used > this.byteBudget && this.blocks.size() > 1) {
+        used -= iterator.next().byteSize();
+        iterator.remove();
+      }
+      this.bytesUsed = used;
+    }
+
+    this.memory.enforce();
+    return built;
+  }
+
+  private Block build(
+    final int channel,
+    final long blockIndex)
+  {
+    this.builds.increment();
+
+    final var start = blockIndex * this.blockFrames;
+    final var count =
+      (int) Math.min(this.blockFrames, this.model.frameCount() - start);
+
+    /*
+     * Read one frame either side of the block so that crossings at the
+     * block edges are classified consistently with neighbouring blocks.
+     * Frames outside the waveform are read as zero, which never has the
+     * opposite sign to a sample.
+     */
+
+    final var samples = new double[count + 2];
+    this.model.samples(channel, start - 1L, samples, 0, count + 2);
+
+    final var bits = new long[Math.ceilDiv(count, 64)];
+    var crossings = 0;
+    for (int offset = 0; offset < count; ++offset) {
+      if (isCrossing(samples[offset], samples[offset + 1], samples[offset + 2])) {
+        bits[offset >>> 6] |= 1L << offset;
+        ++crossings;
+      }
+    }
+
+    /*
+     * Offsets cost two bytes per crossing, and bitmaps one bit per frame.
+     */
+
+    if ((long) crossings * Character.BYTES >= (long) bits.length * Long.BYTES) {
+      return new Block(bits, null);
+    }
+
+    final var offsets = new char[crossings];
+    var index = 0;
+    for (int word = 0; word < bits.length; ++word) {
+      var remaining = bits[word];
+      while (remaining != 0L) {
+        offsets[index] =
+          (char) ((word << 6) + Long.numberOfTrailingZeros(remaining));
+        ++index;
+        remaining &= remaining - 1L;
+      }
+    }
+    return new Block(null, offsets);
+  }
+
+  private static boolean isCrossing(
+    final double before,
+    final double sample,
+    final double after)
+  {
+    if (sample == 0.0) {
+      return true;
+    }
+    final var magnitude = Math.abs(sample);
+    if (before * sample < 0.0 && magnitude < Math.abs(before)) {
+      return true;
+    }
+    return sample * after < 0.0 && magnitude <= Math.abs(after);
+  }
+
+  @Override
+  public String memoryCacheName()
+  {
+    return "Zero-crossing index";
+  }
+
+  @Override
+  public long memoryUsed()
+  {
+    return this.bytesUsed;
+  }
+
+  @Override
+  public long memoryOldestAccess()
+  {
+    synchronized (this.blocks) {
+      if (this.blocks.isEmpty()) {
+        return Long.MAX_VALUE;
+      }
+      return this.blocks.values().iterator().next().accessed;
+    }
+  }
+
+  @Override
+  public double memoryReloadCost()
+  {
+    return RELOAD_COST;
+  }
+
+  @Override
+  public long memoryEvictOldest()
+  {
+    synchronized (this.blocks) {
+      if (this.blocks.isEmpty()) {
+        return 0L;
+      }
+      final var iterator = this.blocks.values().iterator();
+      final var freed = iterator.next().byteSize();
+      iterator.remove();
+      this.bytesUsed -= freed;
+      return freed;
+    }
+  }
+
+  private static final class Block
+  {
+    private final long[] bits;
+    private final char[] offsets;
+    private long accessed;
+
+    Block(
+      final long[] inBits,
+      final char[] inOffsets)
+    {
+      this.bits = inBits;
+      this.offsets = inOffsets;
+      this.accessed = System.nanoTime();
+    }
+
+    long byteSize()
+    {
+      if (this.bits != null) {
+        return (long) this.bits.length * Long.BYTES;
+      }
+      return (long) this.offsets.length * Character.BYTES;
+    }
+
+    int next(
+      final int offset)
+    {
+      if (this.bits == null) {
+        final var found = Arrays.binarySearch(this.offsets, (char) offset);
+        final var index = found >= 0 ? found : -(found + 1);
+        return index < this.offsets.length ? this.offsets[index] : -1;
+      }
+
+      var word = offset >>> 6;
+      var mask = this.bits[word] & (-1L << offset);
+      while (mask == 0L) {
+        ++word;
+        if (word >= this.bits.length) {
+          return -1;
+        }
+        mask = this.bits[word];
+      }
+      return (word << 6) + Long.numberOfTrailingZeros(mask);
+    }
+
+    int previous(
+      final int offset)
+    {
+      if (this.bits == null) {
+        final var found = Arrays.binarySearch(this.offsets, (char) offset);
+        final var index = found >= 0 ? found : -(found + 1) - 1;
+        return index >= 0 ? this.offsets[index] : -1;
+      }
+
+      var word = offset >>> 6;
+      var mask = this.bits[word] & (-1L >>> (63 - (offset & 63)));
+      while (mask == 0L) {
+        --word;
+        if (word < 0) {
+          return -1;
+        }
+        mask = this.bits[word];
+      }
+      return (word << 6) + 63 - Long.numberOfLeadingZeros(mask);
+    }
+  }
+}
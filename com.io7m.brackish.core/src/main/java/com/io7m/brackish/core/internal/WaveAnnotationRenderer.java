@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveAnnotationIndex;
+import com.io7m.brackish.core.WaveRenderTargetType;
+import javafx.scene.paint.Paint;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A renderer of annotations.</p>
+ *
+ * <p>
+ * Only the annotations that intersect the view range are visited. Markers
+ * that fall into the same pixel column are drawn once, and regions whose
+ * pixel spans touch or overlap are merged into a single rectangle, so the
+ * number of draw commands is bounded by the width of the target rather than
+ * the number of annotations.
+ * </p>
+ */
+
+public final class WaveAnnotationRenderer implements IntConsumer
+{
+  private long[] markerColumns;
+  private WaveAnnotationIndex index;
+  private long viewLower;
+  private long viewUpper;
+  private WaveRenderTargetType target;
+  private double width;
+  private int columns;
+  private double spanStart;
+  private double spanEnd;
+  private boolean spanOpen;
+  private int drawCommands;
+
+  /**
+   * A renderer of annotations.
+   */
+
+  public WaveAnnotationRenderer()
+  {
+    this.markerColumns = new long[0];
+  }
+
+  /**
+   * Render the annotations that intersect the view range.
+   *
+   * @param inTarget     The render target
+   * @param inIndex      The annotations
+   * @param inViewLower  The lower bound of the view range
+   * @param inViewUpper  The upper bound of the view range
+   * @param markerStroke The stroke used for markers
+   * @param regionFill   The fill used for regions
+   *
+   * @return The number of draw commands issued
+   */
+
+  public int render(
+    final WaveRenderTargetType inTarget,
+    final WaveAnnotationIndex inIndex,
+    final long inViewLower,
+    final long inViewUpper,
+    final Paint markerStroke,
+    final Paint regionFill)
+  {
+    this.target =
+      Objects.requireNonNull(inTarget, "target");
+    this.index =
+      Objects.requireNonNull(inIndex, "index");
+    this.viewLower =
+      inViewLower;
+    this.viewUpper =
+      inViewUpper;
+
+    Objects.requireNonNull(markerStroke, "markerStroke");
+    Objects.requireNonNull(regionFill, "regionFill");
+
+    this.width = inTarget.width();
+    this.columns = (int) Math.ceil(this.width);
+    this.drawCommands = 0;
+    this.spanOpen = false;
+
+    final var words = (this.columns + 63) >>> 6;
+    if (this.markerColumns.length < words) {
+      this.markerColumns = new long[words];
+    }
+    Arrays.fill(this.markerColumns, 0, words, 0L);
+
+    try {
+      if (this.columns == 0 || inIndex.size() == 0) {
+        return 0;
+      }
+
+      /*
+       * Regions are filled as the query proceeds, as annotations arrive in
+       * order of lower bound. Markers are only recorded, and are drawn
+       * afterwards so that they appear over the regions.
+       */
+
+      inTarget.setFill(regionFill);
+      inIndex.query(inViewLower, inViewUpper, this);
+      this.flushSpan();
+
+      final var h = inTarget.height();
+      inTarget.setStroke(markerStroke);
+      for (int word = 0; word < words; ++word) {
+        var bits = this.markerColumns[word];
+        while (bits != 0L) {
+          final var bit = Long.numberOfTrailingZeros(bits);
+          final var x = (double) ((word << 6) + bit) + 0.5;
+          inTarget.strokeLine(x, 0.0, x, h);
+          ++this.drawCommands;
+          bits &= bits - 1L;
+        }
+      }
+      return this.drawCommands;
+    } finally {
+      this.target = null;
+      this.index = null;
+    }
+  }
+
+  @Override
+  public void accept(
+    final int annotationIndex)
+  {
+    final var annotation = this.index.annotation(annotationIndex);
+    final var frames = annotation.frames();
+
+    final var x0 =
+      Math.floor(WaveOverlayLayer.xOfFrame(
+        this.viewLower, this.viewUpper, this.width, (double) frames.lower()));
+
+    if (annotation.isMarker()) {
+      final var column =
+        (int) Math.clamp(x0, 0.0, (double) (this.columns - 1));
+      this.markerColumns[column >>> 6] |= 1L << (column & 63);
+      return;
+    }
+
+    final var x1 =
+      Math.floor(WaveOverlayLayer.xOfFrame(
+        this.viewLower, this.viewUpper, this.width, (double) frames.upper() + 1.0));
+
+    final var start = Math.max(0.0, x0);
+    final var end = Math.min(this.width, Math.max(x1, x0 + 1.0));
+
+    if (this.spanOpen && start <= this.spanEnd) {
+      this.spanEnd = Math.max(this.spanEnd, end);
+      return;
+    }
+
+    this.flushSpan();
+    this.spanStart = start;
+    this.spanEnd = end;
+    this.spanOpen = true;
+  }
+
+  private void flushSpan()
+  {
+    if (this.spanOpen) {
+      this.target.fillRect(
+        this.spanStart,
+        0.0,
+        this.spanEnd - this.spanStart,
+        this.target.height()
+      );
+      ++this.drawCommands;
+      this.spanOpen = false;
+    }
+  }
+}
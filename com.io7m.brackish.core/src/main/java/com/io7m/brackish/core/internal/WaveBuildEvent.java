@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.brackish.core.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event emitted for each background build of a peak summary or
+ * statistics index, and for each load of a thumbnail summary.
+ */
+
+@Name("com.io7m.brackish.Build")
+@Label("Summary Build")
+@Category({"Brackish", "Aggregation"})
+@Description("The building or loading of a peak summary or statistics index.")
+@StackTrace(false)
+public final class WaveBuildEvent extends Event
+{
+  /*
+   * Event objects are only allocated while a recording that enables them is
+   * running.
+   */
+
+  private static final EventType BUILD_EVENT =
+    EventType.getEventType(WaveBuildEvent.class);
+
+  @Label("Kind")
+  @Description("The kind of structure built.")
+  private String kind;
+
+  @Label("Channels")
+  @Description("The number of channels.")
+  private int channels;
+
+  @Label("Frames")
+  @Description("The number of frames summarized.")
+  private long frames;
+
+  @Label("Block Size")
+  @Description("The number of frames in each block of the finest level.")
+  private int blockSize;
+
+  /**
+   * A JFR event emitted for each build of a summary.
+   */
+
+  public WaveBuildEvent()
+  {
+
+  }
+
+  /**
+   * Begin timing a build, if the event is enabled.
+   *
+   * @return A started event, or {@code null} if the event is not enabled
+   */
+
+  public static WaveBuildEvent start()
+  {
+    if (!BUILD_EVENT.isEnabled()) {
+      return null;
+    }
+    final var event = new WaveBuildEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Finish timing a build started with {@link #start()}, and commit the
+   * event. Does nothing if {@code event} is {@code null}.
+   *
+   * @param event     The event, or {@code null}
+   * @param kind      The kind of structure built
+   * @param channels  The number of channels
+   * @param frames    The number of frames
+   * @param blockSize The block size
+   */
+
+  public static void finish(
+    final WaveBuildEvent event,
+    final String kind,
+    final int channels,
+    final long frames,
+    final int blockSize)
+  {
+    if (event == null) {
+      return;
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.kind = kind;
+      event.channels = channels;
+      event.frames = frames;
+      event.blockSize = blockSize;
+      event.commit();
+    }
+  }
+}
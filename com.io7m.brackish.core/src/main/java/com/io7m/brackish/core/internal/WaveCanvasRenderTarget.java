@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveRenderTargetType;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+import java.util.Objects;
+
+/**
+ * A render target that draws into the graphics context of a canvas.
+ */
+
+public final class WaveCanvasRenderTarget implements WaveRenderTargetType
+{
+  private final Canvas canvas;
+  private final GraphicsContext graphics;
+  private Paint fill;
+  private Paint stroke;
+  private double alpha;
+  private boolean clipped;
+
+  /**
+   * A render target that draws into the graphics context of a canvas.
+   *
+   * @param inCanvas The canvas
+   */
+
+  public WaveCanvasRenderTarget(
+    final Canvas inCanvas)
+  {
+    this.canvas =
+      Objects.requireNonNull(inCanvas, "canvas");
+    this.graphics =
+      inCanvas.getGraphicsContext2D();
+    this.fill =
+      Color.BLACK;
+    this.stroke =
+      Color.BLACK;
+    this.alpha =
+      1.0;
+  }
+
+  @Override
+  public double width()
+  {
+    return this.canvas.getWidth();
+  }
+
+  @Override
+  public double height()
+  {
+    return this.canvas.getHeight();
+  }
+
+  @Override
+  public void setFill(
+    final Paint paint)
+  {
+    this.fill = Objects.requireNonNull(paint, "paint");
+    this.graphics.setFill(paint);
+  }
+
+  @Override
+  public void setStroke(
+    final Paint paint)
+  {
+    this.stroke = Objects.requireNonNull(paint, "paint");
+    this.graphics.setStroke(paint);
+  }
+
+  @Override
+  public void setGlobalAlpha(
+    final double newAlpha)
+  {
+    this.alpha = newAlpha;
+    this.graphics.setGlobalAlpha(newAlpha);
+  }
+
+  @Override
+  public void setClip(
+    final double x,
+    final double y,
+    final double w,
+    final double h)
+  {
+    this.clearClip();
+
+    final var g = this.graphics;
+    g.save();
+    g.beginPath();
+    g.rect(x, y, w, h);
+    g.closePath();
+    g.clip();
+    this.clipped = true;
+  }
+
+  @Override
+  public void clearClip()
+  {
+    if (this.clipped) {
+      this.clipped = false;
+
+      /*
+       * Restoring the graphics context discards the clip, but also any
+       * attributes set since the clip was established, so those are
+       * reapplied.
+       */
+
+      final var g = this.graphics;
+      g.restore();
+      g.setFill(this.fill);
+      g.setStroke(this.stroke);
+      g.setGlobalAlpha(this.alpha);
+    }
+  }
+
+  @Override
+  public void fillRect(
+    final double x,
+    final double y,
+    final double w,
+    final double h)
+  {
+    this.graphics.fillRect(x, y, w, h);
+  }
+
+  @Override
+  public void strokeRect(
+    final double x,
+    final double y,
+    final double w,
+    final double h)
+  {
+    this.graphics.strokeRect(x, y, w, h);
+  }
+
+  @Override
+  public void strokeLine(
+    final double x0,
+    final double y0,
+    final double x1,
+    final double y1)
+  {
+    this.graphics.strokeLine(x0, y0, x1, y1);
+  }
+
+  @Override
+  public void fillPolygon(
+    final double[] xs,
+    final double[] ys,
+    final int points)
+  {
+    this.graphics.fillPolygon(xs, ys, points);
+  }
+
+  @Override
+  public void strokePolygon(
+    final double[] xs,
+    final double[] ys,
+    final int points)
+  {
+    this.graphics.strokePolygon(xs, ys, points);
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveRenderTaskType;
+
+/**
+ * The type of canvases that render one or more channels of a view.
+ */
+
+public interface WaveCanvasType extends WaveRenderTaskType
+{
+  /**
+   * Schedule a redraw of the canvas.
+   */
+
+  void redraw();
+
+  /**
+   * Discard any column extrema cached by the canvas, so that the next
+   * redraw reads the model again. This is required after a model's samples
+   * have been modified in place. Canvases that cache nothing need not
+   * implement this method.
+   */
+
+  default void invalidateCache()
+  {
+
+  }
+
+  /**
+   * Cancel any pending or in-progress rendering for the canvas.
+   */
+
+  void cancel();
+}
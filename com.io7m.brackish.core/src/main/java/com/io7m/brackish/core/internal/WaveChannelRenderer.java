@@ -0,0 +1,992 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WavePeakSummary;
+import com.io7m.brackish.core.WaveRenderPath;
+import com.io7m.brackish.core.WaveRenderTargetType;
+import com.io7m.jaffirm.core.Invariants;
+import com.io7m.jaffirm.core.Preconditions;
+import javafx.scene.paint.Color;
+import jdk.jfr.EventType;
+
+import java.util.Objects;
+
+/**
+ * <p>A renderer for a single channel.</p>
+ *
+ * <p>
+ * A renderer draws a single channel of a model into a horizontal band of a
+ * render target, and holds the state required to progressively refine
+ * collapsed renderings. The model, view range, and paints are read from a
+ * render source at the start of each rendering.
+ * </p>
+ *
+ * <p>
+ * Collapsed channels are rendered progressively: columns are aggregated
+ * exactly for as long as the given deadline allows, and any remaining
+ * columns are approximated from a sparse stride of frames and then refined
+ * over subsequent pulses until the rendering is exact.
+ * </p>
+ */
+
+public final class WaveChannelRenderer
+{
+  /**
+   * The number of frames sampled for each column when rendering an
+   * approximate column ahead of progressive refinement.
+   */
+
+  private static final double COARSE_FRAMES_PER_COLUMN = 8.0;
+
+  /*
+   * Event objects are only allocated while a recording that enables them is
+   * running, so that rendering allocates nothing in the steady state.
+   */
+
+  private static final EventType RENDER_EVENT =
+    EventType.getEventType(WaveRenderEvent.class);
+  private static final EventType REFINE_EVENT =
+    EventType.getEventType(WaveRefineEvent.class);
+
+  private final WaveRenderSourceType source;
+  private final WaveRenderStatisticsCollector statistics;
+  private final double[] summaryScratch;
+  private final double[] polygonX;
+  private final double[] polygonY;
+  private int channelIndex;
+  private double[] columnMax;
+  private double[] columnMin;
+  private int columnCount;
+  private int columnExact;
+  private boolean refining;
+  private WaveModelType refineModel;
+  private double refineFrameLower;
+  private double refineFramesPerPixel;
+  private double bandY;
+  private double bandWidth;
+  private double bandHeight;
+  private WaveRenderPath statPath;
+  private long statNanos;
+  private long statFramesRead;
+  private long statDrawCommands;
+  private WaveModelType cacheModel;
+  private long cacheLower;
+  private long cacheUpper;
+  private double cacheWidth;
+  private double cacheFramesPerPixel;
+  private int dirtyLower;
+  private int dirtyUpper;
+  private WaveRenderPath cachePath;
+
+  /**
+   * A renderer for a single channel.
+   *
+   * @param inSource       The render source
+   * @param inStatistics   The statistics collector
+   * @param inChannelIndex The channel index
+   */
+
+  public WaveChannelRenderer(
+    final WaveRenderSourceType inSource,
+    final WaveRenderStatisticsCollector inStatistics,
+    final int inChannelIndex)
+  {
+    this.source =
+      Objects.requireNonNull(inSource, "source");
+    this.statistics =
+      Objects.requireNonNull(inStatistics, "statistics");
+    this.channelIndex =
+      inChannelIndex;
+    this.statPath =
+      WaveRenderPath.RENDER_PATH_NONE;
+    this.cachePath =
+      WaveRenderPath.RENDER_PATH_NONE;
+
+    this.columnMax = new double[0];
+    this.columnMin = new double[0];
+    this.summaryScratch = new double[2];
+    this.polygonX = new double[4];
+    this.polygonY = new double[4];
+    this.clearDirtyColumns();
+  }
+
+  /**
+   * @return The index of the rendered channel
+   */
+
+  public int channelIndex()
+  {
+    return this.channelIndex;
+  }
+
+  /**
+   * Set the index of the rendered channel. Any refinement in progress is
+   * abandoned.
+   *
+   * @param index The channel index
+   */
+
+  public void setChannelIndex(
+    final int index)
+  {
+    this.channelIndex = index;
+    this.stopRefining();
+    this.invalidateCache();
+  }
+
+  /**
+   * Discard the cached column extrema, forcing the next collapsed render to
+   * aggregate columns from the model. The cache is keyed on the identity of
+   * the model, and so this is only required if a model's samples are
+   * modified in place.
+   */
+
+  public void invalidateCache()
+  {
+    this.cacheModel = null;
+    this.clearDirtyColumns();
+  }
+
+  private void clearDirtyColumns()
+  {
+    this.dirtyLower = Integer.MAX_VALUE;
+    this.dirtyUpper = -1;
+  }
+
+  /**
+   * Indicate that the samples of the frames {@code [first, last]} have
+   * changed. If the most recent rendering was collapsed, the columns that
+   * depend on those frames are marked as dirty, and can be updated with
+   * {@link #renderDirtyColumns(WaveRenderTargetType)} without re-rendering
+   * the rest of the channel.
+   *
+   * @param first The first changed frame
+   * @param last  The last changed frame
+   *
+   * @return {@code false} if a full rendering is required
+   */
+
+  public boolean invalidateFrames(
+    final long first,
+    final long last)
+  {
+    if (this.cacheModel == null || this.columnCount == 0) {
+      return false;
+    }
+    if (last < this.cacheLower || first > this.cacheUpper || first > last) {
+      return true;
+    }
+
+    /*
+     * Column x interpolates over the positions
+     * [x * framesPerPixel, (x + 1) * framesPerPixel] relative to the
+     * lower frame, and interpolation reads the frames either side of each
+     * position. The mapping is therefore widened by one frame in each
+     * direction.
+     */
+
+    final var fpp = this.cacheFramesPerPixel;
+    final var lower = this.cacheLower;
+    final var maxColumn = this.columnCount - 1;
+    final var x0 =
+      (int) Math.clamp(Math.floor((first - lower - 1) / fpp) - 1.0, 0.0, maxColumn);
+    final var x1 =
+      (int) Math.clamp(Math.floor((last - lower + 1) / fpp), 0.0, maxColumn);
+
+    this.dirtyLower = Math.min(this.dirtyLower, x0);
+    this.dirtyUpper = Math.max(this.dirtyUpper, x1);
+    return true;
+  }
+
+  /**
+   * Re-aggregate the dirty columns without painting them. This is used when
+   * the caller will repaint the channel in full from the aggregated
+   * columns, such as when channels are overlaid.
+   */
+
+  public void aggregateDirtyColumns()
+  {
+    if (!this.hasDirtyColumns()) {
+      return;
+    }
+    this.statFramesRead = 0L;
+    this.aggregateCachedColumns(this.dirtyLower, this.dirtyUpper);
+    this.clearDirtyColumns();
+  }
+
+  private void aggregateCachedColumns(
+    final int from,
+    final int to)
+  {
+    for (int x = from; x <= to; ++x) {
+      this.statFramesRead += WaveColumnAggregation.aggregateColumn(
+        this.cacheModel,
+        this.channelIndex,
+        (double) this.cacheLower,
+        this.cacheFramesPerPixel,
+        1.0,
+        x,
+        this.columnMax,
+        this.columnMin
+      );
+    }
+  }
+
+  /*
+   * Mark any columns that were drawn as placeholders as dirty, so that they
+   * are aggregated again if their frames have since become available.
+   */
+
+  private void markPlaceholderColumnsDirty()
+  {
+    for (int x = 0; x < this.columnCount; ++x) {
+      if (Double.isNaN(this.columnMax[x])) {
+        this.dirtyLower = Math.min(this.dirtyLower, x);
+        this.dirtyUpper = Math.max(this.dirtyUpper, x);
+      }
+    }
+  }
+
+  /**
+   * @return {@code true} if any columns are marked as dirty
+   */
+
+  public boolean hasDirtyColumns()
+  {
+    return this.dirtyLower <= this.dirtyUpper;
+  }
+
+  /**
+   * Re-aggregate and repaint only the dirty columns, clearing each dirty
+   * column to the background first.
+   *
+   * @param g The render target
+   */
+
+  public void renderDirtyColumns(
+    final WaveRenderTargetType g)
+  {
+    if (!this.hasDirtyColumns()) {
+      return;
+    }
+
+    final var timeThen = System.nanoTime();
+    final var from = this.dirtyLower;
+    final var to = this.dirtyUpper;
+    this.clearDirtyColumns();
+
+    this.statFramesRead = 0L;
+    this.statDrawCommands = 0L;
+    this.statNanos = 0L;
+    this.aggregateCachedColumns(from, to);
+
+    final var width = (double) (to - from + 1);
+    g.setFill(this.source.background());
+    g.fillRect(from, this.bandY, width, this.bandHeight);
+    this.plotColumns(g, from, to + 1);
+    ++this.statDrawCommands;
+
+    this.statNanos += System.nanoTime() - timeThen;
+    this.statistics.recordRender();
+    this.publishStatistics();
+  }
+
+  /**
+   * @return {@code true} if the most recent rendering is approximate and
+   * is being refined
+   */
+
+  public boolean isRefining()
+  {
+    return this.refining;
+  }
+
+  /**
+   * Abandon any refinement in progress.
+   */
+
+  public void cancel()
+  {
+    this.stopRefining();
+  }
+
+  /**
+   * Render the channel into the band {@code [y, y + h)} of the given
+   * render target. The band is assumed to have already been filled with
+   * the background color.
+   *
+   * @param g        The render target
+   * @param y        The top of the band
+   * @param w        The width of the band
+   * @param h        The height of the band
+   * @param deadline The deadline for exact aggregation, in terms of
+   *                 {@link System#nanoTime()}
+   */
+
+  public void render(
+    final WaveRenderTargetType g,
+    final double y,
+    final double w,
+    final double h,
+    final long deadline)
+  {
+    final var event =
+      RENDER_EVENT.isEnabled() ? new WaveRenderEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+
+    final var timeThen = System.nanoTime();
+    this.statPath = WaveRenderPath.RENDER_PATH_NONE;
+    this.statNanos = 0L;
+    this.statFramesRead = 0L;
+    this.statDrawCommands = 0L;
+
+    this.renderPath(g, y, w, h, deadline);
+
+    this.statNanos += System.nanoTime() - timeThen;
+    this.statistics.recordRender();
+    this.publishStatistics();
+
+    if (event != null) {
+      this.commitRenderEvent(event, w);
+    }
+  }
+
+  private void commitRenderEvent(
+    final WaveRenderEvent event,
+    final double w)
+  {
+    event.end();
+    if (event.shouldCommit()) {
+      event.setChannel(this.channelIndex);
+      event.setViewLower(this.source.viewLower());
+      event.setViewUpper(this.source.viewUpper());
+      event.setWidth(w);
+      event.setMode(this.statPath.name());
+      event.setFramesRead(this.statFramesRead);
+      event.setDrawCommands(this.statDrawCommands);
+      event.setExact(!this.refining);
+      event.setColumnBytes(2L * Double.BYTES * this.columnMax.length);
+      event.commit();
+    }
+  }
+
+  private void publishStatistics()
+  {
+    this.statistics.recordChannel(
+      this.channelIndex,
+      this.statPath,
+      !this.refining,
+      this.statNanos,
+      this.statFramesRead,
+      this.statDrawCommands
+    );
+  }
+
+  private void renderPath(
+    final WaveRenderTargetType g,
+    final double y,
+    final double w,
+    final double h,
+    final long deadline)
+  {
+    final var model =
+      this.source.model();
+    final var lower =
+      this.source.viewLower();
+    final var upper =
+      this.source.viewUpper();
+
+    this.stopRefining();
+    this.columnCount = 0;
+    this.bandY = y;
+    this.bandWidth = w;
+    this.bandHeight = h;
+
+    /*
+     * If the number of frames in the view range is greater than the width
+     * of the canvas, then this means that we will have more waveform frames
+     * than will fit on the canvas. This implies that we need to render in
+     * "collapsed" form; multiple waveform frames will be combined to form
+     * a single sample on the canvas.
+     *
+     * Otherwise, the number of available pixels is greater than or equal
+     * to the number of waveform frames. This implies that each frame in
+     * the waveform will take up one or more pixels onscreen, hence rendering
+     * in "expanded" form.
+     */
+
+    final var interval = (upper - lower) + 1L;
+    if (interval <= 1L) {
+      return;
+    }
+
+    if (interval > w) {
+      this.renderCollapsed(g, model, lower, upper, deadline);
+    } else {
+      this.invalidateCache();
+      this.renderExpanded(g, model, lower, upper);
+    }
+  }
+
+  private void renderCollapsed(
+    final WaveRenderTargetType g,
+    final WaveModelType model,
+    final long lower,
+    final long upper,
+    final long deadline)
+  {
+    final var w =
+      this.bandWidth;
+    final var maxFrames =
+      (upper - lower) + 1L;
+
+    Preconditions.checkPreconditionL(
+      maxFrames,
+      maxFrames > w,
+      x -> "Frame count %d must be greater than the view width".formatted(x)
+    );
+
+    final var framesPerPixel =
+      (double) maxFrames / w;
+
+    Invariants.checkInvariantD(
+      framesPerPixel,
+      x -> x >= 1,
+      x -> "Frames per pixel must be >= 1"
+    );
+
+    final var columns = (int) Math.ceil(w);
+    if (this.columnMax.length < columns) {
+      this.columnMax = new double[columns];
+      this.columnMin = new double[columns];
+    }
+
+    this.columnCount = columns;
+
+    /*
+     * The column extrema depend only on the model, the channel, the view
+     * range, and the width. If none of those have changed since the last
+     * collapsed render (the height, the paints, or nothing at all may have
+     * changed), the columns are re-plotted without touching the model.
+     * Columns that were still approximate continue to be refined. Explicit
+     * redraws requested by the application discard the cache first with
+     * invalidateCache(), as the samples may have been modified in place.
+     */
+
+    if (this.cacheMatches(model, lower, upper, w)) {
+      this.statistics.recordCacheHit();
+      this.statPath = this.cachePath;
+      this.markPlaceholderColumnsDirty();
+      if (this.hasDirtyColumns()) {
+        this.aggregateCachedColumns(this.dirtyLower, this.dirtyUpper);
+        this.clearDirtyColumns();
+      }
+      if (this.columnExact < columns) {
+        this.refineModel = model;
+        this.refineFrameLower = (double) lower;
+        this.refineFramesPerPixel = framesPerPixel;
+      }
+      this.paint(g);
+      this.refining = this.columnExact < columns;
+      return;
+    }
+
+    this.statistics.recordCacheMiss();
+    this.cacheModel = model;
+    this.cacheLower = lower;
+    this.cacheUpper = upper;
+    this.cacheWidth = w;
+    this.cacheFramesPerPixel = framesPerPixel;
+    this.clearDirtyColumns();
+
+    final var summaryOpt = model.peakSummary();
+    if (summaryOpt.isPresent()) {
+      final var summary = summaryOpt.get();
+      if (framesPerPixel >= summary.blockSize()
+          && this.channelIndex < summary.channelCount()) {
+        this.renderCollapsedSummary(g, summary, lower, framesPerPixel);
+        this.cachePath = this.statPath;
+        return;
+      }
+    }
+
+    this.statPath = WaveRenderPath.RENDER_PATH_COLLAPSED;
+    this.cachePath = this.statPath;
+    this.refineModel = model;
+    this.refineFrameLower = (double) lower;
+    this.refineFramesPerPixel = framesPerPixel;
+    this.columnExact = 0;
+
+    /*
+     * Aggregate exact columns for as long as the frame budget allows. Any
+     * columns that could not be completed in time are given a coarse
+     * approximation that samples a bounded number of frames per column, and
+     * are then refined over the following pulses.
+     */
+
+    this.aggregateExactColumns(deadline);
+
+    final var stride =
+      Math.max(1.0, Math.floor(framesPerPixel / COARSE_FRAMES_PER_COLUMN));
+
+    for (int x = this.columnExact; x < columns; ++x) {
+      this.aggregateColumn(x, stride);
+    }
+
+    this.paint(g);
+
+    this.refining = this.columnExact < columns;
+  }
+
+  private boolean cacheMatches(
+    final WaveModelType model,
+    final long lower,
+    final long upper,
+    final double w)
+  {
+    return this.cacheModel == model
+           && this.cacheLower == lower
+           && this.cacheUpper == upper
+           && this.cacheWidth == w;
+  }
+
+  private void renderCollapsedSummary(
+    final WaveRenderTargetType g,
+    final WavePeakSummary summary,
+    final long viewLower,
+    final double framesPerPixel)
+  {
+    final var columns = this.columnCount;
+    final var lower = (double) viewLower;
+
+    this.statPath = WaveRenderPath.RENDER_PATH_COLLAPSED_SUMMARY;
+    this.columnExact = columns;
+
+    for (int x = 0; x < columns; ++x) {
+      this.statFramesRead += WaveColumnAggregation.aggregateColumnSummary(
+        summary,
+        this.channelIndex,
+        lower,
+        framesPerPixel,
+        x,
+        this.columnMax,
+        this.columnMin,
+        this.summaryScratch
+      );
+    }
+
+    this.paint(g);
+  }
+
+  private void aggregateExactColumns(
+    final long deadline)
+  {
+    while (this.columnExact < this.columnCount) {
+      this.aggregateColumn(this.columnExact, 1.0);
+      ++this.columnExact;
+      if (System.nanoTime() >= deadline) {
+        break;
+      }
+    }
+  }
+
+  private void aggregateColumn(
+    final int x,
+    final double stride)
+  {
+    this.statFramesRead += WaveColumnAggregation.aggregateColumn(
+      this.refineModel,
+      this.channelIndex,
+      this.refineFrameLower,
+      this.refineFramesPerPixel,
+      stride,
+      x,
+      this.columnMax,
+      this.columnMin
+    );
+  }
+
+  /**
+   * Paint the most recently aggregated columns into the band that was most
+   * recently rendered. This has no effect unless the channel is (or was
+   * most recently) rendered in collapsed form.
+   *
+   * @param g The render target
+   */
+
+  public void paint(
+    final WaveRenderTargetType g)
+  {
+    if (this.columnCount == 0) {
+      return;
+    }
+
+    final var timeThen = System.nanoTime();
+    this.plotColumns(g, 0, this.columnCount);
+    this.statNanos += System.nanoTime() - timeThen;
+    this.publishStatistics();
+  }
+
+  /*
+   * Plot the center line and the columns [from, to) of the band.
+   */
+
+  private void plotColumns(
+    final WaveRenderTargetType g,
+    final int from,
+    final int to)
+  {
+    final var halfHeight = this.bandHeight / 2.0;
+    final var centerY = this.bandY + halfHeight;
+
+    g.setStroke(this.source.centerLine());
+    g.strokeLine(from, centerY, Math.min(to, this.bandWidth), centerY);
+
+    final var fill = this.source.collapsedSampleFill();
+    g.setFill(fill);
+
+    for (int x = from; x < to; ++x) {
+      final var max = this.columnMax[x];
+      if (Double.isNaN(max)) {
+        g.setFill(this.source.placeholderFill());
+        g.fillRect(x, this.bandY, 1.0, this.bandHeight);
+        g.setFill(fill);
+        this.statDrawCommands += 1L;
+        continue;
+      }
+
+      final var yTop =
+        max * -halfHeight;
+      final var yBottom =
+        this.columnMin[x] * halfHeight;
+
+      g.fillRect(x, centerY + yTop, 1.0, Math.abs(yTop));
+      g.fillRect(x, centerY, 1.0, Math.abs(yBottom));
+      this.statDrawCommands += 2L;
+    }
+
+    this.statDrawCommands += 1L;
+    this.plotClippedColumns(g, from, to);
+  }
+
+  /*
+   * Highlight the columns [from, to) that contain clipped samples, if the
+   * model has a statistics index and the clip fill is not transparent.
+   *
+   * Columns whose extrema were aggregated from every frame of the column
+   * compare those extrema with the clip level of the index, which is
+   * exact. Columns whose extrema are still approximate (because they are
+   * awaiting refinement) or were taken from a peak summary query the index
+   * instead, at a cost of one constant-time query per column, so that a
+   * clipped sample is never missed. The index counts clipped samples in
+   * whole blocks, and so such a column is also highlighted if it merely
+   * shares a block with a clipped sample: when columns are wider than a
+   * block, this lights at most the one neighbouring column, and when they
+   * are narrower, it lights the columns of the whole block until they are
+   * refined. Views paint every column again once refinement completes.
+   */
+
+  private void plotClippedColumns(
+    final WaveRenderTargetType g,
+    final int from,
+    final int to)
+  {
+    final var fill = this.source.clipFill();
+    if (fill instanceof final Color color && color.getOpacity() == 0.0) {
+      return;
+    }
+    if (this.cacheModel == null) {
+      return;
+    }
+    final var indexOpt = this.cacheModel.statisticsIndex();
+    if (indexOpt.isEmpty()) {
+      return;
+    }
+    final var index = indexOpt.get();
+    if (this.channelIndex >= index.channelCount()) {
+      return;
+    }
+
+    g.setFill(fill);
+    final var lower = (double) this.cacheLower;
+    final var fpp = this.cacheFramesPerPixel;
+    final var clip = index.clipLevel();
+    final var exact = this.columnsAggregatedFromFrames();
+
+    for (int x = from; x < to; ++x) {
+      final boolean clipped;
+      if (x < exact) {
+        clipped = this.columnMax[x] >= clip || this.columnMin[x] <= -clip;
+      } else {
+        final var first = (long) Math.floor(lower + (x * fpp));
+        final var last = (long) Math.ceil(lower + ((x + 1) * fpp));
+        clipped = index.clippedSamples(this.channelIndex, first, last) > 0L;
+      }
+      if (clipped) {
+        g.fillRect(x, this.bandY, 1.0, this.bandHeight);
+        this.statDrawCommands += 1L;
+      }
+    }
+  }
+
+  /*
+   * The number of leading columns whose extrema were aggregated from
+   * every frame of the column.
+   */
+
+  private int columnsAggregatedFromFrames()
+  {
+    if (this.statPath == WaveRenderPath.RENDER_PATH_COLLAPSED_SUMMARY) {
+      return 0;
+    }
+    return this.columnExact;
+  }
+
+  /**
+   * Continue refining approximate columns until the given deadline.
+   *
+   * @param deadline The deadline, in terms of {@link System#nanoTime()}
+   */
+
+  public void refine(
+    final long deadline)
+  {
+    final var event =
+      REFINE_EVENT.isEnabled() ? new WaveRefineEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+
+    final var timeThen = System.nanoTime();
+    final var exactThen = this.columnExact;
+    final var lowerThen = (long) this.refineFrameLower;
+    this.aggregateExactColumns(deadline);
+
+    final var exactNow = this.columnExact;
+    if (exactNow >= this.columnCount) {
+      this.stopRefining();
+    }
+    this.statNanos += System.nanoTime() - timeThen;
+    this.statistics.recordRefinement();
+    this.publishStatistics();
+
+    if (event == null) {
+      return;
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.setChannel(this.channelIndex);
+      event.setViewLower(lowerThen);
+      event.setWidth(this.bandWidth);
+      event.setColumnsRefined(exactNow - exactThen);
+      event.setColumnsRemaining(this.columnCount - exactNow);
+      event.commit();
+    }
+  }
+
+  private void stopRefining()
+  {
+    this.refining = false;
+    this.refineModel = null;
+  }
+
+  private void renderExpanded(
+    final WaveRenderTargetType g,
+    final WaveModelType model,
+    final long lower,
+    final long upper)
+  {
+    switch (this.source.renderStyle()) {
+      case WAVE_INTERPOLATE_LINEAR -> {
+        this.statPath = WaveRenderPath.RENDER_PATH_EXPANDED_LINEAR;
+        this.renderExpandedLinear(g, model, lower, upper);
+      }
+      case WAVE_BOXES -> {
+        this.statPath = WaveRenderPath.RENDER_PATH_EXPANDED_BOXES;
+        this.renderExpandedBoxes(g, model, lower, upper);
+      }
+    }
+  }
+
+  private void renderExpandedBoxes(
+    final WaveRenderTargetType g,
+    final WaveModelType model,
+    final long lower,
+    final long upper)
+  {
+    final var w = this.bandWidth;
+    final var h = this.bandHeight;
+
+    final var pixelsPerFrame =
+      w / (double) ((upper - lower) + 1L);
+
+    Invariants.checkInvariantD(
+      pixelsPerFrame,
+      x -> x >= 1,
+      x -> "Pixels per frame must be >= 1"
+    );
+
+    final var halfHeight = h / 2.0;
+    final var centerY = this.bandY + halfHeight;
+
+    g.setStroke(this.source.centerLine());
+    g.strokeLine(0.0, centerY, w, centerY);
+
+    g.setStroke(this.source.expandedSampleStroke());
+    g.setFill(this.source.expandedSampleFill());
+    this.statDrawCommands += 1L;
+
+    for (double x = 0; x < w; x += pixelsPerFrame) {
+      final var position =
+        x / w;
+      final var p0 =
+        lower * (1 - position);
+      final var p1 =
+        upper * position;
+      final var frameIndex =
+        p0 + p1;
+
+      if (this.placeholderFrames(g, model, frameIndex, x, pixelsPerFrame)) {
+        continue;
+      }
+
+      final var s0 =
+        model.sampleLerp(this.channelIndex, frameIndex);
+      final var height =
+        Math.abs(s0 * halfHeight);
+
+      if (s0 > 0.0) {
+        final var y0 = centerY + (s0 * -halfHeight);
+        g.fillRect(x, y0, pixelsPerFrame, height);
+        g.strokeRect(x, y0, pixelsPerFrame, height);
+      } else {
+        g.fillRect(x, centerY, pixelsPerFrame, height);
+        g.strokeRect(x, centerY, pixelsPerFrame, height);
+      }
+
+      this.statFramesRead += 2L;
+      this.statDrawCommands += 2L;
+    }
+  }
+
+  private void renderExpandedLinear(
+    final WaveRenderTargetType g,
+    final WaveModelType model,
+    final long lower,
+    final long upper)
+  {
+    final var w = this.bandWidth;
+    final var h = this.bandHeight;
+
+    final var pixelsPerFrame =
+      w / (double) ((upper - lower) + 1L);
+
+    Invariants.checkInvariantD(
+      pixelsPerFrame,
+      x -> x >= 1,
+      x -> "Pixels per frame must be >= 1"
+    );
+
+    final var halfHeight = h / 2.0;
+    final var centerY = this.bandY + halfHeight;
+
+    g.setStroke(this.source.centerLine());
+    g.strokeLine(0.0, centerY, w, centerY);
+
+    g.setStroke(this.source.expandedSampleStroke());
+    g.setFill(this.source.expandedSampleFill());
+    this.statDrawCommands += 1L;
+
+    final var polyPointsX = this.polygonX;
+    final var polyPointsY = this.polygonY;
+
+    for (double x = 0; x < w; x += pixelsPerFrame) {
+      final var position =
+        x / w;
+      final var p0 =
+        lower * (1 - position);
+      final var p1 =
+        upper * position;
+      final var frameIndex =
+        p0 + p1;
+
+      final var frameIndex0 =
+        (long) Math.floor(frameIndex);
+      final var frameIndex1 =
+        (long) Math.ceil(frameIndex);
+
+      if (this.placeholderFrames(g, model, frameIndex, x, pixelsPerFrame)) {
+        continue;
+      }
+
+      final var s0 =
+        model.sampleOrDefault(this.channelIndex, frameIndex0, 0.0);
+      final var s1 =
+        model.sampleOrDefault(this.channelIndex, frameIndex1, 0.0);
+
+      polyPointsX[0] = x;
+      polyPointsX[1] = x;
+      polyPointsX[2] = x + pixelsPerFrame;
+      polyPointsX[3] = x + pixelsPerFrame;
+
+      polyPointsY[0] = centerY;
+      polyPointsY[1] = centerY + (s0 * -halfHeight);
+      polyPointsY[2] = centerY + (s1 * -halfHeight);
+      polyPointsY[3] = centerY;
+
+      g.fillPolygon(polyPointsX, polyPointsY, 4);
+      g.strokePolygon(polyPointsX, polyPointsY, 4);
+
+      this.statFramesRead += 2L;
+      this.statDrawCommands += 2L;
+    }
+  }
+
+  /*
+   * Draw a placeholder over the frames either side of the given position if
+   * they are not yet available, restoring the expanded paints afterwards.
+   */
+
+  private boolean placeholderFrames(
+    final WaveRenderTargetType g,
+    final WaveModelType model,
+    final double frameIndex,
+    final double x,
+    final double pixelsPerFrame)
+  {
+    final var available = model.isAvailable(
+      this.channelIndex,
+      (long) Math.floor(frameIndex),
+      (long) Math.ceil(frameIndex)
+    );
+    if (available) {
+      return false;
+    }
+
+    g.setFill(this.source.placeholderFill());
+    g.fillRect(x, this.bandY, pixelsPerFrame, this.bandHeight);
+    g.setFill(this.source.expandedSampleFill());
+    this.statDrawCommands += 1L;
+    return true;
+  }
+}
@@ -17,40 +17,98 @@
 
 package com.io7m.brackish.core.internal;
 
-import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WaveRenderPriority;
 import com.io7m.brackish.core.WaveView;
-import com.io7m.jaffirm.core.Invariants;
-import com.io7m.jaffirm.core.Preconditions;
-import com.io7m.jranges.RangeInclusiveL;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 
 import java.util.Objects;
 
 /**
- * A view of a single channel.
+ * <p>A view of a single channel.</p>
+ *
+ * <p>
+ * Views never render directly; all rendering is executed as a task on the
+ * parent view's render scheduler.
+ * </p>
  */
 
 public final class WaveChannelView extends Canvas
+  implements WaveCanvasType
 {
-  private final int channelIndex;
   private final WaveView waveView;
+  private final WaveRenderStatisticsCollector statistics;
+  private final WaveChannelRenderer renderer;
+  private final WaveCanvasRenderTarget target;
+  private final WaveResizePreview preview;
+  private boolean dirty;
 
   /**
    * A view of a single channel.
    *
    * @param inView         The parent wave view
+   * @param inStatistics   The statistics collector
    * @param inChannelIndex The channel index of this view
    */
 
   public WaveChannelView(
     final WaveView inView,
+    final WaveRenderStatisticsCollector inStatistics,
     final int inChannelIndex)
   {
     this.waveView =
       Objects.requireNonNull(inView, "waveModel");
-    this.channelIndex =
-      inChannelIndex;
+    this.statistics =
+      Objects.requireNonNull(inStatistics, "statistics");
+    this.renderer =
+      new WaveChannelRenderer(
+        new WaveViewRenderSource(inView),
+        inStatistics,
+        inChannelIndex
+      );
+    this.target =
+      new WaveCanvasRenderTarget(this);
+    this.preview =
+      new WaveResizePreview(this, this::redraw);
+  }
+
+  static boolean isShowing(
+    final Canvas canvas,
+    final WaveView waveView)
+  {
+    /*
+     * The view's effective visibility accounts for hidden ancestors, empty
+     * sizes, and hidden or iconified windows. A canvas that has been
+     * detached from the view's scene (such as a recycled virtualized
+     * channel) is never showing.
+     */
+
+    if (canvas.getScene() == null) {
+      return false;
+    }
+    return waveView.isEffectivelyVisible();
+  }
+
+  static WaveRenderPriority priorityOf(
+    final Canvas canvas,
+    final WaveView waveView)
+  {
+    if (!isShowing(canvas, waveView)) {
+      return WaveRenderPriority.RENDER_PRIORITY_BACKGROUND;
+    }
+    if (waveView.isFocusWithin()) {
+      return WaveRenderPriority.RENDER_PRIORITY_FOCUSED;
+    }
+    return WaveRenderPriority.RENDER_PRIORITY_VISIBLE;
+  }
+
+  static long frameBudgetDeadline(
+    final WaveView waveView,
+    final long deadline)
+  {
+    return Math.min(
+      deadline,
+      System.nanoTime() + waveView.renderFrameBudget().toNanos()
+    );
   }
 
   @Override
@@ -92,262 +150,161 @@ public final class WaveChannelView extends Canvas
     final double width,
     final double height)
   {
+    if (width == this.getWidth() && height == this.getHeight()) {
+      return;
+    }
+
+    final var previewing =
+      this.waveView.isEffectivelyVisible()
+      && this.preview.begin(this.waveView.resizeSettleDelay());
+
     this.setWidth(width);
     this.setHeight(height);
-    this.render(this.getGraphicsContext2D());
-  }
 
-  private void render(
-    final GraphicsContext g)
-  {
-    final var model =
-      this.waveView.model();
-    final var viewRange =
-      this.waveView.viewRange();
+    if (previewing) {
+      this.cancelRendering();
+      this.preview.paint(this.waveView.waveformBackgroundColor());
+    } else {
+      this.redraw();
+    }
+  }
 
-    final var w = this.getWidth();
-    final var h = this.getHeight();
+  /**
+   * @return The index of the channel displayed by this view
+   */
 
-    g.setFill(this.waveView.waveformBackgroundColor());
-    g.fillRect(0, 0, w, h);
+  public int channelIndex()
+  {
+    return this.renderer.channelIndex();
+  }
 
-    /*
-     * If the number of frames in the view range is greater than the width
-     * of the canvas, then this means that we will have more waveform frames
-     * than will fit on the canvas. This implies that we need to render in
-     * "collapsed" form; multiple waveform frames will be combined to form
-     * a single sample on the canvas.
-     *
-     * Otherwise, the number of available pixels is greater than or equal
-     * to the number of waveform frames. This implies that each frame in
-     * the waveform will take up one or more pixels onscreen, hence rendering
-     * in "expanded" form.
-     */
+  /**
+   * Set the index of the channel displayed by this view. The view is
+   * redrawn if the index changes.
+   *
+   * @param index The channel index
+   */
 
-    final var interval = viewRange.interval();
-    if (interval <= 1L) {
-      return;
+  public void setChannelIndex(
+    final int index)
+  {
+    if (index != this.renderer.channelIndex()) {
+      this.renderer.setChannelIndex(index);
+      this.redraw();
     }
+  }
 
-    if (interval > w) {
-      this.renderCollapsed(g, model, viewRange);
-    } else {
-      this.renderExpanded(g, model, viewRange);
-    }
+  @Override
+  public WaveRenderPriority renderPriority()
+  {
+    return priorityOf(this, this.waveView);
   }
 
-  private void renderCollapsed(
-    final GraphicsContext g,
-    final WaveModelType model,
-    final RangeInclusiveL viewRange)
+  @Override
+  public boolean renderExecute(
+    final long deadline)
   {
+    final var g =
+      this.target;
+    final var budgetDeadline =
+      frameBudgetDeadline(this.waveView, deadline);
     final var w =
       this.getWidth();
     final var h =
       this.getHeight();
-    final var maxFrames =
-      viewRange.interval();
-
-    Preconditions.checkPreconditionV(
-      maxFrames > w,
-      "Frame count %s must be greater than view width %s"
-        .formatted(maxFrames, w)
-    );
 
-    final var framesPerPixel =
-      (double) viewRange.interval() / w;
-
-    Invariants.checkInvariantD(
-      framesPerPixel,
-      x -> x >= 1,
-      x -> "Frames per pixel must be >= 1"
-    );
-
-    final var halfHeight = h / 2.0;
-
-    try {
-      g.save();
-      g.translate(0, halfHeight);
-      g.setStroke(this.waveView.waveformCenterLineColor());
-      g.strokeLine(0, 0.0, w, 0.0);
-
-      g.setFill(this.waveView.waveformCollapsedSampleFill());
-
-      for (double x = 0; x < w; ++x) {
-        final var frameIndex =
-          (double) viewRange.lower() + (x * framesPerPixel);
-
-        var sampleMax = 0.0;
-        var sampleMin = 0.0;
-
-        for (double k = 0.0; k <= framesPerPixel; ++k) {
-          final var sample =
-            model.sampleLerp(this.channelIndex, frameIndex + k);
-          sampleMax = Math.max(sampleMax, sample);
-          sampleMin = Math.min(sampleMin, sample);
-        }
-
-        final var yTop =
-          sampleMax * -halfHeight;
-        final var yBottom =
-          sampleMin * halfHeight;
-
-        g.fillRect(x, yTop, 1.0, Math.abs(yTop));
-        g.fillRect(x, 0.0, 1.0, Math.abs(yBottom));
+    if (this.dirty) {
+      this.dirty = false;
+      g.setFill(this.waveView.waveformBackgroundColor());
+      g.fillRect(0, 0, w, h);
+      this.renderer.render(g, 0.0, w, h, budgetDeadline);
+      this.preview.markRendered();
+    } else {
+      this.renderer.renderDirtyColumns(g);
+      if (this.renderer.isRefining()) {
+        this.renderer.refine(budgetDeadline);
+        g.setFill(this.waveView.waveformBackgroundColor());
+        g.fillRect(0, 0, w, h);
+        this.renderer.paint(g);
       }
-
-    } finally {
-      g.restore();
     }
+    return this.dirty || this.renderer.isRefining();
   }
 
-  private void renderExpanded(
-    final GraphicsContext g,
-    final WaveModelType model,
-    final RangeInclusiveL viewRange)
+  @Override
+  public void redraw()
   {
-    switch (this.waveView.renderStyle()) {
-      case WAVE_INTERPOLATE_LINEAR -> {
-        this.renderExpandedLinear(g, model, viewRange);
-      }
-      case WAVE_BOXES -> {
-        this.renderExpandedBoxes(g, model, viewRange);
-      }
+    /*
+     * Nothing is drawn while the parent view is hidden, so that hidden
+     * canvases do not accumulate drawing commands. The parent view redraws
+     * every canvas once when it becomes visible again.
+     */
+
+    if (!this.waveView.isEffectivelyVisible()) {
+      return;
     }
+    this.preview.cancel();
+    if (this.dirty) {
+      this.statistics.recordDropped();
+    }
+    this.dirty = true;
+    this.waveView.renderScheduler().schedule(this);
   }
 
-  private void renderExpandedBoxes(
-    final GraphicsContext g,
-    final WaveModelType model,
-    final RangeInclusiveL viewRange)
+  @Override
+  public void invalidateCache()
   {
-    final var w = this.getWidth();
-    final var h = this.getHeight();
+    this.renderer.invalidateCache();
+  }
 
-    final var pixelsPerFrame =
-      w / (double) viewRange.interval();
+  /**
+   * Redraw only the columns that depend on the frames {@code [first, last]}.
+   * If the channel cannot be partially redrawn, it is redrawn in full.
+   *
+   * @param first The first changed frame
+   * @param last  The last changed frame
+   */
 
-    Invariants.checkInvariantD(
-      pixelsPerFrame,
-      x -> x >= 1,
-      x -> "Pixels per frame must be >= 1"
-    );
+  public void redrawFrames(
+    final long first,
+    final long last)
+  {
+    /*
+     * The changed columns are always merged into the dirty columns, even
+     * if the view is hidden or a full render is already pending: a full
+     * render whose cached columns are still valid re-aggregates only the
+     * dirty columns, and would otherwise show the old samples.
+     */
 
-    try {
-      final var halfHeight = h / 2.0;
-
-      g.save();
-      g.translate(0, halfHeight);
-      g.setStroke(this.waveView.waveformCenterLineColor());
-      g.strokeLine(0, 0.0, w, 0.0);
-
-      g.setStroke(this.waveView.waveformExpandedSampleStroke());
-      g.setFill(this.waveView.waveformExpandedSampleFill());
-
-      for (double x = 0; x < w; x += pixelsPerFrame) {
-        final var position =
-          x / w;
-        final var p0 =
-          viewRange.lower() * (1 - position);
-        final var p1 =
-          viewRange.upper() * position;
-        final var frameIndex =
-          p0 + p1;
-
-        final var s0 =
-          model.sampleLerp(this.channelIndex, frameIndex);
-        final var height =
-          Math.abs(s0 * halfHeight);
-
-        if (s0 > 0.0) {
-          final var y0 = s0 * -halfHeight;
-          g.fillRect(x, y0, pixelsPerFrame, height);
-          g.strokeRect(x, y0, pixelsPerFrame, height);
-        } else {
-          g.fillRect(x, 0.0, pixelsPerFrame, height);
-          g.strokeRect(x, 0.0, pixelsPerFrame, height);
-        }
-      }
-    } finally {
-      g.restore();
+    if (!this.renderer.invalidateFrames(first, last)) {
+      this.redraw();
+      return;
+    }
+    if (!this.waveView.isEffectivelyVisible() || this.dirty) {
+      return;
+    }
+    if (this.renderer.hasDirtyColumns()) {
+      this.waveView.renderScheduler().schedule(this);
     }
   }
 
-  private void renderExpandedLinear(
-    final GraphicsContext g,
-    final WaveModelType model,
-    final RangeInclusiveL viewRange)
+  @Override
+  public void renderDeferred()
   {
-    final var w = this.getWidth();
-    final var h = this.getHeight();
-
-    final var pixelsPerFrame =
-      w / (double) viewRange.interval();
-
-    Invariants.checkInvariantD(
-      pixelsPerFrame,
-      x -> x >= 1,
-      x -> "Pixels per frame must be >= 1"
-    );
-
-    try {
-      final var halfHeight = h / 2.0;
-
-      g.save();
-      g.translate(0, halfHeight);
-      g.setStroke(this.waveView.waveformCenterLineColor());
-      g.strokeLine(0, 0.0, w, 0.0);
-
-      g.setStroke(this.waveView.waveformExpandedSampleStroke());
-      g.setFill(this.waveView.waveformExpandedSampleFill());
-
-      final var polyPointsX = new double[4];
-      final var polyPointsY = new double[4];
-
-      for (double x = 0; x < w; x += pixelsPerFrame) {
-        final var position =
-          x / w;
-        final var p0 =
-          viewRange.lower() * (1 - position);
-        final var p1 =
-          viewRange.upper() * position;
-        final var frameIndex =
-          p0 + p1;
-
-        final var frameIndex0 =
-          (long) Math.floor(frameIndex);
-        final var frameIndex1 =
-          (long) Math.ceil(frameIndex);
-
-        final var s0 =
-          model.sampleOrDefault(this.channelIndex, frameIndex0, 0.0);
-        final var s1 =
-          model.sampleOrDefault(this.channelIndex, frameIndex1, 0.0);
-
-        polyPointsX[0] = x;
-        polyPointsX[1] = x;
-        polyPointsX[2] = x + pixelsPerFrame;
-        polyPointsX[3] = x + pixelsPerFrame;
-
-        polyPointsY[0] = 0.0;
-        polyPointsY[1] = s0 * -halfHeight;
-        polyPointsY[2] = s1 * -halfHeight;
-        polyPointsY[3] = 0.0;
-
-        g.fillPolygon(polyPointsX, polyPointsY, 4);
-        g.strokePolygon(polyPointsX, polyPointsY, 4);
-      }
-    } finally {
-      g.restore();
-    }
+    this.statistics.recordDeferred();
   }
 
-  /**
-   * Redraw the view now.
-   */
+  @Override
+  public void cancel()
+  {
+    this.preview.cancel();
+    this.cancelRendering();
+  }
 
-  public void redraw()
+  private void cancelRendering()
   {
-    this.render(this.getGraphicsContext2D());
+    this.dirty = false;
+    this.renderer.cancel();
+    this.waveView.renderScheduler().cancel(this);
   }
 }
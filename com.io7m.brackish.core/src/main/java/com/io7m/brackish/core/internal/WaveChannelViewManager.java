@@ -0,0 +1,348 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveLayoutMode;
+import com.io7m.brackish.core.WaveView;
+import javafx.scene.Node;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Rectangle;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * <p>The manager of the channel views of a view.</p>
+ *
+ * <p>
+ * The manager creates, reuses, and discards the channel views that are
+ * children of a view. Views that are no longer needed are returned to a
+ * pool and reused when a view for another channel is required, so that
+ * model swaps and scrolling through virtualized layouts do not churn the
+ * scene graph.
+ * </p>
+ *
+ * <p>
+ * In virtualized layouts, vertical scroll events over the view adjust the
+ * channel scroll offset, so that every channel can be reached without the
+ * host providing a scroll bar.
+ * </p>
+ */
+
+public final class WaveChannelViewManager
+{
+  private final WaveView view;
+  private final WaveRenderStatisticsCollector statistics;
+  private final ArrayDeque<WaveChannelView> pool;
+  private final BitSet present;
+  private final Rectangle virtualClip;
+
+  /**
+   * The manager of the channel views of a view.
+   *
+   * @param inView       The parent wave view
+   * @param inStatistics The statistics collector
+   */
+
+  public WaveChannelViewManager(
+    final WaveView inView,
+    final WaveRenderStatisticsCollector inStatistics)
+  {
+    this.view =
+      Objects.requireNonNull(inView, "view");
+    this.statistics =
+      Objects.requireNonNull(inStatistics, "statistics");
+    this.pool =
+      new ArrayDeque<>();
+    this.present =
+      new BitSet();
+
+    this.virtualClip = new Rectangle();
+    this.virtualClip.widthProperty().bind(inView.widthProperty());
+    this.virtualClip.heightProperty().bind(inView.heightProperty());
+
+    inView.addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+  }
+
+  /**
+   * Redraw the channel views when the view paints that they display
+   * change. This must be called once the view has been constructed. Paint
+   * changes redraw from each channel view's cached column extrema, and
+   * never read the model again.
+   */
+
+  public void attach()
+  {
+    final var v = this.view;
+    v.waveformBackgroundColorProperty().addListener(o -> this.redrawAll(false));
+    v.waveformCenterLineColorProperty().addListener(o -> this.redrawAll(false));
+    v.waveformExpandedSampleFillProperty().addListener(o -> this.redrawAll(false));
+    v.waveformExpandedSampleStrokeProperty().addListener(o -> this.redrawAll(false));
+    v.waveformCollapsedSampleFillProperty().addListener(o -> this.redrawAll(false));
+    v.waveformPlaceholderFillProperty().addListener(o -> this.redrawAll(false));
+    v.waveformClipFillProperty().addListener(o -> this.redrawAll(false));
+  }
+
+  private void onScroll(
+    final ScrollEvent event)
+  {
+    if (this.view.layoutMode() != WaveLayoutMode.WAVE_LAYOUT_VIRTUALIZED) {
+      return;
+    }
+    if (event.getDeltaY() == 0.0) {
+      return;
+    }
+
+    final var insets = this.view.getInsets();
+    final var h = this.view.getHeight() - insets.getTop() - insets.getBottom();
+    final var content =
+      this.view.model().channelCount() * this.view.channelHeight();
+    final var maximum = Math.max(0.0, content - h);
+    final var offset =
+      Math.clamp(this.view.channelScrollOffset(), 0.0, maximum);
+
+    this.view.setChannelScrollOffset(
+      Math.clamp(offset - event.getDeltaY(), 0.0, maximum));
+    event.consume();
+  }
+
+  /**
+   * Adjust the existing channel views to match the current model. Views
+   * for channels that no longer exist are returned to the pool, and views
+   * for new channels are taken from the pool, so swapping between models
+   * with the same number of channels leaves the scene graph untouched.
+   *
+   * @param mode The current layout mode
+   */
+
+  public void update(
+    final WaveLayoutMode mode)
+  {
+    final var channels = this.view.model().channelCount();
+    this.statistics.setChannelCount(channels);
+
+    final var children = this.view.getChildren();
+    var existing = 0;
+    for (int index = children.size() - 1; index >= 0; --index) {
+      final var child = children.get(index);
+      if (child instanceof final WaveChannelView channelView) {
+        if (channelView.channelIndex() >= channels) {
+          channelView.cancel();
+          children.remove(index);
+          this.pool.push(channelView);
+        } else {
+          channelView.redraw();
+          ++existing;
+        }
+      } else if (child instanceof final WaveMultiChannelView multiView) {
+        multiView.updateChannels();
+      }
+    }
+
+    if (mode == WaveLayoutMode.WAVE_LAYOUT_FILL) {
+      for (int channel = existing; channel < channels; ++channel) {
+        final var channelView = this.acquire(channel);
+        children.add(channelView);
+        VBox.setVgrow(channelView, Priority.ALWAYS);
+      }
+    }
+  }
+
+  /**
+   * Discard all channel views and create new views for the given layout
+   * mode.
+   *
+   * @param mode  The layout mode
+   * @param fixed The children that must be retained, in order
+   */
+
+  public void rebuild(
+    final WaveLayoutMode mode,
+    final Node... fixed)
+  {
+    this.cancelAll();
+
+    final var children = this.view.getChildren();
+    children.setAll(fixed);
+    this.pool.clear();
+    this.statistics.setChannelCount(this.view.model().channelCount());
+
+    switch (mode) {
+      case WAVE_LAYOUT_FILL -> {
+        this.view.setClip(null);
+        final var channels = this.view.model().channelCount();
+        for (var channel = 0; channel < channels; ++channel) {
+          final var channelView =
+            new WaveChannelView(this.view, this.statistics, channel);
+          children.add(channelView);
+          VBox.setVgrow(channelView, Priority.ALWAYS);
+        }
+      }
+      case WAVE_LAYOUT_VIRTUALIZED -> {
+        this.view.setClip(this.virtualClip);
+        this.view.requestLayout();
+      }
+      case WAVE_LAYOUT_SINGLE_CANVAS_STACKED -> {
+        this.view.setClip(null);
+        this.addMultiChannelView(false);
+      }
+      case WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID -> {
+        this.view.setClip(null);
+        this.addMultiChannelView(true);
+      }
+    }
+  }
+
+  /**
+   * Redraw every canvas of the view. Repaints triggered internally, such
+   * as when the view becomes visible again, reuse cached column extrema;
+   * explicit redraws requested by the application read the model again,
+   * as its samples may have been modified in place.
+   *
+   * @param reread {@code true} if cached column extrema should be discarded
+   */
+
+  public void redrawAll(
+    final boolean reread)
+  {
+    final var children = this.view.getChildren();
+    final var count = children.size();
+    for (int index = 0; index < count; ++index) {
+      if (children.get(index) instanceof final WaveCanvasType canvas) {
+        if (reread) {
+          canvas.invalidateCache();
+        }
+        canvas.redraw();
+      }
+    }
+  }
+
+  /**
+   * Cancel any pending or in-progress renders of every channel view.
+   */
+
+  public void cancelAll()
+  {
+    final var children = this.view.getChildren();
+    final var count = children.size();
+    for (int index = 0; index < count; ++index) {
+      if (children.get(index) instanceof final WaveCanvasType canvas) {
+        canvas.cancel();
+      }
+    }
+  }
+
+  private void addMultiChannelView(
+    final boolean overlaid)
+  {
+    final var multiView =
+      new WaveMultiChannelView(this.view, this.statistics, overlaid);
+    this.view.getChildren().add(multiView);
+    VBox.setVgrow(multiView, Priority.ALWAYS);
+  }
+
+  private WaveChannelView acquire(
+    final int channel)
+  {
+    final var pooled = this.pool.poll();
+    if (pooled == null) {
+      return new WaveChannelView(this.view, this.statistics, channel);
+    }
+    if (pooled.channelIndex() == channel) {
+      pooled.invalidateCache();
+      pooled.redraw();
+    } else {
+      pooled.setChannelIndex(channel);
+    }
+    return pooled;
+  }
+
+  /**
+   * Lay out only those channels that intersect the visible window. Views
+   * for channels that have scrolled out of the window are returned to the
+   * pool, and views for channels that have scrolled into the window are
+   * taken from the pool. Views for channels that remain visible keep their
+   * channel, and so are not re-rendered unless their size changes.
+   *
+   * @param x             The x position of the content area
+   * @param y             The y position of the content area
+   * @param w             The width of the content area
+   * @param h             The height of the content area
+   * @param channelHeight The height of each channel
+   * @param scrollOffset  The requested scroll offset
+   */
+
+  public void layoutVirtualized(
+    final double x,
+    final double y,
+    final double w,
+    final double h,
+    final double channelHeight,
+    final double scrollOffset)
+  {
+    final var channels =
+      this.view.model().channelCount();
+    final var scroll =
+      Math.clamp(
+        scrollOffset,
+        0.0,
+        Math.max(0.0, (channels * channelHeight) - h)
+      );
+
+    final var first =
+      (int) Math.floor(scroll / channelHeight);
+    final var last =
+      Math.min(channels - 1, (int) Math.floor((scroll + h) / channelHeight));
+
+    final var children = this.view.getChildren();
+    this.present.clear();
+
+    for (int index = children.size() - 1; index >= 0; --index) {
+      if (children.get(index) instanceof final WaveChannelView channelView) {
+        final var channel = channelView.channelIndex();
+        if (channel < first || channel > last) {
+          channelView.cancel();
+          children.remove(index);
+          this.pool.push(channelView);
+        } else {
+          this.present.set(channel);
+        }
+      }
+    }
+
+    for (int channel = first; channel <= last; ++channel) {
+      if (!this.present.get(channel)) {
+        children.add(this.acquire(channel));
+      }
+    }
+
+    final var count = children.size();
+    for (int index = 0; index < count; ++index) {
+      if (children.get(index) instanceof final WaveChannelView channelView) {
+        channelView.relocate(
+          x,
+          (y + (channelView.channelIndex() * channelHeight)) - scroll
+        );
+        channelView.resize(w, channelHeight);
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WavePeakSummary;
+
+/**
+ * <p>Functions to aggregate runs of frames into columns.</p>
+ *
+ * <p>
+ * A column covers {@code framesPerColumn} frames starting at
+ * {@code frameLower + (x * framesPerColumn)}, and is reduced to the maximum
+ * and minimum sample values observed in that run. The maximum is never less
+ * than {@code 0.0}, and the minimum is never greater than {@code 0.0}.
+ * </p>
+ *
+ * <p>
+ * If any of the frames of a column are not
+ * {@linkplain WaveModelType#isAvailable(int, long, long) available}, both
+ * extrema of the column are set to {@link Double#NaN}, and the column is
+ * drawn as a placeholder.
+ * </p>
+ */
+
+public final class WaveColumnAggregation
+{
+  private WaveColumnAggregation()
+  {
+
+  }
+
+  /**
+   * Aggregate the column {@code x}, sampling every {@code stride} frames,
+   * and write the extrema to {@code columnMax[x]} and {@code columnMin[x]}.
+   *
+   * @param model           The model
+   * @param channel         The channel
+   * @param frameLower      The frame at the left edge of column 0
+   * @param framesPerColumn The number of frames covered by each column
+   * @param stride          The distance between sampled frames
+   * @param x               The column
+   * @param columnMax       The column maxima
+   * @param columnMin       The column minima
+   *
+   * @return The number of frames read from the model
+   */
+
+  public static long aggregateColumn(
+    final WaveModelType model,
+    final int channel,
+    final double frameLower,
+    final double framesPerColumn,
+    final double stride,
+    final int x,
+    final double[] columnMax,
+    final double[] columnMin)
+  {
+    final var frameIndex =
+      frameLower + (x * framesPerColumn);
+
+    final var available = model.isAvailable(
+      channel,
+      (long) Math.floor(frameIndex),
+      (long) Math.ceil(frameIndex + framesPerColumn) + 1L
+    );
+    if (!available) {
+      columnMax[x] = Double.NaN;
+      columnMin[x] = Double.NaN;
+      return 0L;
+    }
+
+    var sampleMax = 0.0;
+    var sampleMin = 0.0;
+
+    var reads = 0L;
+    for (double k = 0.0; k <= framesPerColumn; k += stride) {
+      final var sample = model.sampleLerp(channel, frameIndex + k);
+      sampleMax = Math.max(sampleMax, sample);
+      sampleMin = Math.min(sampleMin, sample);
+      reads += 2L;
+    }
+
+    columnMax[x] = sampleMax;
+    columnMin[x] = sampleMin;
+    return reads;
+  }
+
+  /**
+   * Aggregate the column {@code x} from the blocks of a peak summary, and
+   * write the extrema to {@code columnMax[x]} and {@code columnMin[x]}.
+   *
+   * @param summary         The summary
+   * @param channel         The channel
+   * @param frameLower      The frame at the left edge of column 0
+   * @param framesPerColumn The number of frames covered by each column
+   * @param x               The column
+   * @param columnMax       The column maxima
+   * @param columnMin       The column minima
+   * @param scratch         A scratch array of at least two elements
+   *
+   * @return The number of summary blocks read
+   */
+
+  public static long aggregateColumnSummary(
+    final WavePeakSummary summary,
+    final int channel,
+    final double frameLower,
+    final double framesPerColumn,
+    final int x,
+    final double[] columnMax,
+    final double[] columnMin,
+    final double[] scratch)
+  {
+    final var lower =
+      (long) Math.floor(frameLower + (x * framesPerColumn));
+    final var upper =
+      (long) Math.ceil(frameLower + ((x + 1) * framesPerColumn));
+
+    final var reads = summary.extrema(channel, lower, upper, scratch);
+    columnMin[x] = Math.min(0.0, scratch[0]);
+    columnMax[x] = Math.max(0.0, scratch[1]);
+    return reads;
+  }
+}
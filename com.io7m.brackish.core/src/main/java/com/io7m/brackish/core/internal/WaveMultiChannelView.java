@@ -0,0 +1,435 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveRenderPriority;
+import com.io7m.brackish.core.WaveRenderTargetType;
+import com.io7m.brackish.core.WaveView;
+import javafx.scene.canvas.Canvas;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+/**
+ * <p>A view that renders all channels into a single canvas.</p>
+ *
+ * <p>
+ * Channels are either stacked vertically, with each channel receiving an
+ * equal share of the height of the canvas, or are overlaid translucently on
+ * top of each other with each channel receiving the full height of the
+ * canvas.
+ * </p>
+ */
+
+public final class WaveMultiChannelView extends Canvas
+  implements WaveCanvasType
+{
+  private static final double OVERLAY_ALPHA = 0.5;
+
+  private final WaveView waveView;
+  private final WaveRenderStatisticsCollector statistics;
+  private final boolean overlaid;
+  private final ArrayList<WaveChannelRenderer> renderers;
+  private final WaveViewRenderSource source;
+  private final WaveCanvasRenderTarget target;
+  private final WaveResizePreview preview;
+  private boolean dirty;
+
+  /**
+   * A view that renders all channels into a single canvas.
+   *
+   * @param inView       The parent wave view
+   * @param inStatistics The statistics collector
+   * @param inOverlaid   {@code true} if channels should be overlaid rather
+   *                     than stacked
+   */
+
+  public WaveMultiChannelView(
+    final WaveView inView,
+    final WaveRenderStatisticsCollector inStatistics,
+    final boolean inOverlaid)
+  {
+    this.waveView =
+      Objects.requireNonNull(inView, "waveView");
+    this.statistics =
+      Objects.requireNonNull(inStatistics, "statistics");
+    this.overlaid =
+      inOverlaid;
+    this.renderers =
+      new ArrayList<>();
+    this.source =
+      new WaveViewRenderSource(inView);
+    this.target =
+      new WaveCanvasRenderTarget(this);
+    this.preview =
+      new WaveResizePreview(this, this::redraw);
+
+    this.updateChannels();
+  }
+
+  /**
+   * Update the set of rendered channels to match the parent view's current
+   * model, and schedule a redraw.
+   */
+
+  public void updateChannels()
+  {
+    final var channels = this.waveView.model().channelCount();
+    while (this.renderers.size() > channels) {
+      this.renderers.removeLast();
+    }
+    while (this.renderers.size() < channels) {
+      this.renderers.add(
+        new WaveChannelRenderer(
+          this.source,
+          this.statistics,
+          this.renderers.size()
+        )
+      );
+    }
+    this.redraw();
+  }
+
+  @Override
+  public boolean isResizable()
+  {
+    return true;
+  }
+
+  @Override
+  public double maxHeight(
+    final double width)
+  {
+    return Double.POSITIVE_INFINITY;
+  }
+
+  @Override
+  public double maxWidth(
+    final double height)
+  {
+    return Double.POSITIVE_INFINITY;
+  }
+
+  @Override
+  public double minWidth(
+    final double height)
+  {
+    return 1.0;
+  }
+
+  @Override
+  public double minHeight(
+    final double width)
+  {
+    return 1.0;
+  }
+
+  @Override
+  public void resize(
+    final double width,
+    final double height)
+  {
+    if (width == this.getWidth() && height == this.getHeight()) {
+      return;
+    }
+
+    final var previewing =
+      this.waveView.isEffectivelyVisible()
+      && this.preview.begin(this.waveView.resizeSettleDelay());
+
+    this.setWidth(width);
+    this.setHeight(height);
+
+    if (previewing) {
+      this.cancelRendering();
+      this.preview.paint(this.waveView.waveformBackgroundColor());
+    } else {
+      this.redraw();
+    }
+  }
+
+  @Override
+  public WaveRenderPriority renderPriority()
+  {
+    return WaveChannelView.priorityOf(this, this.waveView);
+  }
+
+  @Override
+  public boolean renderExecute(
+    final long deadline)
+  {
+    final var g =
+      this.target;
+    final var budgetDeadline =
+      WaveChannelView.frameBudgetDeadline(this.waveView, deadline);
+
+    if (this.dirty) {
+      this.dirty = false;
+      this.renderAll(g, budgetDeadline);
+      this.preview.markRendered();
+    } else {
+      this.renderDirty(g);
+      if (this.isRefining()) {
+        this.refineAll(g, budgetDeadline);
+      }
+    }
+    return this.dirty || this.isRefining();
+  }
+
+  private boolean isRefining()
+  {
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      if (this.renderers.get(index).isRefining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void renderAll(
+    final WaveRenderTargetType g,
+    final long deadline)
+  {
+    final var w = this.getWidth();
+    final var h = this.getHeight();
+
+    g.setFill(this.waveView.waveformBackgroundColor());
+    g.fillRect(0, 0, w, h);
+
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      final var renderer = this.renderers.get(index);
+      try {
+        this.beginBand(g, index, w, h);
+        renderer.render(
+          g,
+          this.bandY(index, h),
+          w,
+          this.bandHeight(h),
+          deadline
+        );
+      } finally {
+        this.endBand(g);
+      }
+    }
+  }
+
+  private void refineAll(
+    final WaveRenderTargetType g,
+    final long deadline)
+  {
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      final var renderer = this.renderers.get(index);
+      if (renderer.isRefining()) {
+        renderer.refine(deadline);
+      }
+    }
+
+    /*
+     * Overlaid channels share the same band, and so every channel must be
+     * repainted whenever any channel is refined. Channels that have already
+     * been refined repaint cheaply from their aggregated columns.
+     */
+
+    this.paintAll(g);
+  }
+
+  private void renderDirty(
+    final WaveRenderTargetType g)
+  {
+    var any = false;
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      any |= this.renderers.get(index).hasDirtyColumns();
+    }
+    if (!any) {
+      return;
+    }
+
+    /*
+     * Stacked channels can clear and repaint just their dirty columns
+     * within their own band. Overlaid channels would erase each other, and
+     * so are re-aggregated and then repainted from their columns.
+     */
+
+    if (this.overlaid) {
+      for (int index = 0; index < count; ++index) {
+        this.renderers.get(index).aggregateDirtyColumns();
+      }
+      this.paintAll(g);
+      return;
+    }
+
+    final var w = this.getWidth();
+    final var h = this.getHeight();
+    for (int index = 0; index < count; ++index) {
+      final var renderer = this.renderers.get(index);
+      if (renderer.hasDirtyColumns()) {
+        try {
+          this.beginBand(g, index, w, h);
+          renderer.renderDirtyColumns(g);
+        } finally {
+          this.endBand(g);
+        }
+      }
+    }
+  }
+
+  private void paintAll(
+    final WaveRenderTargetType g)
+  {
+    final var w = this.getWidth();
+    final var h = this.getHeight();
+
+    g.setFill(this.waveView.waveformBackgroundColor());
+    g.fillRect(0, 0, w, h);
+
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      try {
+        this.beginBand(g, index, w, h);
+        this.renderers.get(index).paint(g);
+      } finally {
+        this.endBand(g);
+      }
+    }
+  }
+
+  private void beginBand(
+    final WaveRenderTargetType g,
+    final int index,
+    final double w,
+    final double h)
+  {
+    if (this.overlaid) {
+      g.setGlobalAlpha(OVERLAY_ALPHA);
+    } else {
+      g.setClip(0.0, this.bandY(index, h), w, this.bandHeight(h));
+    }
+  }
+
+  private void endBand(
+    final WaveRenderTargetType g)
+  {
+    g.clearClip();
+    g.setGlobalAlpha(1.0);
+  }
+
+  private double bandHeight(
+    final double h)
+  {
+    if (this.overlaid) {
+      return h;
+    }
+    return h / Math.max(1, this.renderers.size());
+  }
+
+  private double bandY(
+    final int index,
+    final double h)
+  {
+    if (this.overlaid) {
+      return 0.0;
+    }
+    return index * this.bandHeight(h);
+  }
+
+  @Override
+  public void redraw()
+  {
+    if (!this.waveView.isEffectivelyVisible()) {
+      return;
+    }
+    this.preview.cancel();
+    if (this.dirty) {
+      this.statistics.recordDropped();
+    }
+    this.dirty = true;
+    this.waveView.renderScheduler().schedule(this);
+  }
+
+  @Override
+  public void invalidateCache()
+  {
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      this.renderers.get(index).invalidateCache();
+    }
+  }
+
+  /**
+   * Redraw only the columns of the given channel that depend on the frames
+   * {@code [first, last]}. If the channel cannot be partially redrawn, the
+   * view is redrawn in full.
+   *
+   * @param channel The channel
+   * @param first   The first changed frame
+   * @param last    The last changed frame
+   */
+
+  public void redrawFrames(
+    final int channel,
+    final long first,
+    final long last)
+  {
+    if (channel < 0 || channel >= this.renderers.size()) {
+      return;
+    }
+
+    /*
+     * As with WaveChannelView, the changed columns are merged into the
+     * dirty columns even if no render is scheduled here.
+     */
+
+    if (!this.renderers.get(channel).invalidateFrames(first, last)) {
+      this.redraw();
+      return;
+    }
+    if (!this.waveView.isEffectivelyVisible() || this.dirty) {
+      return;
+    }
+    if (this.renderers.get(channel).hasDirtyColumns()) {
+      this.waveView.renderScheduler().schedule(this);
+    }
+  }
+
+  @Override
+  public void renderDeferred()
+  {
+    this.statistics.recordDeferred();
+  }
+
+  @Override
+  public void cancel()
+  {
+    this.preview.cancel();
+    this.cancelRendering();
+  }
+
+  private void cancelRendering()
+  {
+    this.dirty = false;
+    final var count = this.renderers.size();
+    for (int index = 0; index < count; ++index) {
+      this.renderers.get(index).cancel();
+    }
+    this.waveView.renderScheduler().cancel(this);
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveRenderPriority;
+import com.io7m.brackish.core.WaveView;
+import com.io7m.jranges.RangeInclusiveL;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Paint;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>A transparent canvas drawn over the channel views.</p>
+ *
+ * <p>
+ * Overlay layers are redrawn independently of the channel views, and so
+ * moving a playhead or a selection never causes the waveform itself to be
+ * re-rendered. Layers are redrawn on the parent view's render scheduler at
+ * the highest priority, as they are cheap and are expected to track user
+ * input closely.
+ * </p>
+ */
+
+public final class WaveOverlayLayer extends Canvas
+  implements WaveCanvasType
+{
+  private final WaveView waveView;
+  private final WaveOverlayKind kind;
+  private final WaveCanvasRenderTarget target;
+  private final WaveAnnotationRenderer annotations;
+  private boolean dirty;
+
+  /**
+   * A transparent canvas drawn over the channel views.
+   *
+   * @param inView The parent wave view
+   * @param inKind The kind of layer
+   */
+
+  public WaveOverlayLayer(
+    final WaveView inView,
+    final WaveOverlayKind inKind)
+  {
+    this.waveView =
+      Objects.requireNonNull(inView, "waveView");
+    this.kind =
+      Objects.requireNonNull(inKind, "kind");
+    this.target =
+      new WaveCanvasRenderTarget(this);
+    this.annotations =
+      new WaveAnnotationRenderer();
+
+    this.setMouseTransparent(true);
+  }
+
+  /**
+   * Compute the horizontal position of the left edge of the given frame
+   * within a view of the given width.
+   *
+   * @param viewLower The lower bound of the view range
+   * @param viewUpper The upper bound of the view range
+   * @param width     The width of the view
+   * @param frame     The frame
+   *
+   * @return The x coordinate
+   */
+
+  public static double xOfFrame(
+    final long viewLower,
+    final long viewUpper,
+    final double width,
+    final double frame)
+  {
+    final var interval = (double) ((viewUpper - viewLower) + 1L);
+    return ((frame - viewLower) * width) / interval;
+  }
+
+  @Override
+  public boolean isResizable()
+  {
+    return true;
+  }
+
+  @Override
+  public void resize(
+    final double width,
+    final double height)
+  {
+    if (width == this.getWidth() && height == this.getHeight()) {
+      return;
+    }
+
+    this.setWidth(width);
+    this.setHeight(height);
+    this.redraw();
+  }
+
+  @Override
+  public WaveRenderPriority renderPriority()
+  {
+    if (!WaveChannelView.isShowing(this, this.waveView)) {
+      return WaveRenderPriority.RENDER_PRIORITY_BACKGROUND;
+    }
+    return WaveRenderPriority.RENDER_PRIORITY_FOCUSED;
+  }
+
+  @Override
+  public boolean renderExecute(
+    final long deadline)
+  {
+    if (!this.dirty) {
+      return false;
+    }
+    this.dirty = false;
+
+    final var g = this.getGraphicsContext2D();
+    final var w = this.getWidth();
+    final var h = this.getHeight();
+    g.clearRect(0.0, 0.0, w, h);
+
+    switch (this.kind) {
+      case OVERLAY_ANNOTATIONS -> {
+        this.annotations.render(
+          this.target,
+          this.waveView.annotations(),
+          this.waveView.viewRangeLower(),
+          this.waveView.viewRangeUpper(),
+          this.waveView.waveformAnnotationMarkerColor(),
+          this.waveView.waveformAnnotationRegionFill()
+        );
+      }
+      case OVERLAY_REGIONS -> {
+        this.drawRegion(
+          g,
+          this.waveView.loopRegion(),
+          this.waveView.waveformLoopFill()
+        );
+        this.drawRegion(
+          g,
+          this.waveView.selection(),
+          this.waveView.waveformSelectionFill()
+        );
+      }
+      case OVERLAY_MARKERS -> {
+        this.drawMarker(
+          g,
+          this.waveView.cursorFrame(),
+          this.waveView.waveformCursorColor()
+        );
+        this.drawMarker(
+          g,
+          this.waveView.playheadFrame(),
+          this.waveView.waveformPlayheadColor()
+        );
+      }
+    }
+    return false;
+  }
+
+  private void drawRegion(
+    final GraphicsContext g,
+    final Optional<RangeInclusiveL> regionOpt,
+    final Paint fill)
+  {
+    if (regionOpt.isEmpty()) {
+      return;
+    }
+
+    final var region = regionOpt.get();
+    final var lower = this.waveView.viewRangeLower();
+    final var upper = this.waveView.viewRangeUpper();
+    final var w = this.getWidth();
+    final var x0 = xOfFrame(lower, upper, w, (double) region.lower());
+    final var x1 = xOfFrame(lower, upper, w, (double) region.upper() + 1.0);
+    if (x1 < 0.0 || x0 > w) {
+      return;
+    }
+
+    g.setFill(fill);
+    g.fillRect(x0, 0.0, x1 - x0, this.getHeight());
+  }
+
+  private void drawMarker(
+    final GraphicsContext g,
+    final double frame,
+    final Paint stroke)
+  {
+    if (Double.isNaN(frame)) {
+      return;
+    }
+
+    final var w = this.getWidth();
+    final var x =
+      Math.floor(xOfFrame(
+        this.waveView.viewRangeLower(),
+        this.waveView.viewRangeUpper(),
+        w,
+        frame
+      )) + 0.5;
+    if (x < 0.0 || x > w) {
+      return;
+    }
+
+    g.setStroke(stroke);
+    g.strokeLine(x, 0.0, x, this.getHeight());
+  }
+
+  @Override
+  public void redraw()
+  {
+    if (!this.waveView.isEffectivelyVisible()) {
+      return;
+    }
+    if (!this.dirty) {
+      this.dirty = true;
+      this.waveView.renderScheduler().schedule(this);
+    }
+  }
+
+  @Override
+  public void cancel()
+  {
+    this.dirty = false;
+    this.waveView.renderScheduler().cancel(this);
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveView;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+/**
+ * <p>The container of the overlay layers of a view.</p>
+ *
+ * <p>
+ * The pane is unmanaged and transparent to the mouse; the parent view
+ * positions it over the channel views, and the pane stretches each layer
+ * to cover its entire area.
+ * </p>
+ */
+
+public final class WaveOverlayPane extends Pane
+{
+  private final WaveView view;
+  private final WaveOverlayLayer annotations;
+  private final WaveOverlayLayer regions;
+  private final WaveOverlayLayer markers;
+
+  /**
+   * The container of the overlay layers of a view.
+   *
+   * @param inView The parent wave view
+   */
+
+  public WaveOverlayPane(
+    final WaveView inView)
+  {
+    this.view =
+      inView;
+    this.annotations =
+      new WaveOverlayLayer(inView, WaveOverlayKind.OVERLAY_ANNOTATIONS);
+    this.regions =
+      new WaveOverlayLayer(inView, WaveOverlayKind.OVERLAY_REGIONS);
+    this.markers =
+      new WaveOverlayLayer(inView, WaveOverlayKind.OVERLAY_MARKERS);
+
+    this.setManaged(false);
+    this.setMouseTransparent(true);
+    this.getChildren().addAll(this.annotations, this.regions, this.markers);
+  }
+
+  /**
+   * Redraw the layers when the view properties that they display change.
+   * This must be called once the view has been constructed. Changes to
+   * overlays redraw only the overlay layers, never the channel views.
+   */
+
+  public void attach()
+  {
+    final var v = this.view;
+    v.playheadFrameProperty().addListener(o -> this.redrawMarkers());
+    v.cursorFrameProperty().addListener(o -> this.redrawMarkers());
+    v.waveformPlayheadColorProperty().addListener(o -> this.redrawMarkers());
+    v.waveformCursorColorProperty().addListener(o -> this.redrawMarkers());
+    v.selectionProperty().addListener(o -> this.redrawRegions());
+    v.loopRegionProperty().addListener(o -> this.redrawRegions());
+    v.waveformSelectionFillProperty().addListener(o -> this.redrawRegions());
+    v.waveformLoopFillProperty().addListener(o -> this.redrawRegions());
+    v.annotationsProperty().addListener(o -> this.redrawAnnotations());
+    v.waveformAnnotationMarkerColorProperty().addListener(o -> this.redrawAnnotations());
+    v.waveformAnnotationRegionFillProperty().addListener(o -> this.redrawAnnotations());
+    v.viewRangeProperty().addListener(o -> this.redraw());
+  }
+
+  /**
+   * Position the pane over the content area of the view, and the
+   * statistics overlay at its top left corner, and ensure that both are
+   * drawn over the channel views.
+   *
+   * @param statistics The statistics overlay
+   */
+
+  public void layoutOver(
+    final Node statistics)
+  {
+    final var insets = this.view.getInsets();
+    this.resizeRelocate(
+      insets.getLeft(),
+      insets.getTop(),
+      Math.max(0.0, this.view.getWidth() - insets.getLeft() - insets.getRight()),
+      Math.max(0.0, this.view.getHeight() - insets.getTop() - insets.getBottom())
+    );
+
+    statistics.autosize();
+    statistics.relocate(insets.getLeft(), insets.getTop());
+
+    /*
+     * Channel views may have been added after the overlays; the overlay
+     * layers must be drawn over the channel views, and the statistics
+     * must be drawn over everything.
+     */
+
+    final var children = this.view.getChildren();
+    final var size = children.size();
+    if (children.get(size - 2) != this) {
+      this.toFront();
+      statistics.toFront();
+    } else if (children.getLast() != statistics) {
+      statistics.toFront();
+    }
+  }
+
+  @Override
+  protected void layoutChildren()
+  {
+    final var w = this.getWidth();
+    final var h = this.getHeight();
+    this.annotations.resizeRelocate(0.0, 0.0, w, h);
+    this.regions.resizeRelocate(0.0, 0.0, w, h);
+    this.markers.resizeRelocate(0.0, 0.0, w, h);
+  }
+
+  /**
+   * Redraw the layer containing the annotations.
+   */
+
+  public void redrawAnnotations()
+  {
+    this.annotations.redraw();
+  }
+
+  /**
+   * Redraw the layer containing the loop region and selection.
+   */
+
+  public void redrawRegions()
+  {
+    this.regions.redraw();
+  }
+
+  /**
+   * Redraw the layer containing the playhead and cursor.
+   */
+
+  public void redrawMarkers()
+  {
+    this.markers.redraw();
+  }
+
+  /**
+   * Redraw all layers.
+   */
+
+  public void redraw()
+  {
+    this.annotations.redraw();
+    this.regions.redraw();
+    this.markers.redraw();
+  }
+
+  /**
+   * Cancel any pending redraws of all layers.
+   */
+
+  public void cancel()
+  {
+    this.annotations.cancel();
+    this.regions.cancel();
+    this.markers.cancel();
+  }
+}
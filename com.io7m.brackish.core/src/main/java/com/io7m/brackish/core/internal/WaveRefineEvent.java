@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event emitted for each progressive refinement step of a channel.
+ */
+
+@Name("com.io7m.brackish.Refine")
+@Label("Channel Refinement")
+@Category({"Brackish", "Rendering"})
+@Description("A progressive refinement step of a single waveform channel.")
+@StackTrace(false)
+public final class WaveRefineEvent extends Event
+{
+  @Label("Channel")
+  @Description("The channel index.")
+  private int channel;
+
+  @Label("View Lower")
+  @Description("The lower frame index of the view range being refined.")
+  private long viewLower;
+
+  @Label("Width")
+  @Description("The width of the rendered band in pixels.")
+  private double width;
+
+  @Label("Columns Refined")
+  @Description("The number of columns made exact by this step.")
+  private int columnsRefined;
+
+  @Label("Columns Remaining")
+  @Description("The number of approximate columns remaining after this step.")
+  private int columnsRemaining;
+
+  /**
+   * A JFR event emitted for each progressive refinement step of a channel.
+   */
+
+  public WaveRefineEvent()
+  {
+
+  }
+
+  /**
+   * Set the channel index.
+   *
+   * @param x The value
+   */
+
+  public void setChannel(
+    final int x)
+  {
+    this.channel = x;
+  }
+
+  /**
+   * Set the lower frame index of the view range.
+   *
+   * @param x The value
+   */
+
+  public void setViewLower(
+    final long x)
+  {
+    this.viewLower = x;
+  }
+
+  /**
+   * Set the width of the rendered band.
+   *
+   * @param x The value
+   */
+
+  public void setWidth(
+    final double x)
+  {
+    this.width = x;
+  }
+
+  /**
+   * Set the number of columns refined.
+   *
+   * @param x The value
+   */
+
+  public void setColumnsRefined(
+    final int x)
+  {
+    this.columnsRefined = x;
+  }
+
+  /**
+   * Set the number of columns remaining.
+   *
+   * @param x The value
+   */
+
+  public void setColumnsRemaining(
+    final int x)
+  {
+    this.columnsRemaining = x;
+  }
+}
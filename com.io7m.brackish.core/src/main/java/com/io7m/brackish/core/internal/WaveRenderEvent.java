@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event emitted for each render pass of a channel.
+ */
+
+@Name("com.io7m.brackish.Render")
+@Label("Channel Render")
+@Category({"Brackish", "Rendering"})
+@Description("A render pass of a single waveform channel.")
+@StackTrace(false)
+public final class WaveRenderEvent extends Event
+{
+  @Label("Channel")
+  @Description("The channel index.")
+  private int channel;
+
+  @Label("View Lower")
+  @Description("The lower frame index of the view range.")
+  private long viewLower;
+
+  @Label("View Upper")
+  @Description("The upper frame index of the view range.")
+  private long viewUpper;
+
+  @Label("Width")
+  @Description("The width of the rendered band in pixels.")
+  private double width;
+
+  @Label("Mode")
+  @Description("The rendering path taken.")
+  private String mode;
+
+  @Label("Frames Read")
+  @Description("The number of samples read from the model.")
+  private long framesRead;
+
+  @Label("Draw Commands")
+  @Description("The number of draw commands issued.")
+  private long drawCommands;
+
+  @Label("Exact")
+  @Description("Whether the rendering was exact, or requires refinement.")
+  private boolean exact;
+
+  @Label("Column Memory")
+  @Description("The size of the aggregated column buffers.")
+  @DataAmount
+  private long columnBytes;
+
+  /**
+   * A JFR event emitted for each render pass of a channel.
+   */
+
+  public WaveRenderEvent()
+  {
+
+  }
+
+  /**
+   * Set the channel index.
+   *
+   * @param x The value
+   */
+
+  public void setChannel(
+    final int x)
+  {
+    this.channel = x;
+  }
+
+  /**
+   * Set the lower frame index of the view range.
+   *
+   * @param x The value
+   */
+
+  public void setViewLower(
+    final long x)
+  {
+    this.viewLower = x;
+  }
+
+  /**
+   * Set the upper frame index of the view range.
+   *
+   * @param x The value
+   */
+
+  public void setViewUpper(
+    final long x)
+  {
+    this.viewUpper = x;
+  }
+
+  /**
+   * Set the width of the rendered band.
+   *
+   * @param x The value
+   */
+
+  public void setWidth(
+    final double x)
+  {
+    this.width = x;
+  }
+
+  /**
+   * Set the rendering path taken.
+   *
+   * @param x The value
+   */
+
+  public void setMode(
+    final String x)
+  {
+    this.mode = x;
+  }
+
+  /**
+   * Set the number of samples read.
+   *
+   * @param x The value
+   */
+
+  public void setFramesRead(
+    final long x)
+  {
+    this.framesRead = x;
+  }
+
+  /**
+   * Set the number of draw commands issued.
+   *
+   * @param x The value
+   */
+
+  public void setDrawCommands(
+    final long x)
+  {
+    this.drawCommands = x;
+  }
+
+  /**
+   * Set the flag indicating whether the rendering was exact.
+   *
+   * @param x The value
+   */
+
+  public void setExact(
+    final boolean x)
+  {
+    this.exact = x;
+  }
+
+  /**
+   * Set the size of the aggregated column buffers.
+   *
+   * @param x The value
+   */
+
+  public void setColumnBytes(
+    final long x)
+  {
+    this.columnBytes = x;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WaveRenderStyle;
+import javafx.scene.paint.Paint;
+
+/**
+ * The source of the model, view range, and paints used by a renderer.
+ * Values are read at the start of each rendering, and so may change between
+ * renderings.
+ */
+
+public interface WaveRenderSourceType
+{
+  /**
+   * @return The model
+   */
+
+  WaveModelType model();
+
+  /**
+   * @return The lower bound of the range of frames to render
+   */
+
+  long viewLower();
+
+  /**
+   * @return The upper bound of the range of frames to render
+   */
+
+  long viewUpper();
+
+  /**
+   * @return The style used for expanded renderings
+   */
+
+  WaveRenderStyle renderStyle();
+
+  /**
+   * @return The background paint
+   */
+
+  Paint background();
+
+  /**
+   * @return The paint of the horizontal center line
+   */
+
+  Paint centerLine();
+
+  /**
+   * @return The outline of samples in expanded renderings
+   */
+
+  Paint expandedSampleStroke();
+
+  /**
+   * @return The fill of samples in expanded renderings
+   */
+
+  Paint expandedSampleFill();
+
+  /**
+   * @return The fill of columns in collapsed renderings
+   */
+
+  Paint collapsedSampleFill();
+
+  /**
+   * @return The fill of placeholders drawn in place of unavailable frames
+   */
+
+  Paint placeholderFill();
+
+  /**
+   * @return The fill drawn over collapsed columns that contain clipped
+   * samples; a fully transparent color disables highlighting
+   */
+
+  Paint clipFill();
+}
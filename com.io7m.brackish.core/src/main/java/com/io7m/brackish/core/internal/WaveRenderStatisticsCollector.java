@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveChannelRenderStatistics;
+import com.io7m.brackish.core.WaveRenderPath;
+import com.io7m.brackish.core.WaveRenderStatistics;
+import javafx.beans.binding.ObjectBinding;
+import javafx.beans.value.ObservableValue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>A collector of render statistics for a single view.</p>
+ *
+ * <p>
+ * Renderers record into mutable counters, and the resulting
+ * {@link WaveRenderStatistics} value is only constructed when it is
+ * observed. Recording statistics therefore costs nothing beyond the
+ * counter updates when nobody is observing them.
+ * </p>
+ */
+
+public final class WaveRenderStatisticsCollector
+{
+  private final StatisticsBinding binding;
+  private WaveRenderPath[] channelPaths;
+  private boolean[] channelExact;
+  private long[] channelNanos;
+  private long[] channelFramesRead;
+  private long[] channelDrawCommands;
+  private long renders;
+  private long refinements;
+  private long deferred;
+  private long dropped;
+  private long cacheHits;
+  private long cacheMisses;
+
+  /**
+   * A collector of render statistics for a single view.
+   */
+
+  public WaveRenderStatisticsCollector()
+  {
+    this.binding = new StatisticsBinding(this);
+    this.setChannelCount(0);
+  }
+
+  /**
+   * Set the number of channels, discarding all per-channel statistics.
+   *
+   * @param count The channel count
+   */
+
+  public void setChannelCount(
+    final int count)
+  {
+    this.channelPaths = new WaveRenderPath[count];
+    Arrays.fill(this.channelPaths, WaveRenderPath.RENDER_PATH_NONE);
+    this.channelExact = new boolean[count];
+    this.channelNanos = new long[count];
+    this.channelFramesRead = new long[count];
+    this.channelDrawCommands = new long[count];
+    this.binding.invalidate();
+  }
+
+  /**
+   * Record the current state of the most recent rendering of a channel.
+   *
+   * @param channel      The channel
+   * @param path         The render path
+   * @param exact        {@code true} if the rendering is exact
+   * @param nanos        The time spent rendering
+   * @param framesRead   The number of samples read
+   * @param drawCommands The number of draw commands issued
+   */
+
+  public void recordChannel(
+    final int channel,
+    final WaveRenderPath path,
+    final boolean exact,
+    final long nanos,
+    final long framesRead,
+    final long drawCommands)
+  {
+    if (channel >= 0 && channel < this.channelPaths.length) {
+      this.channelPaths[channel] = path;
+      this.channelExact[channel] = exact;
+      this.channelNanos[channel] = nanos;
+      this.channelFramesRead[channel] = framesRead;
+      this.channelDrawCommands[channel] = drawCommands;
+      this.binding.invalidate();
+    }
+  }
+
+  /**
+   * Record that a render pass was executed.
+   */
+
+  public void recordRender()
+  {
+    ++this.renders;
+    this.binding.invalidate();
+  }
+
+  /**
+   * Record that a refinement step was executed.
+   */
+
+  public void recordRefinement()
+  {
+    ++this.refinements;
+    this.binding.invalidate();
+  }
+
+  /**
+   * Record that a pending render was deferred.
+   */
+
+  public void recordDeferred()
+  {
+    ++this.deferred;
+    this.binding.invalidate();
+  }
+
+  /**
+   * Record that a redraw request was dropped.
+   */
+
+  public void recordDropped()
+  {
+    ++this.dropped;
+    this.binding.invalidate();
+  }
+
+  /**
+   * Record that a render was plotted from cached column extrema.
+   */
+
+  public void recordCacheHit()
+  {
+    ++this.cacheHits;
+    this.binding.invalidate();
+  }
+
+  /**
+   * Record that a render had to aggregate column extrema from the model.
+   */
+
+  public void recordCacheMiss()
+  {
+    ++this.cacheMisses;
+    this.binding.invalidate();
+  }
+
+  /**
+   * @return The observable statistics
+   */
+
+  public ObservableValue<WaveRenderStatistics> statistics()
+  {
+    return this.binding;
+  }
+
+  private WaveRenderStatistics snapshot()
+  {
+    final var count = this.channelPaths.length;
+    final var channels =
+      new ArrayList<WaveChannelRenderStatistics>(count);
+
+    for (int index = 0; index < count; ++index) {
+      channels.add(
+        new WaveChannelRenderStatistics(
+          index,
+          this.channelPaths[index],
+          this.channelExact[index],
+          Duration.ofNanos(this.channelNanos[index]),
+          this.channelFramesRead[index],
+          this.channelDrawCommands[index]
+        )
+      );
+    }
+
+    return new WaveRenderStatistics(
+      this.renders,
+      this.refinements,
+      this.deferred,
+      this.dropped,
+      this.cacheHits,
+      this.cacheMisses,
+      channels
+    );
+  }
+
+  private static final class StatisticsBinding
+    extends ObjectBinding<WaveRenderStatistics>
+  {
+    private final WaveRenderStatisticsCollector collector;
+
+    StatisticsBinding(
+      final WaveRenderStatisticsCollector inCollector)
+    {
+      this.collector = inCollector;
+    }
+
+    @Override
+    protected WaveRenderStatistics computeValue()
+    {
+      return this.collector.snapshot();
+    }
+  }
+}
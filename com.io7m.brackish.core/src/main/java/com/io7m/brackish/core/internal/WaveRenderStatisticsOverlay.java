@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveRenderPath;
+import com.io7m.brackish.core.WaveRenderStatistics;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.Label;
+import javafx.util.Duration;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * An overlay that periodically displays the render statistics of a view.
+ */
+
+public final class WaveRenderStatisticsOverlay extends Label
+{
+  private static final int MAXIMUM_CHANNELS_SHOWN = 16;
+  private static final double NANOS_PER_MILLISECOND = 1_000_000.0;
+
+  private final ObservableValue<WaveRenderStatistics> statistics;
+  private final Timeline timeline;
+  private final StringBuilder text;
+
+  /**
+   * An overlay that periodically displays the render statistics of a view.
+   *
+   * @param inStatistics The statistics
+   */
+
+  public WaveRenderStatisticsOverlay(
+    final ObservableValue<WaveRenderStatistics> inStatistics)
+  {
+    this.statistics =
+      Objects.requireNonNull(inStatistics, "statistics");
+    this.text =
+      new StringBuilder(256);
+    this.timeline =
+      new Timeline(new KeyFrame(Duration.millis(250.0), e -> this.update()));
+    this.timeline.setCycleCount(Animation.INDEFINITE);
+
+    this.getStyleClass().add("waveform-statistics");
+    this.setStyle(
+      "-fx-background-color: rgba(0, 0, 0, 0.66);"
+      + "-fx-text-fill: white;"
+      + "-fx-font-family: monospace;"
+      + "-fx-padding: 4;"
+    );
+    this.setManaged(false);
+    this.setMouseTransparent(true);
+    this.setVisible(false);
+  }
+
+  /**
+   * Set whether the overlay is active. Inactive overlays are hidden and do
+   * not observe statistics.
+   *
+   * @param active {@code true} if the overlay is active
+   */
+
+  public void setActive(
+    final boolean active)
+  {
+    this.setVisible(active);
+    if (active) {
+      this.update();
+      this.timeline.play();
+    } else {
+      this.timeline.stop();
+    }
+  }
+
+  private void update()
+  {
+    final var s = this.statistics.getValue();
+    final var b = this.text;
+    b.setLength(0);
+    b.append(String.format(
+      Locale.ROOT,
+      "renders %d  refinements %d  deferred %d  dropped %d  cache %d/%d%n",
+      Long.valueOf(s.renders()),
+      Long.valueOf(s.refinements()),
+      Long.valueOf(s.deferred()),
+      Long.valueOf(s.dropped()),
+      Long.valueOf(s.cacheHits()),
+      Long.valueOf(s.cacheHits() + s.cacheMisses())
+    ));
+
+    var shown = 0;
+    var hidden = 0;
+    for (final var c : s.channels()) {
+      if (c.path() == WaveRenderPath.RENDER_PATH_NONE) {
+        continue;
+      }
+      if (shown >= MAXIMUM_CHANNELS_SHOWN) {
+        ++hidden;
+        continue;
+      }
+      b.append(String.format(
+        Locale.ROOT,
+        "%4d %-27s %-6s %8.3fms %10d frames %8d cmds%n",
+        Integer.valueOf(c.channel()),
+        c.path(),
+        c.exact() ? "exact" : "coarse",
+        Double.valueOf(c.renderTime().toNanos() / NANOS_PER_MILLISECOND),
+        Long.valueOf(c.framesRead()),
+        Long.valueOf(c.drawCommands())
+      ));
+      ++shown;
+    }
+
+    if (hidden > 0) {
+      b.append(String.format(Locale.ROOT, "(%d more channels)%n", hidden));
+    }
+
+    this.setText(b.toString().stripTrailing());
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import javafx.animation.PauseTransition;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * <p>A stretched-raster preview displayed while a canvas is being
+ * interactively resized.</p>
+ *
+ * <p>
+ * When a resize begins, the current contents of the canvas are captured
+ * once. For as long as resizing continues, the captured raster is scaled to
+ * fill the canvas, which is far cheaper than rendering the waveform. A real
+ * render is requested only once the size has remained unchanged for the
+ * settle delay.
+ * </p>
+ */
+
+public final class WaveResizePreview
+{
+  private final Canvas canvas;
+  private final PauseTransition settle;
+  private final SnapshotParameters parameters;
+  private WritableImage image;
+  private boolean hasRaster;
+  private boolean previewing;
+
+  /**
+   * A stretched-raster preview.
+   *
+   * @param inCanvas  The canvas
+   * @param onSettled The function called when the size has settled
+   */
+
+  public WaveResizePreview(
+    final Canvas inCanvas,
+    final Runnable onSettled)
+  {
+    this.canvas =
+      Objects.requireNonNull(inCanvas, "canvas");
+    this.settle =
+      new PauseTransition();
+    this.parameters =
+      new SnapshotParameters();
+
+    Objects.requireNonNull(onSettled, "onSettled");
+    this.parameters.setFill(Color.TRANSPARENT);
+    this.settle.setOnFinished(e -> {
+      this.previewing = false;
+      onSettled.run();
+    });
+  }
+
+  /**
+   * Indicate that the canvas now holds a complete rendering that may be
+   * used as the basis of a preview.
+   */
+
+  public void markRendered()
+  {
+    this.hasRaster = true;
+  }
+
+  /**
+   * @return {@code true} if a preview is currently displayed
+   */
+
+  public boolean isPreviewing()
+  {
+    return this.previewing;
+  }
+
+  /**
+   * Begin, or continue, a preview. This must be called before the canvas
+   * is resized. If this method returns {@code false}, no preview can be
+   * shown and the caller must render normally.
+   *
+   * @param delay The settle delay
+   *
+   * @return {@code true} if a preview will be shown
+   */
+
+  public boolean begin(
+    final Duration delay)
+  {
+    Objects.requireNonNull(delay, "delay");
+
+    if (delay.isZero() || !this.hasRaster) {
+      return false;
+    }
+
+    if (!this.previewing) {
+      final var w = (int) Math.ceil(this.canvas.getWidth());
+      final var h = (int) Math.ceil(this.canvas.getHeight());
+      if (w <= 0 || h <= 0) {
+        return false;
+      }
+
+      final var existing = this.image;
+      if (existing == null
+          || (int) existing.getWidth() != w
+          || (int) existing.getHeight() != h) {
+        this.image = new WritableImage(w, h);
+      }
+      this.canvas.snapshot(this.parameters, this.image);
+      this.previewing = true;
+    }
+
+    this.settle.setDuration(
+      javafx.util.Duration.millis((double) delay.toMillis()));
+    this.settle.playFromStart();
+    return true;
+  }
+
+  /**
+   * Draw the captured raster scaled to the current size of the canvas.
+   *
+   * @param background The background paint
+   */
+
+  public void paint(
+    final Paint background)
+  {
+    final var g = this.canvas.getGraphicsContext2D();
+    final var w = this.canvas.getWidth();
+    final var h = this.canvas.getHeight();
+    g.setFill(background);
+    g.fillRect(0.0, 0.0, w, h);
+    g.drawImage(this.image, 0.0, 0.0, w, h);
+  }
+
+  /**
+   * Abandon any preview in progress, and forget the captured raster, as the
+   * contents of the canvas are about to become stale. The settle function is
+   * not called.
+   */
+
+  public void cancel()
+  {
+    this.settle.stop();
+    this.previewing = false;
+    this.hasRaster = false;
+  }
+}
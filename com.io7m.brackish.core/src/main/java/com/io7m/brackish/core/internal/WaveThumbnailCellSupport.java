@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveThumbnail;
+import com.io7m.brackish.core.WaveThumbnailLoader;
+import com.io7m.brackish.core.WaveThumbnailRequest;
+
+import java.util.Objects;
+
+/**
+ * <p>The state shared by the thumbnail cell implementations.</p>
+ *
+ * <p>
+ * Each cell owns exactly one thumbnail, which is reused for every item the
+ * cell displays. Whenever the cell's item changes, any load still in
+ * progress for the previous item is cancelled. Items whose summaries
+ * cannot be loaded are displayed as failed.
+ * </p>
+ *
+ * @param <T> The type of items
+ */
+
+public final class WaveThumbnailCellSupport<T>
+{
+  private final WaveThumbnailLoader<T> loader;
+  private final WaveThumbnail thumbnail;
+  private WaveThumbnailRequest request;
+  private T item;
+
+  /**
+   * The state shared by the thumbnail cell implementations.
+   *
+   * @param inLoader The summary loader
+   */
+
+  public WaveThumbnailCellSupport(
+    final WaveThumbnailLoader<T> inLoader)
+  {
+    this.loader =
+      Objects.requireNonNull(inLoader, "loader");
+    this.thumbnail =
+      new WaveThumbnail();
+  }
+
+  /**
+   * @return The thumbnail owned by the cell
+   */
+
+  public WaveThumbnail thumbnail()
+  {
+    return this.thumbnail;
+  }
+
+  /**
+   * Update the cell for a new item.
+   *
+   * @param newItem The item
+   * @param empty   {@code true} if the cell is empty
+   *
+   * @return The thumbnail, or {@code null} if the cell is empty
+   */
+
+  public WaveThumbnail update(
+    final T newItem,
+    final boolean empty)
+  {
+    if (empty || newItem == null) {
+      this.cancel();
+      this.item = null;
+      this.thumbnail.clearSummary();
+      return null;
+    }
+
+    /*
+     * Cells are frequently updated with the item they already hold; the
+     * load in progress (or the summary already displayed) is kept.
+     */
+
+    if (Objects.equals(newItem, this.item)) {
+      return this.thumbnail;
+    }
+
+    this.cancel();
+    this.item = newItem;
+    this.thumbnail.clearSummary();
+    this.request = this.loader.request(
+      newItem,
+      this.thumbnail::setSummary,
+      this.thumbnail::setFailure
+    );
+    return this.thumbnail;
+  }
+
+  private void cancel()
+  {
+    if (this.request != null) {
+      this.request.cancel();
+      this.request = null;
+    }
+  }
+}
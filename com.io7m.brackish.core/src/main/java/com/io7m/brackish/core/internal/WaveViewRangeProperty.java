@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jranges.RangeInclusiveL;
+import javafx.beans.property.ReadOnlyObjectPropertyBase;
+
+import java.util.Objects;
+
+/**
+ * <p>A view range property that stores its bounds as primitive values.</p>
+ *
+ * <p>
+ * Updating the bounds allocates nothing: the {@link RangeInclusiveL} value
+ * is only constructed if it is actually requested, and is then retained
+ * until the bounds next change. Renderers read the primitive bounds
+ * directly, and so continuous panning and zooming produce no garbage
+ * unless something observes the property with a change listener.
+ * </p>
+ */
+
+public final class WaveViewRangeProperty
+  extends ReadOnlyObjectPropertyBase<RangeInclusiveL>
+{
+  private final Object bean;
+  private final String name;
+  private long lower;
+  private long upper;
+  private RangeInclusiveL range;
+
+  /**
+   * A view range property.
+   *
+   * @param inBean The bean
+   * @param inName The property name
+   */
+
+  public WaveViewRangeProperty(
+    final Object inBean,
+    final String inName)
+  {
+    this.bean =
+      Objects.requireNonNull(inBean, "bean");
+    this.name =
+      Objects.requireNonNull(inName, "name");
+  }
+
+  /**
+   * Set the bounds of the range. Listeners are notified only if the bounds
+   * change.
+   *
+   * @param newLower The lower bound
+   * @param newUpper The upper bound
+   */
+
+  public void set(
+    final long newLower,
+    final long newUpper)
+  {
+    Preconditions.checkPreconditionL(
+      newUpper,
+      newUpper >= newLower,
+      x -> "Upper bound %d must be >= the lower bound".formatted(x)
+    );
+
+    if (newLower == this.lower && newUpper == this.upper) {
+      return;
+    }
+
+    this.lower = newLower;
+    this.upper = newUpper;
+    this.range = null;
+    this.fireValueChangedEvent();
+  }
+
+  /**
+   * Set the range.
+   *
+   * @param newRange The range
+   */
+
+  public void set(
+    final RangeInclusiveL newRange)
+  {
+    Objects.requireNonNull(newRange, "newRange");
+    this.set(newRange.lower(), newRange.upper());
+    this.range = newRange;
+  }
+
+  /**
+   * @return The lower bound
+   */
+
+  public long lower()
+  {
+    return this.lower;
+  }
+
+  /**
+   * @return The upper bound
+   */
+
+  public long upper()
+  {
+    return this.upper;
+  }
+
+  @Override
+  public RangeInclusiveL get()
+  {
+    var result = this.range;
+    if (result == null) {
+      result = RangeInclusiveL.of(this.lower, this.upper);
+      this.range = result;
+    }
+    return result;
+  }
+
+  @Override
+  public Object getBean()
+  {
+    return this.bean;
+  }
+
+  @Override
+  public String getName()
+  {
+    return this.name;
+  }
+}
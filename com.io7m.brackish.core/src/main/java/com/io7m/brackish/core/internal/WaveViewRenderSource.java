@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WaveRenderStyle;
+import com.io7m.brackish.core.WaveView;
+import javafx.scene.paint.Paint;
+
+import java.util.Objects;
+
+/**
+ * A render source that reads the current state of a view.
+ *
+ * @param view The view
+ */
+
+public record WaveViewRenderSource(WaveView view)
+  implements WaveRenderSourceType
+{
+  /**
+   * A render source that reads the current state of a view.
+   *
+   * @param view The view
+   */
+
+  public WaveViewRenderSource
+  {
+    Objects.requireNonNull(view, "view");
+  }
+
+  @Override
+  public WaveModelType model()
+  {
+    return this.view.model();
+  }
+
+  @Override
+  public long viewLower()
+  {
+    return this.view.viewRangeLower();
+  }
+
+  @Override
+  public long viewUpper()
+  {
+    return this.view.viewRangeUpper();
+  }
+
+  @Override
+  public WaveRenderStyle renderStyle()
+  {
+    return this.view.renderStyle();
+  }
+
+  @Override
+  public Paint background()
+  {
+    return this.view.waveformBackgroundColor();
+  }
+
+  @Override
+  public Paint centerLine()
+  {
+    return this.view.waveformCenterLineColor();
+  }
+
+  @Override
+  public Paint expandedSampleStroke()
+  {
+    return this.view.waveformExpandedSampleStroke();
+  }
+
+  @Override
+  public Paint expandedSampleFill()
+  {
+    return this.view.waveformExpandedSampleFill();
+  }
+
+  @Override
+  public Paint collapsedSampleFill()
+  {
+    return this.view.waveformCollapsedSampleFill();
+  }
+
+  @Override
+  public Paint placeholderFill()
+  {
+    return this.view.waveformPlaceholderFill();
+  }
+
+  @Override
+  public Paint clipFill()
+  {
+    return this.view.waveformClipFill();
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.core.internal;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.scene.Node;
+import javafx.scene.layout.Region;
+import javafx.stage.Stage;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * <p>Track the effective visibility of a region.</p>
+ *
+ * <p>
+ * A region is effectively visible if it and all of its ancestors are
+ * visible, it has a non-zero size, and it is in a scene attached to a
+ * window that is showing and is not minimized. JavaFX does not expose
+ * this as a single property, so the tracker observes each of the
+ * contributing properties and re-attaches its listeners whenever the
+ * chain of ancestors, the scene, or the window changes.
+ * </p>
+ */
+
+public final class WaveVisibilityTracker
+{
+  private final Region region;
+  private final Consumer<Boolean> onChanged;
+  private final ArrayList<Observable> structural;
+  private final ArrayList<Observable> observed;
+  private final InvalidationListener onStructureChanged;
+  private final InvalidationListener onStateChanged;
+  private boolean visible;
+
+  /**
+   * Track the effective visibility of a region.
+   *
+   * @param inRegion    The region
+   * @param inOnChanged A function called whenever the visibility changes
+   */
+
+  public WaveVisibilityTracker(
+    final Region inRegion,
+    final Consumer<Boolean> inOnChanged)
+  {
+    this.region =
+      Objects.requireNonNull(inRegion, "region");
+    this.onChanged =
+      Objects.requireNonNull(inOnChanged, "onChanged");
+    this.structural =
+      new ArrayList<>();
+    this.observed =
+      new ArrayList<>();
+    this.onStructureChanged =
+      o -> this.rebind();
+    this.onStateChanged =
+      o -> this.update();
+
+    inRegion.widthProperty().addListener(this.onStateChanged);
+    inRegion.heightProperty().addListener(this.onStateChanged);
+    this.bind();
+    this.visible = this.compute();
+  }
+
+  /**
+   * @return {@code true} if the region is effectively visible
+   */
+
+  public boolean isVisible()
+  {
+    return this.visible;
+  }
+
+  private void rebind()
+  {
+    for (final var o : this.structural) {
+      o.removeListener(this.onStructureChanged);
+    }
+    for (final var o : this.observed) {
+      o.removeListener(this.onStateChanged);
+    }
+    this.structural.clear();
+    this.observed.clear();
+    this.bind();
+    this.update();
+  }
+
+  private void bind()
+  {
+    Node node = this.region;
+    while (node != null) {
+      this.watchStructure(node.parentProperty());
+      this.watchState(node.visibleProperty());
+      node = node.getParent();
+    }
+
+    this.watchStructure(this.region.sceneProperty());
+    final var scene = this.region.getScene();
+    if (scene == null) {
+      return;
+    }
+
+    this.watchStructure(scene.windowProperty());
+    final var window = scene.getWindow();
+    if (window == null) {
+      return;
+    }
+
+    this.watchState(window.showingProperty());
+    if (window instanceof final Stage stage) {
+      this.watchState(stage.iconifiedProperty());
+    }
+  }
+
+  private void watchStructure(
+    final Observable o)
+  {
+    o.addListener(this.onStructureChanged);
+    this.structural.add(o);
+  }
+
+  private void watchState(
+    final Observable o)
+  {
+    o.addListener(this.onStateChanged);
+    this.observed.add(o);
+  }
+
+  private void update()
+  {
+    final var now = this.compute();
+    if (now != this.visible) {
+      this.visible = now;
+      this.onChanged.accept(Boolean.valueOf(now));
+    }
+  }
+
+  private boolean compute()
+  {
+    if (this.region.getWidth() <= 0.0 || this.region.getHeight() <= 0.0) {
+      return false;
+    }
+
+    Node node = this.region;
+    while (node != null) {
+      if (!node.isVisible()) {
+        return false;
+      }
+      node = node.getParent();
+    }
+
+    final var scene = this.region.getScene();
+    if (scene == null) {
+      return false;
+    }
+    final var window = scene.getWindow();
+    if (window == null || !window.isShowing()) {
+      return false;
+    }
+    if (window instanceof final Stage stage) {
+      return !stage.isIconified();
+    }
+    return true;
+  }
+}
@@ -26,6 +26,7 @@ module com.io7m.brackish.core
   requires com.io7m.jaffirm.core;
   requires com.io7m.jranges.core;
   requires java.desktop;
+  requires jdk.jfr;
   requires javafx.controls;
   requires javafx.graphics;
 
@@ -24,6 +24,7 @@ import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Slider;
 import javafx.scene.layout.AnchorPane;
@@ -52,6 +53,7 @@ public final class WaveDemoMain
   private AnchorPane waveContainer;
   private Slider zoomSlider;
   private ChoiceBox<WaveDemoModelType> dataSelector;
+  private CheckBox statistics;
 
   private WaveDemoMain(
     final Stage inStage)
@@ -124,6 +126,14 @@ public final class WaveDemoMain
     this.root.getChildren().add(this.dataSelector);
     VBox.setMargin(this.dataSelector, new Insets(8.0));
 
+    this.statistics = new CheckBox("Show render statistics");
+    this.waveView.renderStatisticsOverlayVisibleProperty()
+      .subscribe(this.statistics::setSelected);
+    this.statistics.selectedProperty()
+      .subscribe(this.waveView::setRenderStatisticsOverlayVisible);
+    this.root.getChildren().add(this.statistics);
+    VBox.setMargin(this.statistics, new Insets(8.0));
+
     this.scene = new Scene(this.root);
     this.stage.setScene(this.scene);
     this.stage.show();
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.cmdline.BrackishThumbnailConfiguration;
+import com.io7m.brackish.cmdline.BrackishThumbnailGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the thumbnail generator.
+ */
+
+public final class BrackishThumbnailGeneratorTest
+{
+  private static Path writeSine(
+    final Path directory,
+    final String name,
+    final int frames)
+    throws Exception
+  {
+    final var format =
+      new AudioFormat(44100.0f, 16, 2, true, false);
+    final var bytes = new byte[frames * 4];
+    for (int frame = 0; frame < frames; ++frame) {
+      final var value =
+        (short) (Math.sin(frame / 50.0) * Short.MAX_VALUE * 0.8);
+      for (int channel = 0; channel < 2; ++channel) {
+        final var offset = (frame * 4) + (channel * 2);
+        bytes[offset] = (byte) (value & 0xff);
+        bytes[offset + 1] = (byte) ((value >> 8) & 0xff);
+      }
+    }
+
+    final var file = directory.resolve(name);
+    try (var stream = new AudioInputStream(
+      new ByteArrayInputStream(bytes), format, frames)) {
+      AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file.toFile());
+    }
+    return file;
+  }
+
+  /**
+   * Thumbnails are generated, peak summaries are written, and are reused
+   * by subsequent runs.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testGenerate(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final var inputs = new ArrayList<Path>();
+    for (int index = 0; index < 8; ++index) {
+      inputs.add(writeSine(directory, "clip%d.wav".formatted(index), 44100));
+    }
+    final var bad = directory.resolve("bad.wav");
+    Files.writeString(bad, "Not audio.");
+    inputs.add(bad);
+
+    final var output = directory.resolve("out");
+    final var configuration =
+      new BrackishThumbnailConfiguration(output, 256, 64, 2, 64, true, inputs);
+
+    final var report0 =
+      new BrackishThumbnailGenerator(configuration).execute();
+
+    assertEquals(8L, report0.succeeded());
+    assertEquals(1L, report0.failed());
+    assertEquals(0L, report0.summariesReused());
+    assertEquals(8L * 44100L, report0.framesRendered());
+    assertTrue(Files.isRegularFile(
+      BrackishThumbnailGenerator.peaksFileFor(inputs.get(0))));
+
+    final var image = ImageIO.read(output.resolve("clip0.wav.png").toFile());
+    assertEquals(256, image.getWidth());
+    assertEquals(64, image.getHeight());
+
+    final var report1 =
+      new BrackishThumbnailGenerator(
+        new BrackishThumbnailConfiguration(
+          output, 256, 64, 2, 64, false, List.copyOf(inputs.subList(0, 8)))
+      ).execute();
+
+    assertEquals(8L, report1.succeeded());
+    assertEquals(8L, report1.summariesReused());
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveRenderTargetType;
+import com.io7m.brackish.core.WaveRenderStyle;
+import javafx.scene.paint.Paint;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that continuous panning and zooming allocate nothing once warm.
+ */
+
+public final class WaveAllocationTest
+{
+  private static final int WARMUP = 20_000;
+  private static final int MEASURED = 2_000;
+  private static final com.sun.management.ThreadMXBean THREADS =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static long allocatedBytes()
+  {
+    return THREADS.getCurrentThreadAllocatedBytes();
+  }
+
+  private static void pan(
+    final WaveHeadlessRenderer renderer,
+    final WaveRenderTargetType target,
+    final int iterations,
+    final long span)
+  {
+    for (int index = 0; index < iterations; ++index) {
+      final long lower = (index * 37L) % 50_000L;
+      renderer.setViewRange(lower, lower + span);
+      renderer.render(target);
+    }
+  }
+
+  private static void assertNoAllocation(
+    final WaveHeadlessRenderer renderer,
+    final long span)
+  {
+    final var target = new NullTarget(400.0, 200.0);
+    pan(renderer, target, WARMUP, span);
+
+    final var before = allocatedBytes();
+    pan(renderer, target, MEASURED, span);
+    final var after = allocatedBytes();
+    assertEquals(0L, after - before);
+  }
+
+  /**
+   * Collapsed rendering allocates nothing in the steady state.
+   */
+
+  @Test
+  public void testCollapsedPan()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveMultiNoise(2, 100_000));
+    assertNoAllocation(renderer, 20_000L);
+  }
+
+  /**
+   * Expanded linear rendering allocates nothing in the steady state.
+   */
+
+  @Test
+  public void testExpandedLinearPan()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveMultiNoise(2, 100_000));
+    renderer.setRenderStyle(WaveRenderStyle.WAVE_INTERPOLATE_LINEAR);
+    assertNoAllocation(renderer, 200L);
+  }
+
+  /**
+   * Expanded box rendering allocates nothing in the steady state.
+   */
+
+  @Test
+  public void testExpandedBoxesPan()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveMultiNoise(2, 100_000));
+    renderer.setRenderStyle(WaveRenderStyle.WAVE_BOXES);
+    assertNoAllocation(renderer, 200L);
+  }
+
+  /**
+   * Rendering every channel over the full height of the target, as the
+   * overlaid single canvas layout does, allocates nothing in the steady
+   * state.
+   */
+
+  @Test
+  public void testOverlaidPan()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveMultiNoise(2, 100_000));
+
+    final var target = new NullTarget(400.0, 200.0);
+    overlaid(renderer, target, WARMUP);
+
+    final var before = allocatedBytes();
+    overlaid(renderer, target, MEASURED);
+    final var after = allocatedBytes();
+    assertEquals(0L, after - before);
+  }
+
+  private static void overlaid(
+    final WaveHeadlessRenderer renderer,
+    final WaveRenderTargetType target,
+    final int iterations)
+  {
+    for (int index = 0; index < iterations; ++index) {
+      final long lower = (index * 37L) % 50_000L;
+      renderer.setViewRange(lower, lower + 20_000L);
+      renderer.renderChannel(target, 0, 0.0, target.height());
+      renderer.renderChannel(target, 1, 0.0, target.height());
+    }
+  }
+
+  /**
+   * Redrawing the columns covering streamed frames allocates nothing in
+   * the steady state.
+   */
+
+  @Test
+  public void testStreamingRedraw()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveMultiNoise(2, 100_000));
+    renderer.setViewRange(0L, 99_999L);
+
+    final var target = new NullTarget(400.0, 200.0);
+    renderer.render(target);
+    stream(renderer, target, WARMUP);
+
+    final var before = allocatedBytes();
+    stream(renderer, target, MEASURED);
+    final var after = allocatedBytes();
+    assertEquals(0L, after - before);
+  }
+
+  private static void stream(
+    final WaveHeadlessRenderer renderer,
+    final WaveRenderTargetType target,
+    final int iterations)
+  {
+    for (int index = 0; index < iterations; ++index) {
+      final long first = (index * 512L) % 99_000L;
+      renderer.renderFrames(target, first, first + 511L);
+    }
+  }
+
+  private static final class NullTarget implements WaveRenderTargetType
+  {
+    private final double width;
+    private final double height;
+
+    NullTarget(
+      final double inWidth,
+      final double inHeight)
+    {
+      this.width = inWidth;
+      this.height = inHeight;
+    }
+
+    @Override
+    public double width()
+    {
+      return this.width;
+    }
+
+    @Override
+    public double height()
+    {
+      return this.height;
+    }
+
+    @Override
+    public void setFill(
+      final Paint paint)
+    {
+
+    }
+
+    @Override
+    public void setStroke(
+      final Paint paint)
+    {
+
+    }
+
+    @Override
+    public void setGlobalAlpha(
+      final double alpha)
+    {
+
+    }
+
+    @Override
+    public void setClip(
+      final double x,
+      final double y,
+      final double w,
+      final double h)
+    {
+
+    }
+
+    @Override
+    public void clearClip()
+    {
+
+    }
+
+    @Override
+    public void fillRect(
+      final double x,
+      final double y,
+      final double w,
+      final double h)
+    {
+
+    }
+
+    @Override
+    public void strokeRect(
+      final double x,
+      final double y,
+      final double w,
+      final double h)
+    {
+
+    }
+
+    @Override
+    public void strokeLine(
+      final double x0,
+      final double y0,
+      final double x1,
+      final double y1)
+    {
+
+    }
+
+    @Override
+    public void fillPolygon(
+      final double[] xs,
+      final double[] ys,
+      final int count)
+    {
+
+    }
+
+    @Override
+    public void strokePolygon(
+      final double[] xs,
+      final double[] ys,
+      final int count)
+    {
+
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveAnnotation;
+import com.io7m.brackish.core.WaveAnnotationIndex;
+import com.io7m.jranges.RangeInclusiveL;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for annotation indices.
+ */
+
+public final class WaveAnnotationIndexTest
+{
+  private static List<WaveAnnotation> annotations(
+    final int count)
+  {
+    final var random = new Random(0x5eedL);
+    final var results = new ArrayList<WaveAnnotation>(count);
+    for (int index = 0; index < count; ++index) {
+      final var lower = random.nextLong(1_000_000L);
+      if (random.nextBoolean()) {
+        results.add(WaveAnnotation.marker(lower, "m" + index));
+      } else {
+        final var upper = lower + random.nextLong(5_000L);
+        results.add(new WaveAnnotation(
+          RangeInclusiveL.of(lower, upper), "r" + index));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Queries return exactly the intersecting annotations, in order of lower
+   * bound.
+   */
+
+  @Test
+  public void testQueryMatchesScan()
+  {
+    final var all = annotations(20_000);
+    final var index = WaveAnnotationIndex.of(all);
+    assertEquals(all.size(), index.size());
+
+    final var random = new Random(0xfeedL);
+    for (int query = 0; query < 200; ++query) {
+      final var lower = random.nextLong(1_000_000L);
+      final var upper = lower + random.nextLong(20_000L);
+      final var range = RangeInclusiveL.of(lower, upper);
+
+      final var expected =
+        all.stream()
+          .filter(a -> a.frames().lower() <= upper)
+          .filter(a -> a.frames().upper() >= lower)
+          .count();
+
+      final var results = index.intersecting(range);
+      assertEquals(expected, results.size());
+
+      for (int r = 1; r < results.size(); ++r) {
+        assertTrue(
+          results.get(r - 1).frames().lower() <= results.get(r).frames().lower()
+        );
+      }
+    }
+  }
+
+  /**
+   * Queries outside the annotated frames return nothing.
+   */
+
+  @Test
+  public void testQueryEmpty()
+  {
+    final var index = WaveAnnotationIndex.of(annotations(1000));
+    assertEquals(0, index.query(2_000_000L, 3_000_000L, i -> {
+      throw new IllegalStateException();
+    }));
+    assertEquals(0, WaveAnnotationIndex.empty().query(0L, 100L, i -> {
+      throw new IllegalStateException();
+    }));
+  }
+}
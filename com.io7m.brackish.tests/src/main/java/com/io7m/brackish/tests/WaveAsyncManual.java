@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveModelAsyncType;
+import com.io7m.brackish.core.WaveModelType;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An asynchronous source that delivers blocks of another model only when
+ * told to.
+ */
+
+public final class WaveAsyncManual implements WaveModelAsyncType
+{
+  private final WaveModelType delegate;
+  private final int blockFrames;
+  private final ArrayList<Request> requests;
+
+  /**
+   * An asynchronous source that delivers blocks of another model only when
+   * told to.
+   *
+   * @param inDelegate    The delegate model
+   * @param inBlockFrames The number of frames in each block
+   */
+
+  public WaveAsyncManual(
+    final WaveModelType inDelegate,
+    final int inBlockFrames)
+  {
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.blockFrames =
+      inBlockFrames;
+    this.requests =
+      new ArrayList<>();
+  }
+
+  /**
+   * @return The number of outstanding requests
+   */
+
+  public int outstanding()
+  {
+    return this.requests.size();
+  }
+
+  /**
+   * Complete all outstanding requests.
+   */
+
+  public void completeAll()
+  {
+    final var completing = new ArrayList<>(this.requests);
+    this.requests.clear();
+    for (final var request : completing) {
+      final var first = request.block * this.blockFrames;
+      final var count =
+        (int) Math.min(this.blockFrames, this.delegate.frameCount() - first);
+      final var data = new double[count];
+      this.delegate.samples(request.channel, first, data, 0, count);
+      request.future.complete(data);
+    }
+  }
+
+  /**
+   * Fail all outstanding requests.
+   */
+
+  public void failAll()
+  {
+    final var failing = new ArrayList<>(this.requests);
+    this.requests.clear();
+    for (final var request : failing) {
+      request.future.completeExceptionally(new IllegalStateException("Failed"));
+    }
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.delegate.frameCount();
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.delegate.channelCount();
+  }
+
+  @Override
+  public int blockFrames()
+  {
+    return this.blockFrames;
+  }
+
+  @Override
+  public CompletableFuture<double[]> readBlock(
+    final int channel,
+    final long block)
+  {
+    final var future = new CompletableFuture<double[]>();
+    this.requests.add(new Request(channel, block, future));
+    return future;
+  }
+
+  private record Request(
+    int channel,
+    long block,
+    CompletableFuture<double[]> future)
+  {
+
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.jranges.RangeCheck;
+
+/**
+ * A waveform in which every sample of every channel has the same value.
+ */
+
+public final class WaveConstant implements WaveModelType
+{
+  private final int channels;
+  private final long frames;
+  private final double value;
+
+  /**
+   * A waveform in which every sample of every channel has the same value.
+   *
+   * @param inChannels The number of channels
+   * @param inFrames   The number of frames
+   * @param inValue    The sample value
+   */
+
+  public WaveConstant(
+    final int inChannels,
+    final long inFrames,
+    final double inValue)
+  {
+    this.channels = inChannels;
+    this.frames = inFrames;
+    this.value = inValue;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "WaveConstant";
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.frames;
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.channels;
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.channels,
+      "Channel count"
+    );
+    RangeCheck.checkLessLong(
+      frameIndex,
+      "Frame",
+      this.frames,
+      "Frame count"
+    );
+    return this.value;
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    if (channel < 0 || channel >= this.channels) {
+      return orElse;
+    }
+    if (frameIndex < 0L || frameIndex >= this.frames) {
+      return orElse;
+    }
+    return this.value;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.jranges.RangeCheck;
+
+/**
+ * A waveform whose samples can be modified in place.
+ */
+
+public final class WaveEditable implements WaveModelType
+{
+  private final double[][] samples;
+  private final long frames;
+
+  /**
+   * A waveform whose samples can be modified in place. All samples are
+   * initially zero.
+   *
+   * @param inChannels The number of channels
+   * @param inFrames   The number of frames
+   */
+
+  public WaveEditable(
+    final int inChannels,
+    final int inFrames)
+  {
+    this.samples = new double[inChannels][inFrames];
+    this.frames = inFrames;
+  }
+
+  /**
+   * Set a sample.
+   *
+   * @param channel    The channel
+   * @param frameIndex The frame
+   * @param value      The sample value
+   */
+
+  public void set(
+    final int channel,
+    final long frameIndex,
+    final double value)
+  {
+    this.samples[channel][Math.toIntExact(frameIndex)] = value;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "WaveEditable";
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.frames;
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.samples.length;
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.samples.length,
+      "Channel count"
+    );
+    RangeCheck.checkLessLong(
+      frameIndex,
+      "Frame",
+      this.frames,
+      "Frame count"
+    );
+    return this.samples[channel][(int) frameIndex];
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    if (channel < 0 || channel >= this.samples.length) {
+      return orElse;
+    }
+    if (frameIndex < 0L || frameIndex >= this.frames) {
+      return orElse;
+    }
+    return this.samples[channel][(int) frameIndex];
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WaveRenderPaints;
+import com.io7m.jranges.RangeInclusiveL;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static com.io7m.brackish.core.WaveRenderPath.RENDER_PATH_COLLAPSED;
+import static com.io7m.brackish.core.WaveRenderPath.RENDER_PATH_EXPANDED_BOXES;
+import static com.io7m.brackish.core.WaveRenderPath.RENDER_PATH_EXPANDED_LINEAR;
+import static com.io7m.brackish.core.WaveRenderStyle.WAVE_BOXES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for headless rendering. None of these tests require a running
+ * JavaFX toolkit.
+ */
+
+public final class WaveHeadlessRendererTest
+{
+  private static final int BACKGROUND =
+    WaveImageRenderTarget.argbOf(WaveRenderPaints.defaults().background());
+  private static final int COLLAPSED =
+    WaveImageRenderTarget.argbOf(WaveRenderPaints.defaults().collapsedSampleFill());
+
+  private static int pixel(
+    final WaveImageRenderTarget target,
+    final int x,
+    final int y)
+  {
+    return target.pixels()[(y * (int) target.width()) + x];
+  }
+
+  /**
+   * A collapsed rendering of a constant waveform fills exactly the upper
+   * half of the band in proportion to the sample value.
+   */
+
+  @Test
+  public void testCollapsedConstant()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveConstant(1, 10_000L, 0.5));
+
+    final var target = new WaveImageRenderTarget(100, 100);
+    renderer.render(target);
+
+    assertEquals(BACKGROUND, pixel(target, 50, 10));
+    assertEquals(COLLAPSED, pixel(target, 50, 30));
+    assertEquals(COLLAPSED, pixel(target, 50, 49));
+    assertEquals(BACKGROUND, pixel(target, 50, 90));
+
+    final var statistics = renderer.renderStatistics();
+    assertEquals(1L, statistics.renders());
+    final var channel = statistics.channels().get(0);
+    assertEquals(RENDER_PATH_COLLAPSED, channel.path());
+    assertTrue(channel.exact());
+  }
+
+  /**
+   * Channels are stacked, and each channel is confined to its own band.
+   */
+
+  @Test
+  public void testStackedChannels()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveConstant(2, 10_000L, 1.0));
+
+    final var target = new WaveImageRenderTarget(100, 200);
+    renderer.render(target);
+
+    assertEquals(COLLAPSED, pixel(target, 50, 10));
+    assertEquals(COLLAPSED, pixel(target, 50, 110));
+    assertEquals(BACKGROUND, pixel(target, 50, 190));
+    assertEquals(2, renderer.renderStatistics().channels().size());
+  }
+
+  /**
+   * Changing only the height and paints re-plots cached column extrema
+   * without reading the model.
+   */
+
+  @Test
+  public void testColumnCache()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveConstant(1, 10_000L, 0.5));
+    renderer.render(new WaveImageRenderTarget(100, 100));
+
+    final var defaults = WaveRenderPaints.defaults();
+    renderer.setPaints(
+      new WaveRenderPaints(
+        defaults.background(),
+        defaults.centerLine(),
+        defaults.expandedSampleStroke(),
+        defaults.expandedSampleFill(),
+        Color.RED,
+        defaults.placeholderFill(),
+        defaults.clipFill()
+      )
+    );
+
+    final var target = new WaveImageRenderTarget(100, 200);
+    renderer.repaint(target);
+    assertEquals(WaveImageRenderTarget.argbOf(Color.RED), pixel(target, 50, 60));
+    assertEquals(BACKGROUND, pixel(target, 50, 20));
+
+    final var statistics = renderer.renderStatistics();
+    assertEquals(1L, statistics.cacheHits());
+    assertEquals(1L, statistics.cacheMisses());
+    assertEquals(0L, statistics.channels().get(0).framesRead());
+
+    renderer.setViewRange(RangeInclusiveL.of(0L, 5000L));
+    renderer.repaint(target);
+    assertEquals(2L, renderer.renderStatistics().cacheMisses());
+  }
+
+  /**
+   * A full rendering reads the model again, and so reflects samples that
+   * were modified in place, even though nothing else has changed.
+   */
+
+  @Test
+  public void testRenderAfterEdit()
+  {
+    final var model = new WaveEditable(1, 10_000);
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(model);
+
+    final var target = new WaveImageRenderTarget(100, 100);
+    renderer.render(target);
+    assertEquals(BACKGROUND, pixel(target, 50, 10));
+
+    for (long frame = 0L; frame < 10_000L; ++frame) {
+      model.set(0, frame, 1.0);
+    }
+
+    renderer.repaint(target);
+    assertEquals(BACKGROUND, pixel(target, 50, 10));
+
+    renderer.render(target);
+    assertEquals(COLLAPSED, pixel(target, 50, 10));
+    assertEquals(COLLAPSED, pixel(target, 10, 1));
+    assertEquals(1L, renderer.renderStatistics().cacheHits());
+  }
+
+  /**
+   * Partial redraws re-aggregate only the columns covering the modified
+   * frames.
+   */
+
+  @Test
+  public void testRenderFrames()
+  {
+    final var model = new WaveEditable(1, 10_000);
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(model);
+
+    final var target = new WaveImageRenderTarget(100, 100);
+    renderer.render(target);
+    assertEquals(BACKGROUND, pixel(target, 50, 10));
+
+    for (long frame = 5000L; frame < 5010L; ++frame) {
+      model.set(0, frame, 1.0);
+    }
+    renderer.renderFrames(target, 5000L, 5009L);
+
+    assertEquals(COLLAPSED, pixel(target, 50, 10));
+    assertEquals(BACKGROUND, pixel(target, 40, 10));
+    assertEquals(BACKGROUND, pixel(target, 60, 10));
+
+    final var channel = renderer.renderStatistics().channels().get(0);
+    assertTrue(channel.framesRead() > 0L);
+    assertTrue(channel.framesRead() < 1000L);
+  }
+
+  /**
+   * Expanded renderings use the configured style.
+   */
+
+  @Test
+  public void testExpanded()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveStereoNoise(1000));
+    renderer.setViewRange(RangeInclusiveL.of(0L, 24L));
+
+    final var target = new WaveImageRenderTarget(100, 100);
+    renderer.render(target);
+    assertEquals(
+      RENDER_PATH_EXPANDED_LINEAR,
+      renderer.renderStatistics().channels().get(0).path()
+    );
+
+    renderer.setRenderStyle(WAVE_BOXES);
+    renderer.render(target);
+    assertEquals(
+      RENDER_PATH_EXPANDED_BOXES,
+      renderer.renderStatistics().channels().get(0).path()
+    );
+
+    var drawn = 0;
+    for (final var p : target.pixels()) {
+      if (p != BACKGROUND) {
+        ++drawn;
+      }
+    }
+    assertTrue(drawn > 100);
+  }
+
+  /**
+   * Translucent fills are blended, and clipping restricts drawing.
+   */
+
+  @Test
+  public void testImageTargetBlendAndClip()
+  {
+    final var target = new WaveImageRenderTarget(10, 10);
+    target.setFill(Color.BLACK);
+    target.fillRect(0.0, 0.0, 10.0, 10.0);
+
+    target.setClip(0.0, 0.0, 5.0, 10.0);
+    target.setGlobalAlpha(0.5);
+    target.setFill(Color.WHITE);
+    target.fillRect(0.0, 0.0, 10.0, 10.0);
+    target.clearClip();
+
+    final var blended = pixel(target, 2, 2);
+    assertEquals(0xff, blended >>> 24);
+    assertNotEquals(0xff000000, blended);
+    assertNotEquals(0xffffffff, blended);
+    assertEquals(0xff000000, pixel(target, 7, 2));
+  }
+
+  /**
+   * Images of unsupported types are rejected.
+   */
+
+  @Test
+  public void testImageTargetRejectsType()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new WaveImageRenderTarget(
+        new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB)
+      );
+    });
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveMemoryCacheType;
+import com.io7m.brackish.core.WaveMemoryManager;
+import com.io7m.brackish.core.WaveMemoryUsage;
+import com.io7m.brackish.core.WaveModelBlockCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for memory managers.
+ */
+
+public final class WaveMemoryManagerTest
+{
+  private static final long BLOCK_BYTES = 100L * Double.BYTES;
+
+  /**
+   * Caches sharing a manager never retain more than its ceiling in total,
+   * and the least recently used blocks are evicted across caches.
+   */
+
+  @Test
+  public void testSharedCeiling()
+  {
+    final var memory = WaveMemoryManager.create(BLOCK_BYTES * 4L);
+    final var model = new WaveMultiNoise(1, 10_000);
+    final var cacheA =
+      new WaveModelBlockCache(model, 100, 1L << 20, memory);
+    final var cacheB =
+      new WaveModelBlockCache(model, 100, 1L << 20, memory);
+
+    cacheA.sample(0, 0L);
+    cacheA.sample(0, 100L);
+    cacheA.sample(0, 200L);
+    assertEquals(BLOCK_BYTES * 3L, memory.usage().used());
+
+    cacheB.sample(0, 0L);
+    cacheB.sample(0, 100L);
+    cacheB.sample(0, 200L);
+
+    final var usage = memory.usage();
+    assertEquals(BLOCK_BYTES * 4L, usage.used());
+    assertEquals(2, usage.caches());
+    assertEquals(2L, usage.evictions());
+    assertEquals(BLOCK_BYTES * 2L, usage.evictedBytes());
+    assertEquals(1, cacheA.blockCount());
+    assertEquals(3, cacheB.blockCount());
+
+    cacheA.resetStatistics();
+    cacheA.sample(0, 200L);
+    assertEquals(1L, cacheA.hits());
+    cacheA.sample(0, 0L);
+    assertEquals(1L, cacheA.misses());
+  }
+
+  /**
+   * Of two entries of the same age, the entry that is cheaper to reload
+   * is evicted first; sufficiently old entries are evicted regardless of
+   * cost.
+   */
+
+  @Test
+  public void testReloadCost()
+  {
+    final var memory = WaveMemoryManager.create(300L);
+    final var cheap = new Fake(1.0);
+    final var costly = new Fake(4.0);
+    memory.register(cheap);
+    memory.register(costly);
+
+    final var now = System.nanoTime();
+    costly.add(100L, now - 1_000_000_000L);
+    cheap.add(100L, now - 1_000_000_000L);
+    costly.add(100L, now);
+    cheap.add(100L, now);
+    memory.enforce();
+
+    assertEquals(1, cheap.entries.size());
+    assertEquals(2, costly.entries.size());
+
+    costly.entries.getFirst()[1] = now - 100_000_000_000L;
+    memory.setCeiling(200L);
+    assertEquals(1, cheap.entries.size());
+    assertEquals(1, costly.entries.size());
+  }
+
+  /**
+   * Listeners observe usage, and unregistered caches are not counted.
+   */
+
+  @Test
+  public void testListeners()
+  {
+    final var memory = WaveMemoryManager.create(1000L);
+    final var received = new ArrayList<WaveMemoryUsage>();
+    memory.addUsageListener(received::add);
+
+    final var cache = new Fake(1.0);
+    memory.register(cache);
+    cache.add(400L, System.nanoTime());
+    memory.enforce();
+
+    assertEquals(1, received.size());
+    assertEquals(
+      new WaveMemoryUsage(1000L, 400L, 1, 0L, 0L),
+      received.getFirst()
+    );
+
+    memory.setCeiling(100L);
+    assertEquals(2, received.size());
+    assertEquals(0L, received.get(1).used());
+    assertEquals(1L, received.get(1).evictions());
+
+    cache.add(400L, System.nanoTime());
+    memory.unregister(cache);
+    memory.enforce();
+    assertEquals(0, received.get(2).caches());
+    assertEquals(1, cache.entries.size());
+    assertEquals(0L, memory.usage().used());
+  }
+
+  private static final class Fake implements WaveMemoryCacheType
+  {
+    private final double cost;
+    private final ArrayDeque<long[]> entries;
+
+    Fake(
+      final double inCost)
+    {
+      this.cost = inCost;
+      this.entries = new ArrayDeque<>();
+    }
+
+    void add(
+      final long size,
+      final long time)
+    {
+      this.entries.addLast(new long[]{size, time});
+    }
+
+    @Override
+    public String memoryCacheName()
+    {
+      return "Fake";
+    }
+
+    @Override
+    public long memoryUsed()
+    {
+      return this.entries.stream().mapToLong(e -> e[0]).sum();
+    }
+
+    @Override
+    public long memoryOldestAccess()
+    {
+      if (this.entries.isEmpty()) {
+        return Long.MAX_VALUE;
+      }
+      return this.entries.getFirst()[1];
+    }
+
+    @Override
+    public double memoryReloadCost()
+    {
+      return this.cost;
+    }
+
+    @Override
+    public long memoryEvictOldest()
+    {
+      final var removed = this.entries.pollFirst();
+      return removed == null ? 0L : removed[0];
+    }
+  }
+}
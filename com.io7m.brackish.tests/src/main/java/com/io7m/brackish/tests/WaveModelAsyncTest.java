@@ -0,0 +1,376 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WaveModelAsync;
+import com.io7m.brackish.core.WaveModelAsyncType;
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WaveRenderPaints;
+import com.io7m.jranges.RangeInclusiveL;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for asynchronous models.
+ */
+
+public final class WaveModelAsyncTest
+{
+  private static final int PLACEHOLDER =
+    WaveImageRenderTarget.argbOf(Color.RED);
+
+  private static WaveHeadlessRenderer renderer(
+    final WaveModelAsync model)
+  {
+    final var defaults = WaveRenderPaints.defaults();
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(model);
+    renderer.setPaints(
+      new WaveRenderPaints(
+        defaults.background(),
+        defaults.centerLine(),
+        defaults.expandedSampleStroke(),
+        defaults.expandedSampleFill(),
+        defaults.collapsedSampleFill(),
+        Color.RED,
+        defaults.clipFill()
+      )
+    );
+    return renderer;
+  }
+
+  private static int placeholders(
+    final WaveImageRenderTarget target)
+  {
+    var count = 0;
+    for (final var pixel : target.pixels()) {
+      if (pixel == PLACEHOLDER) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Missing blocks are drawn as placeholders, and replaced with the
+   * waveform as they arrive.
+   */
+
+  @Test
+  public void testCollapsedPlaceholders()
+  {
+    final var data = new WaveMultiNoise(2, 10_000);
+    final var source = new WaveAsyncManual(data, 1000);
+    final var model = new WaveModelAsync(source, 1L << 20);
+    final var notified = new ArrayList<long[]>();
+    model.addAvailabilityListener((channel, first, last) -> {
+      notified.add(new long[]{channel, first, last});
+    });
+
+    final var renderer = renderer(model);
+    final var target = new WaveImageRenderTarget(100, 200);
+    renderer.render(target);
+
+    assertEquals(100 * 200, placeholders(target));
+    assertEquals(20, source.outstanding());
+    assertEquals(20L, model.requests());
+
+    /*
+     * Rendering again before anything arrives does not repeat requests.
+     */
+
+    renderer.setViewRange(RangeInclusiveL.of(0L, 9998L));
+    renderer.render(target);
+    assertEquals(20, source.outstanding());
+
+    source.completeAll();
+    assertEquals(20, notified.size());
+    assertArrayEquals(new long[]{0L, 0L, 999L}, notified.get(0));
+
+    renderer.render(target);
+    assertEquals(0, placeholders(target));
+
+    final var expected = new WaveImageRenderTarget(100, 200);
+    final var synchronous = new WaveHeadlessRenderer();
+    synchronous.setWaveModel(data);
+    synchronous.setViewRange(RangeInclusiveL.of(0L, 9998L));
+    synchronous.render(expected);
+    assertArrayEquals(expected.pixels(), target.pixels());
+  }
+
+  /**
+   * Partial redraws replace placeholders as individual blocks arrive.
+   */
+
+  @Test
+  public void testPartialArrival()
+  {
+    final var data = new WaveMultiNoise(1, 10_000);
+    final var source = new WaveAsyncManual(data, 1000);
+    final var model = new WaveModelAsync(source, 1L << 20);
+    final var renderer = renderer(model);
+    final var target = new WaveImageRenderTarget(100, 100);
+
+    model.isAvailable(0, 0L, 999L);
+    source.completeAll();
+    renderer.render(target);
+
+    final var placeholdersBefore = placeholders(target);
+    assertTrue(placeholdersBefore > 0);
+    assertTrue(placeholdersBefore < 100 * 100);
+
+    model.addAvailabilityListener((channel, first, last) -> {
+      renderer.renderFrames(target, first, last);
+    });
+    source.completeAll();
+    assertEquals(0, placeholders(target));
+  }
+
+  /**
+   * Expanded renderings draw placeholders for missing frames.
+   */
+
+  @Test
+  public void testExpandedPlaceholders()
+  {
+    final var source = new WaveAsyncManual(new WaveMultiNoise(1, 10_000), 100);
+    final var model = new WaveModelAsync(source, 1L << 20);
+    final var renderer = renderer(model);
+    renderer.setViewRange(RangeInclusiveL.of(0L, 49L));
+
+    final var target = new WaveImageRenderTarget(100, 100);
+    renderer.render(target);
+    assertTrue(placeholders(target) > 0);
+
+    source.completeAll();
+    renderer.render(target);
+    assertEquals(0, placeholders(target));
+  }
+
+  /**
+   * Failed blocks are requested again, and synchronous reads wait for
+   * blocks to arrive.
+   */
+
+  @Test
+  public void testFailureAndSynchronous()
+  {
+    final var data = new WaveMultiNoise(1, 1000);
+    final var source = new WaveAsyncManual(data, 100);
+    final var model = new WaveModelAsync(source, 1L << 20);
+
+    assertFalse(model.isAvailable(0, 0L, 99L));
+    source.failAll();
+    assertEquals(1L, model.failures());
+    assertFalse(model.isAvailable(0, 0L, 99L));
+    assertEquals(2L, model.requests());
+    source.completeAll();
+    assertTrue(model.isAvailable(0, 0L, 99L));
+    assertEquals(data.sample(0, 50L), model.sampleOrDefault(0, 50L, 3.0));
+    assertEquals(3.0, model.sampleOrDefault(0, 500L, 3.0));
+
+    final var immediate = new WaveModelAsync(
+      new Immediate(data),
+      1L << 20
+    );
+    assertEquals(data.sample(0, 500L), immediate.sample(0, 500L));
+  }
+
+  /**
+   * Listeners are notified when a block fails, so that views request it
+   * again, but only for a bounded number of successive failures.
+   */
+
+  @Test
+  public void testFailureNotifies()
+  {
+    final var model = new WaveModelAsync(new Failing(), 1L << 20);
+    final var notified = new ArrayList<long[]>();
+    model.addAvailabilityListener((channel, first, last) -> {
+      notified.add(new long[]{channel, first, last});
+      model.isAvailable(channel, first, last);
+    });
+
+    assertFalse(model.isAvailable(0, 150L, 160L));
+    assertEquals(WaveModelAsync.MAXIMUM_RETRIES, notified.size());
+    assertArrayEquals(new long[]{0L, 100L, 199L}, notified.get(0));
+    assertEquals(WaveModelAsync.MAXIMUM_RETRIES + 1L, model.requests());
+    assertEquals(WaveModelAsync.MAXIMUM_RETRIES + 1L, model.failures());
+
+    /*
+     * The block is still requested when it is next read.
+     */
+
+    assertFalse(model.isAvailable(0, 150L, 160L));
+    assertEquals(WaveModelAsync.MAXIMUM_RETRIES + 2L, model.requests());
+  }
+
+  /**
+   * Synchronous reads of blocks that fail, or that arrive truncated, are
+   * counted as failures and read as silence.
+   */
+
+  @Test
+  public void testSynchronousFailure()
+  {
+    final var failing = new WaveModelAsync(new Failing(), 1L << 20);
+    assertEquals(0.0, failing.sample(0, 150L));
+    assertEquals(1L, failing.failures());
+
+    final var truncated = new WaveModelAsync(new Truncated(), 1L << 20);
+    assertEquals(0.0, truncated.sample(0, 150L));
+    assertEquals(1L, truncated.failures());
+    assertEquals(0, truncated.blockCount());
+  }
+
+  /**
+   * Failures are only remembered for as many blocks as the model can
+   * retain, so a block whose failures have been forgotten is announced
+   * again.
+   */
+
+  @Test
+  public void testFailureCountsBounded()
+  {
+    final var model = new WaveModelAsync(new Failing(), 100L * 8L * 2L);
+    assertEquals(2, model.blockCapacity());
+
+    final var notified = new ArrayList<long[]>();
+    model.addAvailabilityListener((channel, first, last) -> {
+      notified.add(new long[]{channel, first, last});
+      model.isAvailable(channel, first, last);
+    });
+
+    model.isAvailable(0, 150L, 160L);
+    model.isAvailable(0, 150L, 160L);
+    assertEquals(WaveModelAsync.MAXIMUM_RETRIES, notified.size());
+
+    model.isAvailable(0, 350L, 360L);
+    model.isAvailable(0, 550L, 560L);
+    assertEquals(WaveModelAsync.MAXIMUM_RETRIES * 3, notified.size());
+
+    model.isAvailable(0, 150L, 160L);
+    assertEquals(WaveModelAsync.MAXIMUM_RETRIES * 4, notified.size());
+    assertArrayEquals(new long[]{0L, 100L, 199L}, notified.getLast());
+  }
+
+  private record Failing()
+    implements WaveModelAsyncType
+  {
+    @Override
+    public long frameCount()
+    {
+      return 1000L;
+    }
+
+    @Override
+    public int channelCount()
+    {
+      return 1;
+    }
+
+    @Override
+    public int blockFrames()
+    {
+      return 100;
+    }
+
+    @Override
+    public CompletableFuture<double[]> readBlock(
+      final int channel,
+      final long block)
+    {
+      return CompletableFuture.failedFuture(new IOException("Unavailable"));
+    }
+  }
+
+  private record Truncated()
+    implements WaveModelAsyncType
+  {
+    @Override
+    public long frameCount()
+    {
+      return 1000L;
+    }
+
+    @Override
+    public int channelCount()
+    {
+      return 1;
+    }
+
+    @Override
+    public int blockFrames()
+    {
+      return 100;
+    }
+
+    @Override
+    public CompletableFuture<double[]> readBlock(
+      final int channel,
+      final long block)
+    {
+      return CompletableFuture.completedFuture(new double[10]);
+    }
+  }
+
+  private record Immediate(WaveModelType delegate)
+    implements WaveModelAsyncType
+  {
+    @Override
+    public long frameCount()
+    {
+      return this.delegate.frameCount();
+    }
+
+    @Override
+    public int channelCount()
+    {
+      return this.delegate.channelCount();
+    }
+
+    @Override
+    public int blockFrames()
+    {
+      return 100;
+    }
+
+    @Override
+    public CompletableFuture<double[]> readBlock(
+      final int channel,
+      final long block)
+    {
+      return CompletableFuture.supplyAsync(() -> {
+        final var data = new double[100];
+        this.delegate.samples(channel, block * 100L, data, 0, 100);
+        return data;
+      });
+    }
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveModelBlockCache;
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.jranges.RangeCheckException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.io7m.brackish.core.WavePrefetchDirection.PREFETCH_FORWARD;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for block caches.
+ */
+
+public final class WaveModelBlockCacheTest
+{
+  /**
+   * Cached samples agree with the underlying model, and sequential reads
+   * fetch each block exactly once.
+   */
+
+  @Test
+  public void testSequential()
+  {
+    final var model = new WaveMultiNoise(2, 10_000);
+    final var source = new Counting(model);
+    final var cache = new WaveModelBlockCache(source, 1024, 1L << 20);
+
+    for (int channel = 0; channel < 2; ++channel) {
+      for (long frame = 0L; frame < 10_000L; ++frame) {
+        assertEquals(
+          model.sample(channel, frame),
+          cache.sample(channel, frame)
+        );
+      }
+    }
+
+    assertEquals(20L, source.fetches.get());
+    assertEquals(20L, cache.misses());
+    assertEquals(20_000L - 20L, cache.hits());
+    assertEquals(20, cache.blockCount());
+
+    cache.resetStatistics();
+    cache.sample(0, 0L);
+    assertEquals(1L, cache.hits());
+    assertEquals(0L, cache.misses());
+  }
+
+  /**
+   * The cache never retains more blocks than its budget allows, and
+   * evicts the least recently used block first.
+   */
+
+  @Test
+  public void testEviction()
+  {
+    final var model = new WaveMultiNoise(1, 10_000);
+    final var source = new Counting(model);
+    final var cache = new WaveModelBlockCache(source, 100, 100L * 8L * 3L);
+    assertEquals(3, cache.blockCapacity());
+
+    cache.sample(0, 0L);
+    cache.sample(0, 100L);
+    cache.sample(0, 200L);
+    cache.sample(0, 0L);
+    cache.sample(0, 300L);
+    assertEquals(3, cache.blockCount());
+    assertEquals(4L, source.fetches.get());
+
+    cache.sample(0, 0L);
+    cache.sample(0, 200L);
+    assertEquals(4L, source.fetches.get());
+    cache.sample(0, 100L);
+    assertEquals(5L, source.fetches.get());
+  }
+
+  /**
+   * Repeated reads of the most recent block refresh its access time and
+   * its position in the eviction order, even when a prefetch has loaded
+   * a block since.
+   */
+
+  @Test
+  public void testRecentBlockAccess()
+  {
+    final var model = new WaveMultiNoise(1, 10_000);
+    final var source = new Counting(model);
+    final var cache = new WaveModelBlockCache(source, 100, 100L * 8L * 2L);
+    assertEquals(2, cache.blockCapacity());
+
+    cache.sample(0, 0L);
+    final var accessed = cache.memoryOldestAccess();
+
+    cache.prefetch(0, 100L, 199L, PREFETCH_FORWARD);
+    assertEquals(2L, source.fetches.get());
+
+    for (int pass = 0; pass < 10; ++pass) {
+      for (long frame = 0L; frame < 100L; ++frame) {
+        cache.sample(0, frame);
+      }
+    }
+    assertEquals(2L, source.fetches.get());
+    assertTrue(cache.memoryOldestAccess() > accessed);
+
+    cache.sample(0, 200L);
+    cache.sample(0, 0L);
+    assertEquals(3L, source.fetches.get());
+  }
+
+  /**
+   * Bulk reads span block boundaries and the ends of the waveform.
+   */
+
+  @Test
+  public void testBulk()
+  {
+    final var model = new WaveMultiNoise(1, 1_000);
+    final var cache = new WaveModelBlockCache(model, 64, 1L << 16);
+
+    final var expected = new double[300];
+    final var received = new double[300];
+    model.samples(0, 850L, expected, 0, 300);
+    cache.samples(0, 850L, received, 0, 300);
+    assertArrayEquals(expected, received);
+    assertEquals(0.0, received[299]);
+
+    model.samples(0, -10L, expected, 5, 100);
+    cache.samples(0, -10L, received, 5, 100);
+    assertArrayEquals(expected, received);
+  }
+
+  /**
+   * Bulk reads count each frame read, as single sample reads do.
+   */
+
+  @Test
+  public void testBulkCounters()
+  {
+    final var model = new WaveMultiNoise(1, 1_000);
+    final var cache = new WaveModelBlockCache(model, 64, 1L << 16);
+
+    final var received = new double[128];
+    cache.samples(0, 0L, received, 0, 128);
+    assertEquals(0L, cache.hits());
+    assertEquals(128L, cache.misses());
+
+    cache.samples(0, 32L, received, 0, 96);
+    assertEquals(96L, cache.hits());
+    assertEquals(128L, cache.misses());
+
+    cache.sample(0, 0L);
+    assertEquals(97L, cache.hits());
+  }
+
+  /**
+   * Out of range reads are rejected or defaulted.
+   */
+
+  @Test
+  public void testRange()
+  {
+    final var cache =
+      new WaveModelBlockCache(new WaveMultiNoise(1, 100), 16, 1024L);
+
+    assertThrows(RangeCheckException.class, () -> cache.sample(0, 100L));
+    assertThrows(RangeCheckException.class, () -> cache.sample(1, 0L));
+    assertEquals(3.0, cache.sampleOrDefault(0, -1L, 3.0));
+    assertEquals(3.0, cache.sampleOrDefault(1, 0L, 3.0));
+  }
+
+  /**
+   * Concurrent readers observe the same samples as the underlying model.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testConcurrent()
+    throws Exception
+  {
+    final var model = new WaveMultiNoise(2, 50_000);
+    final var cache = new WaveModelBlockCache(model, 256, 256L * 8L * 16L);
+
+    try (var executor = Executors.newFixedThreadPool(4)) {
+      final var futures = new ArrayList<Future<Boolean>>();
+      for (int thread = 0; thread < 4; ++thread) {
+        final var stride = 1 + thread * 7;
+        futures.add(executor.submit(() -> {
+          for (long frame = 0L; frame < 50_000L; frame += stride) {
+            for (int channel = 0; channel < 2; ++channel) {
+              if (cache.sample(channel, frame) != model.sample(channel, frame)) {
+                return Boolean.FALSE;
+              }
+            }
+          }
+          return Boolean.TRUE;
+        }));
+      }
+      for (final var future : futures) {
+        assertTrue(future.get());
+      }
+    }
+    assertTrue(cache.blockCount() <= 16);
+  }
+
+  private static final class Counting implements WaveModelType
+  {
+    private final WaveModelType delegate;
+    private final AtomicLong fetches;
+
+    Counting(
+      final WaveModelType inDelegate)
+    {
+      this.delegate = inDelegate;
+      this.fetches = new AtomicLong();
+    }
+
+    @Override
+    public long frameCount()
+    {
+      return this.delegate.frameCount();
+    }
+
+    @Override
+    public int channelCount()
+    {
+      return this.delegate.channelCount();
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return this.delegate.sample(channel, frameIndex);
+    }
+
+    @Override
+    public double sampleOrDefault(
+      final int channel,
+      final long frameIndex,
+      final double orElse)
+    {
+      return this.delegate.sampleOrDefault(channel, frameIndex, orElse);
+    }
+
+    @Override
+    public void samples(
+      final int channel,
+      final long firstFrame,
+      final double[] output,
+      final int offset,
+      final int count)
+    {
+      this.fetches.incrementAndGet();
+      this.delegate.samples(channel, firstFrame, output, offset, count);
+    }
+  }
+}
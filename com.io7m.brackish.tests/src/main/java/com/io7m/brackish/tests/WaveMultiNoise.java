@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.jranges.RangeCheck;
+
+import java.util.Random;
+
+/**
+ * A waveform with an arbitrary number of channels of random noise.
+ */
+
+public final class WaveMultiNoise implements WaveModelType
+{
+  private final double[][] data;
+
+  /**
+   * A waveform with an arbitrary number of channels of random noise.
+   *
+   * @param channels The number of channels
+   * @param size     The number of samples
+   */
+
+  public WaveMultiNoise(
+    final int channels,
+    final int size)
+  {
+    this.data = new double[channels][size];
+
+    final var rng = new Random(0x2024L);
+    for (final var channel : this.data) {
+      for (int index = 0; index < channel.length; ++index) {
+        channel[index] = rng.nextDouble() - 0.5;
+      }
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "WaveMultiNoise";
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return Integer.toUnsignedLong(this.data[0].length);
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.data.length;
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    RangeCheck.checkLessInteger(
+      channel,
+      "Channel",
+      this.channelCount(),
+      "Channel count"
+    );
+    return this.data[channel][Math.toIntExact(frameIndex)];
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    if (channel < 0 || channel >= this.data.length) {
+      return orElse;
+    }
+    final var samples = this.data[channel];
+    if (frameIndex < 0L || frameIndex >= samples.length) {
+      return orElse;
+    }
+    return samples[(int) frameIndex];
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WavePeakSummary;
+import com.io7m.brackish.core.WavePeakSummaryBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static com.io7m.brackish.core.WaveRenderPath.RENDER_PATH_COLLAPSED_SUMMARY;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for peak summaries.
+ */
+
+public final class WavePeakSummaryTest
+{
+  /**
+   * Summary extrema agree with the extrema of the underlying frames, to
+   * within the granularity of a block.
+   */
+
+  @Test
+  public void testExtrema()
+  {
+    final var model = new WaveMultiNoise(2, 100_000);
+    final var summary = WavePeakSummary.build(model, 64);
+
+    assertEquals(2, summary.channelCount());
+    assertEquals(100_000L, summary.frameCount());
+    assertEquals(1563, summary.blockCount(0));
+    assertEquals(1, summary.blockCount(summary.levelCount() - 1));
+
+    final var output = new double[2];
+    for (final var range : new long[][]{{0L, 64L}, {640L, 6400L}, {0L, 100_000L}}) {
+      summary.extrema(1, range[0], range[1], output);
+
+      var min = Double.POSITIVE_INFINITY;
+      var max = Double.NEGATIVE_INFINITY;
+      for (long frame = range[0]; frame < range[1]; ++frame) {
+        min = Math.min(min, model.sample(1, frame));
+        max = Math.max(max, model.sample(1, frame));
+      }
+      assertEquals(min, output[0], 1.0e-6);
+      assertEquals(max, output[1], 1.0e-6);
+    }
+  }
+
+  /**
+   * Summaries survive serialization.
+   *
+   * @throws IOException On errors
+   */
+
+  @Test
+  public void testRoundTrip()
+    throws IOException
+  {
+    final var builder = new WavePeakSummaryBuilder(1, 4);
+    for (int index = 0; index < 10; ++index) {
+      builder.add(0, index / 10.0);
+    }
+    final var summary = builder.build();
+
+    final var bytes = new ByteArrayOutputStream();
+    summary.writeTo(bytes);
+    final var read =
+      WavePeakSummary.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+
+    assertEquals(summary.frameCount(), read.frameCount());
+    assertEquals(summary.blockSize(), read.blockSize());
+    assertEquals(3, read.blockCount(0));
+
+    final var expected = new double[2];
+    final var received = new double[2];
+    summary.extrema(0, 8L, 10L, expected);
+    read.extrema(0, 8L, 10L, received);
+    assertArrayEquals(expected, received);
+    assertEquals(0.9, received[1], 1.0e-6);
+  }
+
+  /**
+   * Data that is not a summary is rejected.
+   */
+
+  @Test
+  public void testReadGarbage()
+  {
+    assertThrows(IOException.class, () -> {
+      WavePeakSummary.readFrom(new ByteArrayInputStream(new byte[32]));
+    });
+  }
+
+  /**
+   * Collapsed renderings of models that provide a summary are computed from
+   * the summary.
+   */
+
+  @Test
+  public void testRendererUsesSummary()
+  {
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveSummarized(new WaveMultiNoise(1, 100_000), 64));
+    renderer.render(new WaveImageRenderTarget(200, 50));
+
+    final var channel = renderer.renderStatistics().channels().get(0);
+    assertEquals(RENDER_PATH_COLLAPSED_SUMMARY, channel.path());
+    assertTrue(channel.framesRead() < 100_000L);
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveModelBlockCache;
+import com.io7m.brackish.core.WavePrefetcher;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for prefetchers.
+ */
+
+public final class WavePrefetcherTest
+{
+  private static final long FRAME_NANOS = 16_000_000L;
+
+  /**
+   * Panning forwards prefetches the region after the view, and the
+   * prefetched blocks are then served from the cache.
+   */
+
+  @Test
+  public void testForward()
+  {
+    final var model = new WaveMultiNoise(2, 100_000);
+    final var cache = new WaveModelBlockCache(model, 256, 1L << 22);
+    final var prefetcher = WavePrefetcher.create(Runnable::run);
+
+    assertFalse(prefetcher.viewChanged(cache, 0L, 999L, 500.0, 0L));
+    assertTrue(prefetcher.viewChanged(cache, 100L, 1099L, 500.0, FRAME_NANOS));
+    assertTrue(prefetcher.velocity() > 0.0);
+    assertEquals(1100L, prefetcher.requestedLower());
+    assertTrue(prefetcher.requestedUpper() >= 2099L);
+
+    cache.resetStatistics();
+    for (int channel = 0; channel < 2; ++channel) {
+      for (long frame = 1100L; frame <= 2099L; ++frame) {
+        cache.sample(channel, frame);
+      }
+    }
+    assertEquals(0L, cache.misses());
+
+    /*
+     * A small further movement is covered by the existing request.
+     */
+
+    assertFalse(prefetcher.viewChanged(cache, 110L, 1109L, 500.0, FRAME_NANOS * 2L));
+  }
+
+  /**
+   * Panning backwards prefetches the region before the view.
+   */
+
+  @Test
+  public void testBackward()
+  {
+    final var model = new WaveMultiNoise(1, 100_000);
+    final var prefetcher = WavePrefetcher.create(Runnable::run);
+
+    prefetcher.viewChanged(model, 50_000L, 50_999L, 500.0, 0L);
+    assertTrue(prefetcher.viewChanged(model, 49_900L, 50_899L, 500.0, FRAME_NANOS));
+    assertTrue(prefetcher.velocity() < 0.0);
+    assertEquals(49_899L, prefetcher.requestedUpper());
+    assertTrue(prefetcher.requestedLower() <= 48_899L);
+    assertTrue(prefetcher.requestedLower() >= 49_900L - 4_000L);
+  }
+
+  /**
+   * Panning backwards over a region larger than a cache can prefetch at
+   * once fetches the blocks nearest the view.
+   */
+
+  @Test
+  public void testBackwardCapped()
+  {
+    final var model = new WaveMultiNoise(1, 100_000);
+    final var cache = new WaveModelBlockCache(model, 256, 256L * 8L * 8L);
+    final var prefetcher = WavePrefetcher.create(Runnable::run);
+    assertEquals(8, cache.blockCapacity());
+
+    prefetcher.viewChanged(cache, 50_000L, 50_999L, 500.0, 0L);
+    assertTrue(prefetcher.viewChanged(cache, 49_900L, 50_899L, 500.0, FRAME_NANOS));
+    assertTrue(
+      prefetcher.requestedUpper() - prefetcher.requestedLower() > 256L * 4L);
+
+    cache.resetStatistics();
+    for (long frame = 49_899L; frame >= 48_900L; --frame) {
+      cache.sample(0, frame);
+    }
+    assertEquals(0L, cache.misses());
+  }
+
+  /**
+   * Changes separated by a long pause are not treated as one gesture, and
+   * zooming about the center of the view does not move the view.
+   */
+
+  @Test
+  public void testNoMovement()
+  {
+    final var model = new WaveMultiNoise(1, 100_000);
+    final var prefetcher = WavePrefetcher.create(Runnable::run);
+
+    prefetcher.viewChanged(model, 0L, 999L, 500.0, 0L);
+    assertFalse(prefetcher.viewChanged(model, 100L, 1099L, 500.0, 1_000_000_000L));
+    assertEquals(0.0, prefetcher.velocity());
+
+    assertFalse(prefetcher.viewChanged(model, 0L, 1199L, 500.0, 1_016_000_000L));
+    assertEquals(0.0, prefetcher.velocity());
+  }
+
+  /**
+   * Views rendered from a peak summary, and prefetchers with no lookahead,
+   * prefetch nothing.
+   */
+
+  @Test
+  public void testDisabled()
+  {
+    final var model = new WaveSummarized(new WaveMultiNoise(1, 100_000), 64);
+    final var prefetcher = WavePrefetcher.create(Runnable::run);
+
+    prefetcher.viewChanged(model, 0L, 49_999L, 500.0, 0L);
+    assertFalse(prefetcher.viewChanged(model, 1000L, 50_999L, 500.0, FRAME_NANOS));
+    assertTrue(prefetcher.viewChanged(model, 2000L, 2999L, 500.0, FRAME_NANOS * 2L));
+
+    prefetcher.setLookahead(Duration.ZERO);
+    assertFalse(prefetcher.viewChanged(model, 9000L, 9999L, 500.0, FRAME_NANOS * 3L));
+  }
+}
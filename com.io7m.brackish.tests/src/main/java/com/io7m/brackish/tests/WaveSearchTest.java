@@ -0,0 +1,296 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WavePeakSummary;
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WaveSearch;
+import com.io7m.jranges.RangeInclusiveL;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for searches.
+ */
+
+public final class WaveSearchTest
+{
+  private static final double THRESHOLD = 0.5;
+
+  private static WaveEditable bursts(
+    final long seed,
+    final int frames)
+  {
+    final var random = new Random(seed);
+    final var model = new WaveEditable(1, frames);
+    var frame = 0;
+    var loud = false;
+    while (frame < frames) {
+      final var length = 1 + random.nextInt(loud ? 300 : 20_000);
+      final var end = Math.min(frames, frame + length);
+      for (; frame < end; ++frame) {
+        final var amplitude = loud ? 0.9 : 0.05;
+        model.set(0, frame, (random.nextDouble() * 2.0 - 1.0) * amplitude);
+      }
+      loud = !loud;
+    }
+    return model;
+  }
+
+  private static List<RangeInclusiveL> silencesLinear(
+    final WaveEditable model,
+    final RangeInclusiveL frames,
+    final long minimum)
+  {
+    final var results = new ArrayList<RangeInclusiveL>();
+    var runStart = -1L;
+    for (long frame = frames.lower(); frame <= frames.upper(); ++frame) {
+      if (Math.abs(model.sample(0, frame)) >= THRESHOLD) {
+        if (runStart >= 0L && frame - runStart >= minimum) {
+          results.add(RangeInclusiveL.of(runStart, frame - 1L));
+        }
+        runStart = -1L;
+      } else if (runStart < 0L) {
+        runStart = frame;
+      }
+    }
+    if (runStart >= 0L && frames.upper() + 1L - runStart >= minimum) {
+      results.add(RangeInclusiveL.of(runStart, frames.upper()));
+    }
+    return results;
+  }
+
+  /**
+   * Samples that the summary rounds to just below the threshold are still
+   * found, and samples that it rounds to just above the threshold do not
+   * split silences.
+   */
+
+  @Test
+  public void testFloatBoundary()
+  {
+    final var threshold = WaveSearch.amplitudeOfDecibels(-1.0);
+    final var loud = Math.nextUp(threshold);
+    final var quiet = Math.nextDown(threshold);
+    assertTrue((float) loud < threshold);
+
+    final var model = new WaveEditable(1, 100_000);
+    model.set(0, 30_000L, quiet);
+    model.set(0, 50_000L, loud);
+    model.set(0, 80_000L, -loud);
+
+    final var summary = WavePeakSummary.build(model, 256);
+    final var search = WaveSearch.create(model, summary);
+
+    assertEquals(OptionalLong.of(50_000L), search.nextAbove(0, 0L, threshold));
+    assertEquals(OptionalLong.of(80_000L), search.nextAbove(0, 50_001L, threshold));
+    assertEquals(
+      OptionalLong.of(80_000L),
+      search.previousAbove(0, 99_999L, threshold)
+    );
+    assertEquals(
+      OptionalLong.of(50_000L),
+      search.previousAbove(0, 79_999L, threshold)
+    );
+
+    final var all = RangeInclusiveL.of(0L, 99_999L);
+    final var expected = List.of(
+      RangeInclusiveL.of(0L, 49_999L),
+      RangeInclusiveL.of(50_001L, 79_999L),
+      RangeInclusiveL.of(80_001L, 99_999L)
+    );
+    assertEquals(expected, search.silences(0, all, threshold, 10_000L));
+    assertEquals(expected, search.silences(0, all, threshold, 100L));
+  }
+
+  /**
+   * Silences are found even when every block of the level searched holds
+   * a quiet sample that the summary cannot distinguish from the threshold.
+   */
+
+  @Test
+  public void testFloatBoundarySilence()
+  {
+    final var threshold = WaveSearch.amplitudeOfDecibels(-1.0);
+    final var quiet = Math.nextDown(threshold);
+    assertTrue(Math.nextUp((float) quiet) >= threshold);
+
+    final var model = new WaveEditable(1, 100_000);
+    for (long frame = 0L; frame < 100_000L; frame += 1000L) {
+      model.set(0, frame, 1.0);
+    }
+    for (long frame = 21_000L; frame < 50_000L; frame += 1000L) {
+      model.set(0, frame, quiet);
+    }
+
+    final var summary = WavePeakSummary.build(model, 256);
+    final var search = WaveSearch.create(model, summary);
+
+    assertEquals(
+      List.of(RangeInclusiveL.of(20_001L, 49_999L)),
+      search.silences(0, RangeInclusiveL.of(0L, 99_999L), threshold, 10_000L)
+    );
+  }
+
+  /**
+   * Threshold searches agree with a linear scan, and read only the frames
+   * of the blocks that contain matches.
+   */
+
+  @Test
+  public void testAbove()
+  {
+    final var model = new WaveEditable(1, 1_000_000);
+    model.set(0, 123_456L, 0.7);
+    model.set(0, 123_457L, -0.8);
+    model.set(0, 900_001L, -0.6);
+    model.set(0, 900_002L, 0.2);
+
+    final var summary = WavePeakSummary.build(model, 256);
+    final var counting = new Counting(model);
+    final var search = WaveSearch.create(counting, summary);
+
+    assertEquals(OptionalLong.of(123_456L), search.nextAbove(0, 0L, THRESHOLD));
+    assertEquals(OptionalLong.of(123_457L), search.nextAbove(0, 123_457L, THRESHOLD));
+    assertEquals(OptionalLong.of(900_001L), search.nextAbove(0, 123_458L, THRESHOLD));
+    assertEquals(OptionalLong.empty(), search.nextAbove(0, 900_002L, THRESHOLD));
+    assertEquals(OptionalLong.empty(), search.nextAbove(0, 0L, 0.95));
+
+    assertEquals(OptionalLong.of(900_001L), search.previousAbove(0, 999_999L, THRESHOLD));
+    assertEquals(OptionalLong.of(123_457L), search.previousAbove(0, 900_000L, THRESHOLD));
+    assertEquals(OptionalLong.of(123_456L), search.previousAbove(0, 123_456L, THRESHOLD));
+    assertEquals(OptionalLong.empty(), search.previousAbove(0, 123_455L, THRESHOLD));
+
+    assertTrue(
+      counting.reads < 256L * 16L,
+      "Read %d frames".formatted(counting.reads)
+    );
+  }
+
+  /**
+   * Silence searches agree with a linear scan for minimum lengths handled
+   * both by the pyramid and by the fallback for short silences.
+   */
+
+  @Test
+  public void testSilences()
+  {
+    for (long seed = 0L; seed < 4L; ++seed) {
+      final var model = bursts(seed, 300_000);
+      final var summary = WavePeakSummary.build(model, 64);
+      final var search = WaveSearch.create(model, summary);
+
+      for (final var minimum : new long[]{1L, 100L, 129L, 1000L, 5000L, 40_000L}) {
+        for (final var range : List.of(
+          RangeInclusiveL.of(0L, 299_999L),
+          RangeInclusiveL.of(12_345L, 234_567L),
+          RangeInclusiveL.of(100L, 100L))) {
+          assertEquals(
+            silencesLinear(model, range, minimum),
+            search.silences(0, range, THRESHOLD, minimum),
+            "Seed %d, minimum %d, range %s".formatted(seed, minimum, range)
+          );
+        }
+      }
+    }
+  }
+
+  /**
+   * Long silences are found without reading most of the waveform.
+   */
+
+  @Test
+  public void testSilencesPruned()
+  {
+    final var model = bursts(7L, 1_000_000);
+    final var summary = WavePeakSummary.build(model, 256);
+    final var counting = new Counting(model);
+    final var search = WaveSearch.create(counting, summary);
+    final var range = RangeInclusiveL.of(0L, 999_999L);
+
+    assertEquals(
+      silencesLinear(model, range, 10_000L),
+      search.silences(0, range, THRESHOLD, 10_000L)
+    );
+    assertTrue(
+      counting.reads < 100_000L,
+      "Read %d frames".formatted(counting.reads)
+    );
+  }
+
+  /**
+   * Decibels are converted to amplitudes.
+   */
+
+  @Test
+  public void testDecibels()
+  {
+    assertEquals(1.0, WaveSearch.amplitudeOfDecibels(0.0), 1.0e-12);
+    assertEquals(0.5011872336, WaveSearch.amplitudeOfDecibels(-6.0), 1.0e-9);
+  }
+
+  private static final class Counting implements WaveModelType
+  {
+    private final WaveEditable delegate;
+    private long reads;
+
+    Counting(
+      final WaveEditable inDelegate)
+    {
+      this.delegate = inDelegate;
+    }
+
+    @Override
+    public long frameCount()
+    {
+      return this.delegate.frameCount();
+    }
+
+    @Override
+    public int channelCount()
+    {
+      return this.delegate.channelCount();
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      ++this.reads;
+      return this.delegate.sample(channel, frameIndex);
+    }
+
+    @Override
+    public double sampleOrDefault(
+      final int channel,
+      final long frameIndex,
+      final double orElse)
+    {
+      ++this.reads;
+      return this.delegate.sampleOrDefault(channel, frameIndex, orElse);
+    }
+  }
+}
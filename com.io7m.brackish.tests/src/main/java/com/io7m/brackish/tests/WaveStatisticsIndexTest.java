@@ -0,0 +1,322 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveHeadlessRenderer;
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WaveRenderPaints;
+import com.io7m.brackish.core.WaveStatistics;
+import com.io7m.brackish.core.WaveStatisticsIndex;
+import com.io7m.brackish.core.WaveStatisticsIndexBuilder;
+import com.io7m.jranges.RangeInclusiveL;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for statistics indices.
+ */
+
+public final class WaveStatisticsIndexTest
+{
+  private static final double EPSILON = 1.0e-6;
+
+  private static WaveEditable random(
+    final long seed,
+    final int frames)
+  {
+    final var random = new Random(seed);
+    final var model = new WaveEditable(2, frames);
+    for (int channel = 0; channel < 2; ++channel) {
+      for (int frame = 0; frame < frames; ++frame) {
+        final var value = (random.nextDouble() * 2.2 - 1.1) + 0.01 * channel;
+        model.set(channel, frame, Math.clamp(value, -1.0, 1.0));
+      }
+    }
+    return model;
+  }
+
+  private static WaveStatistics linear(
+    final WaveEditable model,
+    final int channel,
+    final long lower,
+    final long upper)
+  {
+    var sum = 0.0;
+    var squares = 0.0;
+    var peak = 0.0;
+    var clipped = 0L;
+    for (long frame = lower; frame <= upper; ++frame) {
+      final var sample = model.sample(channel, frame);
+      sum += sample;
+      squares += sample * sample;
+      peak = Math.max(peak, Math.abs(sample));
+      if (Math.abs(sample) >= WaveStatisticsIndex.DEFAULT_CLIP_LEVEL) {
+        ++clipped;
+      }
+    }
+    final var frames = (upper - lower) + 1L;
+    return new WaveStatistics(
+      frames,
+      peak,
+      Math.sqrt(squares / frames),
+      sum / frames,
+      clipped
+    );
+  }
+
+  private static void assertStatistics(
+    final WaveStatistics expected,
+    final WaveStatistics received)
+  {
+    assertEquals(expected.frames(), received.frames());
+    assertEquals(expected.clippedSamples(), received.clippedSamples());
+    assertEquals(expected.peak(), received.peak(), EPSILON);
+    assertEquals(expected.rms(), received.rms(), EPSILON);
+    assertEquals(expected.dcOffset(), received.dcOffset(), EPSILON);
+  }
+
+  /**
+   * Exact range queries agree with a linear scan.
+   */
+
+  @Test
+  public void testExact()
+  {
+    final var model = random(1L, 10_001);
+    final var index =
+      WaveStatisticsIndex.build(model, 64, WaveStatisticsIndex.DEFAULT_CLIP_LEVEL);
+    final var random = new Random(2L);
+
+    for (int query = 0; query < 200; ++query) {
+      final var a = random.nextLong(10_001L);
+      final var b = random.nextLong(10_001L);
+      final var lower = Math.min(a, b);
+      final var upper = Math.max(a, b);
+      final var channel = query % 2;
+      assertStatistics(
+        linear(model, channel, lower, upper),
+        index.statistics(channel, RangeInclusiveL.of(lower, upper), model)
+      );
+    }
+
+    assertStatistics(
+      linear(model, 1, 0L, 10_000L),
+      index.statistics(1, RangeInclusiveL.of(0L, 20_000L), model)
+    );
+  }
+
+  /**
+   * Block queries cover every block that overlaps the range, without
+   * reading the model.
+   */
+
+  @Test
+  public void testBlocks()
+  {
+    final var model = random(3L, 1000);
+    final var index =
+      WaveStatisticsIndex.build(model, 100, WaveStatisticsIndex.DEFAULT_CLIP_LEVEL);
+
+    assertStatistics(
+      linear(model, 0, 100L, 399L),
+      index.statistics(0, RangeInclusiveL.of(150L, 301L))
+    );
+    assertEquals(
+      linear(model, 0, 100L, 399L).clippedSamples(),
+      index.clippedSamples(0, 150L, 302L)
+    );
+    assertEquals(0L, index.clippedSamples(0, 500L, 500L));
+    assertEquals(
+      new WaveStatistics(0L, 0.0, 0.0, 0.0, 0L),
+      index.statistics(0, RangeInclusiveL.of(2000L, 3000L))
+    );
+  }
+
+  /**
+   * Shorter channels are padded with silence, and the final partial block
+   * is included.
+   */
+
+  @Test
+  public void testBuilderPartial()
+  {
+    final var builder =
+      new WaveStatisticsIndexBuilder(2, 10, 0.9);
+    for (int frame = 0; frame < 25; ++frame) {
+      builder.add(0, 0.5);
+    }
+    for (int frame = 0; frame < 5; ++frame) {
+      builder.add(1, -1.0);
+    }
+
+    final var index = builder.build();
+    assertEquals(25L, index.frameCount());
+
+    final var all = RangeInclusiveL.of(0L, 24L);
+    assertStatistics(
+      new WaveStatistics(25L, 0.5, 0.5, 0.5, 0L),
+      index.statistics(0, all)
+    );
+
+    final var padded = index.statistics(1, all);
+    assertEquals(5L, padded.clippedSamples());
+    assertEquals(-5.0 / 25.0, padded.dcOffset(), EPSILON);
+    assertEquals(1.0, padded.peak(), EPSILON);
+  }
+
+  /**
+   * Collapsed columns containing clipped samples are highlighted when the
+   * clip fill is not transparent.
+   */
+
+  @Test
+  public void testClipHighlight()
+  {
+    final var edit = new WaveEditable(1, 10_000);
+    for (long frame = 0L; frame < 10_000L; ++frame) {
+      edit.set(0, frame, 0.1);
+    }
+    for (long frame = 5000L; frame < 5005L; ++frame) {
+      edit.set(0, frame, 1.0);
+    }
+
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveSummarized(edit, 100));
+
+    final var target = new WaveImageRenderTarget(100, 100);
+    renderer.render(target);
+    final var red = WaveImageRenderTarget.argbOf(Color.RED);
+    assertNotEquals(red, pixel(target, 50, 2));
+
+    final var defaults = WaveRenderPaints.defaults();
+    renderer.setPaints(
+      new WaveRenderPaints(
+        defaults.background(),
+        defaults.centerLine(),
+        defaults.expandedSampleStroke(),
+        defaults.expandedSampleFill(),
+        defaults.collapsedSampleFill(),
+        defaults.placeholderFill(),
+        Color.RED
+      )
+    );
+    renderer.render(target);
+    assertEquals(red, pixel(target, 50, 2));
+    assertEquals(red, pixel(target, 50, 97));
+    assertNotEquals(red, pixel(target, 40, 2));
+    assertNotEquals(red, pixel(target, 60, 2));
+  }
+
+  /**
+   * Columns narrower than a block of the index are highlighted from their
+   * own extrema, and so a single clipped sample highlights only the
+   * columns that contain it.
+   */
+
+  @Test
+  public void testClipHighlightNarrowColumns()
+  {
+    final var edit = new WaveEditable(1, 10_000);
+    edit.set(0, 5000L, 1.0);
+
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveSummarized(edit, 1024));
+
+    final var defaults = WaveRenderPaints.defaults();
+    renderer.setPaints(
+      new WaveRenderPaints(
+        defaults.background(),
+        defaults.centerLine(),
+        defaults.expandedSampleStroke(),
+        defaults.expandedSampleFill(),
+        defaults.collapsedSampleFill(),
+        defaults.placeholderFill(),
+        Color.RED
+      )
+    );
+
+    final var target = new WaveImageRenderTarget(400, 100);
+    renderer.render(target);
+
+    final var red = WaveImageRenderTarget.argbOf(Color.RED);
+    var highlighted = 0;
+    for (int x = 0; x < 400; ++x) {
+      if (pixel(target, x, 97) == red) {
+        ++highlighted;
+      }
+    }
+    assertEquals(red, pixel(target, 200, 97));
+    assertTrue(highlighted <= 2, "Highlighted %d columns".formatted(highlighted));
+  }
+
+  /**
+   * Columns plotted from a peak summary are highlighted from the index,
+   * and so a clipped sample in a block that straddles two columns
+   * highlights at most the one neighbouring column as well.
+   */
+
+  @Test
+  public void testClipHighlightWideColumns()
+  {
+    final var edit = new WaveEditable(1, 100_000);
+    edit.set(0, 705L, 1.0);
+
+    final var renderer = new WaveHeadlessRenderer();
+    renderer.setWaveModel(new WaveSummarized(edit, 100));
+
+    final var defaults = WaveRenderPaints.defaults();
+    renderer.setPaints(
+      new WaveRenderPaints(
+        defaults.background(),
+        defaults.centerLine(),
+        defaults.expandedSampleStroke(),
+        defaults.expandedSampleFill(),
+        defaults.collapsedSampleFill(),
+        defaults.placeholderFill(),
+        Color.RED
+      )
+    );
+
+    final var target = new WaveImageRenderTarget(400, 100);
+    renderer.render(target);
+
+    final var red = WaveImageRenderTarget.argbOf(Color.RED);
+    var highlighted = 0;
+    for (int x = 0; x < 400; ++x) {
+      if (pixel(target, x, 97) == red) {
+        ++highlighted;
+      }
+    }
+    assertEquals(red, pixel(target, 2, 97));
+    assertTrue(highlighted <= 2, "Highlighted %d columns".formatted(highlighted));
+  }
+
+  private static int pixel(
+    final WaveImageRenderTarget target,
+    final int x,
+    final int y)
+  {
+    return target.pixels()[(y * (int) target.width()) + x];
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveModelType;
+import com.io7m.brackish.core.WavePeakSummary;
+import com.io7m.brackish.core.WaveStatisticsIndex;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A model that delegates to another model and provides a peak summary
+ * and statistics index built from it.
+ */
+
+public final class WaveSummarized implements WaveModelType
+{
+  private final WaveModelType delegate;
+  private final Optional<WavePeakSummary> summary;
+  private final Optional<WaveStatisticsIndex> statistics;
+
+  /**
+   * A model that delegates to another model and provides a peak summary
+   * and statistics index built from it.
+   *
+   * @param inDelegate  The delegate model
+   * @param inBlockSize The summary block size
+   */
+
+  public WaveSummarized(
+    final WaveModelType inDelegate,
+    final int inBlockSize)
+  {
+    this.delegate =
+      Objects.requireNonNull(inDelegate, "delegate");
+    this.summary =
+      Optional.of(WavePeakSummary.build(inDelegate, inBlockSize));
+    this.statistics =
+      Optional.of(WaveStatisticsIndex.build(
+        inDelegate,
+        inBlockSize,
+        WaveStatisticsIndex.DEFAULT_CLIP_LEVEL
+      ));
+  }
+
+  @Override
+  public long frameCount()
+  {
+    return this.delegate.frameCount();
+  }
+
+  @Override
+  public int channelCount()
+  {
+    return this.delegate.channelCount();
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    return this.delegate.sample(channel, frameIndex);
+  }
+
+  @Override
+  public double sampleOrDefault(
+    final int channel,
+    final long frameIndex,
+    final double orElse)
+  {
+    return this.delegate.sampleOrDefault(channel, frameIndex, orElse);
+  }
+
+  @Override
+  public Optional<WavePeakSummary> peakSummary()
+  {
+    return this.summary;
+  }
+
+  @Override
+  public Optional<WaveStatisticsIndex> statisticsIndex()
+  {
+    return this.statistics;
+  }
+}
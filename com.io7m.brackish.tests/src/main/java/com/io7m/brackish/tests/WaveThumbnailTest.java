@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WavePeakSummary;
+import com.io7m.brackish.core.WaveRenderPaints;
+import com.io7m.brackish.core.WaveThumbnailLoader;
+import com.io7m.brackish.core.WaveThumbnailRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for thumbnails.
+ */
+
+public final class WaveThumbnailTest
+{
+  private static final WaveRenderPaints PAINTS =
+    WaveRenderPaints.defaults();
+  private static final int BACKGROUND =
+    WaveImageRenderTarget.argbOf(PAINTS.background());
+  private static final int COLLAPSED =
+    WaveImageRenderTarget.argbOf(PAINTS.collapsedSampleFill());
+
+  private static int pixel(
+    final WaveImageRenderTarget target,
+    final int x,
+    final int y)
+  {
+    return target.pixels()[(y * (int) target.width()) + x];
+  }
+
+  /**
+   * Thumbnails stack each channel of the summary in its own band.
+   */
+
+  @Test
+  public void testRender()
+  {
+    final var summary =
+      WavePeakSummary.build(new WaveConstant(2, 100_000L, 0.5), 256);
+    final var target = new WaveImageRenderTarget(64, 40);
+    new WaveThumbnailRenderer().render(target, summary, PAINTS);
+
+    assertEquals(BACKGROUND, pixel(target, 32, 1));
+    assertEquals(COLLAPSED, pixel(target, 32, 7));
+    assertEquals(BACKGROUND, pixel(target, 32, 18));
+    assertEquals(BACKGROUND, pixel(target, 32, 21));
+    assertEquals(COLLAPSED, pixel(target, 32, 27));
+    assertEquals(BACKGROUND, pixel(target, 32, 38));
+  }
+
+  /**
+   * Placeholders fill the entire thumbnail.
+   */
+
+  @Test
+  public void testPlaceholder()
+  {
+    final var target = new WaveImageRenderTarget(16, 16);
+    new WaveThumbnailRenderer().renderPlaceholder(target, PAINTS);
+
+    final var first = pixel(target, 0, 0);
+    for (final var pixel : target.pixels()) {
+      assertEquals(first, pixel);
+    }
+  }
+
+  /**
+   * Loaded summaries are delivered, retained, and delivered immediately
+   * on subsequent requests.
+   */
+
+  @Test
+  public void testLoadAndRetain()
+  {
+    final var summary =
+      WavePeakSummary.build(new WaveConstant(1, 1000L, 0.5), 64);
+    final var calls = new AtomicInteger();
+    final var loader = WaveThumbnailLoader.<String>create(
+      item -> {
+        calls.incrementAndGet();
+        return summary;
+      },
+      2,
+      Runnable::run,
+      Runnable::run
+    );
+
+    final var received = new ArrayList<WavePeakSummary>();
+    loader.request("a", received::add);
+    loader.request("a", received::add);
+    assertEquals(2, received.size());
+    assertSame(summary, received.get(1));
+    assertEquals(1, calls.get());
+    assertEquals(1L, loader.loads());
+
+    loader.request("b", received::add);
+    loader.request("c", received::add);
+    assertTrue(loader.cached("a").isEmpty());
+    assertTrue(loader.cached("c").isPresent());
+  }
+
+  /**
+   * Cancelled requests are never delivered, whether they are cancelled
+   * before or after loading.
+   */
+
+  @Test
+  public void testCancel()
+  {
+    final var summary =
+      WavePeakSummary.build(new WaveConstant(1, 1000L, 0.5), 64);
+    final var work = new ArrayDeque<Runnable>();
+    final var delivery = new ArrayDeque<Runnable>();
+    final var loader = WaveThumbnailLoader.<String>create(
+      item -> summary,
+      8,
+      work::add,
+      delivery::add
+    );
+
+    final var received = new ArrayList<WavePeakSummary>();
+    final var r0 = loader.request("a", received::add);
+    r0.cancel();
+    work.poll().run();
+    assertTrue(delivery.isEmpty());
+
+    final var r1 = loader.request("b", received::add);
+    work.poll().run();
+    r1.cancel();
+    delivery.poll().run();
+
+    loader.request("c", received::add);
+    work.poll().run();
+    delivery.poll().run();
+
+    assertEquals(1, received.size());
+    assertEquals(2L, loader.cancellations());
+  }
+
+  /**
+   * Requests for an item that is already being loaded share the load, and
+   * the load continues for as long as any request is waiting for it.
+   */
+
+  @Test
+  public void testSharedLoads()
+  {
+    final var summary =
+      WavePeakSummary.build(new WaveConstant(1, 1000L, 0.5), 64);
+    final var calls = new AtomicInteger();
+    final var work = new ArrayDeque<Runnable>();
+    final var delivery = new ArrayDeque<Runnable>();
+    final var loader = WaveThumbnailLoader.<String>create(
+      item -> {
+        calls.incrementAndGet();
+        return summary;
+      },
+      8,
+      work::add,
+      delivery::add
+    );
+
+    final var received = new ArrayList<WavePeakSummary>();
+    final var r0 = loader.request("a", received::add);
+    loader.request("a", received::add);
+    loader.request("a", received::add);
+    assertEquals(1, work.size());
+    assertEquals(1L, loader.loads());
+
+    r0.cancel();
+    work.poll().run();
+    delivery.poll().run();
+    assertEquals(1, calls.get());
+    assertEquals(2, received.size());
+    assertEquals(0L, loader.cancellations());
+
+    loader.request("a", received::add);
+    assertEquals(3, received.size());
+    assertTrue(work.isEmpty());
+  }
+
+  /**
+   * Failed loads are counted, and delivered to the failure receivers of
+   * every request waiting for them.
+   */
+
+  @Test
+  public void testFailure()
+  {
+    final var loader = WaveThumbnailLoader.<String>create(
+      item -> {
+        throw new IOException("Missing");
+      },
+      8,
+      Runnable::run,
+      Runnable::run
+    );
+
+    final var received = new ArrayList<WavePeakSummary>();
+    loader.request("a", received::add);
+    assertEquals(0, received.size());
+    assertEquals(1L, loader.failures());
+    assertTrue(loader.cached("a").isEmpty());
+
+    final var failed = new ArrayList<Throwable>();
+    loader.request("a", received::add, failed::add);
+    assertEquals(0, received.size());
+    assertEquals(1, failed.size());
+    assertEquals("Missing", failed.get(0).getMessage());
+    assertEquals(2L, loader.failures());
+  }
+}
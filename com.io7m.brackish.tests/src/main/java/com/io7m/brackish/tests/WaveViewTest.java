@@ -17,24 +17,76 @@
 
 package com.io7m.brackish.tests;
 
+import com.io7m.brackish.core.WaveImageRenderTarget;
+import com.io7m.brackish.core.WaveRenderScheduler;
 import com.io7m.brackish.core.WaveView;
 import com.io7m.jranges.RangeInclusiveL;
 import com.io7m.xoanon.commander.api.XCCommanderType;
 import com.io7m.xoanon.commander.api.XCRobotType;
 import com.io7m.xoanon.extension.XoExtension;
+import javafx.event.Event;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.io7m.brackish.core.WaveLayoutMode.WAVE_LAYOUT_FILL;
+import static com.io7m.brackish.core.WaveLayoutMode.WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID;
+import static com.io7m.brackish.core.WaveLayoutMode.WAVE_LAYOUT_SINGLE_CANVAS_STACKED;
+import static com.io7m.brackish.core.WaveLayoutMode.WAVE_LAYOUT_VIRTUALIZED;
+import static com.io7m.brackish.core.WaveRenderPath.RENDER_PATH_COLLAPSED;
 import static com.io7m.brackish.core.WaveRenderStyle.WAVE_BOXES;
 import static com.io7m.brackish.core.WaveRenderStyle.WAVE_INTERPOLATE_LINEAR;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(XoExtension.class)
 public final class WaveViewTest
 {
+  private static int topPixel(
+    final WaveView view)
+  {
+    final var canvas =
+      (Canvas) view.getChildrenUnmodifiable()
+        .stream()
+        .filter(n -> n instanceof Canvas)
+        .findFirst()
+        .orElseThrow();
+
+    final var image = canvas.snapshot(null, null);
+    return image.getPixelReader().getArgb(300, 5);
+  }
+
+  private static void fill(
+    final WaveEditable model,
+    final double value)
+  {
+    for (long frame = 0L; frame < model.frameCount(); ++frame) {
+      model.set(0, frame, value);
+    }
+  }
+
+  private static long canvasCount(
+    final WaveView view)
+  {
+    return view.getChildren()
+      .stream()
+      .filter(n -> n instanceof Canvas)
+      .count();
+  }
+
   /**
    * The empty wave model has the expected properties.
    *
@@ -323,4 +375,631 @@ public final class WaveViewTest
     assertEquals(RangeInclusiveL.of(0L, 127L), view.viewRangeProperty().get());
     robot.waitForFrames(120);
   }
+
+  /**
+   * Redraws submitted to a dedicated scheduler are eventually executed.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSchedulerDrains(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveStereoNoise(8192);
+    final var waveView =
+      new AtomicReference<WaveView>();
+    final var scheduler =
+      new AtomicReference<WaveRenderScheduler>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var s = WaveRenderScheduler.create();
+      s.setPulseBudget(Duration.ofMillis(1L));
+      scheduler.set(s);
+
+      final var view = new WaveView();
+      view.setRenderScheduler(s);
+      view.setRenderFrameBudget(Duration.ZERO);
+      view.setWaveModel(model);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.execute(() -> view.setViewRange(0L, 8191L));
+    robot.execute(view::redraw);
+    robot.waitForFrames(120);
+
+    assertEquals(scheduler.get(), view.renderScheduler());
+    assertEquals(0, scheduler.get().pendingCount());
+  }
+
+  /**
+   * A virtualized layout only creates views for visible channels.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testVirtualizedChannels(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveMultiNoise(128, 4096);
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setLayoutMode(WAVE_LAYOUT_VIRTUALIZED);
+      view.setChannelHeight(100.0);
+      view.setWaveModel(model);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.execute(() -> view.setViewRange(0L, 2000L));
+    robot.execute(view::redraw);
+    robot.waitForFrames(60);
+
+    assertTrue(canvasCount(view) <= 5);
+
+    robot.execute(() -> view.setChannelScrollOffset(6000.0));
+    robot.waitForFrames(60);
+
+    assertTrue(canvasCount(view) <= 5);
+    assertEquals(WAVE_LAYOUT_VIRTUALIZED, view.layoutMode());
+
+    /*
+     * Scroll events move the channels, and are clamped to the content.
+     */
+
+    robot.execute(() -> view.setChannelScrollOffset(0.0));
+    robot.execute(() -> Event.fireEvent(view, scroll(-250.0)));
+    assertEquals(250.0, view.channelScrollOffset());
+    robot.execute(() -> Event.fireEvent(view, scroll(1000.0)));
+    assertEquals(0.0, view.channelScrollOffset());
+    robot.execute(() -> Event.fireEvent(view, scroll(-1.0e9)));
+    assertEquals(128.0 * 100.0 - view.getHeight(), view.channelScrollOffset());
+  }
+
+  private static ScrollEvent scroll(
+    final double deltaY)
+  {
+    return new ScrollEvent(
+      ScrollEvent.SCROLL,
+      10.0,
+      10.0,
+      10.0,
+      10.0,
+      false,
+      false,
+      false,
+      false,
+      false,
+      false,
+      0.0,
+      deltaY,
+      0.0,
+      deltaY,
+      ScrollEvent.HorizontalTextScrollUnits.NONE,
+      0.0,
+      ScrollEvent.VerticalTextScrollUnits.NONE,
+      0.0,
+      0,
+      null
+    );
+  }
+
+  /**
+   * Single canvas layouts use exactly one node for all channels.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testSingleCanvasLayouts(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveMultiNoise(16, 4096);
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setLayoutMode(WAVE_LAYOUT_SINGLE_CANVAS_STACKED);
+      view.setWaveModel(model);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.execute(() -> view.setViewRange(0L, 2000L));
+    robot.execute(view::redraw);
+    robot.waitForFrames(60);
+    assertEquals(1, canvasCount(view));
+
+    robot.execute(() -> view.setLayoutMode(WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID));
+    robot.execute(() -> view.setViewRange(0L, 128L));
+    robot.execute(view::redraw);
+    robot.waitForFrames(60);
+    assertEquals(1, canvasCount(view));
+  }
+
+  /**
+   * Streaming redraw requests allocate nothing in the steady state, in
+   * every layout.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testStreamingRedrawAllocation(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveMultiNoise(4, 100_000);
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setWaveModel(model);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    final var threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    for (final var mode : List.of(
+      WAVE_LAYOUT_FILL,
+      WAVE_LAYOUT_SINGLE_CANVAS_STACKED,
+      WAVE_LAYOUT_SINGLE_CANVAS_OVERLAID)) {
+      robot.execute(() -> view.setLayoutMode(mode));
+      robot.execute(view::redraw);
+      robot.waitForFrames(60);
+
+      final var allocated = new AtomicLong();
+      robot.execute(() -> {
+        streamRedraws(view, 20_000);
+        final var before = threads.getCurrentThreadAllocatedBytes();
+        streamRedraws(view, 2_000);
+        final var after = threads.getCurrentThreadAllocatedBytes();
+        allocated.set(after - before);
+      });
+      assertEquals(0L, allocated.get(), mode.toString());
+    }
+  }
+
+  private static void streamRedraws(
+    final WaveView view,
+    final int iterations)
+  {
+    for (int index = 0; index < iterations; ++index) {
+      final long first = (index * 512L) % 99_000L;
+      view.redraw(index % 4, first, first + 511L);
+    }
+  }
+
+  /**
+   * Render statistics are collected.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRenderStatistics(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveStereoNoise(8192);
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setWaveModel(model);
+      view.setRenderStatisticsOverlayVisible(true);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.execute(() -> view.setViewRange(0L, 2000L));
+    robot.execute(view::redraw);
+    robot.waitForFrames(60);
+
+    final var statistics = view.renderStatistics();
+    assertTrue(statistics.renders() > 0L);
+    assertEquals(2, statistics.channels().size());
+    for (final var channel : statistics.channels()) {
+      assertEquals(RENDER_PATH_COLLAPSED, channel.path());
+      assertTrue(channel.framesRead() > 0L);
+      assertTrue(channel.drawCommands() > 0L);
+    }
+  }
+
+  /**
+   * Moving the playhead and changing the selection do not re-render the
+   * waveform.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testOverlaysDoNotRerender(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveStereoNoise(8192);
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setWaveModel(model);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.execute(() -> view.setViewRange(0L, 2000L));
+    robot.execute(view::redraw);
+    robot.waitForFrames(60);
+
+    final var canvases = canvasCount(view);
+    final var renders = view.renderStatistics().renders();
+
+    for (int index = 0; index < 100; ++index) {
+      final var frame = index * 20.0;
+      robot.execute(() -> view.setPlayheadFrame(frame));
+    }
+    robot.execute(() -> view.setSelection(RangeInclusiveL.of(100L, 200L)));
+    robot.execute(() -> view.setLoopRegion(RangeInclusiveL.of(0L, 1000L)));
+    robot.waitForFrames(60);
+
+    assertEquals(1800.0, view.playheadFrame());
+    assertEquals(canvases, canvasCount(view));
+    assertEquals(renders, view.renderStatistics().renders());
+  }
+
+  /**
+   * Changing the waveform paints redraws the channel views from their
+   * cached column extrema, without reading the model again.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testPaintChangesUseCache(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveEditable(1, 8192);
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setWaveModel(model);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.execute(view::redraw);
+    robot.waitForFrames(60);
+
+    final var before = view.renderStatistics();
+    fill(model, 1.0);
+
+    robot.execute(() -> {
+      view.waveformCollapsedSampleFillProperty().set(Color.RED);
+      view.waveformBackgroundColorProperty().set(Color.BLUE);
+    });
+    robot.waitForFrames(60);
+
+    final var after = view.renderStatistics();
+    assertTrue(after.renders() > before.renders());
+    assertTrue(after.cacheHits() > before.cacheHits());
+    assertEquals(before.cacheMisses(), after.cacheMisses());
+    assertEquals(0L, after.channels().get(0).framesRead());
+
+    final var pixel = new AtomicInteger();
+    robot.execute(() -> pixel.set(topPixel(view)));
+    assertEquals(WaveImageRenderTarget.argbOf(Color.BLUE), pixel.get());
+  }
+
+  /**
+   * Swapping models keeps the existing channel views.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testModelSwapReusesViews(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setWaveModel(new WaveStereoNoise(8192));
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.waitForFrames(30);
+
+    final var before = List.copyOf(view.getChildrenUnmodifiable());
+    for (int index = 0; index < 20; ++index) {
+      robot.execute(() -> view.setWaveModel(new WaveStereoNoise(4096)));
+    }
+    robot.waitForFrames(30);
+    assertEquals(before, List.copyOf(view.getChildrenUnmodifiable()));
+
+    robot.execute(() -> view.setWaveModel(new WaveMultiNoise(4, 4096)));
+    robot.waitForFrames(30);
+    assertEquals(4, canvasCount(view));
+
+    robot.execute(() -> view.setWaveModel(new WaveStereoNoise(4096)));
+    robot.waitForFrames(30);
+    assertEquals(2, canvasCount(view));
+  }
+
+  /**
+   * Hidden views are not rendered, and are rendered once when shown again.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testHiddenViewsSuspendRendering(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var waveView =
+      new AtomicReference<WaveView>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setWaveModel(new WaveStereoNoise(8192));
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.waitForFrames(30);
+    assertTrue(view.isEffectivelyVisible());
+
+    robot.execute(() -> view.setVisible(false));
+    robot.waitForFrames(30);
+    assertFalse(view.isEffectivelyVisible());
+
+    final var renders = view.renderStatistics().renders();
+    for (int index = 0; index < 20; ++index) {
+      final var upper = 1000L + (index * 100L);
+      robot.execute(() -> view.setViewRange(0L, upper));
+    }
+    robot.waitForFrames(30);
+    assertEquals(renders, view.renderStatistics().renders());
+
+    robot.execute(() -> view.setVisible(true));
+    robot.waitForFrames(30);
+    assertTrue(view.isEffectivelyVisible());
+    assertTrue(view.renderStatistics().renders() > renders);
+  }
+
+  /**
+   * Interactive resizes display a preview, and the waveform is rendered
+   * once the size settles.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testResizePreview(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var waveView =
+      new AtomicReference<WaveView>();
+    final var stage =
+      new AtomicReference<Stage>();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setWidth(600);
+      newStage.setHeight(400);
+
+      final var view = new WaveView();
+      view.setWaveModel(new WaveStereoNoise(8192));
+      view.setResizeSettleDelay(Duration.ofSeconds(2L));
+      waveView.set(view);
+      stage.set(newStage);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.waitForFrames(30);
+
+    final var renders = view.renderStatistics().renders();
+    for (int index = 0; index < 20; ++index) {
+      final var width = 600.0 + (index * 10.0);
+      robot.execute(() -> stage.get().setWidth(width));
+    }
+    robot.waitForFrames(10);
+    assertEquals(renders, view.renderStatistics().renders());
+
+    Thread.sleep(3_000L);
+    robot.waitForFrames(30);
+    assertTrue(view.renderStatistics().renders() > renders);
+  }
+
+  /**
+   * Frames modified while a full render is pending, or while the view is
+   * hidden, are redrawn from the modified samples.
+   *
+   * @param commander The commander
+   * @param robot     The robot
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRedrawFramesNotLost(
+    final XCCommanderType commander,
+    final XCRobotType robot)
+    throws Exception
+  {
+    final var model =
+      new WaveEditable(1, 100_000);
+    final var waveView =
+      new AtomicReference<WaveView>();
+    final var pixel =
+      new AtomicInteger();
+
+    commander.stageNewAndWait(newStage -> {
+      newStage.setMaxHeight(400);
+      newStage.setMaxWidth(600);
+      newStage.setMinHeight(400);
+      newStage.setMinWidth(600);
+
+      final var view = new WaveView();
+      view.setWaveModel(model);
+      waveView.set(view);
+      newStage.setScene(new Scene(view));
+    });
+
+    final var view = waveView.get();
+    robot.waitForFrames(30);
+    robot.execute(() -> pixel.set(topPixel(view)));
+    final var background = pixel.get();
+
+    /*
+     * Setting the scheduler schedules a full render that reuses the cached
+     * columns; the edit must not be dropped while that render is pending.
+     */
+
+    robot.execute(() -> {
+      view.setRenderScheduler(view.renderScheduler());
+      fill(model, 1.0);
+      view.redraw(0, 0L, model.frameCount() - 1L);
+    });
+    robot.waitForFrames(30);
+    robot.execute(() -> pixel.set(topPixel(view)));
+    assertNotEquals(background, pixel.get());
+    final var loud = pixel.get();
+
+    robot.execute(() -> view.setVisible(false));
+    robot.waitForFrames(10);
+    robot.execute(() -> {
+      fill(model, 0.0);
+      view.redraw(0, 0L, model.frameCount() - 1L);
+    });
+    robot.execute(() -> view.setVisible(true));
+    robot.waitForFrames(30);
+    robot.execute(() -> pixel.set(topPixel(view)));
+    assertNotEquals(loud, pixel.get());
+    assertEquals(background, pixel.get());
+  }
 }
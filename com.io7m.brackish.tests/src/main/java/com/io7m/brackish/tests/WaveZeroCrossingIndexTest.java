@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2024 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.brackish.tests;
+
+import com.io7m.brackish.core.WaveMemoryManager;
+import com.io7m.brackish.core.WaveZeroCrossingIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for zero-crossing indices.
+ */
+
+public final class WaveZeroCrossingIndexTest
+{
+  private static boolean isCrossing(
+    final WaveEditable model,
+    final long frame)
+  {
+    final var sample = model.sample(0, frame);
+    final var before = model.sampleOrDefault(0, frame - 1L, 0.0);
+    final var after = model.sampleOrDefault(0, frame + 1L, 0.0);
+    if (sample == 0.0) {
+      return true;
+    }
+    if (before * sample < 0.0 && Math.abs(sample) < Math.abs(before)) {
+      return true;
+    }
+    return sample * after < 0.0 && Math.abs(sample) <= Math.abs(after);
+  }
+
+  private static OptionalLong nearestLinear(
+    final WaveEditable model,
+    final long frame,
+    final long distance)
+  {
+    for (long d = 0L; d <= distance; ++d) {
+      final var before = frame - d;
+      if (before >= 0L && before < model.frameCount() && isCrossing(model, before)) {
+        return OptionalLong.of(before);
+      }
+      final var after = frame + d;
+      if (after >= 0L && after < model.frameCount() && isCrossing(model, after)) {
+        return OptionalLong.of(after);
+      }
+    }
+    return OptionalLong.empty();
+  }
+
+  private static void checkAgainstLinear(
+    final WaveEditable model,
+    final long seed)
+  {
+    final var index = WaveZeroCrossingIndex.create(
+      model,
+      256,
+      1L << 20,
+      WaveMemoryManager.create(1L << 20)
+    );
+    final var random = new Random(seed);
+    for (int query = 0; query < 2000; ++query) {
+      final var frame = random.nextLong(-100L, model.frameCount() + 100L);
+      final var distance = random.nextLong(3000L);
+      assertEquals(
+        nearestLinear(model, frame, distance),
+        index.nearest(0, frame, distance),
+        "Frame %d, distance %d".formatted(frame, distance)
+      );
+    }
+  }
+
+  /**
+   * Queries over sparse crossings agree with a linear scan.
+   */
+
+  @Test
+  public void testSparse()
+  {
+    final var model = new WaveEditable(1, 50_000);
+    for (int frame = 0; frame < 50_000; ++frame) {
+      model.set(0, frame, Math.sin(frame * 0.001) + 0.01);
+    }
+    checkAgainstLinear(model, 1L);
+  }
+
+  /**
+   * Queries over dense crossings agree with a linear scan.
+   */
+
+  @Test
+  public void testDense()
+  {
+    final var random = new Random(5L);
+    final var model = new WaveEditable(1, 50_000);
+    for (int frame = 0; frame < 50_000; ++frame) {
+      final var value = random.nextInt(5) - 2;
+      model.set(0, frame, value * 0.25);
+    }
+    checkAgainstLinear(model, 2L);
+  }
+
+  /**
+   * Blocks are built lazily, and retained within the budget.
+   */
+
+  @Test
+  public void testLazy()
+  {
+    final var model = new WaveEditable(1, 100_000);
+    for (int frame = 0; frame < 100_000; ++frame) {
+      model.set(0, frame, (frame / 7) % 2 == 0 ? 0.5 : -0.5);
+    }
+
+    final var index = WaveZeroCrossingIndex.create(
+      model,
+      1024,
+      1024L,
+      WaveMemoryManager.create(1L << 20)
+    );
+    assertEquals(OptionalLong.of(48_999L), index.nearest(0, 49_000L, 100L));
+    assertEquals(1L, index.builds());
+
+    for (long frame = 0L; frame < 100_000L; frame += 1000L) {
+      assertTrue(index.nearest(0, frame, 10L).isPresent());
+    }
+    assertTrue(index.memoryUsed() <= 1024L);
+    assertTrue(index.blockCount() < 10);
+
+    index.invalidate();
+    assertEquals(0, index.blockCount());
+    assertEquals(0L, index.memoryUsed());
+  }
+}
@@ -35,6 +35,7 @@ open module com.io7m.brackish.tests
   requires javafx.controls;
   requires javafx.graphics;
   requires com.io7m.brackish.core;
+  requires com.io7m.brackish.cmdline;
 
   exports com.io7m.brackish.tests;
 }